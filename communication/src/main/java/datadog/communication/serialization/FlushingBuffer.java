@@ -11,7 +11,15 @@ public final class FlushingBuffer implements StreamingBuffer {
   private int mark;
 
   public FlushingBuffer(int capacity, ByteBufferConsumer consumer) {
-    this.buffer = ByteBuffer.allocate(capacity);
+    this(capacity, consumer, false);
+  }
+
+  /**
+   * @param direct whether to serialize into a direct buffer, which the consumer can then write to
+   *     a socket without it being copied out of the heap first
+   */
+  public FlushingBuffer(int capacity, ByteBufferConsumer consumer, boolean direct) {
+    this.buffer = direct ? ByteBuffer.allocateDirect(capacity) : ByteBuffer.allocate(capacity);
     this.consumer = consumer;
   }
 
@@ -20,6 +28,11 @@ public final class FlushingBuffer implements StreamingBuffer {
     return buffer.capacity();
   }
 
+  /** The number of bytes taken by the complete messages in the buffer. */
+  public int markedBytes() {
+    return mark;
+  }
+
   @Override
   public boolean isDirty() {
     return mark > 0;
@@ -1,7 +1,10 @@
 package datadog.communication.serialization;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicReference;
 import org.junit.jupiter.api.Test;
 
 public class FlushingBufferTest {
@@ -10,4 +13,19 @@ public class FlushingBufferTest {
   public void testBufferCapacity() {
     assertEquals(5, new FlushingBuffer(5, (messageCount, buffer) -> {}).capacity());
   }
+
+  @Test
+  public void testDirectBufferFlushesMarkedBytes() {
+    AtomicReference<ByteBuffer> flushed = new AtomicReference<>();
+    FlushingBuffer buffer =
+        new FlushingBuffer(16, (messageCount, slice) -> flushed.set(slice), true);
+    buffer.putInt(42);
+    buffer.mark();
+    buffer.putInt(43);
+    assertTrue(buffer.flush());
+    ByteBuffer slice = flushed.get();
+    assertTrue(slice.isDirect());
+    assertEquals(4, slice.remaining());
+    assertEquals(42, slice.getInt());
+  }
 }
@@ -0,0 +1,134 @@
+package datadog.trace.bootstrap;
+
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Context get/put on keys with an injected field and on keys that fall back to the weak-map, using
+ * the three ways rewritten instrumentation retrieves stores: a fast static field for the first
+ * stores, a constant {@code invokedynamic} call-site beyond that, and the array lookup used when
+ * the instrumented class can't use {@code invokedynamic}.
+ */
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 5, timeUnit = SECONDS)
+@Measurement(iterations = 3, time = 5, timeUnit = SECONDS)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(NANOSECONDS)
+@Fork(value = 1)
+public class ContextStoreBenchmark {
+
+  // the benchmark runs in a fresh fork, so the first store is the first fast store
+  private static final int FAST_STORE_ID = 0;
+  private static final int SLOW_STORE_ID;
+
+  // stands in for the invokedynamic call-site, which the JIT treats the same way
+  private static final MethodHandle CALL_SITE;
+
+  static {
+    int storeId = FieldBackedContextStores.getContextStoreId("bench.Key", "bench.Context0");
+    if (storeId != FAST_STORE_ID) {
+      throw new IllegalStateException("Expected first store, got #" + storeId);
+    }
+    for (int i = 1; storeId < FieldBackedContextStores.FAST_STORE_ID_LIMIT; i++) {
+      storeId = FieldBackedContextStores.getContextStoreId("bench.Key", "bench.Context" + i);
+    }
+    SLOW_STORE_ID = storeId;
+    CALL_SITE =
+        FieldBackedContextStores.bootstrapContextStore(
+                MethodHandles.lookup(),
+                "contextStore" + SLOW_STORE_ID,
+                MethodType.methodType(FieldBackedContextStore.class),
+                SLOW_STORE_ID)
+            .dynamicInvoker();
+  }
+
+  private final InstrumentedKey instrumentedKey = new InstrumentedKey();
+  private final Object plainKey = new Object();
+  private final Object context = new Object();
+
+  private static FieldBackedContextStore callSiteStore() {
+    try {
+      return (FieldBackedContextStore) CALL_SITE.invokeExact();
+    } catch (Throwable e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  @Benchmark
+  public Object getInstrumentedFastField() {
+    return FieldBackedContextStores.contextStore0.get(instrumentedKey);
+  }
+
+  @Benchmark
+  public Object getInstrumentedCallSite() {
+    return callSiteStore().get(instrumentedKey);
+  }
+
+  @Benchmark
+  public Object getInstrumentedStoreArray() {
+    return FieldBackedContextStores.getContextStore(SLOW_STORE_ID).get(instrumentedKey);
+  }
+
+  @Benchmark
+  public void putInstrumentedCallSite() {
+    callSiteStore().put(instrumentedKey, context);
+  }
+
+  @Benchmark
+  public void putInstrumentedStoreArray() {
+    FieldBackedContextStores.getContextStore(SLOW_STORE_ID).put(instrumentedKey, context);
+  }
+
+  @Benchmark
+  public Object getPlainCallSite() {
+    return callSiteStore().get(plainKey);
+  }
+
+  @Benchmark
+  public Object getPlainStoreArray() {
+    return FieldBackedContextStores.getContextStore(SLOW_STORE_ID).get(plainKey);
+  }
+
+  @Benchmark
+  public void putPlainCallSite() {
+    callSiteStore().put(plainKey, context);
+  }
+
+  /** Mimics the fields and accessors injected into instrumented key types. */
+  static final class InstrumentedKey implements FieldBackedContextAccessor {
+    private Object fastContext;
+    private Object slowContext;
+
+    @Override
+    public Object $get$__datadogContext$(int storeId) {
+      if (storeId == FAST_STORE_ID) {
+        return fastContext;
+      } else if (storeId == SLOW_STORE_ID) {
+        return slowContext;
+      }
+      return null;
+    }
+
+    @Override
+    public void $put$__datadogContext$(int storeId, Object context) {
+      if (storeId == FAST_STORE_ID) {
+        fastContext = context;
+      } else if (storeId == SLOW_STORE_ID) {
+        slowContext = context;
+      }
+    }
+  }
+}
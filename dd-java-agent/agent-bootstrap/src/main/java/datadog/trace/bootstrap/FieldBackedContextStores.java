@@ -1,6 +1,10 @@
 package datadog.trace.bootstrap;
 
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+import java.lang.invoke.CallSite;
+import java.lang.invoke.ConstantCallSite;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.util.Arrays;
 import java.util.concurrent.ConcurrentHashMap;
 import org.slf4j.Logger;
@@ -88,6 +92,20 @@ public final class FieldBackedContextStores {
     return stores[storeId]; // createStore ensures array is big enough for allocated storeIds
   }
 
+  /**
+   * Bootstrap method for {@code invokedynamic} instructions that retrieve stores beyond the fast
+   * limit. The call-site is bound to the store as a constant, which like the fast fields above can
+   * be folded by the JIT, instead of looking it up in the array of allocated stores on every call.
+   */
+  public static CallSite bootstrapContextStore(
+      final MethodHandles.Lookup lookup,
+      final String name,
+      final MethodType type,
+      final int storeId) {
+    return new ConstantCallSite(
+        MethodHandles.constant(FieldBackedContextStore.class, getContextStore(storeId)));
+  }
+
   private static final ConcurrentHashMap<String, FieldBackedContextStore> STORES_BY_NAME =
       new ConcurrentHashMap<>();
 
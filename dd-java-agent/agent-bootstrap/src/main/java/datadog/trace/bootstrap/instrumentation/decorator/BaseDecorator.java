@@ -23,6 +23,7 @@ public abstract class BaseDecorator {
 
   private static final QualifiedClassNameCache CLASS_NAMES =
       new QualifiedClassNameCache(
+          "qualified_class_names",
           new Function<Class<?>, CharSequence>() {
             @Override
             public String apply(Class<?> clazz) {
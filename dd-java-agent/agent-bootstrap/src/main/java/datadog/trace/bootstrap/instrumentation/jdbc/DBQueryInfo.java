@@ -12,24 +12,40 @@ public final class DBQueryInfo {
   private static final int COMBINED_SQL_LIMIT = 2 * 1024 * 1024; // characters
 
   private static final ToIntFunction<DBQueryInfo> SQL_WEIGHER = DBQueryInfo::weight;
+  // keyed by raw sql, so a hit doesn't need to normalize the statement
   private static final DDCache<String, DBQueryInfo> CACHED_PREPARED_STATEMENTS =
-      DDCaches.newFixedSizeWeightedCache(512, SQL_WEIGHER, COMBINED_SQL_LIMIT);
-  private static final Function<String, DBQueryInfo> NORMALIZE = DBQueryInfo::new;
+      DDCaches.newFixedSizeWeightedCache("sql_statements", 512, SQL_WEIGHER, COMBINED_SQL_LIMIT);
+  // statements which only differ by the size of their IN lists share a single entry
+  private static final DDCache<UTF8BytesString, DBQueryInfo> NORMALIZED_STATEMENTS =
+      DDCaches.newFixedSizeWeightedCache(
+          "normalized_sql_statements", 256, SQL_WEIGHER, COMBINED_SQL_LIMIT);
+  private static final Function<UTF8BytesString, DBQueryInfo> OF_NORMALIZED = DBQueryInfo::new;
+  private static final Function<String, DBQueryInfo> SHARE_NORMALIZED =
+      sql -> NORMALIZED_STATEMENTS.computeIfAbsent(normalize(sql), OF_NORMALIZED);
 
   public static DBQueryInfo ofStatement(String sql) {
-    return NORMALIZE.apply(sql);
+    return new DBQueryInfo(sql);
   }
 
   public static DBQueryInfo ofPreparedStatement(String sql) {
-    return CACHED_PREPARED_STATEMENTS.computeIfAbsent(sql, NORMALIZE);
+    return CACHED_PREPARED_STATEMENTS.computeIfAbsent(sql, SHARE_NORMALIZED);
   }
 
   private final UTF8BytesString operation;
   private final UTF8BytesString sql;
 
   public DBQueryInfo(String sql) {
-    this.sql = SQLNormalizer.normalize(sql);
-    this.operation = UTF8BytesString.create(extractOperation(this.sql));
+    this(normalize(sql));
+  }
+
+  private DBQueryInfo(UTF8BytesString normalizedSql) {
+    this.sql = normalizedSql;
+    this.operation = UTF8BytesString.create(extractOperation(normalizedSql));
+  }
+
+  private static UTF8BytesString normalize(String sql) {
+    // ORMs generate IN lists of many sizes, collapse them so they share the same normalized sql
+    return SQLNormalizer.normalize(sql, true);
   }
 
   public UTF8BytesString getOperation() {
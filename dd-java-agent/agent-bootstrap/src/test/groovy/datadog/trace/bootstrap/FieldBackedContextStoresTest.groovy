@@ -3,6 +3,8 @@ package datadog.trace.bootstrap
 import datadog.trace.agent.test.utils.ThreadUtils
 import datadog.trace.test.util.DDSpecification
 
+import java.lang.invoke.MethodHandles
+import java.lang.invoke.MethodType
 import java.util.concurrent.atomic.AtomicInteger
 
 class FieldBackedContextStoresTest extends DDSpecification {
@@ -25,4 +27,23 @@ class FieldBackedContextStoresTest extends DDSpecification {
     allocatedStores.size() == testAllocations
     (allocatedStores as List).withIndex().collect({ store, storeId -> assert store.storeId == storeId })
   }
+
+  def "test invokedynamic call-sites are bound to allocated stores"() {
+    setup:
+    int storeId = -1
+    for (int i = 0; storeId < FieldBackedContextStores.FAST_STORE_ID_LIMIT; i++) {
+      storeId = FieldBackedContextStores.getContextStoreId("indyKey${i}", "indyValue${i}")
+    }
+
+    when:
+    def callSite = FieldBackedContextStores.bootstrapContextStore(
+      MethodHandles.lookup(),
+      "contextStore${storeId}",
+      MethodType.methodType(FieldBackedContextStore),
+      storeId)
+
+    then:
+    callSite.type() == MethodType.methodType(FieldBackedContextStore)
+    callSite.dynamicInvoker().invoke().is(FieldBackedContextStores.getContextStore(storeId))
+  }
 }
@@ -25,4 +25,13 @@ class DBQueryInfoTest extends DDSpecification {
     "CALL"    | "{CALL /*my-customer-comment*/ STORED_PROC()}"
     "CALL"    | "/*ddps='SqlCommenter',dddbs='my-service'*/ {CALL STORED_PROC()}"
   }
+
+  def "IN lists of different sizes share the normalized sql"() {
+    when:
+    DBQueryInfo first = DBQueryInfo.ofPreparedStatement("SELECT * FROM pets WHERE owner_id IN (?, ?)")
+    DBQueryInfo second = DBQueryInfo.ofPreparedStatement("SELECT * FROM pets WHERE owner_id IN (?, ?, ?, ?)")
+    then:
+    first.getSql() as String == "SELECT * FROM pets WHERE owner_id IN (?)"
+    first.is(second)
+  }
 }
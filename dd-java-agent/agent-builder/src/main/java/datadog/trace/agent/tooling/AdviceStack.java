@@ -33,4 +33,23 @@ final class AdviceStack implements AgentBuilder.Transformer {
 
     return builder;
   }
+
+  /** Injects any helpers needed by the advice, without transforming the type. */
+  void injectHelpers(ClassLoader classLoader, JavaModule module, ProtectionDomain pd) {
+    for (AgentBuilder.Transformer advice : advices) {
+      if (advice instanceof HelperInjector) {
+        ((HelperInjector) advice).transform(null, null, classLoader, module, pd);
+      }
+    }
+  }
+
+  /** Whether the advice refers to context stores, whose ids are only assigned at runtime. */
+  boolean usesContextStores() {
+    for (AgentBuilder.Transformer advice : advices) {
+      if (advice instanceof CombiningTransformerBuilder.VisitingTransformer) {
+        return true;
+      }
+    }
+    return false;
+  }
 }
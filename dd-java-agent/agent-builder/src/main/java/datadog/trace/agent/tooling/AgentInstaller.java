@@ -9,6 +9,7 @@ import datadog.trace.agent.tooling.bytebuddy.SharedTypePools;
 import datadog.trace.agent.tooling.bytebuddy.iast.TaintableRedefinitionStrategyListener;
 import datadog.trace.agent.tooling.bytebuddy.matcher.DDElementMatchers;
 import datadog.trace.agent.tooling.bytebuddy.memoize.MemoizedMatchers;
+import datadog.trace.agent.tooling.bytebuddy.memoize.Memoizer;
 import datadog.trace.agent.tooling.bytebuddy.outline.TypePoolFacade;
 import datadog.trace.agent.tooling.usm.UsmExtractorImpl;
 import datadog.trace.agent.tooling.usm.UsmMessageFactoryImpl;
@@ -22,6 +23,7 @@ import datadog.trace.util.AgentTaskScheduler;
 import de.thetaphi.forbiddenapis.SuppressForbidden;
 import java.lang.instrument.ClassFileTransformer;
 import java.lang.instrument.Instrumentation;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.EnumSet;
@@ -80,6 +82,19 @@ public class AgentInstaller {
       if (DEBUG) {
         log.debug("Instrumentation installed for {}", enabledSystems);
       }
+      int preparseThreads = InstrumenterConfig.get().getResolverPreparseThreads();
+      if (preparseThreads > 0
+          && InstrumenterConfig.get().isResolverOutliningEnabled()
+          && null == InstrumenterConfig.get().deferIntegrationsUntil()) {
+        // outlines only record annotations of interest, so wait until all matchers are installed
+        TypePoolFacade.preparseClassPath(preparseThreads);
+      }
+      if (InstrumenterConfig.get().isResolverHierarchyIndexEnabled()
+          && InstrumenterConfig.get().isResolverMemoizingEnabled()
+          && null == InstrumenterConfig.get().deferIntegrationsUntil()) {
+        // the index is only valid when it covers every installed matcher
+        Memoizer.useHierarchyIndex();
+      }
       int poolCleaningInterval = InstrumenterConfig.get().getResolverResetInterval();
       if (poolCleaningInterval > 0) {
         AgentTaskScheduler.INSTANCE.scheduleAtFixedRate(
@@ -152,25 +167,29 @@ public class AgentInstaller {
             .with(AgentBuilder.DescriptionStrategy.Default.POOL_ONLY)
             .with(AgentStrategies.bufferStrategy())
             .with(AgentStrategies.typeStrategy())
-            .with(new ClassLoadListener())
             // FIXME: we cannot enable it yet due to BB/JVM bug, see
             // https://github.com/raphw/byte-buddy/issues/558
             // .with(AgentBuilder.LambdaInstrumentationStrategy.ENABLED)
             .ignore(globalIgnoresMatcher(skipAdditionalLibraryMatcher));
 
+    // also notified when a class is restored from the transformed class cache
+    List<AgentBuilder.Listener> transformListeners = new ArrayList<>();
+    transformListeners.add(new ClassLoadListener());
+
     if (DEBUG) {
       agentBuilder =
           agentBuilder
               .with(AgentBuilder.RedefinitionStrategy.RETRANSFORMATION)
               .with(AgentStrategies.rediscoveryStrategy())
               .with(redefinitionStrategyListener(enabledSystems))
-              .with(new RedefinitionLoggingListener())
-              .with(new TransformLoggingListener());
+              .with(new RedefinitionLoggingListener());
+      transformListeners.add(new TransformLoggingListener());
     }
 
-    for (final AgentBuilder.Listener listener : listeners) {
-      agentBuilder = agentBuilder.with(listener);
-    }
+    Collections.addAll(transformListeners, listeners);
+    AgentBuilder.Listener transformListener =
+        new AgentBuilder.Listener.Compound(transformListeners);
+    agentBuilder = agentBuilder.with(transformListener);
 
     InstrumenterIndex instrumenterIndex = InstrumenterIndex.readIndex();
 
@@ -196,7 +215,7 @@ public class AgentInstaller {
     }
 
     CombiningTransformerBuilder transformerBuilder =
-        new CombiningTransformerBuilder(agentBuilder, instrumenterIndex);
+        new CombiningTransformerBuilder(agentBuilder, instrumenterIndex, transformListener);
 
     int installedCount = 0;
     for (InstrumenterModule module : instrumenterModules) {
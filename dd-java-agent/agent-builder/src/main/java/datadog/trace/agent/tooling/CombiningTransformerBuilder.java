@@ -10,6 +10,7 @@ import static datadog.trace.agent.tooling.bytebuddy.matcher.NameMatchers.namedOn
 import static net.bytebuddy.matcher.ElementMatchers.not;
 
 import datadog.trace.agent.tooling.bytebuddy.ExceptionHandlers;
+import datadog.trace.agent.tooling.bytebuddy.TransformedClassCache;
 import datadog.trace.agent.tooling.context.FieldBackedContextInjector;
 import datadog.trace.agent.tooling.context.FieldBackedContextMatcher;
 import datadog.trace.agent.tooling.context.FieldBackedContextRequestRewriter;
@@ -58,6 +59,9 @@ public final class CombiningTransformerBuilder
   private final InstrumenterIndex instrumenterIndex;
   private final int knownTransformationCount;
 
+  // notified when a class is restored from the transformed class cache
+  private final AgentBuilder.Listener transformListener;
+
   private final List<MatchRecorder> matchers = new ArrayList<>();
   private final BitSet knownTypesMask;
   private AdviceStack[] transformers;
@@ -66,6 +70,9 @@ public final class CombiningTransformerBuilder
   private int nextRuntimeInstrumentationId;
   private int nextRuntimeTransformationId;
 
+  // identifies the applied instrumentations, so cached transformations are only reused by the same
+  private long signature = InstrumenterConfig.get().toString().hashCode();
+
   // module defined matchers and transformers, shared across members
   private ElementMatcher<? super MethodDescription> ignoredMethods;
   private ElementMatcher<ClassLoader> classLoaderMatcher;
@@ -80,9 +87,12 @@ public final class CombiningTransformerBuilder
   private final List<AgentBuilder.Transformer> advice = new ArrayList<>();
 
   public CombiningTransformerBuilder(
-      AgentBuilder agentBuilder, InstrumenterIndex instrumenterIndex) {
+      AgentBuilder agentBuilder,
+      InstrumenterIndex instrumenterIndex,
+      AgentBuilder.Listener transformListener) {
     this.agentBuilder = agentBuilder;
     this.instrumenterIndex = instrumenterIndex;
+    this.transformListener = transformListener;
     int knownInstrumentationCount = instrumenterIndex.instrumentationCount();
     this.knownTransformationCount = instrumenterIndex.transformationCount();
     this.knownTypesMask = new BitSet(knownTransformationCount);
@@ -100,6 +110,8 @@ public final class CombiningTransformerBuilder
         instrumentationId = nextRuntimeInstrumentationId++;
       }
       InstrumenterState.registerInstrumentation(module, instrumentationId);
+      signature = 31 * signature + module.getClass().getName().hashCode();
+      signature = 31 * signature + instrumentationId;
       prepareInstrumentation(module, instrumentationId);
       for (Instrumenter member : module.typeInstrumentations()) {
         buildTypeInstrumentation(member);
@@ -152,6 +164,9 @@ public final class CombiningTransformerBuilder
       }
     }
 
+    signature = 31 * signature + member.getClass().getName().hashCode();
+    signature = 31 * signature + transformationId;
+
     buildTypeMatcher(member, transformationId);
     buildTypeAdvice(member, transformationId);
   }
@@ -262,6 +277,11 @@ public final class CombiningTransformerBuilder
       applyContextStoreInjection();
     }
 
+    TransformedClassCache.install(
+        new CachedTransformations(transformers, matchers),
+        transformListener,
+        Long.toHexString(signature));
+
     return agentBuilder
         .type(new CombiningMatcher(instrumentation, knownTypesMask, matchers))
         .and(NOT_DECORATOR_MATCHER)
@@ -334,6 +354,59 @@ public final class CombiningTransformerBuilder
     transformers[transformationId] = new AdviceStack(new VisitingTransformer(contextAdvice));
   }
 
+  /** Replays the parts of cached transformations which affect the class-loader. */
+  static final class CachedTransformations implements TransformedClassCache.Transformations {
+    private final AdviceStack[] transformers;
+    private final MatchRecorder[] locationMatchers;
+    private final BitSet usesContextStores = new BitSet();
+
+    CachedTransformations(AdviceStack[] transformers, List<MatchRecorder> matchers) {
+      this.transformers = transformers;
+      List<MatchRecorder> locationMatchers = new ArrayList<>();
+      for (MatchRecorder matcher : matchers) {
+        if (matcher instanceof MatchRecorder.NarrowLocation) {
+          locationMatchers.add(matcher);
+        }
+      }
+      this.locationMatchers = locationMatchers.toArray(new MatchRecorder[0]);
+      for (int id = 0; id < transformers.length; id++) {
+        if (null == transformers[id] || transformers[id].usesContextStores()) {
+          usesContextStores.set(id);
+        }
+      }
+    }
+
+    @Override
+    public BitSet appliedTransformations() {
+      BitSet ids = CombiningMatcher.recordedMatches.get();
+      // context store ids depend on the order stores are first used, which varies between runs
+      if (ids.isEmpty() || ids.intersects(usesContextStores)) {
+        return null;
+      }
+      return (BitSet) ids.clone();
+    }
+
+    @Override
+    public boolean replay(
+        BitSet ids, ClassLoader classLoader, JavaModule module, ProtectionDomain pd) {
+      if (ids.length() > transformers.length || ids.intersects(usesContextStores)) {
+        return false;
+      }
+      // repeat class-loader checks, such as muzzle, which also updates the instrumentation state
+      BitSet accepted = (BitSet) ids.clone();
+      for (MatchRecorder matcher : locationMatchers) {
+        matcher.record(null, classLoader, null, accepted);
+      }
+      if (!accepted.equals(ids)) {
+        return false;
+      }
+      for (int id = ids.nextSetBit(0); id >= 0; id = ids.nextSetBit(id + 1)) {
+        transformers[id].injectHelpers(classLoader, module, pd);
+      }
+      return true;
+    }
+  }
+
   static final class VisitingTransformer implements AgentBuilder.Transformer {
     private final AsmVisitorWrapper visitor;
 
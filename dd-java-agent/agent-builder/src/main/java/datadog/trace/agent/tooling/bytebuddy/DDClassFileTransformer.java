@@ -8,7 +8,8 @@ import net.bytebuddy.agent.builder.AgentBuilder.TransformerDecorator;
 import net.bytebuddy.agent.builder.ResettableClassFileTransformer;
 
 /**
- * Intercepts transformation requests before ByteBuddy so we can perform some initial filtering.
+ * Intercepts transformation requests before ByteBuddy so we can perform some initial filtering,
+ * and reuse transformations cached by earlier runs.
  *
  * <p>This class is only used on Java 7/8, for Java 9+ see {@link DDJava9ClassFileTransformer}.
  */
@@ -34,8 +35,32 @@ public final class DDClassFileTransformer extends ResettableClassFileTransformer
     }
 
     try {
-      return classFileTransformer.transform(
-          classLoader, internalClassName, classBeingRedefined, protectionDomain, classFileBuffer);
+      byte[] cached =
+          TransformedClassCache.lookup(
+              classLoader,
+              internalClassName,
+              classBeingRedefined,
+              protectionDomain,
+              classFileBuffer,
+              null);
+      if (null != cached) {
+        return cached;
+      }
+      byte[] transformed =
+          classFileTransformer.transform(
+              classLoader,
+              internalClassName,
+              classBeingRedefined,
+              protectionDomain,
+              classFileBuffer);
+      TransformedClassCache.store(
+          classLoader,
+          internalClassName,
+          classBeingRedefined,
+          protectionDomain,
+          classFileBuffer,
+          transformed);
+      return transformed;
     } finally {
       SharedTypePools.endTransform();
     }
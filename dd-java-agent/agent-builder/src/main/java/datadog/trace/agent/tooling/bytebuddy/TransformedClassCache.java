@@ -0,0 +1,631 @@
+package datadog.trace.agent.tooling.bytebuddy;
+
+import static datadog.trace.util.AgentThreadFactory.AGENT_THREAD_GROUP;
+
+import datadog.trace.api.Config;
+import datadog.trace.api.DDTraceApiInfo;
+import datadog.trace.api.InstrumenterConfig;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.CodeSource;
+import java.security.ProtectionDomain;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32;
+import net.bytebuddy.agent.builder.AgentBuilder;
+import net.bytebuddy.description.type.TypeDefinition;
+import net.bytebuddy.description.type.TypeDescription;
+import net.bytebuddy.dynamic.ClassFileLocator;
+import net.bytebuddy.dynamic.DynamicType;
+import net.bytebuddy.implementation.LoadedTypeInitializer;
+import net.bytebuddy.pool.TypePool;
+import net.bytebuddy.utility.JavaModule;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Keeps transformed bytecode under the resolver cache dir, so later runs of the same application
+ * can skip matching and transforming classes that haven't changed.
+ *
+ * <p>Each run of the same tracer version, instrumentation setup, service and class-path uses the
+ * same cache file. Entries are keyed by class-loader type, the jar or directory the class was
+ * defined from (including its size and timestamp), the agent version and class name, and only
+ * used when the original bytecode has the same length and checksums. Hierarchy matchers depend on
+ * supertypes defined elsewhere, so entries also record the supertypes outside the JDK and the jars
+ * or directories they were loaded from, and are only used while those are unchanged. Before a
+ * cached class is returned the class-loader checks (including muzzle) and helper injections of the
+ * transformations that were applied to it are replayed; if the class-loader no longer accepts one
+ * of them the class goes through the usual matching and transformation instead. Transformation
+ * listeners are notified of cached classes as if they had just been transformed.
+ *
+ * <p>Entries not used for a few runs are dropped, and the file is capped at a configured size.
+ */
+public final class TransformedClassCache {
+  private static final Logger log = LoggerFactory.getLogger(TransformedClassCache.class);
+
+  /** Number of runs an entry can go unused before it's dropped from the cache file. */
+  private static final int MAX_IDLE_RUNS = 5;
+
+  /** Applies the side effects of transformations restored from the cache. */
+  public interface Transformations {
+    /**
+     * Returns the ids of the transformations just applied on this thread, or {@code null} when the
+     * result cannot be replayed in another run.
+     */
+    BitSet appliedTransformations();
+
+    /**
+     * Replays the class-loader checks and helper injections of the given transformations.
+     *
+     * @return {@code false} if the class-loader no longer accepts one of the transformations
+     */
+    boolean replay(BitSet ids, ClassLoader classLoader, JavaModule module, ProtectionDomain pd);
+  }
+
+  private static volatile TransformedClassCache INSTANCE;
+
+  private final Transformations transformations;
+  private final AgentBuilder.Listener listener;
+  private final Path cacheFile;
+  private final String cacheKey;
+  private final String agentVersion;
+  private final long maxBytes;
+  private final AtomicLong cachedBytes = new AtomicLong();
+  private int run;
+
+  // class-loader type + code source -> internal class name -> transformed class
+  private final Map<String, Map<String, Entry>> entries = new ConcurrentHashMap<>();
+
+  // code source location -> identity of the jar or directory at that location during this run
+  private final Map<String, String> codeSources = new ConcurrentHashMap<>();
+
+  private TransformedClassCache(
+      Transformations transformations,
+      AgentBuilder.Listener listener,
+      Path cacheFile,
+      String cacheKey,
+      String agentVersion,
+      long maxBytes) {
+    this.transformations = transformations;
+    this.listener = listener;
+    this.cacheFile = cacheFile;
+    this.cacheKey = cacheKey;
+    this.agentVersion = agentVersion;
+    this.maxBytes = maxBytes;
+  }
+
+  /**
+   * Activates the cache if a resolver cache dir and size are configured.
+   *
+   * @param transformations replays transformations restored from the cache
+   * @param listener notified when a class is restored from the cache
+   * @param signature identifies the installed instrumentations and their configuration
+   */
+  public static void install(
+      Transformations transformations, AgentBuilder.Listener listener, String signature) {
+    InstrumenterConfig config = InstrumenterConfig.get();
+    String cacheDir = config.getResolverCacheDir();
+    int maxMegabytes = config.getResolverBytecodeCacheSize();
+    if (null == cacheDir || maxMegabytes <= 0) {
+      return;
+    }
+    if (null != config.deferIntegrationsUntil()) {
+      // cached classes would be transformed straight away instead of being deferred
+      log.debug("Transformed class cache is not used when integrations are deferred");
+      return;
+    }
+
+    String agentVersion = DDTraceApiInfo.VERSION + "/" + signature;
+
+    // use different file for each tracer + instrumentation + service + class-path combination
+    String cacheKey =
+        agentVersion
+            + "/"
+            + Config.get().getServiceName()
+            + "/"
+            + Config.get().getVersion()
+            + "/"
+            + System.getProperty("java.version")
+            + "/"
+            + classPathSignature();
+
+    String cacheName =
+        UUID.nameUUIDFromBytes(cacheKey.getBytes(StandardCharsets.UTF_8)) + "-bytecode.cache";
+
+    TransformedClassCache cache =
+        new TransformedClassCache(
+            transformations,
+            listener,
+            Paths.get(cacheDir, cacheName),
+            cacheKey,
+            agentVersion,
+            maxMegabytes * 1024L * 1024L);
+
+    if (Files.exists(cache.cacheFile)) {
+      cache.seedCache();
+    }
+    Runtime.getRuntime().addShutdownHook(cache.new ShutdownHook());
+
+    INSTANCE = cache;
+  }
+
+  /**
+   * Returns the cached transformation of the class, or {@code null} if it must be transformed.
+   *
+   * @param module the class's module, if known
+   */
+  public static byte[] lookup(
+      ClassLoader classLoader,
+      String internalClassName,
+      Class<?> classBeingRedefined,
+      ProtectionDomain pd,
+      byte[] classFileBuffer,
+      Object module) {
+    TransformedClassCache cache = INSTANCE;
+    // only initial class definitions from application class-loaders are cached
+    if (null == cache
+        || null == classLoader
+        || null != classBeingRedefined
+        || null == internalClassName) {
+      return null;
+    }
+    Map<String, Entry> classes = cache.entries.get(cache.definedBy(classLoader, pd));
+    if (null == classes) {
+      return null;
+    }
+    Entry entry = classes.get(internalClassName);
+    if (null == entry
+        || !cache.agentVersion.equals(entry.agentVersion)
+        || !entry.transforms(classFileBuffer)
+        || entry.hierarchyHash != cache.hierarchyHash(classLoader, entry.supertypes)) {
+      return null;
+    }
+    JavaModule javaModule = null != module ? JavaModule.of(module) : null;
+    if (!cache.transformations.replay(entry.ids, classLoader, javaModule, pd)) {
+      return null;
+    }
+    entry.lastUsed = cache.run;
+    cache.notifyListener(classLoader, internalClassName, javaModule, entry.bytecode);
+    return entry.bytecode;
+  }
+
+  /** Records the transformation of a class so it can be reused by later runs. */
+  public static void store(
+      ClassLoader classLoader,
+      String internalClassName,
+      Class<?> classBeingRedefined,
+      ProtectionDomain pd,
+      byte[] classFileBuffer,
+      byte[] transformedBuffer) {
+    TransformedClassCache cache = INSTANCE;
+    if (null == cache
+        || null == classLoader
+        || null != classBeingRedefined
+        || null == internalClassName
+        || null == transformedBuffer) {
+      return;
+    }
+    BitSet ids = cache.transformations.appliedTransformations();
+    if (null == ids) {
+      return;
+    }
+    String[] supertypes = supertypes(classLoader, internalClassName);
+    if (null == supertypes) {
+      return;
+    }
+    if (cache.cachedBytes.addAndGet(transformedBuffer.length) > cache.maxBytes) {
+      cache.cachedBytes.addAndGet(-transformedBuffer.length);
+      return;
+    }
+    Entry entry =
+        new Entry(
+            classLoader.getClass().getName(),
+            cache.codeSource(pd),
+            cache.agentVersion,
+            internalClassName,
+            supertypes,
+            cache.hierarchyHash(classLoader, supertypes),
+            classFileBuffer.length,
+            crc32(classFileBuffer),
+            fnv64(classFileBuffer),
+            ids,
+            transformedBuffer,
+            cache.run);
+    cache
+        .entries
+        .computeIfAbsent(entry.definedBy(), k -> new ConcurrentHashMap<>())
+        .put(internalClassName, entry);
+  }
+
+  /** Notifies the listener as ByteBuddy would had it just transformed the class. */
+  private void notifyListener(
+      ClassLoader classLoader, String internalClassName, JavaModule module, byte[] bytecode) {
+    String typeName = internalClassName.replace('/', '.');
+    try {
+      listener.onDiscovery(typeName, classLoader, module, false);
+      // lazily described from the cached bytecode, so only parsed if the listener needs it
+      TypeDescription type =
+          new TypePool.Default.WithLazyResolution(
+                  new TypePool.CacheProvider.Simple(),
+                  new ClassFileLocator.Compound(
+                      ClassFileLocator.Simple.of(typeName, bytecode),
+                      ClassFileLocators.classFileLocator(classLoader)),
+                  TypePool.Default.ReaderMode.FAST)
+              .describe(typeName)
+              .resolve();
+      listener.onTransformation(
+          type,
+          classLoader,
+          module,
+          false,
+          new DynamicType.Default(
+              type, bytecode, LoadedTypeInitializer.NoOp.INSTANCE, Collections.emptyList()));
+    } catch (Throwable e) {
+      log.debug("Listener failed for cached class {}", typeName, e);
+    } finally {
+      listener.onComplete(typeName, classLoader, module, false);
+    }
+  }
+
+  /**
+   * Returns the supertypes of the class outside the JDK, or {@code null} if they can't be resolved.
+   * They were just described to match the class, so they are usually in the shared type pool.
+   */
+  static String[] supertypes(ClassLoader classLoader, String internalClassName) {
+    try {
+      TypePool typePool = SharedTypePools.typePool(classLoader);
+      LinkedHashSet<String> supertypes = new LinkedHashSet<>();
+      Deque<TypeDefinition> pending = new ArrayDeque<>();
+      pending.add(typePool.describe(internalClassName.replace('/', '.')).resolve());
+      while (!pending.isEmpty()) {
+        TypeDefinition type = pending.poll();
+        TypeDefinition superClass = type.getSuperClass();
+        if (null != superClass) {
+          visitSupertype(superClass.asErasure(), supertypes, pending);
+        }
+        for (TypeDescription anInterface : type.getInterfaces().asErasures()) {
+          visitSupertype(anInterface, supertypes, pending);
+        }
+      }
+      return supertypes.toArray(new String[0]);
+    } catch (Throwable e) {
+      log.debug("Unable to resolve the hierarchy of {}", internalClassName, e);
+      return null;
+    }
+  }
+
+  private static void visitSupertype(
+      TypeDescription type, LinkedHashSet<String> supertypes, Deque<TypeDefinition> pending) {
+    String name = type.getName();
+    // the JDK doesn't change while the cache key stays the same
+    if (!name.startsWith("java.") && supertypes.add(name)) {
+      pending.add(type);
+    }
+  }
+
+  /** Identifies the jars or directories the supertypes are currently loaded from. */
+  long hierarchyHash(ClassLoader classLoader, String[] supertypes) {
+    long hash = 0xcbf29ce484222325L;
+    for (String supertype : supertypes) {
+      String resourceName = supertype.replace('.', '/') + ".class";
+      URL resource = classLoader.getResource(resourceName);
+      String location = null != resource ? container(resource.toString(), resourceName) : "";
+      String id =
+          supertype
+              + "="
+              + codeSources.computeIfAbsent(location, TransformedClassCache::codeSourceId);
+      for (int i = 0; i < id.length(); i++) {
+        hash = (hash ^ id.charAt(i)) * 0x100000001b3L;
+      }
+    }
+    return hash;
+  }
+
+  /** Returns the location of the jar or directory containing the class file resource. */
+  static String container(String resource, String resourceName) {
+    if (resource.endsWith(resourceName)) {
+      return resource.substring(0, resource.length() - resourceName.length());
+    }
+    return resource;
+  }
+
+  /** Identifies where the class-loader defines a class from, such as its jar. */
+  private String definedBy(ClassLoader classLoader, ProtectionDomain pd) {
+    return Entry.definedBy(classLoader.getClass().getName(), codeSource(pd));
+  }
+
+  private String codeSource(ProtectionDomain pd) {
+    CodeSource codeSource = null != pd ? pd.getCodeSource() : null;
+    URL location = null != codeSource ? codeSource.getLocation() : null;
+    if (null == location) {
+      return "";
+    }
+    return codeSources.computeIfAbsent(location.toString(), TransformedClassCache::codeSourceId);
+  }
+
+  /** Adds the size and timestamp of local jars and directories, so replacing them is noticed. */
+  static String codeSourceId(String location) {
+    String path = location;
+    if (path.startsWith("jar:")) {
+      // nested jars are identified by the outermost archive
+      int separator = path.indexOf("!/");
+      path = path.substring(4, separator > 0 ? separator : path.length());
+    }
+    if (path.startsWith("file:")) {
+      try {
+        File file = new File(new URI(path));
+        return location + "/" + file.length() + "/" + file.lastModified();
+      } catch (Exception ignore) {
+        // fall back to just the location
+      }
+    }
+    return location;
+  }
+
+  void seedCache() {
+    log.debug("Seeding TransformedClassCache from {}", cacheFile);
+    try (DataInputStream in =
+        new DataInputStream(new BufferedInputStream(Files.newInputStream(cacheFile)))) {
+      expect(in, "dd-java-agent");
+      expect(in, DDTraceApiInfo.VERSION);
+      expect(in, "TransformedClassCache");
+      expect(in, cacheKey);
+      int lastRun = in.readInt();
+      run = lastRun + 1;
+      int count = in.readInt();
+      long loadedBytes = 0;
+      for (int i = 0; i < count; i++) {
+        Entry entry = Entry.read(in, maxBytes);
+        // entries are persisted most recently used first, so the oldest ones are dropped
+        if (null != entry
+            && agentVersion.equals(entry.agentVersion)
+            && run - entry.lastUsed <= MAX_IDLE_RUNS
+            && loadedBytes + entry.bytecode.length <= maxBytes) {
+          entries
+              .computeIfAbsent(entry.definedBy(), k -> new ConcurrentHashMap<>())
+              .put(entry.className, entry);
+          loadedBytes += entry.bytecode.length;
+        }
+      }
+      cachedBytes.set(loadedBytes);
+    } catch (IOException e) {
+      entries.clear();
+      cachedBytes.set(0);
+      if (log.isDebugEnabled()) {
+        log.info("Unable to seed TransformedClassCache from {}", cacheFile, e);
+      } else {
+        log.info("Unable to seed TransformedClassCache from {}: {}", cacheFile, e.getMessage());
+      }
+    }
+  }
+
+  void persistCache() {
+    log.debug("Persisting TransformedClassCache to {}", cacheFile);
+    List<Entry> persisting = new ArrayList<>();
+    for (Map<String, Entry> classes : entries.values()) {
+      persisting.addAll(classes.values());
+    }
+    persisting.sort((lhs, rhs) -> Integer.compare(rhs.lastUsed, lhs.lastUsed));
+    Path tempFile = cacheFile.resolveSibling(cacheFile.getFileName() + ".tmp");
+    try {
+      try (DataOutputStream out =
+          new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tempFile)))) {
+        out.writeUTF("dd-java-agent");
+        out.writeUTF(DDTraceApiInfo.VERSION);
+        out.writeUTF("TransformedClassCache");
+        out.writeUTF(cacheKey);
+        out.writeInt(run);
+        out.writeInt(persisting.size());
+        for (Entry entry : persisting) {
+          entry.write(out);
+        }
+      }
+      // replace the old file in one step, so a crash while persisting can't corrupt it
+      try {
+        Files.move(
+            tempFile,
+            cacheFile,
+            StandardCopyOption.REPLACE_EXISTING,
+            StandardCopyOption.ATOMIC_MOVE);
+      } catch (AtomicMoveNotSupportedException e) {
+        Files.move(tempFile, cacheFile, StandardCopyOption.REPLACE_EXISTING);
+      }
+    } catch (IOException e) {
+      if (log.isDebugEnabled()) {
+        log.info("Unable to persist TransformedClassCache to {}", cacheFile, e);
+      } else {
+        log.info("Unable to persist TransformedClassCache to {}: {}", cacheFile, e.getMessage());
+      }
+    }
+  }
+
+  private static void expect(DataInputStream in, String expected) throws IOException {
+    if (!expected.equals(in.readUTF())) {
+      throw new IOException("unexpected content");
+    }
+  }
+
+  /** Changes whenever a class-path entry is replaced, such as when the application is rebuilt. */
+  private static String classPathSignature() {
+    String classPath = System.getProperty("java.class.path", "");
+    StringBuilder signature = new StringBuilder(classPath);
+    for (String element : classPath.split(File.pathSeparator)) {
+      File file = new File(element);
+      signature.append('/').append(file.length()).append('/').append(file.lastModified());
+    }
+    return signature.toString();
+  }
+
+  static int crc32(byte[] bytes) {
+    CRC32 crc = new CRC32();
+    crc.update(bytes, 0, bytes.length);
+    return (int) crc.getValue();
+  }
+
+  static long fnv64(byte[] bytes) {
+    long hash = 0xcbf29ce484222325L;
+    for (byte b : bytes) {
+      hash = (hash ^ (b & 0xff)) * 0x100000001b3L;
+    }
+    return hash;
+  }
+
+  static final class Entry {
+    final String loaderType;
+    final String codeSource;
+    final String agentVersion;
+    final String className;
+    final String[] supertypes;
+    final long hierarchyHash;
+    final int classLength;
+    final int classCrc;
+    final long classHash;
+    final BitSet ids;
+    final byte[] bytecode;
+    volatile int lastUsed;
+
+    Entry(
+        String loaderType,
+        String codeSource,
+        String agentVersion,
+        String className,
+        String[] supertypes,
+        long hierarchyHash,
+        int classLength,
+        int classCrc,
+        long classHash,
+        BitSet ids,
+        byte[] bytecode,
+        int lastUsed) {
+      this.loaderType = loaderType;
+      this.codeSource = codeSource;
+      this.agentVersion = agentVersion;
+      this.className = className;
+      this.supertypes = supertypes;
+      this.hierarchyHash = hierarchyHash;
+      this.classLength = classLength;
+      this.classCrc = classCrc;
+      this.classHash = classHash;
+      this.ids = ids;
+      this.bytecode = bytecode;
+      this.lastUsed = lastUsed;
+    }
+
+    String definedBy() {
+      return definedBy(loaderType, codeSource);
+    }
+
+    static String definedBy(String loaderType, String codeSource) {
+      return loaderType + " " + codeSource;
+    }
+
+    /** Checks the original bytecode is the same as when the transformation was cached. */
+    boolean transforms(byte[] classFileBuffer) {
+      return classLength == classFileBuffer.length
+          && classCrc == crc32(classFileBuffer)
+          && classHash == fnv64(classFileBuffer);
+    }
+
+    void write(DataOutputStream out) throws IOException {
+      out.writeUTF(loaderType);
+      out.writeUTF(codeSource);
+      out.writeUTF(agentVersion);
+      out.writeUTF(className);
+      out.writeInt(supertypes.length);
+      for (String supertype : supertypes) {
+        out.writeUTF(supertype);
+      }
+      out.writeLong(hierarchyHash);
+      out.writeInt(classLength);
+      out.writeInt(classCrc);
+      out.writeLong(classHash);
+      long[] words = ids.toLongArray();
+      out.writeInt(words.length);
+      for (long word : words) {
+        out.writeLong(word);
+      }
+      out.writeInt(lastUsed);
+      out.writeInt(bytecode.length);
+      out.write(bytecode);
+      out.writeInt(crc32(bytecode));
+    }
+
+    /** Returns the entry read from the stream, or {@code null} if it fails its integrity check. */
+    static Entry read(DataInputStream in, long maxBytes) throws IOException {
+      String loaderType = in.readUTF();
+      String codeSource = in.readUTF();
+      String agentVersion = in.readUTF();
+      String className = in.readUTF();
+      String[] supertypes = new String[checkLength(in.readInt(), 1024)];
+      for (int i = 0; i < supertypes.length; i++) {
+        supertypes[i] = in.readUTF();
+      }
+      long hierarchyHash = in.readLong();
+      int classLength = in.readInt();
+      int classCrc = in.readInt();
+      long classHash = in.readLong();
+      long[] words = new long[checkLength(in.readInt(), 1024)];
+      for (int i = 0; i < words.length; i++) {
+        words[i] = in.readLong();
+      }
+      int lastUsed = in.readInt();
+      byte[] bytecode = new byte[checkLength(in.readInt(), maxBytes)];
+      in.readFully(bytecode);
+      if (in.readInt() != crc32(bytecode)) {
+        return null;
+      }
+      return new Entry(
+          loaderType,
+          codeSource,
+          agentVersion,
+          className,
+          supertypes,
+          hierarchyHash,
+          classLength,
+          classCrc,
+          classHash,
+          BitSet.valueOf(words),
+          bytecode,
+          lastUsed);
+    }
+
+    private static int checkLength(int length, long maxLength) throws IOException {
+      if (length < 0 || length > maxLength) {
+        throw new IOException("corrupt entry");
+      }
+      return length;
+    }
+  }
+
+  class ShutdownHook extends Thread {
+    ShutdownHook() {
+      super(AGENT_THREAD_GROUP, "dd-TransformedClassCache-persist-hook");
+    }
+
+    @Override
+    public void run() {
+      persistCache();
+    }
+  }
+}
@@ -8,7 +8,8 @@ import net.bytebuddy.agent.builder.AgentBuilder.TransformerDecorator;
 import net.bytebuddy.agent.builder.ResettableClassFileTransformer;
 
 /**
- * Intercepts transformation requests before ByteBuddy so we can perform some initial filtering.
+ * Intercepts transformation requests before ByteBuddy so we can perform some initial filtering,
+ * and reuse transformations cached by earlier runs.
  *
  * <p>This class is only used on Java 9+, for Java 7/8 see {@link DDClassFileTransformer}.
  */
@@ -35,8 +36,32 @@ public final class DDJava9ClassFileTransformer
     }
 
     try {
-      return classFileTransformer.transform(
-          classLoader, internalClassName, classBeingRedefined, protectionDomain, classFileBuffer);
+      byte[] cached =
+          TransformedClassCache.lookup(
+              classLoader,
+              internalClassName,
+              classBeingRedefined,
+              protectionDomain,
+              classFileBuffer,
+              null);
+      if (null != cached) {
+        return cached;
+      }
+      byte[] transformed =
+          classFileTransformer.transform(
+              classLoader,
+              internalClassName,
+              classBeingRedefined,
+              protectionDomain,
+              classFileBuffer);
+      TransformedClassCache.store(
+          classLoader,
+          internalClassName,
+          classBeingRedefined,
+          protectionDomain,
+          classFileBuffer,
+          transformed);
+      return transformed;
     } finally {
       SharedTypePools.endTransform();
     }
@@ -57,13 +82,33 @@ public final class DDJava9ClassFileTransformer
     }
 
     try {
-      return classFileTransformer.transform(
-          module,
+      byte[] cached =
+          TransformedClassCache.lookup(
+              classLoader,
+              internalClassName,
+              classBeingRedefined,
+              protectionDomain,
+              classFileBuffer,
+              module);
+      if (null != cached) {
+        return cached;
+      }
+      byte[] transformed =
+          classFileTransformer.transform(
+              module,
+              classLoader,
+              internalClassName,
+              classBeingRedefined,
+              protectionDomain,
+              classFileBuffer);
+      TransformedClassCache.store(
           classLoader,
           internalClassName,
           classBeingRedefined,
           protectionDomain,
-          classFileBuffer);
+          classFileBuffer,
+          transformed);
+      return transformed;
     } finally {
       SharedTypePools.endTransform();
     }
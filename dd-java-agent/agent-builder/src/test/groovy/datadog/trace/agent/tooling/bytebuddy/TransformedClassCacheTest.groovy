@@ -0,0 +1,120 @@
+package datadog.trace.agent.tooling.bytebuddy
+
+import datadog.trace.test.util.DDSpecification
+
+import static datadog.trace.agent.tooling.bytebuddy.TransformedClassCache.crc32
+import static datadog.trace.agent.tooling.bytebuddy.TransformedClassCache.fnv64
+
+class TransformedClassCacheTest extends DDSpecification {
+
+  static final byte[] ORIGINAL = "original bytecode".bytes
+  static final byte[] TRANSFORMED = "transformed bytecode".bytes
+
+  def "entries survive being persisted"() {
+    setup:
+    def ids = new BitSet()
+    ids.set(3)
+    ids.set(130)
+    def entry = newEntry(ids)
+
+    when:
+    def copy = TransformedClassCache.Entry.read(readBack(entry), 1024)
+
+    then:
+    copy.loaderType == "example.AppClassLoader"
+    copy.codeSource == "file:/app/lib/service.jar/1024/1700000000000"
+    copy.agentVersion == "1.2.3/5f3a"
+    copy.definedBy() == entry.definedBy()
+    copy.className == "example/Service"
+    copy.supertypes == ["example.BaseService", "example.Handler"] as String[]
+    copy.hierarchyHash == 42
+    copy.ids == ids
+    copy.bytecode == TRANSFORMED
+    copy.lastUsed == 2
+    copy.transforms(ORIGINAL)
+  }
+
+  def "changed classes don't use the cached transformation"() {
+    setup:
+    def entry = newEntry(new BitSet())
+
+    expect:
+    !entry.transforms("changed bytecode".bytes)
+    !entry.transforms("original bytecode!".bytes)
+  }
+
+  def "replaced jars have a different identity"() {
+    setup:
+    def jar = File.createTempFile("service", ".jar")
+    jar.bytes = ORIGINAL
+    def location = jar.toURI().toURL().toString()
+    def nested = "jar:" + location + "!/BOOT-INF/lib/nested.jar!/"
+    def before = TransformedClassCache.codeSourceId(location)
+    def nestedBefore = TransformedClassCache.codeSourceId(nested)
+
+    when:
+    jar.bytes = TRANSFORMED
+
+    then:
+    before.startsWith(location)
+    nestedBefore.startsWith(nested)
+    TransformedClassCache.codeSourceId(location) != before
+    TransformedClassCache.codeSourceId(nested) != nestedBefore
+    TransformedClassCache.codeSourceId("http://example.com/service.jar") == "http://example.com/service.jar"
+
+    cleanup:
+    jar.delete()
+  }
+
+  def "supertypes are identified by the jar or directory containing them"() {
+    expect:
+    TransformedClassCache.container(resource, "example/Handler.class") == container
+
+    where:
+    resource                                                   | container
+    "jar:file:/app/lib/api.jar!/example/Handler.class"         | "jar:file:/app/lib/api.jar!/"
+    "file:/app/classes/example/Handler.class"                  | "file:/app/classes/"
+    "jrt:/example.module/example/Other.class"                  | "jrt:/example.module/example/Other.class"
+  }
+
+  def "corrupt bytecode is rejected"() {
+    setup:
+    def bytes = new ByteArrayOutputStream()
+    newEntry(new BitSet()).write(new DataOutputStream(bytes))
+    def corrupt = bytes.toByteArray()
+    corrupt[corrupt.length - 5] ^= 1 // flip a bit in the last byte of transformed bytecode
+
+    expect:
+    TransformedClassCache.Entry.read(new DataInputStream(new ByteArrayInputStream(corrupt)), 1024) == null
+  }
+
+  def "oversized entries fail the read"() {
+    when:
+    TransformedClassCache.Entry.read(readBack(newEntry(new BitSet())), 4)
+
+    then:
+    thrown(IOException)
+  }
+
+  static newEntry(BitSet ids) {
+    new TransformedClassCache.Entry(
+      "example.AppClassLoader",
+      "file:/app/lib/service.jar/1024/1700000000000",
+      "1.2.3/5f3a",
+      "example/Service",
+      ["example.BaseService", "example.Handler"] as String[],
+      42,
+      ORIGINAL.length,
+      crc32(ORIGINAL),
+      fnv64(ORIGINAL),
+      ids,
+      TRANSFORMED,
+      2)
+  }
+
+  static readBack(TransformedClassCache.Entry entry) {
+    def bytes = new ByteArrayOutputStream()
+    entry.write(new DataOutputStream(bytes))
+    new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()))
+  }
+}
@@ -0,0 +1,129 @@
+package datadog.trace.agent.tooling.bytebuddy;
+
+import static java.util.concurrent.TimeUnit.MICROSECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Throughput and hit ratio of the shared type memo cache when apps load many more classes than
+ * the preset pool size, like multiple Spring Boot fat jars or OSGi containers. Types are requested
+ * with a Zipfian distribution, as common super-types are looked up far more often than leaf types.
+ *
+ * <p>Compare {@code maxGrowth=1} (fixed capacity) with the default growth limit.
+ */
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 5, timeUnit = SECONDS)
+@Measurement(iterations = 3, time = 5, timeUnit = SECONDS)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(MICROSECONDS)
+@Threads(4)
+@Fork(value = 1)
+public class TypeInfoCacheBenchmark {
+
+  @Param({"4096"})
+  int capacity;
+
+  @Param({"1", "4", "64"})
+  int maxGrowth;
+
+  @Param({"20000", "150000"})
+  int classCount;
+
+  @Param({"0.8"})
+  double skew;
+
+  private TypeInfoCache<Object> cache;
+  private String[] classNames;
+  private double[] cumulativeWeights;
+
+  @Setup(Level.Trial)
+  public void setup() {
+    cache = new TypeInfoCache<>(null, capacity, capacity * maxGrowth, false);
+    classNames = new String[classCount];
+    cumulativeWeights = new double[classCount];
+    double total = 0;
+    for (int i = 0; i < classCount; i++) {
+      classNames[i] = "com.example.module" + (i % 97) + ".service.GeneratedType" + i;
+      total += 1 / Math.pow(i + 1, skew);
+      cumulativeWeights[i] = total;
+    }
+  }
+
+  @State(Scope.Thread)
+  public static class Workload {
+    private static final int REQUESTS = 1 << 16;
+
+    String[] requests;
+    int next;
+
+    @Setup(Level.Trial)
+    public void setup(TypeInfoCacheBenchmark benchmark) {
+      double[] weights = benchmark.cumulativeWeights;
+      double total = weights[weights.length - 1];
+      SplittableRandom random = new SplittableRandom();
+      requests = new String[REQUESTS];
+      for (int i = 0; i < REQUESTS; i++) {
+        int index = Arrays.binarySearch(weights, random.nextDouble() * total);
+        requests[i] = benchmark.classNames[index < 0 ? -index - 1 : index];
+      }
+    }
+
+    String nextClassName() {
+      return requests[next++ & (REQUESTS - 1)];
+    }
+  }
+
+  @State(Scope.Thread)
+  @AuxCounters(AuxCounters.Type.EVENTS)
+  public static class Counters {
+    long lookups;
+    long misses;
+
+    public long lookups() {
+      return lookups;
+    }
+
+    public long misses() {
+      return misses;
+    }
+
+    public double hitRatio() {
+      return lookups == 0 ? 0 : 1 - (double) misses / lookups;
+    }
+
+    @Setup(Level.Iteration)
+    public void reset() {
+      lookups = 0;
+      misses = 0;
+    }
+  }
+
+  @Benchmark
+  public Object findOrShare(Workload workload, Counters counters) {
+    String className = workload.nextClassName();
+    TypeInfoCache.SharedTypeInfo<Object> sharedInfo = cache.find(className);
+    ++counters.lookups;
+    if (null == sharedInfo) {
+      ++counters.misses;
+      cache.share(className, null, TypeInfoCache.UNKNOWN_CLASS_FILE, className);
+      return className;
+    }
+    return sharedInfo.get();
+  }
+}
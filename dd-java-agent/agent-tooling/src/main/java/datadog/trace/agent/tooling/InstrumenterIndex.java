@@ -36,7 +36,7 @@ import org.slf4j.LoggerFactory;
  * <p>This index is not thread-safe; it expects only one thread to iterate over it at a time. It
  * also assumes indexed types have simple ASCII names which are less than 256 characters long.
  */
-final class InstrumenterIndex {
+public final class InstrumenterIndex {
   private static final Logger log = LoggerFactory.getLogger(InstrumenterIndex.class);
 
   private static final String INSTRUMENTER_INDEX_NAME = "instrumenter.index";
@@ -1,5 +1,6 @@
 package datadog.trace.agent.tooling;
 
+import datadog.trace.agent.tooling.bytebuddy.TypeInfoCache;
 import datadog.trace.api.InstrumenterConfig;
 import java.util.concurrent.atomic.AtomicLong;
 
@@ -17,6 +18,7 @@ public final class InstrumenterMetrics {
     static final AtomicLong knownTypeMiss = new AtomicLong();
     static final AtomicLong typeHierarchyHit = new AtomicLong();
     static final AtomicLong typeHierarchyMiss = new AtomicLong();
+    static final AtomicLong hierarchyIndexHit = new AtomicLong();
     static final AtomicLong contextStoreHit = new AtomicLong();
     static final AtomicLong contextStoreMiss = new AtomicLong();
     static final AtomicLong narrowLocationHit = new AtomicLong();
@@ -27,6 +29,7 @@ public final class InstrumenterMetrics {
     static final AtomicLong reuseTypeMemo = new AtomicLong();
     static final AtomicLong buildTypeOutline = new AtomicLong();
     static final AtomicLong reuseTypeOutline = new AtomicLong();
+    static final AtomicLong preparsedTypeOutline = new AtomicLong();
     static final AtomicLong buildFullType = new AtomicLong();
     static final AtomicLong reuseFullType = new AtomicLong();
     static final AtomicLong resolveClassFile = new AtomicLong();
@@ -95,6 +98,12 @@ public final class InstrumenterMetrics {
     }
   }
 
+  public static void hierarchyIndexHit(long fromTick) {
+    if (ENABLED) {
+      record(Stats.hierarchyIndexHit, fromTick);
+    }
+  }
+
   public static void contextStoreHit(long fromTick) {
     if (ENABLED) {
       record(Stats.contextStoreHit, fromTick);
@@ -155,6 +164,12 @@ public final class InstrumenterMetrics {
     }
   }
 
+  public static void preparsedTypeOutline(long fromTick) {
+    if (ENABLED) {
+      record(Stats.preparsedTypeOutline, fromTick);
+    }
+  }
+
   public static void resolveClassFile(long fromTick) {
     if (ENABLED) {
       record(Stats.resolveClassFile, fromTick);
@@ -182,6 +197,7 @@ public final class InstrumenterMetrics {
     summarize(buf, "Known type miss:       ", Stats.knownTypeMiss);
     summarize(buf, "Type hierarchy hit:    ", Stats.typeHierarchyHit);
     summarize(buf, "Type hierarchy miss:   ", Stats.typeHierarchyMiss);
+    summarize(buf, "Hierarchy index hit:   ", Stats.hierarchyIndexHit);
     summarize(buf, "Context store hit:     ", Stats.contextStoreHit);
     summarize(buf, "Context store miss:    ", Stats.contextStoreMiss);
     summarize(buf, "Narrow location hit:   ", Stats.narrowLocationHit);
@@ -193,10 +209,13 @@ public final class InstrumenterMetrics {
     summarize(buf, "Reuse type-memo:       ", Stats.reuseTypeMemo);
     summarize(buf, "Build type-outline:    ", Stats.buildTypeOutline);
     summarize(buf, "Reuse type-outline:    ", Stats.reuseTypeOutline);
+    summarize(buf, "Preparsed type-outline:", Stats.preparsedTypeOutline);
     summarize(buf, "Build full-type:       ", Stats.buildFullType);
     summarize(buf, "Reuse full-type:       ", Stats.reuseFullType);
     summarize(buf, "Resolve class-file:    ", Stats.resolveClassFile);
     summarize(buf, "Missing class-file:    ", Stats.missingClassFile);
+    buf.append("----------------------------------------------------------------\n");
+    TypeInfoCache.summarize(buf);
     buf.append("----------------------------------------------------------------");
 
     return buf.toString();
@@ -1,13 +1,30 @@
 package datadog.trace.agent.tooling.bytebuddy;
 
+import datadog.trace.api.InstrumenterConfig;
 import datadog.trace.api.cache.DDCache;
 import datadog.trace.api.cache.DDCaches;
 import java.lang.ref.WeakReference;
 import java.net.URL;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.LongAdder;
 
-/** Shares type information using a single cache across multiple classloaders. */
+/**
+ * Shares type information using a single cache across multiple classloaders.
+ *
+ * <p>Eviction gives entries a second chance, like the clock algorithm, over the slots probed for
+ * each type: entries found since they were last aged are kept, so types that are matched repeatedly
+ * stay cached while one-off types are replaced first. Probed entries are aged when they were all
+ * recently used. The hashes of evicted names are remembered, and when too many evicted types are
+ * shared again soon after, the working set no longer fits and the cache doubles in size, up to its
+ * maximum capacity.
+ *
+ * <p>The cache is lock-free. Like the rest of the shared type pools it tolerates racy updates, at
+ * worst losing an entry which will be shared again the next time the type is resolved.
+ */
 public final class TypeInfoCache<T> {
   public static final URL UNKNOWN_CLASS_FILE = null;
 
@@ -15,27 +32,68 @@ public final class TypeInfoCache<T> {
   private static final int MAX_CAPACITY = 1 << 16;
   private static final int MIN_CAPACITY = 1 << 4;
 
+  // limit how far caches can grow when they're under pressure
+  private static final int MAX_GROWN_CAPACITY = 1 << 18;
+
   private static final int MAX_HASH_ATTEMPTS = 5;
 
+  // remember more evicted names than we have slots, to detect working sets larger than the cache
+  private static final int EVICTED_HASHES_PER_SLOT = 4;
+
+  private static final boolean STATS_ENABLED = InstrumenterConfig.get().isTriageEnabled();
+
+  private static final List<TypeInfoCache<?>> namedCaches = new CopyOnWriteArrayList<>();
+
+  @SuppressWarnings("rawtypes")
+  private static final AtomicIntegerFieldUpdater<TypeInfoCache> RESIZING =
+      AtomicIntegerFieldUpdater.newUpdater(TypeInfoCache.class, "resizing");
+
+  private final String name;
   private final boolean namesAreUnique;
-  private final SharedTypeInfo<T>[] sharedTypeInfo;
-  private final int slotMask;
+  private final int maxCapacity;
+
+  private volatile SharedTypeInfo<T>[] sharedTypeInfo;
+  private volatile int[] evictedHashes; // null once the cache can't grow any further
+  private volatile int resizing;
+
+  // evicted types shared again since the last resize; racy updates are acceptable
+  private int reshared;
+
+  private final LongAdder hits;
+  private final LongAdder misses;
+  private final LongAdder overwrites;
 
   public TypeInfoCache(int capacity) {
-    this(capacity, false);
+    this(null, capacity, capacity, false);
   }
 
-  @SuppressWarnings("unchecked")
   public TypeInfoCache(int capacity, boolean namesAreUnique) {
+    this(null, capacity, capacity, namesAreUnique);
+  }
+
+  /**
+   * @param name used to report cache stats when triage is enabled; {@code null} for no stats
+   * @param capacity initial capacity
+   * @param maxCapacity capacity the cache may grow to when it's under pressure
+   * @param namesAreUnique whether types can be identified by their name alone
+   */
+  public TypeInfoCache(String name, int capacity, int maxCapacity, boolean namesAreUnique) {
+    this.name = name;
     this.namesAreUnique = namesAreUnique;
-    if (capacity < MIN_CAPACITY) {
-      capacity = MIN_CAPACITY;
-    } else if (capacity > MAX_CAPACITY) {
-      capacity = MAX_CAPACITY;
+    capacity = slotCount(Math.max(MIN_CAPACITY, Math.min(capacity, MAX_CAPACITY)));
+    this.maxCapacity = slotCount(Math.max(capacity, Math.min(maxCapacity, MAX_GROWN_CAPACITY)));
+    this.sharedTypeInfo = newTable(capacity);
+    this.evictedHashes = newEvictedHashes(capacity);
+    if (STATS_ENABLED && null != name) {
+      hits = new LongAdder();
+      misses = new LongAdder();
+      overwrites = new LongAdder();
+      namedCaches.add(this);
+    } else {
+      hits = null;
+      misses = null;
+      overwrites = null;
     }
-    // choose enough slot bits to cover the chosen capacity
-    this.slotMask = 0xFFFFFFFF >>> Integer.numberOfLeadingZeros(capacity - 1);
-    this.sharedTypeInfo = new SharedTypeInfo[slotMask + 1];
   }
 
   /**
@@ -45,19 +103,30 @@ public final class TypeInfoCache<T> {
    * can compare the originating classloader and class file resource to help disambiguate results.
    */
   public SharedTypeInfo<T> find(String className) {
+    SharedTypeInfo<T>[] table = sharedTypeInfo;
+    int slotMask = table.length - 1;
     int nameHash = className.hashCode();
     for (int i = 1; true; i++) {
-      SharedTypeInfo<T> value = sharedTypeInfo[slotMask & nameHash];
+      SharedTypeInfo<T> value = table[slotMask & nameHash];
       if (null == value) {
-        return null;
+        break;
       } else if (className.equals(value.className)) {
-        value.lastUsed = System.currentTimeMillis();
+        if (!value.referenced) {
+          value.referenced = true; // avoid dirtying the cache-line when already set
+        }
+        if (null != hits) {
+          hits.increment();
+        }
         return value;
       } else if (i == MAX_HASH_ATTEMPTS) {
-        return null;
+        break;
       }
       nameHash = rehash(nameHash);
     }
+    if (null != misses) {
+      misses.increment();
+    }
+    return null;
   }
 
   /**
@@ -73,32 +142,148 @@ public final class TypeInfoCache<T> {
       newValue = new DisambiguatingTypeInfo<>(className, typeInfo, loader, classFile);
     }
 
+    SharedTypeInfo<T>[] table = sharedTypeInfo;
+    int slotMask = table.length - 1;
     int nameHash = className.hashCode();
     int slot = slotMask & nameHash;
 
-    long leastUsedTime = Long.MAX_VALUE;
-    int leastUsedSlot = slot;
+    int victimSlot = -1;
 
     for (int i = 1; true; i++) {
-      SharedTypeInfo<T> oldValue = sharedTypeInfo[slot];
-      if (null == oldValue || className.equals(oldValue.className)) {
-        sharedTypeInfo[slot] = newValue;
-        return oldValue;
-      } else if (i == MAX_HASH_ATTEMPTS) {
-        sharedTypeInfo[leastUsedSlot] = newValue; // overwrite least-recently used
+      SharedTypeInfo<T> oldValue = table[slot];
+      if (null == oldValue) {
+        table[slot] = newValue;
+        checkReshared(table, className.hashCode());
         return null;
-      } else if (oldValue.lastUsed < leastUsedTime) {
-        leastUsedTime = oldValue.lastUsed;
-        leastUsedSlot = slot;
+      } else if (className.equals(oldValue.className)) {
+        table[slot] = newValue;
+        return oldValue;
+      } else if (victimSlot < 0 && !oldValue.referenced) {
+        victimSlot = slot; // not found since it was last aged
+      }
+      if (i == MAX_HASH_ATTEMPTS) {
+        break;
       }
       nameHash = rehash(nameHash);
       slot = slotMask & nameHash;
     }
+
+    if (victimSlot < 0) {
+      // every probed entry was recently used, so age them and overwrite the first
+      nameHash = className.hashCode();
+      victimSlot = slotMask & nameHash;
+      for (int i = 1; i <= MAX_HASH_ATTEMPTS; i++) {
+        SharedTypeInfo<T> oldValue = table[slotMask & nameHash];
+        if (null != oldValue) {
+          oldValue.referenced = false;
+        }
+        nameHash = rehash(nameHash);
+      }
+    }
+    SharedTypeInfo<T> evicted = table[victimSlot];
+    table[victimSlot] = newValue;
+    int[] hashes = evictedHashes;
+    if (null != hashes && null != evicted) {
+      int evictedHash = evicted.className.hashCode();
+      hashes[(hashes.length - 1) & evictedHash] = evictedHash;
+    }
+    if (null != overwrites) {
+      overwrites.increment();
+    }
+    checkReshared(table, className.hashCode());
+    return null;
   }
 
-  /** Clears all type information from the shared cache. */
+  /** Grows the cache when too many types are shared again soon after being evicted. */
+  private void checkReshared(SharedTypeInfo<T>[] table, int nameHash) {
+    int[] hashes = evictedHashes;
+    if (null == hashes) {
+      return;
+    }
+    int index = (hashes.length - 1) & nameHash;
+    if (hashes[index] == nameHash && 0 != nameHash) {
+      hashes[index] = 0;
+      if (++reshared > (table.length >> 3)) {
+        resize(table);
+      }
+    }
+  }
+
+  /** Clears all type information from the shared cache, keeping its current capacity. */
   public void clear() {
     Arrays.fill(sharedTypeInfo, null);
+    int[] hashes = evictedHashes;
+    if (null != hashes) {
+      Arrays.fill(hashes, 0);
+    }
+  }
+
+  /** Current capacity of the cache. */
+  public int capacity() {
+    return sharedTypeInfo.length;
+  }
+
+  /** Doubles the capacity of the cache, unless another thread is already resizing it. */
+  private void resize(SharedTypeInfo<T>[] oldTable) {
+    if (!RESIZING.compareAndSet(this, 0, 1)) {
+      return;
+    }
+    try {
+      if (oldTable != sharedTypeInfo) {
+        return; // already resized
+      }
+      SharedTypeInfo<T>[] newTable = newTable(oldTable.length << 1);
+      int slotMask = newTable.length - 1;
+      for (SharedTypeInfo<T> value : oldTable) {
+        if (null != value) {
+          // shares made while we copy may be lost, but will be shared again when next resolved
+          int nameHash = value.className.hashCode();
+          for (int i = 1; i <= MAX_HASH_ATTEMPTS; i++) {
+            int slot = slotMask & nameHash;
+            if (null == newTable[slot]) {
+              newTable[slot] = value;
+              break;
+            }
+            nameHash = rehash(nameHash);
+          }
+        }
+      }
+      evictedHashes = newEvictedHashes(newTable.length);
+      sharedTypeInfo = newTable;
+      reshared = 0;
+    } finally {
+      resizing = 0;
+    }
+  }
+
+  /** Appends the stats of named caches to the summary, when triage is enabled. */
+  public static void summarize(StringBuilder buf) {
+    for (TypeInfoCache<?> cache : namedCaches) {
+      buf.append(String.format("%-23s", cache.name + ":"))
+          .append(" capacity=")
+          .append(cache.capacity())
+          .append(", hits=")
+          .append(cache.hits.sum())
+          .append(", misses=")
+          .append(cache.misses.sum())
+          .append(", overwrites=")
+          .append(cache.overwrites.sum())
+          .append('\n');
+    }
+  }
+
+  private static int slotCount(int capacity) {
+    // choose enough slot bits to cover the chosen capacity
+    return 1 << (32 - Integer.numberOfLeadingZeros(capacity - 1));
+  }
+
+  private int[] newEvictedHashes(int slotCount) {
+    return slotCount < maxCapacity ? new int[slotCount * EVICTED_HASHES_PER_SLOT] : null;
+  }
+
+  @SuppressWarnings("unchecked")
+  private static <T> SharedTypeInfo<T>[] newTable(int slotCount) {
+    return new SharedTypeInfo[slotCount];
   }
 
   private static int rehash(int oldHash) {
@@ -110,7 +295,8 @@ public final class TypeInfoCache<T> {
     final String className;
     private final T typeInfo;
 
-    long lastUsed = System.currentTimeMillis();
+    // set when found, cleared when aged by the cache
+    boolean referenced;
 
     SharedTypeInfo(String className, T typeInfo) {
       this.className = className;
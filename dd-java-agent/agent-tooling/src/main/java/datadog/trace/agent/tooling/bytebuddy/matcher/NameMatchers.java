@@ -8,6 +8,7 @@ import datadog.trace.bootstrap.instrumentation.java.concurrent.ExcludeFilter;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Set;
+import java.util.TreeSet;
 import java.util.function.Function;
 import net.bytebuddy.description.NamedElement;
 import net.bytebuddy.matcher.ElementMatcher;
@@ -130,6 +131,11 @@ public final class NameMatchers {
     protected boolean doMatch(NamedElement target) {
       return target.getActualName().startsWith(name);
     }
+
+    @Override
+    public String toString() {
+      return "nameStartsWith(" + name + ")";
+    }
   }
 
   public static final class EndsWith<T extends NamedElement>
@@ -144,6 +150,11 @@ public final class NameMatchers {
     protected boolean doMatch(NamedElement target) {
       return target.getActualName().endsWith(name);
     }
+
+    @Override
+    public String toString() {
+      return "nameEndsWith(" + name + ")";
+    }
   }
 
   public static final class OneOf<T extends NamedElement>
@@ -158,6 +169,11 @@ public final class NameMatchers {
     protected boolean doMatch(NamedElement target) {
       return names.contains(target.getActualName());
     }
+
+    @Override
+    public String toString() {
+      return "namedOneOf(" + new TreeSet<>(names) + ")";
+    }
   }
 
   public static final class NoneOf<T extends NamedElement>
@@ -172,6 +188,11 @@ public final class NameMatchers {
     protected boolean doMatch(NamedElement target) {
       return !names.contains(target.getActualName());
     }
+
+    @Override
+    public String toString() {
+      return "namedNoneOf(" + new TreeSet<>(names) + ")";
+    }
   }
 
   public static final class NotExcluded<T extends NamedElement>
@@ -186,5 +207,10 @@ public final class NameMatchers {
     protected boolean doMatch(NamedElement target) {
       return !ExcludeFilter.exclude(excludeType, target.getActualName());
     }
+
+    @Override
+    public String toString() {
+      return "notExcludedByName(" + excludeType + ")";
+    }
   }
 }
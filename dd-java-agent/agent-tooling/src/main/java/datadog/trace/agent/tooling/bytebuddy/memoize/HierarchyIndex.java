@@ -0,0 +1,435 @@
+package datadog.trace.agent.tooling.bytebuddy.memoize;
+
+import datadog.trace.agent.tooling.ExcludeFilterProvider;
+import datadog.trace.agent.tooling.Instrumenter;
+import datadog.trace.agent.tooling.InstrumenterIndex;
+import datadog.trace.agent.tooling.InstrumenterModule;
+import datadog.trace.agent.tooling.bytebuddy.SharedTypePools;
+import datadog.trace.agent.tooling.bytebuddy.matcher.HierarchyMatchers;
+import datadog.trace.agent.tooling.bytebuddy.outline.TypePoolFacade;
+import datadog.trace.bootstrap.instrumentation.java.concurrent.ExcludeFilter;
+import datadog.trace.util.ClassNameTrie;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Deque;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import net.bytebuddy.description.type.TypeDescription;
+import net.bytebuddy.matcher.ElementMatcher;
+import net.bytebuddy.pool.TypePool;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Build-time index of types in well-known library jars that don't match any memoized matcher.
+ *
+ * <p>Jars are identified by their size and CRC32, which for nested jars in Spring Boot fat jars
+ * and executable wars can be read from the outer jar without extracting them. A type is only
+ * indexed when every jar containing its super-classes and interfaces is also indexed, and it's
+ * only treated as a no-match at runtime when all those jars are on the class-path.
+ *
+ * <p>Results are only valid when the matchers installed at runtime are a subset of the matchers
+ * used to build the index, since fewer matchers can only produce fewer matches. Matchers are
+ * compared using their descriptions; if any runtime matcher is unknown the index is not used.
+ */
+@SuppressWarnings("rawtypes")
+public final class HierarchyIndex {
+  private static final Logger log = LoggerFactory.getLogger(HierarchyIndex.class);
+
+  private static final String HIERARCHY_INDEX_NAME = "hierarchy.index";
+
+  private static final String[] NESTED_JAR_DIRS = {
+    "BOOT-INF/lib/", "WEB-INF/lib/", "WEB-INF/lib-provided/"
+  };
+
+  // limit of values that can be stored in the class-name trie
+  private static final int MAX_REQUIREMENTS = 0x1FFF;
+
+  private static final Pattern IDENTITY_HASH = Pattern.compile("@[0-9a-f]{1,8}(?![0-9A-Za-z])");
+
+  // sorted hashes of matcher descriptions used to build the index
+  private final long[] matcherHashes;
+
+  private final long[] jarSizes;
+  private final int[] jarChecksums;
+
+  // each entry lists the jars that must all be present before its types can be skipped
+  private final int[][] requiredJars;
+
+  private final ClassNameTrie noMatchTrie;
+
+  private volatile boolean[] satisfied;
+
+  private HierarchyIndex(
+      long[] matcherHashes,
+      long[] jarSizes,
+      int[] jarChecksums,
+      int[][] requiredJars,
+      ClassNameTrie noMatchTrie) {
+    this.matcherHashes = matcherHashes;
+    this.jarSizes = jarSizes;
+    this.jarChecksums = jarChecksums;
+    this.requiredJars = requiredJars;
+    this.noMatchTrie = noMatchTrie;
+  }
+
+  /** Returns {@code true} if the named type is known to not match any installed matcher. */
+  boolean noMatch(String name) {
+    boolean[] satisfied = this.satisfied;
+    if (null == satisfied) {
+      return false; // still looking for indexed jars
+    }
+    int requirement = noMatchTrie.apply(name);
+    return requirement >= 0 && satisfied[requirement];
+  }
+
+  /** Returns {@code true} if every matcher was known when building the index. */
+  boolean covers(List<ElementMatcher> matchers) {
+    for (ElementMatcher matcher : matchers) {
+      if (Arrays.binarySearch(matcherHashes, describe(matcher)) < 0) {
+        if (log.isDebugEnabled()) {
+          log.debug("Matcher {} is not covered by {}", matcher, HIERARCHY_INDEX_NAME);
+        }
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Looks for indexed jars on the class-path, including nested jars.
+   *
+   * @return {@code true} if any types from the index can be skipped
+   */
+  boolean detectJars(String classPath) {
+    Map<Long, List<Integer>> jarsBySize = new HashMap<>();
+    for (int i = 0; i < jarSizes.length; i++) {
+      jarsBySize.computeIfAbsent(jarSizes[i], size -> new ArrayList<>()).add(i);
+    }
+    BitSet presentJars = new BitSet(jarSizes.length);
+    for (String path : classPath.split(File.pathSeparator)) {
+      File jar = new File(path);
+      if (!jar.isFile()) {
+        continue;
+      }
+      try {
+        List<Integer> candidates = jarsBySize.get(jar.length());
+        if (null != candidates) {
+          markPresent(candidates, checksum(jar.toPath()), presentJars);
+        }
+        try (ZipFile zip = new ZipFile(jar)) {
+          Enumeration<? extends ZipEntry> entries = zip.entries();
+          while (entries.hasMoreElements()) {
+            ZipEntry entry = entries.nextElement();
+            if (isNestedJar(entry.getName())) {
+              candidates = jarsBySize.get(entry.getSize());
+              if (null != candidates) {
+                markPresent(candidates, (int) entry.getCrc(), presentJars);
+              }
+            }
+          }
+        }
+      } catch (Throwable e) {
+        log.debug("Problem checking {} against {}", jar, HIERARCHY_INDEX_NAME, e);
+      }
+    }
+    boolean[] satisfied = new boolean[requiredJars.length];
+    boolean anySatisfied = false;
+    for (int i = 0; i < requiredJars.length; i++) {
+      satisfied[i] = true;
+      for (int jarId : requiredJars[i]) {
+        if (!presentJars.get(jarId)) {
+          satisfied[i] = false;
+          break;
+        }
+      }
+      anySatisfied |= satisfied[i];
+    }
+    if (anySatisfied) {
+      this.satisfied = satisfied;
+    }
+    return anySatisfied;
+  }
+
+  private void markPresent(List<Integer> candidates, int checksum, BitSet presentJars) {
+    for (int jarId : candidates) {
+      if (jarChecksums[jarId] == checksum) {
+        presentJars.set(jarId);
+      }
+    }
+  }
+
+  public static HierarchyIndex readIndex() {
+    ClassLoader instrumenterClassLoader = Instrumenter.class.getClassLoader();
+    URL indexResource = instrumenterClassLoader.getResource(HIERARCHY_INDEX_NAME);
+    if (null != indexResource) {
+      try (DataInputStream in =
+          new DataInputStream(new BufferedInputStream(indexResource.openStream()))) {
+        long[] matcherHashes = new long[in.readInt()];
+        for (int i = 0; i < matcherHashes.length; i++) {
+          matcherHashes[i] = in.readLong();
+        }
+        int jarCount = in.readInt();
+        long[] jarSizes = new long[jarCount];
+        int[] jarChecksums = new int[jarCount];
+        for (int i = 0; i < jarCount; i++) {
+          jarSizes[i] = in.readLong();
+          jarChecksums[i] = in.readInt();
+        }
+        int[][] requiredJars = new int[in.readInt()][];
+        for (int i = 0; i < requiredJars.length; i++) {
+          int[] jarIds = new int[in.readInt()];
+          for (int j = 0; j < jarIds.length; j++) {
+            jarIds[j] = in.readInt();
+          }
+          requiredJars[i] = jarIds;
+        }
+        return new HierarchyIndex(
+            matcherHashes, jarSizes, jarChecksums, requiredJars, ClassNameTrie.readFrom(in));
+      } catch (Throwable e) {
+        log.error("Problem reading {}", HIERARCHY_INDEX_NAME, e);
+      }
+    }
+    return null; // index is optional
+  }
+
+  /** Hashes the matcher description, ignoring any identity hash-codes. */
+  static long describe(ElementMatcher matcher) {
+    String description = IDENTITY_HASH.matcher(String.valueOf(matcher)).replaceAll("");
+    long hash = 1125899906842597L;
+    for (int i = 0; i < description.length(); i++) {
+      hash = 31 * hash + description.charAt(i);
+    }
+    return hash;
+  }
+
+  static boolean isNestedJar(String entryName) {
+    if (entryName.endsWith(".jar")) {
+      for (String dir : NESTED_JAR_DIRS) {
+        if (entryName.startsWith(dir) && entryName.indexOf('/', dir.length()) < 0) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
+  static int checksum(Path jar) throws IOException {
+    CRC32 crc = new CRC32();
+    byte[] buf = new byte[65536];
+    try (InputStream in = Files.newInputStream(jar)) {
+      int bytesRead;
+      while ((bytesRead = in.read(buf)) != -1) {
+        crc.update(buf, 0, bytesRead);
+      }
+    }
+    return (int) crc.getValue();
+  }
+
+  /** Generates an index of types from library jars that don't match any memoized matcher. */
+  static class IndexGenerator {
+    final List<Path> jars = new ArrayList<>();
+    final List<BitSet> requiredJars = new ArrayList<>();
+    final Map<BitSet, Integer> requirementIds = new HashMap<>();
+    final ClassNameTrie.Builder noMatchTrie = new ClassNameTrie.Builder();
+    long[] matcherHashes;
+
+    /** Prepares the matchers of all known instrumentations, whether they're enabled or not. */
+    public void prepareMatchers() {
+      TypePoolFacade.registerAsSupplier();
+      HierarchyMatchers.registerIfAbsent(new MemoizedMatchers());
+
+      List<InstrumenterModule> modules = new ArrayList<>();
+      for (InstrumenterModule module : InstrumenterIndex.readIndex().modules()) {
+        modules.add(module);
+        if (module instanceof ExcludeFilterProvider) {
+          ExcludeFilter.add(((ExcludeFilterProvider) module).excludedClasses());
+        }
+      }
+      for (InstrumenterModule module : modules) {
+        try {
+          for (Map.Entry<String, String> store : module.contextStore().entrySet()) {
+            HierarchyMatchers.declaresContextField(store.getKey(), store.getValue());
+          }
+          for (Instrumenter member : module.typeInstrumentations()) {
+            if (member instanceof Instrumenter.ForTypeHierarchy) {
+              ((Instrumenter.ForTypeHierarchy) member).hierarchyMatcher();
+            }
+            if (member instanceof Instrumenter.WithTypeStructure) {
+              ((Instrumenter.WithTypeStructure) member).structureMatcher();
+            }
+          }
+        } catch (Throwable e) {
+          log.warn("Problem preparing matchers of {}", module.getClass().getName(), e);
+        }
+      }
+
+      SharedTypePools.endInstall();
+
+      List<ElementMatcher> matchers =
+          Memoizer.matchers.subList(Memoizer.INTERNAL_MATCHERS, Memoizer.matchers.size());
+      matcherHashes = new long[matchers.size()];
+      for (int i = 0; i < matcherHashes.length; i++) {
+        matcherHashes[i] = describe(matchers.get(i));
+      }
+      Arrays.sort(matcherHashes);
+    }
+
+    public void indexJars(List<Path> libraryJars) throws IOException {
+      // class-names in a stable order, mapped to the jar that contains them
+      Map<String, Integer> classJars = new TreeMap<>();
+      Set<String> duplicates = new HashSet<>();
+      URL[] urls = new URL[libraryJars.size()];
+      for (Path jar : libraryJars) {
+        int jarId = jars.size();
+        urls[jarId] = jar.toUri().toURL();
+        jars.add(jar);
+        try (ZipFile zip = new ZipFile(jar.toFile())) {
+          Enumeration<? extends ZipEntry> entries = zip.entries();
+          while (entries.hasMoreElements()) {
+            String name = entries.nextElement().getName();
+            if (name.endsWith(".class")
+                && !name.startsWith("META-INF/")
+                && !name.endsWith("module-info.class")) {
+              String className = name.substring(0, name.length() - 6).replace('/', '.');
+              if (null != classJars.putIfAbsent(className, jarId)) {
+                duplicates.add(className); // can't tell which version we'd resolve at build-time
+              }
+            }
+          }
+        }
+      }
+
+      int indexedCount = 0;
+      try (URLClassLoader libraryLoader = new URLClassLoader(urls, null)) {
+        TypePool typePool = SharedTypePools.typePool(libraryLoader);
+        for (String className : classJars.keySet()) {
+          if (duplicates.contains(className)) {
+            continue;
+          }
+          try {
+            TypeDescription type = typePool.describe(className).resolve();
+            BitSet jarIds = hierarchyJars(type, classJars, duplicates);
+            if (null != jarIds
+                && Memoizer.doMemoize(type, Memoizer.localMemosHolder.get()).isEmpty()
+                && indexNoMatch(className, jarIds)) {
+              indexedCount++;
+            }
+          } catch (Throwable e) {
+            log.debug("Problem indexing {}", className, e);
+          }
+        }
+      }
+      log.info("Indexed {} types with no matches from {} jars", indexedCount, jars.size());
+    }
+
+    /** Returns the jars containing the type and its super-types; null if any are unknown. */
+    private static BitSet hierarchyJars(
+        TypeDescription type, Map<String, Integer> classJars, Set<String> duplicates) {
+      BitSet jarIds = new BitSet();
+      Set<String> visited = new HashSet<>();
+      Deque<TypeDescription> pending = new ArrayDeque<>();
+      pending.add(type);
+      while (!pending.isEmpty()) {
+        TypeDescription next = pending.poll();
+        String name = next.getName();
+        if (name.startsWith("java.") || !visited.add(name)) {
+          continue;
+        }
+        Integer jarId = classJars.get(name);
+        if (null == jarId || duplicates.contains(name)) {
+          return null;
+        }
+        jarIds.set(jarId);
+        TypeDescription.Generic superClass = next.getSuperClass();
+        if (null != superClass) {
+          pending.add(superClass.asErasure());
+        }
+        for (TypeDescription.Generic intf : next.getInterfaces()) {
+          pending.add(intf.asErasure());
+        }
+      }
+      return jarIds;
+    }
+
+    private boolean indexNoMatch(String className, BitSet jarIds) {
+      Integer requirementId = requirementIds.get(jarIds);
+      if (null == requirementId) {
+        if (requiredJars.size() > MAX_REQUIREMENTS) {
+          return false;
+        }
+        requirementId = requiredJars.size();
+        requiredJars.add(jarIds);
+        requirementIds.put(jarIds, requirementId);
+      }
+      noMatchTrie.put(className, requirementId);
+      return true;
+    }
+
+    public void writeIndex(Path indexFile) throws IOException {
+      try (DataOutputStream out =
+          new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(indexFile)))) {
+        out.writeInt(matcherHashes.length);
+        for (long hash : matcherHashes) {
+          out.writeLong(hash);
+        }
+        out.writeInt(jars.size());
+        for (Path jar : jars) {
+          out.writeLong(Files.size(jar));
+          out.writeInt(checksum(jar));
+        }
+        out.writeInt(requiredJars.size());
+        for (BitSet jarIds : requiredJars) {
+          out.writeInt(jarIds.cardinality());
+          for (int id = jarIds.nextSetBit(0); id >= 0; id = jarIds.nextSetBit(id + 1)) {
+            out.writeInt(id);
+          }
+        }
+        noMatchTrie.writeTo(out);
+      }
+    }
+
+    /**
+     * Called from 'generateHierarchyIndex' task in 'dd-java-agent/instrumentation/build.gradle'.
+     */
+    public static void main(String[] args) throws IOException {
+      if (args.length < 1) {
+        throw new IllegalArgumentException("Expected: resources-dir [library-jar...]");
+      }
+
+      Path resourcesDir = Paths.get(args[0]).toAbsolutePath();
+      List<Path> libraryJars = new ArrayList<>();
+      for (int i = 1; i < args.length; i++) {
+        libraryJars.add(Paths.get(args[i]).toAbsolutePath());
+      }
+
+      IndexGenerator indexGenerator = new IndexGenerator();
+      indexGenerator.prepareMatchers();
+      indexGenerator.indexJars(libraryJars);
+      indexGenerator.writeIndex(resourcesDir.resolve(HIERARCHY_INDEX_NAME));
+    }
+  }
+}
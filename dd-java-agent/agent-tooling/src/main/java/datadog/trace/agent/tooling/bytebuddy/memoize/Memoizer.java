@@ -1,5 +1,7 @@
 package datadog.trace.agent.tooling.bytebuddy.memoize;
 
+import static datadog.trace.util.AgentThreadFactory.AgentThread.HIERARCHY_INDEX;
+import static datadog.trace.util.AgentThreadFactory.newAgentThread;
 import static net.bytebuddy.matcher.ElementMatchers.not;
 
 import datadog.trace.agent.tooling.InstrumenterMetrics;
@@ -63,15 +65,23 @@ public final class Memoizer {
   // compact filter recording uninteresting types
   private static final NoMatchFilter noMatchFilter = new NoMatchFilter();
 
+  // build-time index of uninteresting types in well-known library jars
+  private static volatile HierarchyIndex hierarchyIndex;
+
   // caches positive memoized matches
   private static final TypeInfoCache<BitSet> memos =
-      new TypeInfoCache<>(InstrumenterConfig.get().getResolverMemoPoolSize(), namesAreUnique);
+      new TypeInfoCache<>(
+          "Type-memo cache",
+          InstrumenterConfig.get().getResolverMemoPoolSize(),
+          InstrumenterConfig.get().getResolverMemoPoolSize()
+              * InstrumenterConfig.get().getResolverCacheMaxGrowth(),
+          namesAreUnique);
 
   // local memoized results, used to detect circular references
   static final ThreadLocal<Map<String, BitSet>> localMemosHolder =
       ThreadLocal.withInitial(HashMap::new);
 
-  private static final int INTERNAL_MATCHERS = 3; // isClass, isConcrete, isPartial
+  static final int INTERNAL_MATCHERS = 3; // isClass, isConcrete, isPartial
 
   // memoize whether the type is a class
   static final MemoizingMatcher isClass = prepare(MatcherKind.CLASS, ElementMatchers.any(), true);
@@ -95,6 +105,28 @@ public final class Memoizer {
     memos.clear();
   }
 
+  /**
+   * Consults the build-time {@link HierarchyIndex} once indexed jars are found on the class-path.
+   * Must be called after all matchers are installed, as the index only covers known matchers.
+   */
+  public static void useHierarchyIndex() {
+    HierarchyIndex index = HierarchyIndex.readIndex();
+    if (null == index || !index.covers(matchers.subList(INTERNAL_MATCHERS, matchers.size()))) {
+      return;
+    }
+    String classPath = System.getProperty("java.class.path");
+    if (null != classPath && !classPath.isEmpty()) {
+      newAgentThread(
+              HIERARCHY_INDEX,
+              () -> {
+                if (index.detectJars(classPath)) {
+                  hierarchyIndex = index;
+                }
+              })
+          .start();
+    }
+  }
+
   static MemoizingMatcher withMatcherId(ElementMatcher matcher) {
     return new MemoizingMatcher(matchers.size());
   }
@@ -154,7 +186,7 @@ public final class Memoizer {
     @Override
     protected boolean doMatch(TypeDescription target) {
       String targetName = target.getName();
-      if (noMatchFilter.contains(targetName)
+      if (isNoMatch(targetName)
           || "java.lang.Object".equals(targetName)
           || target.isPrimitive()) {
         return false;
@@ -165,7 +197,7 @@ public final class Memoizer {
   }
 
   static BitSet memoizeHierarchy(TypeDescription type, Map<String, BitSet> localMemos) {
-    if (noMatchFilter.contains(type.getName())) {
+    if (isNoMatch(type.getName())) {
       return NO_MATCH;
     } else {
       return doMemoize(type, localMemos);
@@ -248,8 +280,23 @@ public final class Memoizer {
   }
 
   /** Any type not recorded as a definite "no-match" is a potential match. */
-  static boolean potentialMatch(String name) {
-    return !noMatchFilter.contains(name);
+  public static boolean potentialMatch(String name) {
+    return !isNoMatch(name);
+  }
+
+  private static boolean isNoMatch(String name) {
+    if (noMatchFilter.contains(name)) {
+      return true;
+    }
+    HierarchyIndex index = hierarchyIndex;
+    if (null != index) {
+      long fromTick = InstrumenterMetrics.tick();
+      if (index.noMatch(name)) {
+        InstrumenterMetrics.hierarchyIndexHit(fromTick);
+        return true;
+      }
+    }
+    return false;
   }
 
   private static boolean sameOrigin(TypeDescription type, SharedTypeInfo<BitSet> sharedMemo) {
@@ -0,0 +1,287 @@
+package datadog.trace.agent.tooling.bytebuddy.outline;
+
+import static datadog.trace.util.AgentThreadFactory.AgentThread.RESOLVER_PREPARSER;
+import static datadog.trace.util.AgentThreadFactory.newAgentThread;
+
+import datadog.trace.agent.tooling.bytebuddy.memoize.Memoizer;
+import datadog.trace.api.InstrumenterConfig;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.util.Enumeration;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipInputStream;
+import net.bytebuddy.description.type.TypeDescription;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Type outlines pre-parsed from jars on the class-path by background threads during startup, so
+ * the class-loading thread can skip reading and parsing class-files when matching.
+ *
+ * <p>Class-loaders for jars on the class-path, including nested jars in Spring Boot fat jars and
+ * executable wars, may not exist yet when we start. Outlines are therefore keyed by the location
+ * of the class-file inside its jar rather than the class-loader, and only taken when the resource
+ * found by the class-loader has the same location. Each outline is removed once taken, and any
+ * left over are discarded with the rest of the shared type pools.
+ */
+final class PreparsedOutlines {
+  private static final Logger log = LoggerFactory.getLogger(PreparsedOutlines.class);
+
+  // limit how many outlines we keep before they're taken
+  private static final int MAX_OUTLINES = 1 << 16;
+
+  private static final String[] NESTED_CLASS_DIRS = {"BOOT-INF/classes/", "WEB-INF/classes/"};
+  private static final String[] NESTED_JAR_DIRS = {
+    "BOOT-INF/lib/", "WEB-INF/lib/", "WEB-INF/lib-provided/"
+  };
+
+  private static final ConcurrentHashMap<String, Preparsed> outlines = new ConcurrentHashMap<>();
+
+  private static final Queue<Job> jobs = new ConcurrentLinkedQueue<>();
+
+  // includes jobs in progress, which may add jobs for nested jars
+  private static final AtomicInteger pendingJobs = new AtomicInteger();
+
+  private static final AtomicInteger budget = new AtomicInteger(MAX_OUTLINES);
+
+  private static volatile boolean active;
+
+  /** Starts background threads that pre-parse outlines for jars on the class-path. */
+  static void preparseClassPath(int threads) {
+    String classPath = System.getProperty("java.class.path");
+    if (null == classPath || classPath.isEmpty()) {
+      return;
+    }
+    for (String path : classPath.split(File.pathSeparator)) {
+      if (path.endsWith(".jar") || path.endsWith(".war")) {
+        File jar = new File(path);
+        if (jar.isFile()) {
+          addJob(new Job(jar, null, jar.getName()));
+        }
+      }
+    }
+    if (jobs.isEmpty()) {
+      return;
+    }
+    active = true;
+    boolean skipNoMatches = InstrumenterConfig.get().isResolverMemoizingEnabled();
+    for (int i = 0; i < threads; i++) {
+      newAgentThread(RESOLVER_PREPARSER, "-" + i, new Worker(skipNoMatches), true).start();
+    }
+  }
+
+  static void addJob(Job job) {
+    pendingJobs.incrementAndGet();
+    jobs.add(job);
+  }
+
+  /**
+   * Takes the pre-parsed outline of the named type, as long as it came from the same location.
+   *
+   * @return the outline; {@code null} if it wasn't pre-parsed or came from a different location
+   */
+  static TypeDescription take(String name, URL classFile) {
+    if (outlines.isEmpty() || null == classFile || !"jar".equals(classFile.getProtocol())) {
+      return null;
+    }
+    Preparsed preparsed = outlines.get(name);
+    if (null != preparsed
+        && preparsed.sameLocation(classFile.getFile())
+        && outlines.remove(name, preparsed)) {
+      budget.incrementAndGet();
+      return preparsed.outline;
+    }
+    return null;
+  }
+
+  /** Stops any pre-parsing and discards the outlines that weren't taken. */
+  static void clear() {
+    active = false;
+    jobs.clear();
+    outlines.clear();
+  }
+
+  /** Jar, possibly nested inside another jar, whose classes we want to outline. */
+  static final class Job {
+    final File file;
+    final String nestedJar;
+    final String container;
+
+    Job(File file, String nestedJar, String container) {
+      this.file = file;
+      this.nestedJar = nestedJar;
+      this.container = container;
+    }
+  }
+
+  static final class Worker implements Runnable {
+    private final TypeParser typeParser = new OutlineTypeParser();
+    private final boolean skipNoMatches;
+
+    Worker(boolean skipNoMatches) {
+      this.skipNoMatches = skipNoMatches;
+    }
+
+    @Override
+    public void run() {
+      while (active && pendingJobs.get() > 0) {
+        Job job = jobs.poll();
+        if (null == job) {
+          try {
+            Thread.sleep(1); // wait for jobs in progress to add nested jars
+            continue;
+          } catch (InterruptedException e) {
+            return;
+          }
+        }
+        try (ZipFile zip = new ZipFile(job.file)) {
+          if (null == job.nestedJar) {
+            preparseJar(zip, job);
+          } else {
+            ZipEntry nestedJar = zip.getEntry(job.nestedJar);
+            if (null != nestedJar) {
+              try (ZipInputStream in = new ZipInputStream(zip.getInputStream(nestedJar))) {
+                preparseNestedJar(in, job);
+              }
+            }
+          }
+        } catch (Throwable e) {
+          log.debug("Problem pre-parsing outlines from {}", job.file, e);
+        } finally {
+          pendingJobs.decrementAndGet();
+        }
+      }
+    }
+
+    private void preparseJar(ZipFile zip, Job job) throws IOException {
+      Enumeration<? extends ZipEntry> entries = zip.entries();
+      while (active && entries.hasMoreElements()) {
+        ZipEntry entry = entries.nextElement();
+        String name = entry.getName();
+        if (name.endsWith(".jar")) {
+          if (isNested(name, NESTED_JAR_DIRS)) {
+            addJob(new Job(job.file, name, name));
+          }
+        } else if (isClassFile(name)) {
+          String container = job.container;
+          for (String dir : NESTED_CLASS_DIRS) {
+            if (name.startsWith(dir)) {
+              container = dir.substring(0, dir.length() - 1);
+              name = name.substring(dir.length());
+              break;
+            }
+          }
+          if (wanted(name)) {
+            try (InputStream in = zip.getInputStream(entry)) {
+              preparse(container, name, readBytecode(in, (int) entry.getSize()));
+            }
+          }
+        }
+      }
+    }
+
+    private void preparseNestedJar(ZipInputStream in, Job job) throws IOException {
+      ZipEntry entry;
+      while (active && null != (entry = in.getNextEntry())) {
+        String name = entry.getName();
+        if (isClassFile(name) && wanted(name)) {
+          preparse(job.container, name, readBytecode(in, (int) entry.getSize()));
+        }
+      }
+    }
+
+    private boolean wanted(String entryName) {
+      if (entryName.startsWith("java/") || entryName.startsWith("META-INF/")) {
+        return false;
+      }
+      // uninteresting types don't need outlines for matching
+      return !skipNoMatches || Memoizer.potentialMatch(className(entryName));
+    }
+
+    private void preparse(String container, String entryName, byte[] bytecode) {
+      if (budget.decrementAndGet() < 0) {
+        active = false; // reached the limit, stop pre-parsing
+        return;
+      }
+      TypeDescription outline = typeParser.parse(bytecode);
+      Preparsed preparsed = new Preparsed(container + "!/" + entryName, outline);
+      if (null != outlines.putIfAbsent(outline.getName(), preparsed)) {
+        budget.incrementAndGet(); // keep the outline from the earlier class-path entry
+      }
+    }
+  }
+
+  /** Outline along with the location of its class-file. */
+  static final class Preparsed {
+    final String location;
+    final TypeDescription outline;
+
+    Preparsed(String location, TypeDescription outline) {
+      this.location = location;
+      this.outline = outline;
+    }
+
+    /**
+     * Compares locations using the end of the resource path, to match the different URL formats
+     * used for nested jars; for example "file:/app.jar!/BOOT-INF/lib/lib.jar!/pkg/Type.class" and
+     * "nested:/app.jar/!BOOT-INF/lib/lib.jar!/pkg/Type.class".
+     */
+    boolean sameLocation(String resourcePath) {
+      int entryStart = location.indexOf("!/") + 2;
+      int entryLength = location.length() - entryStart;
+      int containerEnd = resourcePath.length() - entryLength - 2;
+      if (containerEnd <= 0
+          || !resourcePath.regionMatches(containerEnd, location, entryStart - 2, entryLength + 2)) {
+        return false;
+      }
+      if (resourcePath.charAt(containerEnd - 1) == '/') {
+        containerEnd--; // some formats add '/' after nested directories
+      }
+      int containerLength = entryStart - 2;
+      int containerStart = containerEnd - containerLength;
+      if (containerStart <= 0
+          || !resourcePath.regionMatches(containerStart, location, 0, containerLength)) {
+        return false;
+      }
+      char separator = resourcePath.charAt(containerStart - 1);
+      return separator == '/' || separator == '!';
+    }
+  }
+
+  static boolean isNested(String entryName, String[] dirs) {
+    for (String dir : dirs) {
+      if (entryName.startsWith(dir) && entryName.indexOf('/', dir.length()) < 0) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  static boolean isClassFile(String entryName) {
+    return entryName.endsWith(".class") && !entryName.endsWith("module-info.class");
+  }
+
+  static String className(String entryName) {
+    return entryName.substring(0, entryName.length() - 6).replace('/', '.');
+  }
+
+  static byte[] readBytecode(InputStream in, int sizeHint) throws IOException {
+    ByteArrayOutputStream buf = new ByteArrayOutputStream(sizeHint > 0 ? sizeHint : 8192);
+    byte[] chunk = new byte[8192];
+    int bytesRead;
+    while ((bytesRead = in.read(chunk)) != -1) {
+      buf.write(chunk, 0, bytesRead);
+    }
+    return buf.toByteArray();
+  }
+
+  private PreparsedOutlines() {}
+}
@@ -81,10 +81,20 @@ final class TypeFactory {
       new CachingType(outlineTypeParser.parse(Object.class));
 
   private static final TypeInfoCache<TypeDescription> outlineTypes =
-      new TypeInfoCache<>(InstrumenterConfig.get().getResolverOutlinePoolSize());
+      new TypeInfoCache<>(
+          "Type-outline cache",
+          InstrumenterConfig.get().getResolverOutlinePoolSize(),
+          InstrumenterConfig.get().getResolverOutlinePoolSize()
+              * InstrumenterConfig.get().getResolverCacheMaxGrowth(),
+          false);
 
   private static final TypeInfoCache<TypeDescription> fullTypes =
-      new TypeInfoCache<>(InstrumenterConfig.get().getResolverTypePoolSize());
+      new TypeInfoCache<>(
+          "Full-type cache",
+          InstrumenterConfig.get().getResolverTypePoolSize(),
+          InstrumenterConfig.get().getResolverTypePoolSize()
+              * InstrumenterConfig.get().getResolverCacheMaxGrowth(),
+          false);
 
   static final IsPublicFilter isPublicFilter = new IsPublicFilter();
 
@@ -134,6 +144,7 @@ final class TypeFactory {
   static void clear() {
     outlineTypes.clear();
     fullTypes.clear();
+    PreparsedOutlines.clear();
   }
 
   /**
@@ -268,15 +279,24 @@ final class TypeFactory {
 
     TypeDescription type = null;
 
-    // try to parse the original bytecode
-    byte[] bytecode = request.getBytecode();
-    if (null != bytecode) {
-      type = typeParser.parse(bytecode);
-    } else if (fallBackToLoadClass) {
-      type = loadType(name, typeParser);
+    // outline pre-parsed in the background from the same class file?
+    if (isOutline) {
+      type = PreparsedOutlines.take(name, classFile);
     }
 
-    InstrumenterMetrics.buildTypeDescription(fromTick, isOutline);
+    if (null != type) {
+      InstrumenterMetrics.preparsedTypeOutline(fromTick);
+    } else {
+      // try to parse the original bytecode
+      byte[] bytecode = request.getBytecode();
+      if (null != bytecode) {
+        type = typeParser.parse(bytecode);
+      } else if (fallBackToLoadClass) {
+        type = loadType(name, typeParser);
+      }
+
+      InstrumenterMetrics.buildTypeDescription(fromTick, isOutline);
+    }
 
     if (MEMOIZING_ENABLED && null != type) {
       if (type.isPublic()) {
@@ -19,6 +19,11 @@ public final class TypePoolFacade implements TypePool, SharedTypePools.Supplier
     typeFactory.get().beginInstall();
   }
 
+  /** Pre-parses outlines of types on the class-path using the given number of threads. */
+  public static void preparseClassPath(int threads) {
+    PreparsedOutlines.preparseClassPath(threads);
+  }
+
   @Override
   public TypePool typePool(ClassLoader classLoader) {
     switchContext(classLoader);
@@ -3,10 +3,14 @@ package datadog.trace.agent.tooling.context;
 import static datadog.trace.bootstrap.FieldBackedContextStores.getContextStoreId;
 import static datadog.trace.util.Strings.getInternalName;
 
+import datadog.trace.api.Platform;
 import datadog.trace.bootstrap.ContextStore;
 import datadog.trace.bootstrap.FieldBackedContextStore;
 import datadog.trace.bootstrap.FieldBackedContextStores;
 import datadog.trace.bootstrap.InstrumentationContext;
+import java.lang.invoke.CallSite;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.util.Map;
 import net.bytebuddy.asm.AsmVisitorWrapper;
 import net.bytebuddy.description.field.FieldDescription;
@@ -16,6 +20,7 @@ import net.bytebuddy.description.type.TypeDescription;
 import net.bytebuddy.implementation.Implementation;
 import net.bytebuddy.jar.asm.ClassVisitor;
 import net.bytebuddy.jar.asm.ClassWriter;
+import net.bytebuddy.jar.asm.Handle;
 import net.bytebuddy.jar.asm.MethodVisitor;
 import net.bytebuddy.jar.asm.Opcodes;
 import net.bytebuddy.jar.asm.Type;
@@ -55,6 +60,25 @@ public final class FieldBackedContextRequestRewriter implements AsmVisitorWrappe
 
   static final String FAST_CONTENT_STORE_PREFIX = "contextStore";
 
+  static final String INDY_CONTENT_STORE_DESCRIPTOR =
+      Type.getMethodDescriptor(Type.getType(FieldBackedContextStore.class));
+
+  static final Handle CONTENT_STORE_BOOTSTRAP =
+      new Handle(
+          Opcodes.H_INVOKESTATIC,
+          FIELD_BACKED_CONTEXT_STORES_CLASS,
+          "bootstrapContextStore",
+          Type.getMethodDescriptor(
+              Type.getType(CallSite.class),
+              Type.getType(MethodHandles.Lookup.class),
+              Type.getType(String.class),
+              Type.getType(MethodType.class),
+              Type.INT_TYPE),
+          false);
+
+  // native-images only support invokedynamic for lambdas and string concatenation
+  private static final boolean INDY_CONTENT_STORES_ALLOWED = !Platform.isNativeImageBuilder();
+
   final Map<String, String> contextStore;
   final String instrumenterClassName;
 
@@ -85,6 +109,23 @@ public final class FieldBackedContextRequestRewriter implements AsmVisitorWrappe
       final int writerFlags,
       final int readerFlags) {
     return new ClassVisitor(Opcodes.ASM8, classVisitor) {
+      private boolean useInvokeDynamic;
+
+      @Override
+      public void visit(
+          final int version,
+          final int access,
+          final String name,
+          final String signature,
+          final String superName,
+          final String[] interfaces) {
+        useInvokeDynamic =
+            INDY_CONTENT_STORES_ALLOWED
+                && (version & 0xFFFF) >= Opcodes.V1_7
+                && !isJdkType(instrumentedType.getName());
+        super.visit(version, access, name, signature, superName, interfaces);
+      }
+
       @Override
       public MethodVisitor visitMethod(
           final int access,
@@ -150,13 +191,20 @@ public final class FieldBackedContextRequestRewriter implements AsmVisitorWrappe
                 mv.visitInsn(Opcodes.POP2);
 
                 int storeId = getContextStoreId(keyClassName, contextClassName);
-                // use fast direct field access for a small number of stores
+                // use fast direct field access for a small number of stores, then invokedynamic
                 if (storeId < FieldBackedContextStores.FAST_STORE_ID_LIMIT) {
                   mv.visitFieldInsn(
                       Opcodes.GETSTATIC,
                       FIELD_BACKED_CONTEXT_STORES_CLASS,
                       FAST_CONTENT_STORE_PREFIX + storeId,
                       FIELD_BACKED_CONTENT_STORE_DESCRIPTOR);
+                } else if (useInvokeDynamic) {
+                  // bind the store as a constant, so it's as fast as direct field access
+                  mv.visitInvokeDynamicInsn(
+                      FAST_CONTENT_STORE_PREFIX + storeId,
+                      INDY_CONTENT_STORE_DESCRIPTOR,
+                      CONTENT_STORE_BOOTSTRAP,
+                      storeId);
                 } else {
                   mv.visitLdcInsn(storeId);
                   mv.visitMethodInsn(
@@ -183,4 +231,15 @@ public final class FieldBackedContextRequestRewriter implements AsmVisitorWrappe
       }
     };
   }
+
+  /**
+   * JDK types can be instrumented before the {@code java.lang.invoke} infrastructure is ready, or
+   * be part of it, so they don't use invokedynamic to retrieve context stores.
+   */
+  static boolean isJdkType(final String className) {
+    return className.startsWith("java.")
+        || className.startsWith("jdk.")
+        || className.startsWith("sun.")
+        || className.startsWith("com.sun.");
+  }
 }
@@ -0,0 +1,71 @@
+package datadog.trace.agent.tooling.bytebuddy
+
+import spock.lang.Specification
+
+class TypeInfoCacheTest extends Specification {
+
+  void 'cache grows when its working set does not fit'() {
+    setup:
+    def cache = new TypeInfoCache<Integer>(null, 1024, 16384, true)
+
+    when:
+    5.times {
+      findOrShare(cache, 8000)
+    }
+
+    then:
+    cache.capacity() > 1024
+    cache.capacity() <= 16384
+  }
+
+  void 'cache does not grow for types that are only seen once'() {
+    setup:
+    def cache = new TypeInfoCache<Integer>(null, 1024, 16384, true)
+
+    when:
+    findOrShare(cache, 50000)
+
+    then:
+    cache.capacity() == 1024
+  }
+
+  void 'cache without room to grow keeps its capacity'() {
+    setup:
+    def cache = new TypeInfoCache<Integer>(100)
+
+    when:
+    5.times {
+      findOrShare(cache, 8000)
+    }
+
+    then:
+    cache.capacity() == 128
+  }
+
+  void 'recently found types survive eviction'() {
+    setup:
+    def cache = new TypeInfoCache<Integer>(16)
+    cache.share('example.Hot', null, null, 0)
+
+    when:
+    1000.times {
+      assert cache.find('example.Hot')?.get() == 0
+      cache.share("example.Cold$it", null, null, it)
+    }
+
+    then:
+    cache.find('example.Hot')?.get() == 0
+  }
+
+  static void findOrShare(TypeInfoCache<Integer> cache, int typeCount) {
+    for (int i = 0; i < typeCount; i++) {
+      def name = "example.Type$i".toString()
+      def sharedInfo = cache.find(name)
+      if (sharedInfo == null) {
+        cache.share(name, null, null, i)
+      } else {
+        assert sharedInfo.get() == i
+      }
+    }
+  }
+}
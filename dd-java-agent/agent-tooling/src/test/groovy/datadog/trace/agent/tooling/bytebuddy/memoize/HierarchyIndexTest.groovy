@@ -0,0 +1,54 @@
+package datadog.trace.agent.tooling.bytebuddy.memoize
+
+import net.bytebuddy.matcher.ElementMatcher
+import spock.lang.Specification
+
+class HierarchyIndexTest extends Specification {
+
+  void 'matcher descriptions ignore identity hash-codes'() {
+    expect:
+    HierarchyIndex.describe(describedAs(first)) == HierarchyIndex.describe(describedAs(second))
+
+    where:
+    first                                   | second
+    'hasSuperType(Matcher@1b6d3586)'        | 'hasSuperType(Matcher@4554617c)'
+    'isAnnotatedWith(Matcher@7f31245a, x)'  | 'isAnnotatedWith(Matcher@0, x)'
+  }
+
+  void 'matcher descriptions are otherwise distinct'() {
+    expect:
+    HierarchyIndex.describe(describedAs(first)) != HierarchyIndex.describe(describedAs(second))
+
+    where:
+    first                          | second
+    'named(foo.Bar)'               | 'named(foo.Baz)'
+    'named(foo.Bar)'               | 'nameEndsWith(foo.Bar)'
+    'nameStartsWith(foo.bar@1234)' | 'nameStartsWith(foo.bar@1234x)'
+  }
+
+  void 'only library jars nested in fat jars and wars are indexed'() {
+    expect:
+    HierarchyIndex.isNestedJar(entryName) == nested
+
+    where:
+    entryName                              | nested
+    'BOOT-INF/lib/spring-core-6.1.14.jar'  | true
+    'WEB-INF/lib/kafka-clients-3.8.0.jar'  | true
+    'BOOT-INF/lib/nested/example.jar'      | false
+    'BOOT-INF/classes/example.jar'         | false
+    'BOOT-INF/lib/spring-core-6.1.14.pom'  | false
+    'lib/spring-core-6.1.14.jar'           | false
+  }
+
+  static ElementMatcher describedAs(String description) {
+    new ElementMatcher() {
+        boolean matches(Object target) {
+          false
+        }
+
+        String toString() {
+          description
+        }
+      }
+  }
+}
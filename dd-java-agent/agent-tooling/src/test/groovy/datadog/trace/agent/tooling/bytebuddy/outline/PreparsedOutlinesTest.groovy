@@ -0,0 +1,46 @@
+package datadog.trace.agent.tooling.bytebuddy.outline
+
+import spock.lang.Specification
+
+class PreparsedOutlinesTest extends Specification {
+
+  void 'outlines are only taken from the same location'() {
+    setup:
+    final preparsed = new PreparsedOutlines.Preparsed(location, null)
+
+    expect:
+    preparsed.sameLocation(path) == same
+
+    where:
+    location                                   | path                                                      | same
+    'lib.jar!/pkg/Type.class'                  | 'file:/opt/app/lib.jar!/pkg/Type.class'                   | true
+    'lib.jar!/pkg/Type.class'                  | 'file:/opt/app/other-lib.jar!/pkg/Type.class'             | false
+    'lib.jar!/pkg/Type.class'                  | 'file:/opt/app/lib.jar!/other/pkg/Type.class'             | false
+    'BOOT-INF/lib/lib.jar!/pkg/Type.class'     | 'file:/app.jar!/BOOT-INF/lib/lib.jar!/pkg/Type.class'     | true
+    'BOOT-INF/lib/lib.jar!/pkg/Type.class'     | 'nested:/app.jar/!BOOT-INF/lib/lib.jar!/pkg/Type.class'   | true
+    'BOOT-INF/lib/lib.jar!/pkg/Type.class'     | 'file:/app.jar!/BOOT-INF/lib/lib-2.jar!/pkg/Type.class'   | false
+    'BOOT-INF/classes!/pkg/Type.class'         | 'file:/app.jar!/BOOT-INF/classes!/pkg/Type.class'         | true
+    'BOOT-INF/classes!/pkg/Type.class'         | 'nested:/app.jar/!BOOT-INF/classes/!/pkg/Type.class'      | true
+    'WEB-INF/classes!/pkg/Type.class'          | 'file:/app.war!/BOOT-INF/classes!/pkg/Type.class'         | false
+    'WEB-INF/lib-provided/lib.jar!/Type.class' | 'file:/app.war!/WEB-INF/lib-provided/lib.jar!/Type.class' | true
+  }
+
+  void 'only direct children of nested jar directories are pre-parsed'() {
+    expect:
+    PreparsedOutlines.isNested(entry, ['BOOT-INF/lib/'] as String[]) == nested
+
+    where:
+    entry                         | nested
+    'BOOT-INF/lib/lib.jar'        | true
+    'BOOT-INF/lib/extra/lib.jar'  | false
+    'lib/lib.jar'                 | false
+  }
+
+  void 'class names are derived from entry names'() {
+    expect:
+    PreparsedOutlines.isClassFile('pkg/Type$Inner.class')
+    !PreparsedOutlines.isClassFile('module-info.class')
+    !PreparsedOutlines.isClassFile('pkg/Type.properties')
+    PreparsedOutlines.className('pkg/Type$Inner.class') == 'pkg.Type$Inner'
+  }
+}
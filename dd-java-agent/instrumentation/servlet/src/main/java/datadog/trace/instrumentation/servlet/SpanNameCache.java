@@ -7,7 +7,7 @@ import java.util.function.Function;
 
 public final class SpanNameCache {
   public static final DDCache<CharSequence, CharSequence> SPAN_NAME_CACHE =
-      DDCaches.newUnboundedCache(16);
+      DDCaches.newUnboundedCache("servlet_span_names", 16);
   public static final Function<CharSequence, CharSequence> SERVLET_PREFIX =
       new Functions.Prefix("servlet.");
 }
@@ -75,7 +75,9 @@ public final class ConfigDefaults {
   static final int DEFAULT_TRACE_KEEP_LATENCY_THRESHOLD_MS = 0;
   static final int DEFAULT_SCOPE_DEPTH_LIMIT = 100;
   static final int DEFAULT_SCOPE_ITERATION_KEEP_ALIVE = 30; // in seconds
+  static final boolean DEFAULT_SCOPE_VIRTUAL_THREADS_OPTIMIZED = true;
   static final int DEFAULT_PARTIAL_FLUSH_MIN_SPANS = 1000;
+  static final boolean DEFAULT_PARTIAL_FLUSH_STREAMING_ENABLED = false;
   static final boolean DEFAULT_PROPAGATION_EXTRACT_LOG_HEADER_NAMES_ENABLED = false;
   static final Set<TracePropagationStyle> DEFAULT_TRACE_PROPAGATION_STYLE =
       new LinkedHashSet<>(asList(DATADOG, TRACECONTEXT));
@@ -97,6 +99,8 @@ public final class ConfigDefaults {
 
   static final boolean DEFAULT_HEALTH_METRICS_ENABLED = true;
   static final boolean DEFAULT_PERF_METRICS_ENABLED = false;
+  static final boolean DEFAULT_CACHE_STATS_ENABLED = false;
+  static final int DEFAULT_TRACER_METRICS_STRIPES = 0; // disabled
   // No default constants for metrics statsd support -- falls back to jmxfetch values
 
   static final boolean DEFAULT_LOGS_INJECTION_ENABLED = true;
@@ -217,8 +221,13 @@ public final class ConfigDefaults {
 
   static final boolean DEFAULT_DATA_STREAMS_ENABLED = false;
   static final int DEFAULT_DATA_STREAMS_BUCKET_DURATION = 10; // seconds
+  static final int DEFAULT_DATA_STREAMS_STRIPES = 0; // disabled
 
   static final int DEFAULT_RESOLVER_RESET_INTERVAL = 300; // seconds
+  static final int DEFAULT_RESOLVER_CACHE_MAX_GROWTH = 4; // times the preset pool sizes
+  static final int DEFAULT_RESOLVER_BYTECODE_CACHE_SIZE = 0; // megabytes, disabled by default
+  static final int DEFAULT_RESOLVER_PREPARSE_THREADS = 0; // disabled by default
+  static final boolean DEFAULT_RESOLVER_HIERARCHY_INDEX_ENABLED = false;
 
   static final boolean DEFAULT_TELEMETRY_ENABLED = true;
   static final int DEFAULT_TELEMETRY_HEARTBEAT_INTERVAL = 60; // in seconds
@@ -243,6 +252,15 @@ public final class ConfigDefaults {
   static final float DEFAULT_TRACE_FLUSH_INTERVAL = 1;
 
   static final long DEFAULT_TRACE_POST_PROCESSING_TIMEOUT = 1000; // 1 second
+  static final int DEFAULT_TRACE_SERIALIZATION_SHARDS = 1;
+  static final boolean DEFAULT_TRACE_SERIALIZATION_DIRECT_BUFFERS = false;
+  static final boolean DEFAULT_TRACE_AGENT_COMPRESSION_ENABLED = false;
+  static final int DEFAULT_TRACE_BATCHING_TARGET_BYTES = 0; // disabled
+  static final long DEFAULT_TRACE_BATCHING_MAX_DELAY_MS = 5000;
+  static final int DEFAULT_TRACE_SPILL_MAX_BYTES = 64 << 20; // 64MB
+  static final long DEFAULT_TRACE_SPILL_MAX_AGE_MS = 10 * 60 * 1000; // 10 minutes
+  static final boolean DEFAULT_TRACE_SPAN_RECYCLING_ENABLED = false;
+  static final boolean DEFAULT_TRACE_SPAN_RECYCLING_DEBUG = false;
 
   static final boolean DEFAULT_CASSANDRA_KEYSPACE_STATEMENT_EXTRACTION_ENABLED = false;
   static final boolean DEFAULT_COUCHBASE_INTERNAL_SPANS_ENABLED = true;
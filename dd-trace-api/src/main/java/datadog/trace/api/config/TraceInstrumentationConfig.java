@@ -143,6 +143,10 @@ public final class TraceInstrumentationConfig {
 
   public static final String RESOLVER_CACHE_CONFIG = "resolver.cache.config";
   public static final String RESOLVER_CACHE_DIR = "resolver.cache.dir";
+  public static final String RESOLVER_CACHE_MAX_GROWTH = "resolver.cache.max.growth";
+  public static final String RESOLVER_BYTECODE_CACHE_SIZE = "resolver.bytecode.cache.size";
+  public static final String RESOLVER_PREPARSE_THREADS = "resolver.preparse.threads";
+  public static final String RESOLVER_HIERARCHY_INDEX_ENABLED = "resolver.hierarchy.index.enabled";
   public static final String RESOLVER_SIMPLE_METHOD_GRAPH = "resolver.simple.method.graph";
   public static final String RESOLVER_USE_LOADCLASS = "resolver.use.loadclass";
   public static final String RESOLVER_USE_URL_CACHES = "resolver.use.url.caches";
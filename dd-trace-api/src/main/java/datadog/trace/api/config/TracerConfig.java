@@ -79,8 +79,12 @@ public final class TracerConfig {
   public static final String SCOPE_DEPTH_LIMIT = "trace.scope.depth.limit";
   public static final String SCOPE_STRICT_MODE = "trace.scope.strict.mode";
   public static final String SCOPE_ITERATION_KEEP_ALIVE = "trace.scope.iteration.keep.alive";
+  public static final String SCOPE_VIRTUAL_THREADS_OPTIMIZED =
+      "trace.scope.virtual.threads.optimized";
   public static final String PARTIAL_FLUSH_ENABLED = "trace.partial.flush.enabled";
   public static final String PARTIAL_FLUSH_MIN_SPANS = "trace.partial.flush.min.spans";
+  public static final String PARTIAL_FLUSH_STREAMING_ENABLED =
+      "trace.partial.flush.streaming.enabled";
   public static final String TRACE_STRICT_WRITES_ENABLED = "trace.strict.writes.enabled";
   public static final String PROPAGATION_EXTRACT_LOG_HEADER_NAMES_ENABLED =
       "propagation.extract.log_header_names.enabled";
@@ -139,6 +143,20 @@ public final class TracerConfig {
 
   public static final String TRACE_POST_PROCESSING_TIMEOUT = "trace.post-processing.timeout";
 
+  public static final String TRACE_SERIALIZATION_SHARDS = "trace.serialization.shards";
+  public static final String TRACE_SERIALIZATION_DIRECT_BUFFERS =
+      "trace.serialization.direct-buffers.enabled";
+  public static final String TRACE_AGENT_COMPRESSION_ENABLED = "trace.agent.compression.enabled";
+  public static final String TRACE_BATCHING_TARGET_BYTES = "trace.batching.target.bytes";
+  public static final String TRACE_BATCHING_MAX_DELAY_MS = "trace.batching.max.delay.ms";
+  public static final String TRACE_SPILL_DIRECTORY = "trace.spill.directory";
+  public static final String TRACE_SPILL_MAX_BYTES = "trace.spill.max.bytes";
+  public static final String TRACE_SPILL_MAX_AGE_MS = "trace.spill.max.age.ms";
+
+  public static final String TRACE_SPAN_RECYCLING_ENABLED =
+      "trace.experimental.span-recycling.enabled";
+  public static final String TRACE_SPAN_RECYCLING_DEBUG = "trace.experimental.span-recycling.debug";
+
   public static final String TRACE_CLOUD_PAYLOAD_TAGGING_SERVICES =
       "trace.cloud.payload.tagging.services";
   public static final String TRACE_CLOUD_REQUEST_PAYLOAD_TAGGING =
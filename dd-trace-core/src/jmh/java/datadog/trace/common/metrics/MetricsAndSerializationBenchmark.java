@@ -0,0 +1,170 @@
+package datadog.trace.common.metrics;
+
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+import datadog.communication.ddagent.DDAgentFeaturesDiscovery;
+import datadog.communication.monitor.Monitoring;
+import datadog.communication.serialization.msgpack.MsgPackWriter;
+import datadog.trace.common.writer.ListWriter;
+import datadog.trace.common.writer.ddagent.TraceMapperBenchmark.BlackholeBuffer;
+import datadog.trace.common.writer.ddagent.TraceMapperV0_4;
+import datadog.trace.core.CoreTracer;
+import datadog.trace.core.DDSpan;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import okhttp3.HttpUrl;
+import okhttp3.OkHttpClient;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Cost per span of publishing a trace to the metrics aggregator and serializing it, like a service
+ * handling 10k requests per second with traces of 10 spans, so 100k spans per second. At that rate
+ * every microsecond per span is a tenth of a core.
+ *
+ * <p>Resource names are new strings for every request, like the ones built by URL normalization.
+ * When {@code reuseMetricKeys} is false the serializer encodes the strings of each span instead of
+ * writing the strings of the metric keys the spans were aggregated under.
+ */
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 10, timeUnit = SECONDS)
+@Measurement(iterations = 3, time = 10, timeUnit = SECONDS)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(NANOSECONDS)
+@Fork(value = 1)
+public class MetricsAndSerializationBenchmark {
+  private static final int SPANS_PER_TRACE = 10;
+
+  @Param({"false", "true"})
+  boolean reuseMetricKeys;
+
+  private CoreTracer tracer;
+  private ConflatingMetricsAggregator aggregator;
+  private TraceMapperV0_4 mapper;
+  private MsgPackWriter writable;
+  private List<DDSpan> trace;
+
+  @Setup(Level.Trial)
+  public void setUp(Blackhole blackhole) {
+    tracer = CoreTracer.builder().writer(new ListWriter()).strictTraceWrites(true).build();
+    aggregator =
+        new ConflatingMetricsAggregator(
+            Collections.<String>emptySet(),
+            new MetricsEnabled(),
+            new NoopSink(),
+            new NoopMetricWriter(),
+            2048,
+            2048,
+            10,
+            SECONDS);
+    aggregator.start();
+    mapper = new TraceMapperV0_4();
+    writable = new MsgPackWriter(new BlackholeBuffer(blackhole));
+    trace = new ArrayList<>(SPANS_PER_TRACE);
+    DDSpan root =
+        (DDSpan)
+            tracer
+                .buildSpan("benchmark", "servlet.request")
+                .withServiceName("web")
+                .withResourceName(new String("GET /users/?"))
+                .withSpanType("web")
+                .start();
+    trace.add(root);
+    for (int i = 1; i < SPANS_PER_TRACE; i++) {
+      DDSpan child =
+          (DDSpan)
+              tracer
+                  .buildSpan("benchmark", "postgresql.query")
+                  .asChildOf(root.context())
+                  .withServiceName("postgres")
+                  .withResourceName(new String("SELECT * FROM users WHERE id = ?"))
+                  .withSpanType("sql")
+                  .start();
+      child.finish();
+      trace.add(child);
+    }
+    root.finish();
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    aggregator.close();
+    tracer.close();
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(SPANS_PER_TRACE)
+  public boolean publishAndSerialize() {
+    for (DDSpan span : trace) {
+      // each request has its own resource strings
+      span.setResourceName(new String(span.getResourceName().toString()));
+    }
+    boolean forceKeep = aggregator.publish(trace);
+    if (!reuseMetricKeys) {
+      for (DDSpan span : trace) {
+        span.setAggregatedNames(null);
+      }
+    }
+    mapper.map(trace, writable);
+    return forceKeep;
+  }
+
+  private static final class MetricsEnabled extends DDAgentFeaturesDiscovery {
+    MetricsEnabled() {
+      super(
+          new OkHttpClient(),
+          Monitoring.DISABLED,
+          HttpUrl.get("http://localhost:8126"),
+          false,
+          true);
+    }
+
+    @Override
+    public boolean supportsMetrics() {
+      return true;
+    }
+
+    @Override
+    public String getMetricsEndpoint() {
+      return V6_METRICS_ENDPOINT;
+    }
+  }
+
+  private static final class NoopSink implements Sink {
+    @Override
+    public void register(EventListener listener) {}
+
+    @Override
+    public void accept(int messageCount, ByteBuffer buffer) {}
+  }
+
+  private static final class NoopMetricWriter implements MetricWriter {
+    @Override
+    public void startBucket(int metricCount, long start, long duration) {}
+
+    @Override
+    public void add(MetricKey key, AggregateMetric aggregate) {}
+
+    @Override
+    public void finishBucket() {}
+
+    @Override
+    public void reset() {}
+  }
+}
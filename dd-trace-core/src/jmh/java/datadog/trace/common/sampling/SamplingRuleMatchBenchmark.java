@@ -0,0 +1,92 @@
+package datadog.trace.common.sampling;
+
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+import datadog.trace.api.sampling.SamplingMechanism;
+import datadog.trace.common.writer.LoggingWriter;
+import datadog.trace.core.CoreTracer;
+import datadog.trace.core.DDSpan;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Finds the rule matching a span among many trace sampling rules, like the rules pushed by remote
+ * configuration, checking each rule in turn or using {@link SamplingRuleIndex}. Most rules are for
+ * a single service, every tenth one matches a service glob, and the matching rule is the last one.
+ */
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 10, timeUnit = SECONDS)
+@Measurement(iterations = 3, time = 10, timeUnit = SECONDS)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(NANOSECONDS)
+@Fork(value = 1)
+public class SamplingRuleMatchBenchmark {
+
+  @Param({"10", "100", "1000"})
+  int ruleCount;
+
+  private CoreTracer tracer;
+  private List<RateSamplingRule> rules;
+  private SamplingRuleIndex<RateSamplingRule> index;
+  private DDSpan span;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    tracer = CoreTracer.builder().writer(new LoggingWriter()).strictTraceWrites(true).build();
+    rules = new ArrayList<>(ruleCount);
+    for (int i = 0; i < ruleCount - 1; i++) {
+      String service = i % 10 == 9 ? "batch-" + i + "-*" : "service-" + i;
+      rules.add(rule(service, "servlet.request", "GET /owners/*"));
+    }
+    rules.add(rule("checkout", "servlet.request", "GET /owners/*"));
+    index = new SamplingRuleIndex<>(rules);
+    span = (DDSpan) tracer.startSpan("benchmark", "servlet.request");
+    span.setServiceName("checkout");
+    span.setResourceName("GET /owners/{id}/pets");
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    tracer.close();
+  }
+
+  @Benchmark
+  public RateSamplingRule linear() {
+    for (RateSamplingRule rule : rules) {
+      if (rule.matches(span)) {
+        return rule;
+      }
+    }
+    return null;
+  }
+
+  @Benchmark
+  public RateSamplingRule indexed() {
+    return index.firstMatch(span);
+  }
+
+  private static RateSamplingRule rule(String service, String operation, String resource) {
+    return new RateSamplingRule.TraceSamplingRule(
+        service,
+        operation,
+        resource,
+        Collections.<String, String>emptyMap(),
+        new DeterministicSampler.TraceSampler(0.5),
+        SamplingMechanism.REMOTE_USER_RULE);
+  }
+}
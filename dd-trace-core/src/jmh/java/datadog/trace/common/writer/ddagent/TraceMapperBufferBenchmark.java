@@ -0,0 +1,92 @@
+package datadog.trace.common.writer.ddagent;
+
+import static datadog.trace.api.DDTags.LANGUAGE_TAG_KEY;
+import static datadog.trace.api.DDTags.LANGUAGE_TAG_VALUE;
+import static datadog.trace.api.DDTags.RUNTIME_ID_TAG;
+import static java.util.concurrent.TimeUnit.MICROSECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+import datadog.communication.serialization.FlushingBuffer;
+import datadog.communication.serialization.msgpack.MsgPackWriter;
+import datadog.trace.bootstrap.instrumentation.api.Tags;
+import datadog.trace.common.writer.LoggingWriter;
+import datadog.trace.core.CoreTracer;
+import datadog.trace.core.DDSpan;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import okio.Buffer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Encodes traces with {@link TraceMapperV0_4} into a heap or a direct {@link FlushingBuffer}, and
+ * streams each flushed payload through its request body like the agent api does.
+ */
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 30, timeUnit = SECONDS)
+@Measurement(iterations = 3, time = 30, timeUnit = SECONDS)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(MICROSECONDS)
+@Fork(value = 1)
+public class TraceMapperBufferBenchmark {
+
+  private static final int SPAN_COUNT = 20;
+
+  @Param({"heap", "direct"})
+  String bufferType;
+
+  private final TraceMapperV0_4 mapper = new TraceMapperV0_4(1 << 20);
+  private final Buffer sink = new Buffer();
+  private CoreTracer tracer;
+  private MsgPackWriter writer;
+  private List<DDSpan> trace;
+
+  @Setup(Level.Trial)
+  public void init() {
+    tracer = CoreTracer.builder().writer(new LoggingWriter()).strictTraceWrites(true).build();
+    writer =
+        new MsgPackWriter(
+            new FlushingBuffer(
+                mapper.messageBufferSize(), this::send, "direct".equals(bufferType)));
+    trace = new ArrayList<>(SPAN_COUNT);
+    for (int i = 0; i < SPAN_COUNT; i++) {
+      DDSpan span = (DDSpan) tracer.startSpan("benchmark", "operation");
+      span.setServiceName("service");
+      span.setResourceName("GET /owners/{id}/pets");
+      span.setTag(RUNTIME_ID_TAG, "fdd790b3-4aeb-4517-9b84-cafcc0129c48");
+      span.setTag(LANGUAGE_TAG_KEY, LANGUAGE_TAG_VALUE);
+      span.setTag(Tags.COMPONENT, "java-web-servlet");
+      span.setTag(Tags.HTTP_METHOD, "GET");
+      span.setTag(Tags.PEER_PORT, 54321);
+      span.finish();
+      trace.add(span);
+    }
+  }
+
+  @Benchmark
+  public void encodeAndSend() {
+    writer.format(trace, mapper);
+  }
+
+  private void send(int messageCount, ByteBuffer body) {
+    try {
+      mapper.newPayload().withBody(messageCount, body).toRequest().writeTo(sink);
+      sink.clear();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+}
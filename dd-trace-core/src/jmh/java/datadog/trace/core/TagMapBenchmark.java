@@ -0,0 +1,114 @@
+package datadog.trace.core;
+
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+import datadog.trace.api.DDTags;
+import datadog.trace.bootstrap.instrumentation.api.Tags;
+import java.util.HashMap;
+import java.util.Map;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Sets the tags of a typical http server span, then visits them like the trace mappers do. Run with
+ * {@code -prof gc} to compare the allocation per span of the synchronized {@link HashMap} that used
+ * to back {@link DDSpanContext} tags with {@link TagMap}.
+ */
+@State(Scope.Thread)
+@Warmup(iterations = 3, time = 10, timeUnit = SECONDS)
+@Measurement(iterations = 3, time = 10, timeUnit = SECONDS)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(NANOSECONDS)
+@Fork(value = 1)
+public class TagMapBenchmark {
+
+  private static final String COMPONENT = "java-web-servlet";
+  private static final String METHOD = "GET";
+  private static final String URL = "http://localhost:8080/owners/123/pets";
+
+  // reused like the mappers reuse their visitor
+  private final ConsumingVisitor visitor = new ConsumingVisitor();
+
+  @Benchmark
+  public void hashMap(Blackhole blackhole) {
+    Map<String, Object> tags = new HashMap<>(16);
+    synchronized (tags) {
+      tags.put(Tags.COMPONENT, COMPONENT);
+      tags.put(Tags.SPAN_KIND, Tags.SPAN_KIND_SERVER);
+      tags.put(Tags.HTTP_METHOD, METHOD);
+      tags.put(Tags.HTTP_URL, URL);
+      tags.put(Tags.PEER_PORT, 54321);
+      tags.put(DDTags.ANALYTICS_SAMPLE_RATE, 1.0d);
+      tags.put("request.content_length", 1024L);
+      tags.put("_dd.agent_psr", 1.0d);
+      tags.put("_dd.limit_psr", 1.0d);
+    }
+    synchronized (tags) {
+      for (Map.Entry<String, Object> entry : tags.entrySet()) {
+        if (entry.getValue() instanceof Number) {
+          blackhole.consume(((Number) entry.getValue()).doubleValue());
+        } else {
+          blackhole.consume(entry.getValue());
+        }
+      }
+    }
+  }
+
+  @Benchmark
+  public void tagMap(Blackhole blackhole) {
+    TagMap tags = new TagMap(10);
+    synchronized (tags) {
+      tags.put(Tags.COMPONENT, COMPONENT);
+      tags.put(Tags.SPAN_KIND, Tags.SPAN_KIND_SERVER);
+      tags.put(Tags.HTTP_METHOD, METHOD);
+      tags.put(Tags.HTTP_URL, URL);
+      tags.putInt(Tags.PEER_PORT, 54321);
+      tags.putDouble(DDTags.ANALYTICS_SAMPLE_RATE, 1.0d);
+      tags.putLong("request.content_length", 1024L);
+      tags.putDouble("_dd.agent_psr", 1.0d);
+      tags.putDouble("_dd.limit_psr", 1.0d);
+    }
+    synchronized (tags) {
+      visitor.blackhole = blackhole;
+      tags.forEachTag(visitor);
+    }
+  }
+
+  private static final class ConsumingVisitor implements TagMap.Visitor {
+    private Blackhole blackhole;
+
+    @Override
+    public void visit(String key, Object value) {
+      blackhole.consume(value);
+    }
+
+    @Override
+    public void visit(String key, int value) {
+      blackhole.consume(value);
+    }
+
+    @Override
+    public void visit(String key, long value) {
+      blackhole.consume(value);
+    }
+
+    @Override
+    public void visit(String key, float value) {
+      blackhole.consume(value);
+    }
+
+    @Override
+    public void visit(String key, double value) {
+      blackhole.consume(value);
+    }
+  }
+}
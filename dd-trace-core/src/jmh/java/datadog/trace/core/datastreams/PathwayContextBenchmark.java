@@ -0,0 +1,94 @@
+package datadog.trace.core.datastreams;
+
+import static datadog.trace.api.datastreams.DataStreamsContext.fromTags;
+import static datadog.trace.api.datastreams.PathwayContext.PROPAGATION_KEY_BASE64;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+import datadog.context.propagation.CarrierVisitor;
+import datadog.trace.api.datastreams.StatsPoint;
+import datadog.trace.api.time.SystemTimeSource;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Checkpoints of a Kafka produce loop, which sets a checkpoint and injects the pathway into each
+ * record, and of a consume loop, which extracts the pathway from each record and sets a checkpoint.
+ * Every record builds its own edge tags, like the Kafka instrumentation does.
+ */
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 10, timeUnit = SECONDS)
+@Measurement(iterations = 3, time = 10, timeUnit = SECONDS)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(NANOSECONDS)
+@Fork(value = 1)
+public class PathwayContextBenchmark {
+  private static final CarrierVisitor<Map<String, String>> MAP_VISITOR = Map::forEach;
+
+  private long hashOfKnownTags;
+  private Map<String, String> record;
+
+  @Setup(Level.Trial)
+  public void setUp() throws IOException {
+    hashOfKnownTags = 0x1234567890abcdefL;
+    DefaultPathwayContext producer =
+        new DefaultPathwayContext(SystemTimeSource.INSTANCE, hashOfKnownTags, null);
+    producer.setCheckpoint(fromTags(produceTags()), point -> {});
+    record = Collections.singletonMap(PROPAGATION_KEY_BASE64, producer.encode());
+  }
+
+  @Benchmark
+  public String produce(Blackhole blackhole) throws IOException {
+    DefaultPathwayContext context =
+        new DefaultPathwayContext(SystemTimeSource.INSTANCE, hashOfKnownTags, null);
+    context.setCheckpoint(fromTags(produceTags()), consumer(blackhole));
+    return context.encode();
+  }
+
+  @Benchmark
+  public DefaultPathwayContext consume(Blackhole blackhole) {
+    DefaultPathwayContext context =
+        DefaultPathwayContext.extract(
+            record, MAP_VISITOR, SystemTimeSource.INSTANCE, hashOfKnownTags, null);
+    context.setCheckpoint(fromTags(consumeTags()), consumer(blackhole));
+    return context;
+  }
+
+  private static Consumer<StatsPoint> consumer(Blackhole blackhole) {
+    return blackhole::consume;
+  }
+
+  private static LinkedHashMap<String, String> produceTags() {
+    LinkedHashMap<String, String> tags = new LinkedHashMap<>();
+    tags.put("direction", "out");
+    tags.put("kafka_cluster_id", "cluster");
+    tags.put("topic", "orders");
+    tags.put("type", "kafka");
+    return tags;
+  }
+
+  private static LinkedHashMap<String, String> consumeTags() {
+    LinkedHashMap<String, String> tags = new LinkedHashMap<>();
+    tags.put("direction", "in");
+    tags.put("group", "order-processor");
+    tags.put("kafka_cluster_id", "cluster");
+    tags.put("topic", "orders");
+    tags.put("type", "kafka");
+    return tags;
+  }
+}
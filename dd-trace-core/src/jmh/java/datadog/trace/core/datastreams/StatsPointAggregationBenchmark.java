@@ -0,0 +1,112 @@
+package datadog.trace.core.datastreams;
+
+import static java.util.concurrent.TimeUnit.MICROSECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+import datadog.trace.api.datastreams.InboxItem;
+import datadog.trace.api.datastreams.StatsPoint;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import org.jctools.queues.MpscArrayQueue;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Checkpoint throughput of many threads, either sending stats points through the inbox of the
+ * data streams thread, where they are dropped once the inbox is full, or aggregating them into
+ * {@link StripedStatsBuckets}. The points are spread over a few dozen pathways, like a consumer of
+ * a handful of topics and partitions.
+ */
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 10, timeUnit = SECONDS)
+@Measurement(iterations = 3, time = 10, timeUnit = SECONDS)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(MICROSECONDS)
+@Threads(8)
+@Fork(value = 1)
+public class StatsPointAggregationBenchmark {
+  private static final long BUCKET_DURATION_NANOS = SECONDS.toNanos(10);
+
+  @Param({"32"})
+  int pathways;
+
+  private StatsPoint[] points;
+  private MpscArrayQueue<InboxItem> inbox;
+  private StripedStatsBuckets stripes;
+  private Thread consumer;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    points = new StatsPoint[pathways];
+    for (int i = 0; i < pathways; i++) {
+      points[i] =
+          new StatsPoint(
+              Arrays.asList("direction:in", "topic:topic-" + i, "type:kafka"),
+              i,
+              i + 1000,
+              i,
+              System.nanoTime(),
+              MICROSECONDS.toNanos(1500),
+              MICROSECONDS.toNanos(300),
+              512,
+              null);
+    }
+    inbox = new MpscArrayQueue<>(1024);
+    stripes = new StripedStatsBuckets(8, 1024, BUCKET_DURATION_NANOS);
+    consumer = new Thread(this::aggregateInbox, "inbox-consumer");
+    consumer.setDaemon(true);
+    consumer.start();
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws InterruptedException {
+    consumer.interrupt();
+    consumer.join();
+  }
+
+  /** Mimics the data streams thread, which polls the inbox and aggregates the points. */
+  private void aggregateInbox() {
+    Map<Long, StatsBucket> timeToBucket = new HashMap<>();
+    while (!Thread.currentThread().isInterrupted()) {
+      InboxItem item = inbox.poll();
+      if (item == null) {
+        Thread.yield();
+        continue;
+      }
+      StatsPoint point = (StatsPoint) item;
+      long start = point.getTimestampNanos() - point.getTimestampNanos() % BUCKET_DURATION_NANOS;
+      timeToBucket
+          .computeIfAbsent(start, s -> new StatsBucket(s, BUCKET_DURATION_NANOS))
+          .addPoint(point);
+    }
+  }
+
+  /** @return false when the point was dropped */
+  @Benchmark
+  public boolean inbox() {
+    return inbox.offer(nextPoint());
+  }
+
+  @Benchmark
+  public boolean striped() {
+    return stripes.add(nextPoint());
+  }
+
+  private StatsPoint nextPoint() {
+    return points[ThreadLocalRandom.current().nextInt(points.length)];
+  }
+}
@@ -37,7 +37,17 @@ import org.openjdk.jmh.infra.Blackhole;
 @Fork(value = 1)
 @SuppressForbidden
 public class ExtractorBenchmark {
-  @Param({"datadog", "b3", "datadog,b3", "datadog:x-dth"})
+  @Param({
+    "datadog",
+    "b3",
+    "datadog,b3",
+    "datadog:x-dth",
+    "tracecontext",
+    "tracecontext:x-dth",
+    "b3single",
+    "haystack",
+    "xray"
+  })
   String extractPropagationStyles;
 
   List<Pair<String, String>> headers;
@@ -54,6 +64,18 @@ public class ExtractorBenchmark {
     headers.add(Pair.of(DatadogHttpCodec.SPAN_ID_KEY, "23456"));
     headers.add(Pair.of(B3HttpCodec.TRACE_ID_KEY, "12345")); // HEX
     headers.add(Pair.of(B3HttpCodec.SPAN_ID_KEY, "23456")); // HEX
+    headers.add(
+        Pair.of(
+            W3CHttpCodec.TRACE_PARENT_KEY,
+            "00-00000000000000000000000000012345-0000000000023456-01"));
+    headers.add(Pair.of("b3", "12345-23456-1"));
+    headers.add(Pair.of("Trace-ID", "44617461-646f-6721-0000-000000012345"));
+    headers.add(Pair.of("Span-ID", "44617461-646f-6721-0000-000000023456"));
+    headers.add(
+        Pair.of(
+            XRayHttpCodec.X_AMZN_TRACE_ID,
+            "Root=1-00000000-000000000000000000012345;Parent=0000000000023456;Sampled=1"));
+    headers.add(Pair.of("user-agent", "Mozilla/5.0")); // known but not propagation
     headers.add(Pair.of("some-header-1", "ignored"));
     headers.add(Pair.of("some-header-2", "ignored"));
     headers.add(Pair.of("x-data-header-1", "ignored")); // starts like datadog headers
@@ -77,6 +99,8 @@ public class ExtractorBenchmark {
             headers.add(
                 Pair.of(
                     DatadogHttpCodec.DATADOG_TAGS_KEY, "_dd.p.anytag=value,_dd.p.dm=934086a686-4"));
+            headers.add(
+                Pair.of(W3CHttpCodec.TRACE_STATE_KEY, "dd=s:1;t.dm:-4;t.anytag:value,other=1"));
             break;
           default:
             System.out.println("Unknown benchmark feature " + feature + ". Will be ignored!");
@@ -95,7 +119,10 @@ public class ExtractorBenchmark {
     if (extractPropagationStyles.startsWith("datadog")) {
       traceId = DDTraceId.from("12345");
       spanId = DDSpanId.from("23456");
-    } else if (extractPropagationStyles.contains("b3")) {
+    } else if (extractPropagationStyles.contains("b3")
+        || extractPropagationStyles.startsWith("tracecontext")
+        || extractPropagationStyles.equals("haystack")
+        || extractPropagationStyles.equals("xray")) {
       traceId = DDTraceId.fromHex("12345");
       spanId = DDSpanId.fromHex("23456");
     }
@@ -108,8 +135,8 @@ public class ExtractorBenchmark {
     ExtractedContext extractedContext = (ExtractedContext) context;
     blackhole.consume(context);
     blackhole.consume(list);
-    assert extractedContext.getTraceId().equals(traceId);
-    assert extractedContext.getSpanId() == spanId;
+    assert null == traceId || extractedContext.getTraceId().toLong() == traceId.toLong();
+    assert null == traceId || extractedContext.getSpanId() == spanId;
   }
 
   @Benchmark
@@ -0,0 +1,100 @@
+package datadog.trace.core.propagation;
+
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+import datadog.trace.api.DDSpanId;
+import datadog.trace.api.DDTraceId;
+import datadog.trace.bootstrap.instrumentation.api.AgentPropagation;
+import datadog.trace.core.BlackholeWriter;
+import datadog.trace.core.CoreTracer;
+import datadog.trace.core.DDSpanContext;
+import datadog.trace.core.TraceCounters;
+import java.util.Collections;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Injects the headers of the same context repeatedly, like a service fanning out to many
+ * downstream calls, comparing the header values encoded once per context with encoding them for
+ * each call. Run with {@code -prof gc} to see the allocation per injection.
+ */
+@State(Scope.Thread)
+@Warmup(iterations = 3, time = 10, timeUnit = SECONDS)
+@Measurement(iterations = 3, time = 10, timeUnit = SECONDS)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(NANOSECONDS)
+@Fork(value = 1)
+public class TraceParentInjectionBenchmark {
+
+  private final HttpCodec.Injector w3cInjector =
+      W3CHttpCodec.newInjector(Collections.<String, String>emptyMap());
+  private final HttpCodec.Injector datadogInjector =
+      DatadogHttpCodec.newInjector(Collections.<String, String>emptyMap());
+
+  private CoreTracer tracer;
+  private DDSpanContext spanContext;
+
+  @Setup(Level.Trial)
+  public void setUp(Blackhole blackhole) {
+    tracer =
+        CoreTracer.builder()
+            .writer(new BlackholeWriter(blackhole, new TraceCounters(), 0))
+            .strictTraceWrites(false)
+            .build();
+    DDTraceId traceId = DDTraceId.from("12345");
+    spanContext =
+        new DDSpanContext(
+            traceId,
+            DDSpanId.from("23456"),
+            DDSpanId.ZERO,
+            "",
+            "service",
+            "operation",
+            "resource",
+            1,
+            null,
+            Collections.<String, String>emptyMap(),
+            false,
+            "type",
+            0,
+            tracer.createTraceCollector(traceId),
+            null,
+            null,
+            null,
+            false,
+            PropagationTags.factory()
+                .fromHeaderValue(
+                    PropagationTags.HeaderType.DATADOG, "_dd.p.anytag=value,_dd.p.dm=934086a686-4"));
+  }
+
+  @Benchmark
+  public void injectW3C(Blackhole blackhole) {
+    w3cInjector.inject(spanContext, blackhole, SETTER);
+  }
+
+  @Benchmark
+  public void injectW3CUncached(Blackhole blackhole) {
+    // forces the traceparent to be encoded for every call, like before it was cached
+    spanContext.setEncodedTraceParent(null);
+    w3cInjector.inject(spanContext, blackhole, SETTER);
+  }
+
+  @Benchmark
+  public void injectDatadog(Blackhole blackhole) {
+    datadogInjector.inject(spanContext, blackhole, SETTER);
+  }
+
+  private static final AgentPropagation.Setter<Blackhole> SETTER =
+      (carrier, key, value) -> carrier.consume(value);
+}
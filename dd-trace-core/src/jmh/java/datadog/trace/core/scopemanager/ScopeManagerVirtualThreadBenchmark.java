@@ -0,0 +1,123 @@
+package datadog.trace.core.scopemanager;
+
+import static java.lang.invoke.MethodType.methodType;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+import datadog.trace.bootstrap.instrumentation.api.AgentScope;
+import datadog.trace.bootstrap.instrumentation.api.AgentSpan;
+import datadog.trace.bootstrap.instrumentation.api.ScopeSource;
+import datadog.trace.core.BlackholeWriter;
+import datadog.trace.core.CoreTracer;
+import datadog.trace.core.TraceCounters;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures the cost of activating scopes, and the memory each short-lived virtual thread costs the
+ * scope manager. Run with {@code -prof gc}, {@code gc.alloc.rate.norm} of the virtual thread
+ * benchmarks is the memory allocated for each thread. The {@code Baseline} variants keep the stack
+ * of each virtual thread like platform threads do. The virtual thread benchmarks require Java 21.
+ */
+@State(Scope.Thread)
+@Warmup(iterations = 3, time = 10, timeUnit = SECONDS)
+@Measurement(iterations = 3, time = 10, timeUnit = SECONDS)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(NANOSECONDS)
+@Fork(value = 1)
+public class ScopeManagerVirtualThreadBenchmark {
+
+  private static final String BASELINE = "-Ddd.trace.scope.virtual.threads.optimized=false";
+
+  private CoreTracer tracer;
+  private ContinuableScopeManager scopeManager;
+  private AgentSpan span;
+  private AgentSpan childSpan;
+
+  @Setup(Level.Trial)
+  public void setUp(Blackhole blackhole) {
+    tracer =
+        CoreTracer.builder()
+            .writer(new BlackholeWriter(blackhole, new TraceCounters(), 0))
+            .strictTraceWrites(false)
+            .build();
+    scopeManager = new ContinuableScopeManager(0, false);
+    span = tracer.startSpan("benchmark", "parent");
+    childSpan = tracer.startSpan("benchmark", "child");
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    tracer.close();
+  }
+
+  @Benchmark
+  public void activateAndClose() {
+    scopeManager.activate(span, ScopeSource.INSTRUMENTATION).close();
+  }
+
+  @Benchmark
+  public void activateNestedAndClose() {
+    AgentScope parent = scopeManager.activate(span, ScopeSource.INSTRUMENTATION);
+    scopeManager.activate(childSpan, ScopeSource.INSTRUMENTATION).close();
+    parent.close();
+  }
+
+  @Benchmark
+  public AgentSpan activeSpanWithoutScope() {
+    return scopeManager.activeSpan();
+  }
+
+  @Benchmark
+  public void virtualThread(VirtualThreads threads) throws Throwable {
+    threads.run(this::activateAndClose);
+  }
+
+  @Benchmark
+  @Fork(value = 1, jvmArgsAppend = BASELINE)
+  public void virtualThreadBaseline(VirtualThreads threads) throws Throwable {
+    threads.run(this::activateAndClose);
+  }
+
+  @Benchmark
+  public void virtualThreadNested(VirtualThreads threads) throws Throwable {
+    threads.run(this::activateNestedAndClose);
+  }
+
+  @Benchmark
+  @Fork(value = 1, jvmArgsAppend = BASELINE)
+  public void virtualThreadNestedBaseline(VirtualThreads threads) throws Throwable {
+    threads.run(this::activateNestedAndClose);
+  }
+
+  /** Starts a virtual thread per invocation, like a server handling each request in one. */
+  @State(Scope.Thread)
+  public static class VirtualThreads {
+    private MethodHandle startVirtualThread;
+
+    @Setup(Level.Trial)
+    public void setUp() throws ReflectiveOperationException {
+      startVirtualThread =
+          MethodHandles.publicLookup()
+              .findStatic(
+                  Thread.class, "startVirtualThread", methodType(Thread.class, Runnable.class));
+    }
+
+    void run(Runnable task) throws Throwable {
+      ((Thread) startVirtualThread.invoke(task)).join();
+    }
+  }
+}
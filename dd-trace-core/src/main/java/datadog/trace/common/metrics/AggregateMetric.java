@@ -25,24 +25,49 @@ public final class AggregateMetric {
   public AggregateMetric recordDurations(int count, AtomicLongArray durations) {
     this.hitCount += count;
     for (int i = 0; i < count && i < durations.length(); ++i) {
-      long duration = durations.getAndSet(i, 0);
-      if ((duration & TOP_LEVEL_TAG) == TOP_LEVEL_TAG) {
-        duration ^= TOP_LEVEL_TAG;
-        ++topLevelCount;
-      }
-      if ((duration & ERROR_TAG) == ERROR_TAG) {
-        // then it's an error
-        duration ^= ERROR_TAG;
-        errorLatencies.accept(duration);
-        ++errorCount;
-      } else {
-        okLatencies.accept(duration);
-      }
-      this.duration += duration;
+      record(durations.getAndSet(i, 0));
     }
     return this;
   }
 
+  /** Records a single duration, tagged with {@link #ERROR_TAG} and {@link #TOP_LEVEL_TAG}. */
+  public AggregateMetric recordDuration(long taggedDuration) {
+    ++this.hitCount;
+    record(taggedDuration);
+    return this;
+  }
+
+  /** Adds the counts and latencies of the other aggregate to this one. */
+  public AggregateMetric mergeWith(AggregateMetric other) {
+    this.hitCount += other.hitCount;
+    this.errorCount += other.errorCount;
+    this.topLevelCount += other.topLevelCount;
+    this.duration += other.duration;
+    if (other.okLatencies.getCount() > 0) {
+      this.okLatencies.mergeWith(other.okLatencies);
+    }
+    if (other.errorLatencies.getCount() > 0) {
+      this.errorLatencies.mergeWith(other.errorLatencies);
+    }
+    return this;
+  }
+
+  private void record(long duration) {
+    if ((duration & TOP_LEVEL_TAG) == TOP_LEVEL_TAG) {
+      duration ^= TOP_LEVEL_TAG;
+      ++topLevelCount;
+    }
+    if ((duration & ERROR_TAG) == ERROR_TAG) {
+      // then it's an error
+      duration ^= ERROR_TAG;
+      errorLatencies.accept(duration);
+      ++errorCount;
+    } else {
+      okLatencies.accept(duration);
+    }
+    this.duration += duration;
+  }
+
   public int getErrorCount() {
     return errorCount;
   }
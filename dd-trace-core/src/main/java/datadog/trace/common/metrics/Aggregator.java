@@ -26,6 +26,7 @@ final class Aggregator implements Runnable {
   private final LRUCache<MetricKey, AggregateMetric> aggregates;
   private final NonBlockingHashMap<MetricKey, Batch> pending;
   private final Set<MetricKey> commonKeys;
+  private final StripedAggregates stripes;
   private final MetricWriter writer;
   // the reporting interval controls how much history will be buffered
   // when the agent is unresponsive (only 10 pending requests will be
@@ -42,6 +43,7 @@ final class Aggregator implements Runnable {
       MpscCompoundQueue<InboxItem> inbox,
       NonBlockingHashMap<MetricKey, Batch> pending,
       final Set<MetricKey> commonKeys,
+      StripedAggregates stripes,
       int maxAggregates,
       long reportingInterval,
       TimeUnit reportingIntervalTimeUnit) {
@@ -51,6 +53,7 @@ final class Aggregator implements Runnable {
         inbox,
         pending,
         commonKeys,
+        stripes,
         maxAggregates,
         reportingInterval,
         reportingIntervalTimeUnit,
@@ -63,6 +66,7 @@ final class Aggregator implements Runnable {
       MpscCompoundQueue<InboxItem> inbox,
       NonBlockingHashMap<MetricKey, Batch> pending,
       final Set<MetricKey> commonKeys,
+      StripedAggregates stripes,
       int maxAggregates,
       long reportingInterval,
       TimeUnit reportingIntervalTimeUnit,
@@ -71,6 +75,7 @@ final class Aggregator implements Runnable {
     this.batchPool = batchPool;
     this.inbox = inbox;
     this.commonKeys = commonKeys;
+    this.stripes = stripes;
     this.aggregates =
         new LRUCache<>(
             new CommonKeyCleaner(commonKeys), maxAggregates * 4 / 3, 0.75f, maxAggregates);
@@ -112,6 +117,10 @@ final class Aggregator implements Runnable {
       if (item instanceof SignalItem) {
         SignalItem signal = (SignalItem) item;
         if (!stopped) {
+          if (null != stripes) {
+            // the application threads only pre-aggregate, collect their work before reporting
+            dirty |= stripes.mergeInto(aggregates);
+          }
           report(wallClockTime(), signal);
           stopped = item instanceof StopSignal;
           if (stopped) {
@@ -45,14 +45,19 @@ public final class ConflatingMetricsAggregator implements MetricsAggregator, Eve
       Collections.singletonMap(DDAgentApi.DATADOG_META_TRACER_VERSION, DDTraceCoreInfo.VERSION);
 
   private static final DDCache<String, UTF8BytesString> SERVICE_NAMES =
-      DDCaches.newFixedSizeCache(32);
+      DDCaches.newFixedSizeCache("metrics_service_names", 32);
 
   private static final CharSequence SYNTHETICS_ORIGIN = "synthetics";
 
+  private static final int RECENT_KEYS = 256;
+
   private final Set<String> ignoredResources;
   private final Queue<Batch> batchPool;
   private final NonBlockingHashMap<MetricKey, Batch> pending;
   private final NonBlockingHashMap<MetricKey, MetricKey> keys;
+  // direct-mapped and racy, keys are immutable so a lost update only costs an allocation
+  private final MetricKey[] recentKeys = new MetricKey[RECENT_KEYS];
+  private final StripedAggregates stripes;
   private final Thread thread;
   private final MpscCompoundQueue<InboxItem> inbox;
   private final Sink sink;
@@ -77,7 +82,28 @@ public final class ConflatingMetricsAggregator implements MetricsAggregator, Eve
             false,
             DEFAULT_HEADERS),
         config.getTracerMetricsMaxAggregates(),
-        config.getTracerMetricsMaxPending());
+        config.getTracerMetricsMaxPending(),
+        config.getTracerMetricsStripes());
+  }
+
+  ConflatingMetricsAggregator(
+      WellKnownTags wellKnownTags,
+      Set<String> ignoredResources,
+      DDAgentFeaturesDiscovery features,
+      Sink sink,
+      int maxAggregates,
+      int queueSize,
+      int stripes) {
+    this(
+        ignoredResources,
+        features,
+        sink,
+        new SerializingMetricWriter(wellKnownTags, sink),
+        maxAggregates,
+        queueSize,
+        10,
+        SECONDS,
+        stripes);
   }
 
   ConflatingMetricsAggregator(
@@ -119,11 +145,38 @@ public final class ConflatingMetricsAggregator implements MetricsAggregator, Eve
       int queueSize,
       long reportingInterval,
       TimeUnit timeUnit) {
+    this(
+        ignoredResources,
+        features,
+        sink,
+        metricWriter,
+        maxAggregates,
+        queueSize,
+        reportingInterval,
+        timeUnit,
+        0);
+  }
+
+  /**
+   * @param stripes the number of tables spans are pre-aggregated into on the application threads,
+   *     or 0 to send every span to the aggregator thread
+   */
+  ConflatingMetricsAggregator(
+      Set<String> ignoredResources,
+      DDAgentFeaturesDiscovery features,
+      Sink sink,
+      MetricWriter metricWriter,
+      int maxAggregates,
+      int queueSize,
+      long reportingInterval,
+      TimeUnit timeUnit,
+      int stripes) {
     this.ignoredResources = ignoredResources;
     this.inbox = new MpscCompoundQueue<>(queueSize);
     this.batchPool = new SpmcArrayQueue<>(maxAggregates);
     this.pending = new NonBlockingHashMap<>(maxAggregates * 4 / 3);
     this.keys = new NonBlockingHashMap<>();
+    this.stripes = stripes > 0 ? new StripedAggregates(stripes, maxAggregates, keys) : null;
     this.features = features;
     this.sink = sink;
     this.aggregator =
@@ -133,6 +186,7 @@ public final class ConflatingMetricsAggregator implements MetricsAggregator, Eve
             inbox,
             pending,
             keys.keySet(),
+            this.stripes,
             maxAggregates,
             reportingInterval,
             timeUnit);
@@ -238,22 +292,25 @@ public final class ConflatingMetricsAggregator implements MetricsAggregator, Eve
   }
 
   private boolean publish(CoreSpan<?> span, boolean isTopLevel) {
-    MetricKey newKey =
-        new MetricKey(
-            span.getResourceName(),
-            SERVICE_NAMES.computeIfAbsent(span.getServiceName(), UTF8_ENCODE),
-            span.getOperationName(),
-            span.getType(),
-            span.getHttpStatusCode(),
-            isSynthetic(span));
+    MetricKey newKey = metricKey(span);
+    // the serializer writes the strings of the key, which are encoded once for all spans
+    span.setAggregatedNames(newKey);
+    long tag = (span.getError() > 0 ? ERROR_TAG : 0L) | (isTopLevel ? TOP_LEVEL_TAG : 0L);
+    long durationNanos = span.getDurationNano();
+    if (null != stripes) {
+      int recorded = stripes.record(newKey, tag | durationNanos);
+      if (recorded != StripedAggregates.FULL) {
+        // force keep keys we haven't seen before or errors
+        return recorded == StripedAggregates.RECORDED_NEW_KEY || span.getError() > 0;
+      }
+      // fall back to the aggregator thread, which evicts the least recently used aggregates
+    }
     boolean isNewKey = false;
     MetricKey key = keys.putIfAbsent(newKey, newKey);
     if (null == key) {
       key = newKey;
       isNewKey = true;
     }
-    long tag = (span.getError() > 0 ? ERROR_TAG : 0L) | (isTopLevel ? TOP_LEVEL_TAG : 0L);
-    long durationNanos = span.getDurationNano();
     Batch batch = pending.get(key);
     if (null != batch) {
       // there is a pending batch, try to win the race to add to it
@@ -280,8 +337,31 @@ public final class ConflatingMetricsAggregator implements MetricsAggregator, Eve
     return isNewKey || span.getError() > 0;
   }
 
+  /**
+   * Returns the key of the span, reusing a recently created key with the same values if there is
+   * one, so spans of the same endpoint don't allocate a key and its strings each time.
+   */
+  private MetricKey metricKey(CoreSpan<?> span) {
+    CharSequence resource = span.getResourceName();
+    UTF8BytesString service = SERVICE_NAMES.computeIfAbsent(span.getServiceName(), UTF8_ENCODE);
+    CharSequence operationName = span.getOperationName();
+    CharSequence type = span.getType();
+    int httpStatusCode = span.getHttpStatusCode();
+    boolean synthetics = isSynthetic(span);
+    int hash = MetricKey.hash(resource, service, operationName, type, httpStatusCode, synthetics);
+    int index = (hash ^ (hash >>> 16)) & (RECENT_KEYS - 1);
+    MetricKey key = recentKeys[index];
+    if (null == key
+        || !key.matches(hash, resource, service, operationName, type, httpStatusCode, synthetics)) {
+      key = new MetricKey(resource, service, operationName, type, httpStatusCode, synthetics);
+      recentKeys[index] = key;
+    }
+    return key;
+  }
+
   private static boolean isSynthetic(CoreSpan<?> span) {
-    return span.getOrigin() != null && SYNTHETICS_ORIGIN.equals(span.getOrigin().toString());
+    CharSequence origin = span.getOrigin();
+    return origin != null && SYNTHETICS_ORIGIN.equals(origin.toString());
   }
 
   private Batch newBatch(MetricKey key) {
@@ -335,6 +415,9 @@ public final class ConflatingMetricsAggregator implements MetricsAggregator, Eve
       }
       this.thread.interrupt();
       this.pending.clear();
+      if (null != this.stripes) {
+        this.stripes.clear();
+      }
       this.batchPool.clear();
       this.inbox.clear();
       this.aggregator.clearAggregates();
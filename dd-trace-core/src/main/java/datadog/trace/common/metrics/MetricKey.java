@@ -3,9 +3,10 @@ package datadog.trace.common.metrics;
 import static datadog.trace.bootstrap.instrumentation.api.UTF8BytesString.EMPTY;
 
 import datadog.trace.bootstrap.instrumentation.api.UTF8BytesString;
+import datadog.trace.core.AggregatedNames;
 
 /** The aggregation key for tracked metrics. */
-public final class MetricKey {
+public final class MetricKey implements AggregatedNames {
   private final UTF8BytesString resource;
   private final UTF8BytesString service;
   private final UTF8BytesString operationName;
@@ -27,25 +28,87 @@ public final class MetricKey {
     this.type = null == type ? EMPTY : UTF8BytesString.create(type);
     this.httpStatusCode = httpStatusCode;
     this.synthetics = synthetics;
+    this.hash =
+        hash(
+            this.resource, this.service, this.operationName, this.type, httpStatusCode, synthetics);
+  }
+
+  /**
+   * Computes the hash code of the key which would be created from these values, without creating
+   * it.
+   */
+  static int hash(
+      CharSequence resource,
+      CharSequence service,
+      CharSequence operationName,
+      CharSequence type,
+      int httpStatusCode,
+      boolean synthetics) {
     // unrolled polynomial hashcode which avoids allocating varargs
     // the constants are 31^5, 31^4, 31^3, 31^2, 31^1, 31^0
-    this.hash =
-        28629151 * this.resource.hashCode()
-            + 923521 * this.service.hashCode()
-            + 29791 * this.operationName.hashCode()
-            + 961 * this.type.hashCode()
-            + 31 * httpStatusCode
-            + (this.synthetics ? 1 : 0);
+    return 28629151 * hashOf(resource)
+        + 923521 * hashOf(service)
+        + 29791 * hashOf(operationName)
+        + 961 * hashOf(type)
+        + 31 * httpStatusCode
+        + (synthetics ? 1 : 0);
+  }
+
+  private static int hashOf(CharSequence value) {
+    if (null == value) {
+      return EMPTY.hashCode();
+    }
+    // both hash like the string they hold
+    if (value instanceof String || value instanceof UTF8BytesString) {
+      return value.hashCode();
+    }
+    return value.toString().hashCode();
+  }
+
+  /**
+   * Whether this key is equal to the key which would be created from these values, without
+   * creating it.
+   */
+  boolean matches(
+      int hash,
+      CharSequence resource,
+      CharSequence service,
+      CharSequence operationName,
+      CharSequence type,
+      int httpStatusCode,
+      boolean synthetics) {
+    return this.hash == hash
+        && this.synthetics == synthetics
+        && this.httpStatusCode == httpStatusCode
+        && contentEquals(this.resource, resource)
+        && contentEquals(this.service, service)
+        && contentEquals(this.operationName, operationName)
+        && contentEquals(this.type, type);
   }
 
+  private static boolean contentEquals(UTF8BytesString field, CharSequence value) {
+    if (null == value) {
+      return field.length() == 0;
+    }
+    if (field == value) {
+      return true;
+    }
+    return field
+        .toString()
+        .contentEquals(value instanceof UTF8BytesString ? value.toString() : value);
+  }
+
+  @Override
   public UTF8BytesString getResource() {
     return resource;
   }
 
+  @Override
   public UTF8BytesString getService() {
     return service;
   }
 
+  @Override
   public UTF8BytesString getOperationName() {
     return operationName;
   }
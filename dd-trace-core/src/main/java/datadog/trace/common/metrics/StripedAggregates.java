@@ -0,0 +1,196 @@
+package datadog.trace.common.metrics;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Pre-aggregates span metrics on the application threads, so the aggregator thread only has to
+ * merge them when reporting instead of receiving a {@link Batch} for each key.
+ *
+ * <p>Threads are spread over the stripes by id, so a stripe's lock is mostly taken by the same
+ * thread and only contended by the aggregator while it merges. Recording into a key already known
+ * to the stripe does not allocate.
+ */
+final class StripedAggregates {
+
+  /** The duration was recorded. */
+  static final int RECORDED = 0;
+
+  /** The duration was recorded under a key which had not been seen before. */
+  static final int RECORDED_NEW_KEY = 1;
+
+  /** The stripe is full, the duration must be published some other way. */
+  static final int FULL = -1;
+
+  private static final int INITIAL_CAPACITY = 16;
+
+  private final Stripe[] stripes;
+  private final int mask;
+  private final ConcurrentMap<MetricKey, MetricKey> keys;
+
+  StripedAggregates(
+      int stripes, int maxAggregatesPerStripe, ConcurrentMap<MetricKey, MetricKey> keys) {
+    int count = Integer.highestOneBit(Math.max(1, stripes) * 2 - 1);
+    this.stripes = new Stripe[count];
+    for (int i = 0; i < count; ++i) {
+      this.stripes[i] = new Stripe(maxAggregatesPerStripe);
+    }
+    this.mask = count - 1;
+    this.keys = keys;
+  }
+
+  /**
+   * Records a duration tagged with {@link AggregateMetric#ERROR_TAG} and {@link
+   * AggregateMetric#TOP_LEVEL_TAG}.
+   *
+   * @return one of {@link #RECORDED}, {@link #RECORDED_NEW_KEY} or {@link #FULL}
+   */
+  @SuppressWarnings("deprecation")
+  int record(MetricKey key, long taggedDuration) {
+    Stripe stripe = stripes[(int) Thread.currentThread().getId() & mask];
+    synchronized (stripe) {
+      int index = stripe.indexOf(key);
+      if (stripe.keys[index] != null) {
+        stripe.aggregates[index].recordDuration(taggedDuration);
+        return RECORDED;
+      }
+      if (stripe.size >= stripe.maxSize) {
+        return FULL;
+      }
+      // share a single instance of each key between the stripes and the aggregator
+      MetricKey existing = keys.putIfAbsent(key, key);
+      boolean isNewKey = null == existing;
+      stripe.insert(index, isNewKey ? key : existing).recordDuration(taggedDuration);
+      return isNewKey ? RECORDED_NEW_KEY : RECORDED;
+    }
+  }
+
+  /**
+   * Merges the pre-aggregated metrics into the aggregates and resets them. Must only be called by
+   * the aggregator thread.
+   *
+   * @return whether any metric was merged
+   */
+  boolean mergeInto(Map<MetricKey, AggregateMetric> aggregates) {
+    boolean merged = false;
+    for (Stripe stripe : stripes) {
+      synchronized (stripe) {
+        merged |= stripe.mergeInto(aggregates);
+      }
+    }
+    return merged;
+  }
+
+  void clear() {
+    for (Stripe stripe : stripes) {
+      synchronized (stripe) {
+        stripe.clear();
+      }
+    }
+  }
+
+  /** Open-addressed table of aggregates, guarded by its own monitor. */
+  private static final class Stripe {
+    private final int maxSize;
+    MetricKey[] keys;
+    AggregateMetric[] aggregates;
+    int size;
+
+    Stripe(int maxSize) {
+      this.maxSize = maxSize;
+      this.keys = new MetricKey[INITIAL_CAPACITY];
+      this.aggregates = new AggregateMetric[INITIAL_CAPACITY];
+    }
+
+    /** Returns the index of the matching key, or the empty index where it would be inserted. */
+    int indexOf(MetricKey key) {
+      MetricKey[] keys = this.keys;
+      int mask = keys.length - 1;
+      int index = spread(key.hashCode()) & mask;
+      while (true) {
+        MetricKey candidate = keys[index];
+        if (null == candidate || candidate == key || candidate.equals(key)) {
+          return index;
+        }
+        index = (index + 1) & mask;
+      }
+    }
+
+    AggregateMetric insert(int index, MetricKey key) {
+      AggregateMetric aggregate = new AggregateMetric();
+      if ((size + 1) * 4 > keys.length * 3) {
+        resize(keys.length << 1);
+        index = emptyIndex(keys, key.hashCode());
+      }
+      keys[index] = key;
+      aggregates[index] = aggregate;
+      ++size;
+      return aggregate;
+    }
+
+    boolean mergeInto(Map<MetricKey, AggregateMetric> target) {
+      // keep keys which were not seen during the last interval around,
+      // unless they take up room new keys would need
+      boolean prune = size * 2 > maxSize;
+      MetricKey[] oldKeys = keys;
+      AggregateMetric[] oldAggregates = aggregates;
+      if (prune) {
+        keys = new MetricKey[oldKeys.length];
+        aggregates = new AggregateMetric[oldKeys.length];
+        size = 0;
+      }
+      boolean merged = false;
+      for (int i = 0; i < oldKeys.length; ++i) {
+        MetricKey key = oldKeys[i];
+        if (null != key) {
+          AggregateMetric aggregate = oldAggregates[i];
+          if (aggregate.getHitCount() > 0) {
+            target.computeIfAbsent(key, k -> new AggregateMetric()).mergeWith(aggregate);
+            aggregate.clear();
+            merged = true;
+            if (prune) {
+              int index = emptyIndex(keys, key.hashCode());
+              keys[index] = key;
+              aggregates[index] = aggregate;
+              ++size;
+            }
+          }
+        }
+      }
+      return merged;
+    }
+
+    void clear() {
+      this.keys = new MetricKey[INITIAL_CAPACITY];
+      this.aggregates = new AggregateMetric[INITIAL_CAPACITY];
+      this.size = 0;
+    }
+
+    private void resize(int capacity) {
+      MetricKey[] oldKeys = keys;
+      AggregateMetric[] oldAggregates = aggregates;
+      keys = new MetricKey[capacity];
+      aggregates = new AggregateMetric[capacity];
+      for (int i = 0; i < oldKeys.length; ++i) {
+        if (null != oldKeys[i]) {
+          int index = emptyIndex(keys, oldKeys[i].hashCode());
+          keys[index] = oldKeys[i];
+          aggregates[index] = oldAggregates[i];
+        }
+      }
+    }
+
+    private static int emptyIndex(MetricKey[] keys, int hash) {
+      int mask = keys.length - 1;
+      int index = spread(hash) & mask;
+      while (null != keys[index]) {
+        index = (index + 1) & mask;
+      }
+      return index;
+    }
+
+    private static int spread(int hash) {
+      return hash ^ (hash >>> 16);
+    }
+  }
+}
@@ -25,6 +25,16 @@ public abstract class RateSamplingRule {
 
   public abstract <T extends CoreSpan<T>> boolean matches(T span);
 
+  /** @return the service name this rule requires ignoring case, or null if it accepts others */
+  String exactServiceName() {
+    return null;
+  }
+
+  /** @return the operation name this rule requires ignoring case, or null if it accepts others */
+  String exactOperationName() {
+    return null;
+  }
+
   public <T extends CoreSpan<T>> boolean sample(final T span) {
     return sampler.sample(span);
   }
@@ -115,6 +125,16 @@ public abstract class RateSamplingRule {
           && Matchers.matches(resourceMatcher, span.getResourceName())
           && tagsMatcher.matches(span);
     }
+
+    @Override
+    String exactServiceName() {
+      return Matchers.exactValue(serviceMatcher);
+    }
+
+    @Override
+    String exactOperationName() {
+      return Matchers.exactValue(operationMatcher);
+    }
   }
 
   public static final class SpanSamplingRule extends RateSamplingRule {
@@ -141,6 +161,16 @@ public abstract class RateSamplingRule {
           && Matchers.matches(operationMatcher, span.getOperationName());
     }
 
+    @Override
+    String exactServiceName() {
+      return Matchers.exactValue(serviceMatcher);
+    }
+
+    @Override
+    String exactOperationName() {
+      return Matchers.exactValue(operationMatcher);
+    }
+
     @Override
     public <T extends CoreSpan<T>> boolean sample(T span) {
       return super.sample(span) && (rateLimiter == null || rateLimiter.tryAcquire());
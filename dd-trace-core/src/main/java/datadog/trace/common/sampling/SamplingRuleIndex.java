@@ -0,0 +1,126 @@
+package datadog.trace.common.sampling;
+
+import datadog.trace.core.CoreSpan;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Finds the first rule matching a span without checking every rule. Rules requiring an exact
+ * service name, or otherwise an exact operation name, are indexed by that name, ignoring case. Only
+ * the rules indexed under the service and operation of the span, and the rules which couldn't be
+ * indexed, are then checked, in their original order, so the first matching rule is still the one
+ * returned.
+ */
+final class SamplingRuleIndex<R extends RateSamplingRule> {
+
+  private static final int[] NONE = {};
+
+  private final List<R> rules;
+  private final Map<String, int[]> byService;
+  private final Map<String, int[]> byOperation;
+  private final int[] unindexed;
+
+  SamplingRuleIndex(List<R> rules) {
+    this.rules = new ArrayList<>(rules);
+    Map<String, List<Integer>> byService = new HashMap<>();
+    Map<String, List<Integer>> byOperation = new HashMap<>();
+    List<Integer> unindexed = new ArrayList<>();
+    for (int i = 0; i < rules.size(); i++) {
+      R rule = rules.get(i);
+      String service = rule.exactServiceName();
+      String operation = rule.exactOperationName();
+      if (service != null) {
+        byService.computeIfAbsent(fold(service), k -> new ArrayList<>()).add(i);
+      } else if (operation != null) {
+        byOperation.computeIfAbsent(fold(operation), k -> new ArrayList<>()).add(i);
+      } else {
+        unindexed.add(i);
+      }
+    }
+    this.byService = toArrays(byService);
+    this.byOperation = toArrays(byOperation);
+    this.unindexed = toArray(unindexed);
+  }
+
+  /** @return the first rule matching the span, or null */
+  <T extends CoreSpan<T>> R firstMatch(T span) {
+    int[] service = byService.isEmpty() ? NONE : lookup(byService, span.getServiceName());
+    int[] operation = byOperation.isEmpty() ? NONE : lookup(byOperation, span.getOperationName());
+    int[] other = unindexed;
+    int i = 0, j = 0, k = 0;
+    while (true) {
+      // each rule is in one of the lists, take the next one in the original order
+      int s = i < service.length ? service[i] : Integer.MAX_VALUE;
+      int o = j < operation.length ? operation[j] : Integer.MAX_VALUE;
+      int u = k < other.length ? other[k] : Integer.MAX_VALUE;
+      int next;
+      if (s < o && s < u) {
+        next = s;
+        i++;
+      } else if (o < u) {
+        next = o;
+        j++;
+      } else if (u != Integer.MAX_VALUE) {
+        next = u;
+        k++;
+      } else {
+        return null;
+      }
+      R rule = rules.get(next);
+      if (rule.matches(span)) {
+        return rule;
+      }
+    }
+  }
+
+  private static int[] lookup(Map<String, int[]> index, CharSequence name) {
+    if (name == null) {
+      return NONE;
+    }
+    int[] rules = index.get(fold(name.toString()));
+    return rules != null ? rules : NONE;
+  }
+
+  /**
+   * Folds the case of the name the same way {@link String#equalsIgnoreCase} ignores it, so names
+   * which are equal ignoring case have the same key. Returns the name itself when already folded.
+   */
+  static String fold(String name) {
+    for (int i = 0; i < name.length(); i++) {
+      char c = name.charAt(i);
+      if (fold(c) != c) {
+        char[] folded = name.toCharArray();
+        for (int j = i; j < folded.length; j++) {
+          folded[j] = fold(folded[j]);
+        }
+        return new String(folded);
+      }
+    }
+    return name;
+  }
+
+  private static char fold(char c) {
+    if (c < 128) {
+      return c >= 'A' && c <= 'Z' ? (char) (c + ('a' - 'A')) : c;
+    }
+    return Character.toLowerCase(Character.toUpperCase(c));
+  }
+
+  private static Map<String, int[]> toArrays(Map<String, List<Integer>> lists) {
+    Map<String, int[]> arrays = new HashMap<>(lists.size() * 2);
+    for (Map.Entry<String, List<Integer>> entry : lists.entrySet()) {
+      arrays.put(entry.getKey(), toArray(entry.getValue()));
+    }
+    return arrays;
+  }
+
+  private static int[] toArray(List<Integer> list) {
+    int[] array = new int[list.size()];
+    for (int i = 0; i < array.length; i++) {
+      array[i] = list.get(i);
+    }
+    return array;
+  }
+}
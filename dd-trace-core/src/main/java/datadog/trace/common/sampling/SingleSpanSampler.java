@@ -53,13 +53,13 @@ public interface SingleSpanSampler {
   }
 
   final class RuleBasedSingleSpanSampler implements SingleSpanSampler {
-    private final List<RateSamplingRule.SpanSamplingRule> spanSamplingRules;
+    private final SamplingRuleIndex<RateSamplingRule.SpanSamplingRule> spanSamplingRules;
 
     public RuleBasedSingleSpanSampler(SpanSamplingRules rules) {
       if (rules == null) {
         throw new NullPointerException("SpanSamplingRules can't be null.");
       }
-      this.spanSamplingRules = new ArrayList<>();
+      List<RateSamplingRule.SpanSamplingRule> spanSamplingRules = new ArrayList<>();
       for (SpanSamplingRules.Rule rule : rules.getRules()) {
         RateSampler sampler = new DeterministicSampler.SpanSampler(rule.getSampleRate());
         SimpleRateLimiter simpleRateLimiter =
@@ -71,21 +71,18 @@ public interface SingleSpanSampler {
                 rule.getService(), rule.getName(), sampler, simpleRateLimiter);
         spanSamplingRules.add(spanSamplingRule);
       }
+      this.spanSamplingRules = new SamplingRuleIndex<>(spanSamplingRules);
     }
 
     @Override
     public <T extends CoreSpan<T>> boolean setSamplingPriority(T span) {
-      for (RateSamplingRule.SpanSamplingRule rule : spanSamplingRules) {
-        if (rule.matches(span)) {
-          if (rule.sample(span)) {
-            double rate = rule.getSampler().getSampleRate();
-            SimpleRateLimiter rateLimiter = rule.getRateLimiter();
-            int limit = rateLimiter == null ? Integer.MAX_VALUE : rateLimiter.getCapacity();
-            span.setSpanSamplingPriority(rate, limit);
-            return true;
-          }
-          break;
-        }
+      RateSamplingRule.SpanSamplingRule rule = spanSamplingRules.firstMatch(span);
+      if (rule != null && rule.sample(span)) {
+        double rate = rule.getSampler().getSampleRate();
+        SimpleRateLimiter rateLimiter = rule.getRateLimiter();
+        int limit = rateLimiter == null ? Integer.MAX_VALUE : rateLimiter.getCapacity();
+        span.setSpanSamplingPriority(rate, limit);
+        return true;
       }
       return false;
     }
@@ -34,6 +34,13 @@ public class CompositePayloadDispatcher implements PayloadDispatcher {
     }
   }
 
+  @Override
+  public void onHeartbeat() {
+    for (PayloadDispatcher delegate : delegates) {
+      delegate.onHeartbeat();
+    }
+  }
+
   @Override
   public Collection<RemoteApi> getApis() {
     Collection<RemoteApi> apis = new ArrayList<>(delegates.length);
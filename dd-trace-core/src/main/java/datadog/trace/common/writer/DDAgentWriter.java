@@ -14,6 +14,7 @@ import datadog.trace.common.writer.ddagent.DDAgentApi;
 import datadog.trace.common.writer.ddagent.DDAgentMapperDiscovery;
 import datadog.trace.common.writer.ddagent.Prioritization;
 import datadog.trace.core.monitor.HealthMetrics;
+import java.io.File;
 import java.util.concurrent.TimeUnit;
 import okhttp3.HttpUrl;
 import okhttp3.OkHttpClient;
@@ -42,6 +43,15 @@ public class DDAgentWriter extends RemoteWriter {
     private int flushTimeout = 1;
     private TimeUnit flushTimeoutUnit = TimeUnit.SECONDS;
     boolean alwaysFlush = false;
+    int serializationShards = Config.get().getTraceSerializationShards();
+    boolean recycleSpans = false;
+    boolean directSerializationBuffers = Config.get().isTraceSerializationDirectBuffers();
+    boolean compressionEnabled = Config.get().isTraceAgentCompressionEnabled();
+    int batchTargetBytes = Config.get().getTraceBatchingTargetBytes();
+    long batchMaxDelayMillis = Config.get().getTraceBatchingMaxDelayMs();
+    String spillDirectory = Config.get().getTraceSpillDirectory();
+    int spillMaxBytes = Config.get().getTraceSpillMaxBytes();
+    long spillMaxAgeMillis = Config.get().getTraceSpillMaxAgeMs();
 
     private DDAgentApi agentApi;
     private Prioritization prioritization;
@@ -129,6 +139,45 @@ public class DDAgentWriter extends RemoteWriter {
       return this;
     }
 
+    public DDAgentWriterBuilder serializationShards(int serializationShards) {
+      this.serializationShards = serializationShards;
+      return this;
+    }
+
+    /**
+     * Only enable when the writer is the sole consumer of the traces, since span tags are recycled
+     * once they have been serialized.
+     */
+    public DDAgentWriterBuilder recycleSpans(boolean recycleSpans) {
+      this.recycleSpans = recycleSpans;
+      return this;
+    }
+
+    public DDAgentWriterBuilder directSerializationBuffers(boolean directSerializationBuffers) {
+      this.directSerializationBuffers = directSerializationBuffers;
+      return this;
+    }
+
+    public DDAgentWriterBuilder compressionEnabled(boolean compressionEnabled) {
+      this.compressionEnabled = compressionEnabled;
+      return this;
+    }
+
+    public DDAgentWriterBuilder batching(int batchTargetBytes, long batchMaxDelayMillis) {
+      this.batchTargetBytes = batchTargetBytes;
+      this.batchMaxDelayMillis = batchMaxDelayMillis;
+      return this;
+    }
+
+    /** Payloads which cannot be sent are spilled to a file in this directory, if set. */
+    public DDAgentWriterBuilder spill(
+        String spillDirectory, int spillMaxBytes, long spillMaxAgeMillis) {
+      this.spillDirectory = spillDirectory;
+      this.spillMaxBytes = spillMaxBytes;
+      this.spillMaxAgeMillis = spillMaxAgeMillis;
+      return this;
+    }
+
     public DDAgentWriterBuilder spanSamplingRules(SingleSpanSampler singleSpanSampler) {
       this.singleSpanSampler = singleSpanSampler;
       return this;
@@ -147,12 +196,54 @@ public class DDAgentWriter extends RemoteWriter {
       }
       if (null == agentApi) {
         agentApi =
-            new DDAgentApi(client, agentUrl, featureDiscovery, monitoring, metricsReportingEnabled);
+            new DDAgentApi(
+                client,
+                agentUrl,
+                featureDiscovery,
+                monitoring,
+                metricsReportingEnabled,
+                compressionEnabled);
       }
 
-      final DDAgentMapperDiscovery mapperDiscovery = new DDAgentMapperDiscovery(featureDiscovery);
-      final PayloadDispatcher dispatcher =
-          new PayloadDispatcherImpl(mapperDiscovery, agentApi, healthMetrics, monitoring);
+      // shared by all shards, payloads are replayed to whichever shard is sending
+      final SpillBuffer spillBuffer =
+          null == spillDirectory || spillDirectory.isEmpty()
+              ? null
+              : SpillBuffer.open(
+                  new File(spillDirectory, "traces.spill"),
+                  spillMaxBytes,
+                  spillMaxAgeMillis,
+                  healthMetrics);
+
+      final PayloadDispatcher dispatcher;
+      if (serializationShards > 1) {
+        // each shard needs its own mapper, they all share the same api
+        final PayloadDispatcher[] shards = new PayloadDispatcher[serializationShards];
+        for (int i = 0; i < serializationShards; i++) {
+          shards[i] =
+              new PayloadDispatcherImpl(
+                  new DDAgentMapperDiscovery(featureDiscovery),
+                  agentApi,
+                  healthMetrics,
+                  monitoring,
+                  directSerializationBuffers,
+                  batchTargetBytes,
+                  batchMaxDelayMillis,
+                  spillBuffer);
+        }
+        dispatcher = new ShardedPayloadDispatcher(shards);
+      } else {
+        dispatcher =
+            new PayloadDispatcherImpl(
+                new DDAgentMapperDiscovery(featureDiscovery),
+                agentApi,
+                healthMetrics,
+                monitoring,
+                directSerializationBuffers,
+                batchTargetBytes,
+                batchMaxDelayMillis,
+                spillBuffer);
+      }
       final TraceProcessingWorker traceProcessingWorker =
           new TraceProcessingWorker(
               traceBufferSize,
@@ -163,7 +254,8 @@ public class DDAgentWriter extends RemoteWriter {
               flushIntervalMilliseconds,
               TimeUnit.MILLISECONDS,
               singleSpanSampler,
-              null);
+              null,
+              recycleSpans);
 
       return new DDAgentWriter(
           traceProcessingWorker,
@@ -171,10 +263,13 @@ public class DDAgentWriter extends RemoteWriter {
           healthMetrics,
           flushTimeout,
           flushTimeoutUnit,
-          alwaysFlush);
+          alwaysFlush,
+          spillBuffer);
     }
   }
 
+  private final SpillBuffer spillBuffer;
+
   DDAgentWriter(
       TraceProcessingWorker worker,
       PayloadDispatcher dispatcher,
@@ -182,6 +277,27 @@ public class DDAgentWriter extends RemoteWriter {
       int flushTimeout,
       TimeUnit flushTimeoutUnit,
       boolean alwaysFlush) {
+    this(worker, dispatcher, healthMetrics, flushTimeout, flushTimeoutUnit, alwaysFlush, null);
+  }
+
+  DDAgentWriter(
+      TraceProcessingWorker worker,
+      PayloadDispatcher dispatcher,
+      HealthMetrics healthMetrics,
+      int flushTimeout,
+      TimeUnit flushTimeoutUnit,
+      boolean alwaysFlush,
+      SpillBuffer spillBuffer) {
     super(worker, dispatcher, healthMetrics, flushTimeout, flushTimeoutUnit, alwaysFlush);
+    this.spillBuffer = spillBuffer;
+  }
+
+  @Override
+  public void close() {
+    super.close();
+    // the serializer threads have stopped, so nothing spills or replays anymore
+    if (null != spillBuffer) {
+      spillBuffer.close();
+    }
   }
 }
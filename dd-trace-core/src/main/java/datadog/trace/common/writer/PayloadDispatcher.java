@@ -11,6 +11,9 @@ interface PayloadDispatcher {
 
   void flush();
 
+  /** Called periodically, flushes unless more traces should be batched first. */
+  void onHeartbeat();
+
   // used by tests
   Collection<RemoteApi> getApis();
 }
@@ -12,6 +12,7 @@ import java.nio.ByteBuffer;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 import org.jctools.counters.CountersFactory;
 import org.jctools.counters.FixedSizeStripedLongCounter;
 import org.slf4j.Logger;
@@ -21,14 +22,28 @@ public class PayloadDispatcherImpl implements ByteBufferConsumer, PayloadDispatc
 
   private static final Logger log = LoggerFactory.getLogger(PayloadDispatcherImpl.class);
 
+  private static final long MIN_REPLAY_BACKOFF_NANOS = TimeUnit.SECONDS.toNanos(1);
+  private static final long MAX_REPLAY_BACKOFF_NANOS = TimeUnit.MINUTES.toNanos(1);
+  // bounds how long replaying can hold up the serialization of new traces
+  private static final int MAX_REPLAYED_PAYLOADS = 8;
+
   private final RemoteApi api;
   private final RemoteMapperDiscovery mapperDiscovery;
   private final HealthMetrics healthMetrics;
   private final Monitoring monitoring;
+  private final boolean directBuffers;
+  private final int batchTargetBytes;
+  private final long batchMaxDelayNanos;
+  private final SpillBuffer spillBuffer;
 
   private Recording batchTimer;
   private RemoteMapper mapper;
   private WritableFormatter packer;
+  private FlushingBuffer buffer;
+  private boolean pending;
+  private long pendingSinceNanos;
+  private long nextReplayNanos;
+  private long replayBackoffNanos = MIN_REPLAY_BACKOFF_NANOS;
 
   private final FixedSizeStripedLongCounter droppedSpanCount =
       CountersFactory.createFixedSizeStripedCounter(8);
@@ -40,10 +55,63 @@ public class PayloadDispatcherImpl implements ByteBufferConsumer, PayloadDispatc
       RemoteApi api,
       HealthMetrics healthMetrics,
       Monitoring monitoring) {
+    this(mapperDiscovery, api, healthMetrics, monitoring, false);
+  }
+
+  public PayloadDispatcherImpl(
+      RemoteMapperDiscovery mapperDiscovery,
+      RemoteApi api,
+      HealthMetrics healthMetrics,
+      Monitoring monitoring,
+      boolean directBuffers) {
+    this(mapperDiscovery, api, healthMetrics, monitoring, directBuffers, 0, 0);
+  }
+
+  /**
+   * @param batchTargetBytes periodic flushes are skipped until this many bytes of traces are
+   *     buffered, or 0 to flush whatever is buffered
+   * @param batchMaxDelayMillis how long traces can be held back waiting for the batch to fill up
+   */
+  public PayloadDispatcherImpl(
+      RemoteMapperDiscovery mapperDiscovery,
+      RemoteApi api,
+      HealthMetrics healthMetrics,
+      Monitoring monitoring,
+      boolean directBuffers,
+      int batchTargetBytes,
+      long batchMaxDelayMillis) {
+    this(
+        mapperDiscovery,
+        api,
+        healthMetrics,
+        monitoring,
+        directBuffers,
+        batchTargetBytes,
+        batchMaxDelayMillis,
+        null);
+  }
+
+  /**
+   * @param spillBuffer where payloads are kept while the agent is unreachable, so they can be
+   *     replayed once it responds again, or null to drop them
+   */
+  public PayloadDispatcherImpl(
+      RemoteMapperDiscovery mapperDiscovery,
+      RemoteApi api,
+      HealthMetrics healthMetrics,
+      Monitoring monitoring,
+      boolean directBuffers,
+      int batchTargetBytes,
+      long batchMaxDelayMillis,
+      SpillBuffer spillBuffer) {
     this.mapperDiscovery = mapperDiscovery;
     this.api = api;
     this.healthMetrics = healthMetrics;
     this.monitoring = monitoring;
+    this.directBuffers = directBuffers;
+    this.batchTargetBytes = batchTargetBytes;
+    this.batchMaxDelayNanos = TimeUnit.MILLISECONDS.toNanos(batchMaxDelayMillis);
+    this.spillBuffer = spillBuffer;
   }
 
   @Override
@@ -53,6 +121,24 @@ public class PayloadDispatcherImpl implements ByteBufferConsumer, PayloadDispatc
     }
   }
 
+  @Override
+  public void onHeartbeat() {
+    if (null == packer) {
+      return;
+    }
+    // nanoTime may be negative or wrap around, only differences are meaningful
+    if (null != spillBuffer && System.nanoTime() - nextReplayNanos >= 0) {
+      replaySpilled();
+    }
+    if (batchTargetBytes > 0
+        && buffer.markedBytes() < batchTargetBytes
+        && System.nanoTime() - pendingSinceNanos < batchMaxDelayNanos) {
+      // small payloads compress poorly and cost a request each, wait for more traces
+      return;
+    }
+    packer.flush();
+  }
+
   @Override
   public Collection<RemoteApi> getApis() {
     return Collections.singleton(api);
@@ -74,6 +160,9 @@ public class PayloadDispatcherImpl implements ByteBufferConsumer, PayloadDispatc
     if (null == mapper || !packer.format(trace, mapper)) {
       healthMetrics.onFailedPublish(
           trace.isEmpty() ? 0 : trace.get(0).samplingPriority(), trace.size());
+    } else if (!pending) {
+      pending = true;
+      pendingSinceNanos = System.nanoTime();
     }
   }
 
@@ -87,7 +176,8 @@ public class PayloadDispatcherImpl implements ByteBufferConsumer, PayloadDispatc
       if (null != mapper && null == packer) {
         batchTimer =
             monitoring.newTimer("tracer.trace.buffer.fill.time", "endpoint:" + mapper.endpoint());
-        packer = new MsgPackWriter(new FlushingBuffer(mapper.messageBufferSize(), this));
+        buffer = new FlushingBuffer(mapper.messageBufferSize(), this, directBuffers);
+        packer = new MsgPackWriter(buffer);
         batchTimer.start();
       }
     }
@@ -106,12 +196,13 @@ public class PayloadDispatcherImpl implements ByteBufferConsumer, PayloadDispatc
     // the packer calls this when the buffer is full,
     // or when the packer is flushed at a heartbeat
     if (messageCount > 0) {
+      pending = false;
       batchTimer.reset();
+      final int bodyPosition = buffer.position();
       Payload payload = newPayload(messageCount, buffer);
       final int sizeInBytes = payload.sizeInBytes();
       healthMetrics.onSerialize(sizeInBytes);
       RemoteApi.Response response = api.sendSerializedTraces(payload);
-      mapper.reset();
       if (response.success()) {
         if (log.isDebugEnabled()) {
           log.debug("Successfully sent {} traces to the API", messageCount);
@@ -123,7 +214,77 @@ public class PayloadDispatcherImpl implements ByteBufferConsumer, PayloadDispatc
               "Failed to send {} traces of size {} bytes to the API", messageCount, sizeInBytes);
         }
         healthMetrics.onFailedSend(messageCount, sizeInBytes, response);
+        if (null != spillBuffer && isRetryable(response)) {
+          // the body was consumed by the failed request, encode it again before the mapper resets
+          buffer.position(bodyPosition);
+          spillBuffer.spill(mapper.endpoint(), mapper.newPayload().withBody(messageCount, buffer));
+          backOff();
+        }
+      }
+      mapper.reset();
+      if (null != spillBuffer && response.success()) {
+        // the agent is back, no need to wait for the backoff
+        replaySpilled();
+      }
+    }
+  }
+
+  private void replaySpilled() {
+    // shards sharing the spill buffer must not replay the same payload
+    if (!spillBuffer.startReplay()) {
+      return;
+    }
+    try {
+      String endpoint = mapper.endpoint();
+      for (int i = 0; i < MAX_REPLAYED_PAYLOADS; ++i) {
+        // the payload is copied out of the buffer, so it is sent without holding the buffer's lock
+        Payload spilled = spillBuffer.peek(endpoint);
+        if (null == spilled) {
+          return;
+        }
+        final int traceCount = spilled.traceCount();
+        final int sizeInBytes = spilled.sizeInBytes();
+        RemoteApi.Response response;
+        try {
+          response = api.sendSerializedTraces(spilled);
+        } catch (Throwable e) {
+          // nothing above the heartbeat catches this, drop the payload rather than fail on it again
+          if (log.isDebugEnabled()) {
+            log.debug("Error while replaying spilled traces", e);
+          }
+          healthMetrics.onSpillDrop(traceCount);
+          spillBuffer.remove(spilled);
+          backOff();
+          return;
+        }
+        if (!response.success()) {
+          healthMetrics.onFailedSend(traceCount, sizeInBytes, response);
+          if (isRetryable(response)) {
+            backOff();
+            return;
+          }
+          // the agent rejected the payload, replaying it again will not help
+          healthMetrics.onSpillDrop(traceCount);
+        } else {
+          healthMetrics.onSend(traceCount, sizeInBytes, response);
+          healthMetrics.onSpillReplay(traceCount);
+          replayBackoffNanos = MIN_REPLAY_BACKOFF_NANOS;
+        }
+        spillBuffer.remove(spilled);
       }
+    } finally {
+      spillBuffer.endReplay();
     }
   }
+
+  private void backOff() {
+    nextReplayNanos = System.nanoTime() + replayBackoffNanos;
+    replayBackoffNanos = Math.min(replayBackoffNanos * 2, MAX_REPLAY_BACKOFF_NANOS);
+  }
+
+  private static boolean isRetryable(RemoteApi.Response response) {
+    Integer status = response.status();
+    // no status means the agent could not be reached
+    return null == status || status >= 500 || 429 == status;
+  }
 }
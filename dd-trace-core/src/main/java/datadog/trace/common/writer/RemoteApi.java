@@ -3,16 +3,18 @@ package datadog.trace.common.writer;
 import datadog.trace.relocate.api.IOLogger;
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 import java.io.IOException;
+import java.util.concurrent.atomic.AtomicLong;
 import org.slf4j.Logger;
 
 public abstract class RemoteApi {
 
   protected final IOLogger ioLogger = new IOLogger(getLogger());
 
-  protected long totalTraces = 0;
-  protected long receivedTraces = 0;
-  protected long sentTraces = 0;
-  protected long failedTraces = 0;
+  // payloads may be sent concurrently from several serializer shards
+  protected final AtomicLong totalTraces = new AtomicLong();
+  protected final AtomicLong receivedTraces = new AtomicLong();
+  protected final AtomicLong sentTraces = new AtomicLong();
+  protected final AtomicLong failedTraces = new AtomicLong();
 
   private final boolean compressionEnabled;
 
@@ -26,7 +28,7 @@ public abstract class RemoteApi {
 
   protected void countAndLogSuccessfulSend(final int traceCount, final int sizeInBytes) {
     // count the successful traces
-    sentTraces += traceCount;
+    sentTraces.addAndGet(traceCount);
 
     ioLogger.success(createSendLogMessage(traceCount, sizeInBytes, "Success"));
   }
@@ -37,7 +39,7 @@ public abstract class RemoteApi {
       final okhttp3.Response response,
       final IOException outer) {
     // count the failed traces
-    failedTraces += traceCount;
+    failedTraces.addAndGet(traceCount);
     // these are used to catch and log if there is a failure in debug logging the response body
     String responseBody = getResponseBody(response);
     String sendErrorString =
@@ -65,13 +67,13 @@ public abstract class RemoteApi {
         + ")"
         + " traces."
         + " Total: "
-        + totalTraces
+        + totalTraces.get()
         + ", Received: "
-        + receivedTraces
+        + receivedTraces.get()
         + ", Sent: "
-        + sentTraces
+        + sentTraces.get()
         + ", Failed: "
-        + failedTraces
+        + failedTraces.get()
         + ".";
   }
 
@@ -0,0 +1,61 @@
+package datadog.trace.common.writer;
+
+import datadog.trace.core.CoreSpan;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+
+/**
+ * Groups the per-shard dispatchers used when trace serialization is split across several {@link
+ * TraceProcessingWorker} threads. Each shard owns its own mapper and buffer, while the {@link
+ * RemoteApi} instances behind them are shared.
+ *
+ * <p>Traces must be added, flushed and heartbeats sent through the shards themselves, each from its
+ * own serializer thread, since the mappers are not thread-safe.
+ */
+public class ShardedPayloadDispatcher implements PayloadDispatcher {
+
+  private final PayloadDispatcher[] shards;
+
+  public ShardedPayloadDispatcher(PayloadDispatcher... shards) {
+    if (shards.length == 0) {
+      throw new IllegalArgumentException("At least one shard needs to be configured");
+    }
+    this.shards = shards;
+  }
+
+  PayloadDispatcher[] getShards() {
+    return shards;
+  }
+
+  @Override
+  public void onDroppedTrace(int spanCount) {
+    // drop counts are reported with the next payload, it doesn't matter which shard sends it
+    shards[0].onDroppedTrace(spanCount);
+  }
+
+  @Override
+  public void addTrace(List<? extends CoreSpan<?>> trace) {
+    throw new IllegalStateException("Traces must be added to the shard owning their trace id");
+  }
+
+  @Override
+  public void flush() {
+    throw new IllegalStateException("Shards must be flushed by their serializer threads");
+  }
+
+  @Override
+  public void onHeartbeat() {
+    throw new IllegalStateException("Shards must be flushed by their serializer threads");
+  }
+
+  @Override
+  public Collection<RemoteApi> getApis() {
+    // shards share their apis, so only report each one once
+    Collection<RemoteApi> apis = new LinkedHashSet<>();
+    for (PayloadDispatcher shard : shards) {
+      apis.addAll(shard.getApis());
+    }
+    return apis;
+  }
+}
@@ -18,6 +18,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 public interface SpanSamplingWorker extends AutoCloseable {
+  @SuppressWarnings("unchecked")
   static SpanSamplingWorker build(
       int capacity,
       Queue<Object> primaryQueue,
@@ -25,11 +26,28 @@ public interface SpanSamplingWorker extends AutoCloseable {
       SingleSpanSampler singleSpanSampler,
       HealthMetrics healthMetrics,
       DroppingPolicy droppingPolicy) {
+    return build(
+        capacity,
+        new Queue[] {primaryQueue},
+        new Queue[] {secondaryQueue},
+        singleSpanSampler,
+        healthMetrics,
+        droppingPolicy);
+  }
+
+  /** Sampled spans are routed to the queues of the serializer shard owning their trace id. */
+  static SpanSamplingWorker build(
+      int capacity,
+      Queue<Object>[] primaryQueues,
+      Queue<Object>[] secondaryQueues,
+      SingleSpanSampler singleSpanSampler,
+      HealthMetrics healthMetrics,
+      DroppingPolicy droppingPolicy) {
     if (singleSpanSampler == null) {
       return new NoopSpanSamplingWorker();
     }
     return new DefaultSpanSamplingWorker(
-        capacity, primaryQueue, secondaryQueue, singleSpanSampler, healthMetrics, droppingPolicy);
+        capacity, primaryQueues, secondaryQueues, singleSpanSampler, healthMetrics, droppingPolicy);
   }
 
   void start();
@@ -46,13 +64,14 @@ public interface SpanSamplingWorker extends AutoCloseable {
     private final Thread spanSamplingThread;
     private final SamplingHandler samplingHandler;
     private final MpscBlockingConsumerArrayQueue<Object> spanSamplingQueue;
-    private final Queue<Object> primaryQueue;
-    private final Queue<Object> secondaryQueue;
+    private final Queue<Object>[] primaryQueues;
+    private final Queue<Object>[] secondaryQueues;
     private final SingleSpanSampler singleSpanSampler;
     private final HealthMetrics healthMetrics;
 
     private final DroppingPolicy droppingPolicy;
 
+    @SuppressWarnings("unchecked")
     protected DefaultSpanSamplingWorker(
         int capacity,
         Queue<Object> primaryQueue,
@@ -60,11 +79,27 @@ public interface SpanSamplingWorker extends AutoCloseable {
         SingleSpanSampler singleSpanSampler,
         HealthMetrics healthMetrics,
         DroppingPolicy droppingPolicy) {
+      this(
+          capacity,
+          new Queue[] {primaryQueue},
+          new Queue[] {secondaryQueue},
+          singleSpanSampler,
+          healthMetrics,
+          droppingPolicy);
+    }
+
+    protected DefaultSpanSamplingWorker(
+        int capacity,
+        Queue<Object>[] primaryQueues,
+        Queue<Object>[] secondaryQueues,
+        SingleSpanSampler singleSpanSampler,
+        HealthMetrics healthMetrics,
+        DroppingPolicy droppingPolicy) {
       this.samplingHandler = new SamplingHandler();
       this.spanSamplingThread = newAgentThread(SPAN_SAMPLING_PROCESSOR, samplingHandler);
       this.spanSamplingQueue = new MpscBlockingConsumerArrayQueue<>(capacity);
-      this.primaryQueue = primaryQueue;
-      this.secondaryQueue = secondaryQueue;
+      this.primaryQueues = primaryQueues;
+      this.secondaryQueues = secondaryQueues;
       this.singleSpanSampler = singleSpanSampler;
       this.healthMetrics = healthMetrics;
       this.droppingPolicy = droppingPolicy;
@@ -142,6 +177,14 @@ public interface SpanSamplingWorker extends AutoCloseable {
             }
           }
 
+          int shard =
+              primaryQueues.length == 1
+                  ? 0
+                  : TraceProcessingWorker.shardFor(
+                      trace.get(0).getTraceId().toLong(), primaryQueues.length);
+          Queue<Object> primaryQueue = primaryQueues[shard];
+          Queue<Object> secondaryQueue = secondaryQueues[shard];
+
           int samplingPriority = trace.get(0).samplingPriority();
           if (sampledSpans.size() > 0 && !primaryQueue.offer(sampledSpans)) {
             // couldn't send sampled spans because the queue is full, count entire trace as dropped
@@ -0,0 +1,392 @@
+package datadog.trace.common.writer;
+
+import static datadog.communication.http.OkHttpUtils.msgpackRequestBodyOf;
+import static java.nio.charset.StandardCharsets.US_ASCII;
+
+import datadog.trace.core.monitor.HealthMetrics;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.WritableByteChannel;
+import java.util.Collections;
+import okhttp3.RequestBody;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Bounded ring of serialized payloads kept in a memory-mapped file, so traces which could not be
+ * sent while the agent was unreachable can be replayed once it responds again.
+ *
+ * <p>When the ring is full the oldest payloads are dropped to make room, and payloads older than
+ * the maximum age are dropped instead of being replayed. Payloads are stored with the endpoint they
+ * were encoded for and are only replayed to that endpoint. The positions are kept in the file
+ * header, so payloads spilled before a restart are replayed by the next process using the file.
+ *
+ * <p>The buffer may be shared between serializer shards, all methods are synchronized. Only one
+ * shard replays at a time, payloads are sent outside of the lock so other shards can keep spilling.
+ */
+public final class SpillBuffer implements AutoCloseable {
+
+  private static final Logger log = LoggerFactory.getLogger(SpillBuffer.class);
+
+  private static final int MAGIC = 0xDD5B1100;
+
+  // magic, head, tail, count
+  private static final int HEADER_SIZE = 16;
+
+  // length, trace count, timestamp, endpoint length
+  private static final int RECORD_HEADER_SIZE = 17;
+
+  // marks the end of the records before the ring wraps around
+  private static final int WRAP = 0;
+
+  private final RandomAccessFile file;
+  private final FileLock lock;
+  private final MappedByteBuffer buffer;
+  private final int capacity;
+  private final long maxAgeMillis;
+  private final HealthMetrics healthMetrics;
+
+  private int head;
+  private int tail;
+  private int count;
+  private boolean corrupted;
+  private boolean closed;
+  private boolean replaying;
+  // number of records removed so far, identifies the oldest record between peek and remove
+  private long removed;
+
+  /**
+   * Maps the spill file, or returns null if it cannot be used, for instance because another
+   * process already spills into it.
+   */
+  public static SpillBuffer open(
+      File file, int capacity, long maxAgeMillis, HealthMetrics healthMetrics) {
+    RandomAccessFile raf = null;
+    try {
+      File directory = file.getParentFile();
+      if (null != directory && !directory.isDirectory() && !directory.mkdirs()) {
+        log.warn("Unable to create trace spill directory {}", directory);
+        return null;
+      }
+      raf = new RandomAccessFile(file, "rw");
+      FileChannel channel = raf.getChannel();
+      FileLock lock = channel.tryLock();
+      if (null == lock) {
+        log.warn("Trace spill file {} is used by another process", file);
+        raf.close();
+        return null;
+      }
+      int size = Math.max(HEADER_SIZE + RECORD_HEADER_SIZE, capacity);
+      MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+      return new SpillBuffer(raf, lock, buffer, size, maxAgeMillis, healthMetrics);
+    } catch (IOException | RuntimeException e) {
+      log.warn("Unable to map trace spill file {}", file, e);
+      if (null != raf) {
+        try {
+          raf.close();
+        } catch (IOException ignored) {
+        }
+      }
+      return null;
+    }
+  }
+
+  private SpillBuffer(
+      RandomAccessFile file,
+      FileLock lock,
+      MappedByteBuffer buffer,
+      int capacity,
+      long maxAgeMillis,
+      HealthMetrics healthMetrics) {
+    this.file = file;
+    this.lock = lock;
+    this.buffer = buffer;
+    this.capacity = capacity;
+    this.maxAgeMillis = maxAgeMillis;
+    this.healthMetrics = healthMetrics;
+    if (!recover()) {
+      head = tail = HEADER_SIZE;
+      count = 0;
+      buffer.putInt(0, MAGIC);
+      writeHeader();
+    }
+  }
+
+  /**
+   * Appends a payload which could not be sent, dropping the oldest payloads if there is not enough
+   * room left.
+   *
+   * @return false if the payload is larger than the whole buffer
+   */
+  public synchronized boolean spill(String endpoint, Payload payload) {
+    byte[] endpointBytes = endpoint.getBytes(US_ASCII);
+    int sizeInBytes = payload.sizeInBytes();
+    long length = (long) RECORD_HEADER_SIZE + endpointBytes.length + sizeInBytes;
+    if (closed || length > capacity - HEADER_SIZE || endpointBytes.length > Byte.MAX_VALUE) {
+      healthMetrics.onSpillDrop(payload.traceCount());
+      return false;
+    }
+    int position = reserve((int) length);
+    ByteBuffer record = buffer.duplicate();
+    record.limit(position + (int) length).position(position);
+    record.putInt((int) length);
+    record.putInt(payload.traceCount());
+    record.putLong(System.currentTimeMillis());
+    record.put((byte) endpointBytes.length);
+    record.put(endpointBytes);
+    try {
+      payload.writeTo(new BufferChannel(record));
+    } catch (IOException | RuntimeException e) {
+      // the record has not been committed yet, nothing to undo
+      log.debug("Unable to spill payload", e);
+      healthMetrics.onSpillDrop(payload.traceCount());
+      return false;
+    }
+    tail = position + (int) length;
+    ++count;
+    writeHeader();
+    healthMetrics.onSpill(payload.traceCount(), sizeInBytes);
+    return true;
+  }
+
+  /**
+   * Returns a copy of the oldest payload which can be replayed to the endpoint, dropping expired
+   * payloads and payloads encoded for another endpoint along the way.
+   */
+  public synchronized Payload peek(String endpoint) {
+    if (closed) {
+      return null;
+    }
+    long now = System.currentTimeMillis();
+    while (count > 0) {
+      if (!checkOldest()) {
+        return null;
+      }
+      int length = buffer.getInt(head);
+      int traceCount = buffer.getInt(head + 4);
+      long timestamp = buffer.getLong(head + 8);
+      int endpointLength = buffer.get(head + 16);
+      if (now - timestamp <= maxAgeMillis && matches(endpoint, head + RECORD_HEADER_SIZE)) {
+        int offset = RECORD_HEADER_SIZE + endpointLength;
+        ByteBuffer body = ByteBuffer.allocate(length - offset);
+        ByteBuffer source = buffer.duplicate();
+        source.limit(head + length).position(head + offset);
+        body.put(source).flip();
+        return new SpilledPayload(removed).withBody(traceCount, body);
+      }
+      healthMetrics.onSpillDrop(traceCount);
+      removeOldest();
+    }
+    return null;
+  }
+
+  /** Removes the oldest payload, once it has been replayed. */
+  public synchronized void remove() {
+    if (count > 0 && checkOldest()) {
+      removeOldest();
+    }
+  }
+
+  /**
+   * Removes a payload returned by {@link #peek}, unless it was already dropped to make room for
+   * payloads spilled while it was replayed.
+   */
+  public synchronized void remove(Payload replayed) {
+    if (replayed instanceof SpilledPayload
+        && ((SpilledPayload) replayed).sequence == removed
+        && count > 0
+        && checkOldest()) {
+      removeOldest();
+    }
+  }
+
+  /** Claims the replay of spilled payloads, returns false if another shard is replaying them. */
+  public synchronized boolean startReplay() {
+    if (replaying) {
+      return false;
+    }
+    replaying = true;
+    return true;
+  }
+
+  public synchronized void endReplay() {
+    replaying = false;
+  }
+
+  public synchronized boolean isEmpty() {
+    return 0 == count;
+  }
+
+  /** Writes the spilled payloads to disk and releases the file, nothing is spilled afterwards. */
+  @Override
+  public synchronized void close() {
+    if (closed) {
+      return;
+    }
+    closed = true;
+    buffer.force();
+    try {
+      lock.release();
+      file.close();
+    } catch (IOException e) {
+      log.debug("Unable to close trace spill file", e);
+    }
+  }
+
+  /** Returns the position of enough contiguous room for the record, dropping the oldest ones. */
+  private int reserve(int length) {
+    while (true) {
+      if (0 == count) {
+        head = tail = HEADER_SIZE;
+        return tail;
+      }
+      if (tail > head) {
+        // records are in [head, tail)
+        if (capacity - tail >= length) {
+          return tail;
+        }
+        if (capacity - tail >= 4) {
+          buffer.putInt(tail, WRAP);
+        }
+        tail = HEADER_SIZE;
+      }
+      // records are in [head, capacity) and [HEADER_SIZE, tail)
+      if (head - tail >= length) {
+        return tail;
+      }
+      if (checkOldest()) {
+        healthMetrics.onSpillDrop(buffer.getInt(head + 4));
+        removeOldest();
+      }
+    }
+  }
+
+  private void removeOldest() {
+    ++removed;
+    head += buffer.getInt(head);
+    if (0 == --count) {
+      head = tail = HEADER_SIZE;
+    } else if (head + 4 > capacity || WRAP == buffer.getInt(head)) {
+      head = HEADER_SIZE;
+    }
+    writeHeader();
+  }
+
+  /**
+   * Checks the oldest record lies within the mapped file, as the file may have been truncated or
+   * written by another version. Past a bad record nothing can be trusted, so every record is
+   * dropped.
+   */
+  private boolean checkOldest() {
+    if (head >= HEADER_SIZE && head <= capacity - RECORD_HEADER_SIZE) {
+      int length = buffer.getInt(head);
+      int traceCount = buffer.getInt(head + 4);
+      int endpointLength = buffer.get(head + 16);
+      if (endpointLength >= 0
+          && traceCount >= 0
+          && length >= RECORD_HEADER_SIZE + endpointLength
+          && length <= capacity - head) {
+        return true;
+      }
+    }
+    if (!corrupted) {
+      corrupted = true;
+      log.warn("Trace spill file is corrupted, dropping {} spilled payloads", count);
+    }
+    head = tail = HEADER_SIZE;
+    count = 0;
+    ++removed;
+    writeHeader();
+    return false;
+  }
+
+  private boolean matches(String endpoint, int position) {
+    int length = buffer.get(position - 1);
+    if (length != endpoint.length()) {
+      return false;
+    }
+    for (int i = 0; i < length; ++i) {
+      if (buffer.get(position + i) != endpoint.charAt(i)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private boolean recover() {
+    if (buffer.getInt(0) != MAGIC) {
+      return false;
+    }
+    head = buffer.getInt(4);
+    tail = buffer.getInt(8);
+    count = buffer.getInt(12);
+    // the file may have been mapped with another capacity before
+    return count >= 0
+        && head >= HEADER_SIZE
+        && head <= capacity
+        && tail >= HEADER_SIZE
+        && tail <= capacity
+        && (count > 0 || head == tail);
+  }
+
+  private void writeHeader() {
+    buffer.putInt(4, head);
+    buffer.putInt(8, tail);
+    buffer.putInt(12, count);
+  }
+
+  /** Copies whatever the payload writes into the record. */
+  private static final class BufferChannel implements WritableByteChannel {
+    private final ByteBuffer target;
+
+    BufferChannel(ByteBuffer target) {
+      this.target = target;
+    }
+
+    @Override
+    public int write(ByteBuffer src) {
+      int written = src.remaining();
+      target.put(src);
+      return written;
+    }
+
+    @Override
+    public boolean isOpen() {
+      return true;
+    }
+
+    @Override
+    public void close() {}
+  }
+
+  /** A payload which was already encoded, including the headers of its format. */
+  private static final class SpilledPayload extends Payload {
+    final long sequence;
+
+    SpilledPayload(long sequence) {
+      this.sequence = sequence;
+    }
+
+    @Override
+    public int sizeInBytes() {
+      return body.remaining();
+    }
+
+    @Override
+    public void writeTo(WritableByteChannel channel) throws IOException {
+      while (body.hasRemaining()) {
+        channel.write(body);
+      }
+    }
+
+    @Override
+    public RequestBody toRequest() {
+      return msgpackRequestBodyOf(Collections.singletonList(body));
+    }
+  }
+}
@@ -31,16 +31,20 @@ import org.slf4j.LoggerFactory;
  *
  * <p>publishing to the buffer will not block the calling thread, but instead will return false if
  * the buffer is full. This is to avoid impacting an application thread.
+ *
+ * <p>When given a {@link ShardedPayloadDispatcher} the work is split across one serializer thread
+ * per shard. Traces are routed to a shard by trace id, and each shard has its own queues,
+ * prioritization strategy and dispatcher (so its own mapper and buffer) while sharing the send
+ * path.
  */
 public class TraceProcessingWorker implements AutoCloseable {
 
   private static final Logger log = LoggerFactory.getLogger(TraceProcessingWorker.class);
 
-  private final PrioritizationStrategy prioritizationStrategy;
-  private final MpscBlockingConsumerArrayQueue<Object> primaryQueue;
-  private final MpscBlockingConsumerArrayQueue<Object> secondaryQueue;
-  private final TraceSerializingHandler serializingHandler;
-  private final Thread serializerThread;
+  private final PrioritizationStrategy[] prioritizationStrategies;
+  private final MpscBlockingConsumerArrayQueue<Object>[] primaryQueues;
+  private final MpscBlockingConsumerArrayQueue<Object>[] secondaryQueues;
+  private final Thread[] serializerThreads;
   private final int capacity;
 
   private final SpanSamplingWorker spanSamplingWorker;
@@ -55,48 +59,95 @@ public class TraceProcessingWorker implements AutoCloseable {
       final TimeUnit timeUnit,
       final SingleSpanSampler singleSpanSampler,
       final SpanPostProcessor spanPostProcessor) {
+    this(
+        capacity,
+        healthMetrics,
+        dispatcher,
+        droppingPolicy,
+        prioritization,
+        flushInterval,
+        timeUnit,
+        singleSpanSampler,
+        spanPostProcessor,
+        false);
+  }
+
+  /**
+   * @param recycleSpans whether the tags of serialized spans can be recycled, only safe when this
+   *     worker is the last consumer of the traces, see {@link DDSpan#recycleTags()}
+   */
+  @SuppressWarnings("unchecked")
+  public TraceProcessingWorker(
+      final int capacity,
+      final HealthMetrics healthMetrics,
+      final PayloadDispatcher dispatcher,
+      final DroppingPolicy droppingPolicy,
+      final Prioritization prioritization,
+      final long flushInterval,
+      final TimeUnit timeUnit,
+      final SingleSpanSampler singleSpanSampler,
+      final SpanPostProcessor spanPostProcessor,
+      final boolean recycleSpans) {
+    final PayloadDispatcher[] dispatchers =
+        dispatcher instanceof ShardedPayloadDispatcher
+            ? ((ShardedPayloadDispatcher) dispatcher).getShards()
+            : new PayloadDispatcher[] {dispatcher};
+    final int shards = dispatchers.length;
     this.capacity = capacity;
-    this.primaryQueue = createQueue(capacity);
-    this.secondaryQueue = createQueue(capacity);
+    this.primaryQueues = new MpscBlockingConsumerArrayQueue[shards];
+    this.secondaryQueues = new MpscBlockingConsumerArrayQueue[shards];
+    for (int i = 0; i < shards; i++) {
+      primaryQueues[i] = createQueue(capacity);
+      secondaryQueues[i] = createQueue(capacity);
+    }
     this.spanSamplingWorker =
         SpanSamplingWorker.build(
             capacity,
-            primaryQueue,
-            secondaryQueue,
+            primaryQueues,
+            secondaryQueues,
             singleSpanSampler,
             healthMetrics,
             droppingPolicy);
-    this.prioritizationStrategy =
-        prioritization.create(
-            primaryQueue,
-            secondaryQueue,
-            spanSamplingWorker.getSpanSamplingQueue(),
-            droppingPolicy);
-
-    this.serializingHandler =
-        new TraceSerializingHandler(
-            primaryQueue,
-            secondaryQueue,
-            healthMetrics,
-            dispatcher,
-            flushInterval,
-            timeUnit,
-            spanPostProcessor);
-    this.serializerThread = newAgentThread(TRACE_PROCESSOR, serializingHandler);
+    this.prioritizationStrategies = new PrioritizationStrategy[shards];
+    this.serializerThreads = new Thread[shards];
+    for (int i = 0; i < shards; i++) {
+      prioritizationStrategies[i] =
+          prioritization.create(
+              primaryQueues[i],
+              secondaryQueues[i],
+              spanSamplingWorker.getSpanSamplingQueue(),
+              droppingPolicy);
+      TraceSerializingHandler serializingHandler =
+          new TraceSerializingHandler(
+              primaryQueues[i],
+              secondaryQueues[i],
+              healthMetrics,
+              dispatchers[i],
+              flushInterval,
+              timeUnit,
+              spanPostProcessor,
+              recycleSpans);
+      serializerThreads[i] =
+          newAgentThread(TRACE_PROCESSOR, shards > 1 ? "-" + i : null, serializingHandler, true);
+    }
   }
 
   public void start() {
-    this.serializerThread.start();
+    for (Thread serializerThread : serializerThreads) {
+      serializerThread.start();
+    }
     this.spanSamplingWorker.start();
   }
 
   public boolean flush(long timeout, TimeUnit timeUnit) {
-    CountDownLatch latch = new CountDownLatch(1);
+    CountDownLatch latch = new CountDownLatch(serializerThreads.length);
     FlushEvent flush = new FlushEvent(latch);
-    boolean offered;
-    do {
-      offered = primaryQueue.offer(flush);
-    } while (!offered && serializerThread.isAlive());
+    for (int i = 0; i < serializerThreads.length; i++) {
+      boolean offered;
+      do {
+        offered = primaryQueues[i].offer(flush);
+      } while (!offered && serializerThreads[i].isAlive());
+    }
     try {
       return latch.await(timeout, timeUnit);
     } catch (InterruptedException e) {
@@ -108,25 +159,45 @@ public class TraceProcessingWorker implements AutoCloseable {
   @Override
   public void close() {
     spanSamplingWorker.close();
-    serializerThread.interrupt();
-    try {
-      serializerThread.join(THREAD_JOIN_TIMOUT_MS);
-    } catch (InterruptedException ignored) {
+    for (Thread serializerThread : serializerThreads) {
+      serializerThread.interrupt();
+    }
+    for (Thread serializerThread : serializerThreads) {
+      try {
+        serializerThread.join(THREAD_JOIN_TIMOUT_MS);
+      } catch (InterruptedException ignored) {
+      }
     }
   }
 
   public <T extends CoreSpan<T>> PrioritizationStrategy.PublishResult publish(
       T root, int samplingPriority, final List<T> trace) {
+    PrioritizationStrategy prioritizationStrategy =
+        prioritizationStrategies.length == 1
+            ? prioritizationStrategies[0]
+            : prioritizationStrategies[
+                shardFor(root.getTraceId().toLong(), prioritizationStrategies.length)];
     return prioritizationStrategy.publish(root, samplingPriority, trace);
   }
 
   public int getCapacity() {
-    return capacity;
+    return capacity * primaryQueues.length;
   }
 
   public long getRemainingCapacity() {
     // only advertise primary capacity (partly to keep test which aims to saturate the queue happy)
-    return primaryQueue.remainingCapacity();
+    long remainingCapacity = 0;
+    for (MpscBlockingConsumerArrayQueue<Object> queue : primaryQueues) {
+      remainingCapacity += queue.remainingCapacity();
+    }
+    return remainingCapacity;
+  }
+
+  static int shardFor(long traceId, int shards) {
+    // trace ids are random, but mix the high bits in so 128-bit derived ids spread evenly
+    int hash = (int) (traceId ^ (traceId >>> 32));
+    hash ^= hash >>> 16;
+    return (hash & Integer.MAX_VALUE) % shards;
   }
 
   private static MpscBlockingConsumerArrayQueue<Object> createQueue(int capacity) {
@@ -143,6 +214,7 @@ public class TraceProcessingWorker implements AutoCloseable {
     private final PayloadDispatcher payloadDispatcher;
     private long lastTicks;
     private final SpanPostProcessor spanPostProcessor;
+    private final boolean recycleSpans;
 
     public TraceSerializingHandler(
         final MpscBlockingConsumerArrayQueue<Object> primaryQueue,
@@ -152,6 +224,26 @@ public class TraceProcessingWorker implements AutoCloseable {
         final long flushInterval,
         final TimeUnit timeUnit,
         final SpanPostProcessor spanPostProcessor) {
+      this(
+          primaryQueue,
+          secondaryQueue,
+          healthMetrics,
+          payloadDispatcher,
+          flushInterval,
+          timeUnit,
+          spanPostProcessor,
+          false);
+    }
+
+    public TraceSerializingHandler(
+        final MpscBlockingConsumerArrayQueue<Object> primaryQueue,
+        final MpscBlockingConsumerArrayQueue<Object> secondaryQueue,
+        final HealthMetrics healthMetrics,
+        final PayloadDispatcher payloadDispatcher,
+        final long flushInterval,
+        final TimeUnit timeUnit,
+        final SpanPostProcessor spanPostProcessor,
+        final boolean recycleSpans) {
       this.primaryQueue = primaryQueue;
       this.secondaryQueue = secondaryQueue;
       this.healthMetrics = healthMetrics;
@@ -164,6 +256,7 @@ public class TraceProcessingWorker implements AutoCloseable {
         this.ticksRequiredToFlush = Long.MAX_VALUE;
       }
       this.spanPostProcessor = spanPostProcessor;
+      this.recycleSpans = recycleSpans;
     }
 
     @Override
@@ -198,6 +291,12 @@ public class TraceProcessingWorker implements AutoCloseable {
           maybeTracePostProcessing(trace);
           // TODO populate `_sample_rate` metric in a way that accounts for lost/dropped traces
           payloadDispatcher.addTrace(trace);
+          if (recycleSpans) {
+            // the trace has been encoded, nothing downstream looks at the spans anymore
+            for (DDSpan span : trace) {
+              span.recycleTags();
+            }
+          }
         } else if (event instanceof FlushEvent) {
           payloadDispatcher.flush();
           ((FlushEvent) event).sync();
@@ -233,7 +332,7 @@ public class TraceProcessingWorker implements AutoCloseable {
 
     protected void flushIfNecessary() {
       if (shouldFlush()) {
-        payloadDispatcher.flush();
+        payloadDispatcher.onHeartbeat();
       }
     }
 
@@ -139,7 +139,8 @@ public class WriterFactory {
               commObjects.agentUrl,
               featuresDiscovery,
               commObjects.monitoring,
-              config.isTracerMetricsEnabled());
+              config.isTracerMetricsEnabled(),
+              config.isTraceAgentCompressionEnabled());
 
       if (sampler instanceof RemoteResponseListener) {
         ddAgentApi.addResponseListener((RemoteResponseListener) sampler);
@@ -154,6 +155,10 @@ public class WriterFactory {
               .monitoring(commObjects.monitoring)
               .alwaysFlush(alwaysFlush)
               .spanSamplingRules(singleSpanSampler)
+              // other writers could still be looking at the spans when recycled
+              .recycleSpans(
+                  config.isTraceSpanRecyclingEnabled()
+                      && !config.getWriterType().startsWith(MULTI_WRITER_TYPE))
               .flushIntervalMilliseconds(flushIntervalMilliseconds);
 
       if (config.isCiVisibilityEnabled()) {
@@ -1,5 +1,6 @@
 package datadog.trace.common.writer.ddagent;
 
+import static datadog.communication.http.OkHttpUtils.gzippedRequestBodyOf;
 import static datadog.communication.http.OkHttpUtils.prepareRequest;
 
 import com.squareup.moshi.JsonAdapter;
@@ -23,6 +24,7 @@ import java.util.Objects;
 import okhttp3.HttpUrl;
 import okhttp3.OkHttpClient;
 import okhttp3.Request;
+import okhttp3.RequestBody;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -41,9 +43,12 @@ public class DDAgentApi extends RemoteApi {
   private static final String DATADOG_DROPPED_TRACE_COUNT = "Datadog-Client-Dropped-P0-Traces";
   private static final String DATADOG_DROPPED_SPAN_COUNT = "Datadog-Client-Dropped-P0-Spans";
   private static final String DATADOG_AGENT_STATE = "Datadog-Agent-State";
+  private static final String CONTENT_ENCODING = "Content-Encoding";
+  private static final String GZIP = "gzip";
 
   private final List<RemoteResponseListener> responseListeners = new ArrayList<>();
   private final boolean metricsEnabled;
+  private final boolean compressionEnabled;
 
   private final Recording sendPayloadTimer;
   private final Counter agentErrorCounter;
@@ -68,13 +73,28 @@ public class DDAgentApi extends RemoteApi {
       DDAgentFeaturesDiscovery featuresDiscovery,
       Monitoring monitoring,
       boolean metricsEnabled) {
+    this(client, agentUrl, featuresDiscovery, monitoring, metricsEnabled, false);
+  }
+
+  /**
+   * @param compressionEnabled whether to gzip trace payloads, sent with {@code Content-Encoding:
+   *     gzip}; only worth it when the agent is not on the same host
+   */
+  public DDAgentApi(
+      OkHttpClient client,
+      HttpUrl agentUrl,
+      DDAgentFeaturesDiscovery featuresDiscovery,
+      Monitoring monitoring,
+      boolean metricsEnabled,
+      boolean compressionEnabled) {
     super(false);
     this.featuresDiscovery = featuresDiscovery;
     this.agentUrl = agentUrl;
     this.httpClient = client;
-    this.sendPayloadTimer = monitoring.newTimer("trace.agent.send.time");
+    this.sendPayloadTimer = monitoring.newThreadLocalTimer("trace.agent.send.time");
     this.agentErrorCounter = monitoring.newCounter("trace.agent.error.counter");
     this.metricsEnabled = metricsEnabled;
+    this.compressionEnabled = compressionEnabled;
 
     this.headers = new HashMap<>();
     this.headers.put(DATADOG_CLIENT_COMPUTED_TOP_LEVEL, "true");
@@ -102,8 +122,17 @@ public class DDAgentApi extends RemoteApi {
 
     HttpUrl tracesUrl = agentUrl.resolve(tracesEndpoint);
     try {
+      final Request.Builder builder = prepareRequest(tracesUrl, headers);
+      final RequestBody body;
+      if (compressionEnabled) {
+        // the payload is compressed while it's streamed to the agent
+        body = gzippedRequestBodyOf(payload.toRequest());
+        builder.addHeader(CONTENT_ENCODING, GZIP);
+      } else {
+        body = payload.toRequest();
+      }
       final Request request =
-          prepareRequest(tracesUrl, headers)
+          builder
               .addHeader(X_DATADOG_TRACE_COUNT, Integer.toString(payload.traceCount()))
               .addHeader(DATADOG_DROPPED_TRACE_COUNT, Long.toString(payload.droppedTraces()))
               .addHeader(DATADOG_DROPPED_SPAN_COUNT, Long.toString(payload.droppedSpans()))
@@ -115,10 +144,10 @@ public class DDAgentApi extends RemoteApi {
                           || !Config.get().isApmTracingEnabled()
                       ? "true"
                       : "")
-              .put(payload.toRequest())
+              .put(body)
               .build();
-      this.totalTraces += payload.traceCount();
-      this.receivedTraces += payload.traceCount();
+      this.totalTraces.addAndGet(payload.traceCount());
+      this.receivedTraces.addAndGet(payload.traceCount());
       try (final Recording recording = sendPayloadTimer.start();
           final okhttp3.Response response = httpClient.newCall(request).execute()) {
         handleAgentChange(response.header(DATADOG_AGENT_STATE));
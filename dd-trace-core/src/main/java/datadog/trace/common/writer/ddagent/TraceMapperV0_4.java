@@ -1,28 +1,46 @@
 package datadog.trace.common.writer.ddagent;
 
 import static datadog.communication.http.OkHttpUtils.msgpackRequestBodyOf;
+import static datadog.trace.api.Functions.UTF8_ENCODE;
 
 import datadog.communication.serialization.Codec;
 import datadog.communication.serialization.GrowableBuffer;
 import datadog.communication.serialization.Writable;
 import datadog.communication.serialization.msgpack.MsgPackWriter;
+import datadog.trace.api.DDTags;
+import datadog.trace.api.cache.DDCache;
+import datadog.trace.api.cache.DDCaches;
 import datadog.trace.bootstrap.instrumentation.api.InstrumentationTags;
+import datadog.trace.bootstrap.instrumentation.api.Tags;
 import datadog.trace.bootstrap.instrumentation.api.UTF8BytesString;
 import datadog.trace.common.writer.Payload;
+import datadog.trace.core.AggregatedNames;
 import datadog.trace.core.CoreSpan;
 import datadog.trace.core.Metadata;
 import datadog.trace.core.MetadataConsumer;
 import datadog.trace.core.PendingTrace;
+import datadog.trace.core.TagMap;
 import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
 import java.nio.ByteBuffer;
 import java.nio.channels.WritableByteChannel;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import okhttp3.RequestBody;
 
 public final class TraceMapperV0_4 implements TraceMapper {
 
+  // the tag keys defined by the tracer are fixed, so encode each of them once
+  private static final Map<String, UTF8BytesString> ENCODED_TAG_KEYS =
+      encodeConstants(Tags.class, DDTags.class, InstrumentationTags.class);
+
+  // service names are few, so only encode each of them once
+  private static final DDCache<String, UTF8BytesString> ENCODED_SERVICE_NAMES =
+      DDCaches.newFixedSizeCache("encoded_service_names", 64);
+
   private final int size;
 
   public TraceMapperV0_4(int size) {
@@ -33,10 +51,18 @@ public final class TraceMapperV0_4 implements TraceMapper {
     this(5 << 20);
   }
 
-  private static final class MetaWriter implements MetadataConsumer {
+  private static final class MetaWriter implements MetadataConsumer, TagMap.Visitor {
+
+    // the tags are visited three times: to size the maps, then to write metrics and meta
+    private static final int COUNT_PASS = 0;
+    private static final int METRICS_PASS = 1;
+    private static final int META_PASS = 2;
 
     private Writable writable;
     private boolean writeSamplingPriority;
+    private int pass;
+    private int metaSize;
+    private int metricsSize;
 
     MetaWriter withWritable(Writable writable) {
       this.writable = writable;
@@ -50,29 +76,21 @@ public final class TraceMapperV0_4 implements TraceMapper {
 
     @Override
     public void accept(Metadata metadata) {
-      int metaSize =
+      final Map<String, Object> tags = metadata.getTags();
+      metaSize =
           metadata.getBaggage().size()
-              + metadata.getTags().size()
+              + tags.size()
               + (null == metadata.getHttpStatusCode() ? 0 : 1)
               + (null == metadata.getOrigin() ? 0 : 1)
               + 1;
-      int metricsSize =
+      metricsSize =
           (writeSamplingPriority && metadata.hasSamplingPriority() ? 1 : 0)
               + (metadata.measured() ? 1 : 0)
               + (metadata.topLevel() ? 1 : 0)
               + (metadata.longRunningVersion() != 0 ? 1 : 0)
               + 1;
-      for (Map.Entry<String, Object> tag : metadata.getTags().entrySet()) {
-        Object value = tag.getValue();
-        if (value instanceof Number) {
-          ++metricsSize;
-          --metaSize;
-        } else if (value instanceof Map) {
-          // Compute size based on amount of elements in tree
-          --metaSize;
-          metaSize += getFlatMapSize((Map) value);
-        }
-      }
+      pass = COUNT_PASS;
+      TagMap.forEachTag(tags, this);
       writable.writeUTF8(METRICS);
       writable.startMap(metricsSize);
       if (writeSamplingPriority && metadata.hasSamplingPriority()) {
@@ -98,12 +116,8 @@ public final class TraceMapperV0_4 implements TraceMapper {
       }
       writable.writeUTF8(THREAD_ID);
       writable.writeLong(metadata.getThreadId());
-      for (Map.Entry<String, Object> entry : metadata.getTags().entrySet()) {
-        if (entry.getValue() instanceof Number) {
-          writable.writeString(entry.getKey(), null);
-          writable.writeObject(entry.getValue(), null);
-        }
-      }
+      pass = METRICS_PASS;
+      TagMap.forEachTag(tags, this);
 
       writable.writeUTF8(META);
       writable.startMap(metaSize);
@@ -124,19 +138,85 @@ public final class TraceMapperV0_4 implements TraceMapper {
         writable.writeUTF8(ORIGIN_KEY);
         writable.writeString(metadata.getOrigin(), null);
       }
-      for (Map.Entry<String, Object> entry : metadata.getTags().entrySet()) {
-        String key = entry.getKey();
-        Object value = entry.getValue();
-        if (value instanceof Map) {
-          // Write map as flat map
-          writeFlatMap(key, (Map) value);
-        } else if (!(value instanceof Number)) {
-          writable.writeString(entry.getKey(), null);
-          writable.writeObjectString(entry.getValue(), null);
-        }
+      pass = META_PASS;
+      TagMap.forEachTag(tags, this);
+    }
+
+    @Override
+    public void visit(String key, Object value) {
+      switch (pass) {
+        case COUNT_PASS:
+          if (value instanceof Number) {
+            ++metricsSize;
+            --metaSize;
+          } else if (value instanceof Map) {
+            // Compute size based on amount of elements in tree
+            --metaSize;
+            metaSize += getFlatMapSize((Map) value);
+          }
+          break;
+        case METRICS_PASS:
+          if (value instanceof Number) {
+            writeTagKey(writable, key);
+            writable.writeObject(value, null);
+          }
+          break;
+        default:
+          if (value instanceof Map) {
+            // Write map as flat map
+            writeFlatMap(key, (Map) value);
+          } else if (!(value instanceof Number)) {
+            writeTagKey(writable, key);
+            writable.writeObjectString(value, null);
+          }
+      }
+    }
+
+    @Override
+    public void visit(String key, int value) {
+      if (pass == COUNT_PASS) {
+        countMetric();
+      } else if (pass == METRICS_PASS) {
+        writeTagKey(writable, key);
+        writable.writeInt(value);
+      }
+    }
+
+    @Override
+    public void visit(String key, long value) {
+      if (pass == COUNT_PASS) {
+        countMetric();
+      } else if (pass == METRICS_PASS) {
+        writeTagKey(writable, key);
+        writable.writeLong(value);
+      }
+    }
+
+    @Override
+    public void visit(String key, float value) {
+      if (pass == COUNT_PASS) {
+        countMetric();
+      } else if (pass == METRICS_PASS) {
+        writeTagKey(writable, key);
+        writable.writeFloat(value);
+      }
+    }
+
+    @Override
+    public void visit(String key, double value) {
+      if (pass == COUNT_PASS) {
+        countMetric();
+      } else if (pass == METRICS_PASS) {
+        writeTagKey(writable, key);
+        writable.writeDouble(value);
       }
     }
 
+    private void countMetric() {
+      ++metricsSize;
+      --metaSize;
+    }
+
     /**
      * Calculate number of all values from map and all sub-maps Assuming map could be a binary tree
      *
@@ -221,7 +301,7 @@ public final class TraceMapperV0_4 implements TraceMapper {
       try {
         writer.writeObject(value, null);
         writer.flush();
-        writable.writeString(key, null);
+        writeTagKey(writable, key);
         writable.writeBinary(buffer.slice());
       } finally {
         buffer.reset();
@@ -229,6 +309,64 @@ public final class TraceMapperV0_4 implements TraceMapper {
     }
   }
 
+  /**
+   * Writes tag keys defined by the tracer with a bulk put of their encoding, other keys can be
+   * unbounded (such as headers or baggage) so they are encoded as they are written.
+   */
+  private static void writeTagKey(Writable writable, String key) {
+    UTF8BytesString encoded = ENCODED_TAG_KEYS.get(key);
+    if (null != encoded) {
+      writable.writeUTF8(encoded);
+    } else {
+      writable.writeString(key, null);
+    }
+  }
+
+  /** Writes the service name with a bulk put of its cached encoding. */
+  private static void writeServiceName(Writable writable, String serviceName) {
+    if (null == serviceName) {
+      writable.writeNull();
+    } else {
+      writable.writeUTF8(ENCODED_SERVICE_NAMES.computeIfAbsent(serviceName, UTF8_ENCODE));
+    }
+  }
+
+  private static Map<String, UTF8BytesString> encodeConstants(Class<?>... constants) {
+    Map<String, UTF8BytesString> encoded = new HashMap<>();
+    for (Class<?> clazz : constants) {
+      for (Field field : clazz.getFields()) {
+        if (field.getType() == String.class && Modifier.isStatic(field.getModifiers())) {
+          try {
+            String value = (String) field.get(null);
+            if (null != value) {
+              encoded.put(value, UTF8BytesString.create(value));
+            }
+          } catch (IllegalAccessException ignore) {
+            // only public constants are encoded
+          }
+        }
+      }
+    }
+    return encoded;
+  }
+
+  /**
+   * Whether the encoded string holds the value, the strings of the metric key are only written in
+   * place of the span's while the span still has the values it was aggregated with.
+   */
+  private static boolean holds(UTF8BytesString encoded, CharSequence value) {
+    if (encoded == value) {
+      return true;
+    }
+    if (null == value || encoded.length() != value.length()) {
+      return false;
+    }
+    // compares against the strings both hold, without copying either
+    return encoded
+        .toString()
+        .contentEquals(value instanceof UTF8BytesString ? value.toString() : value);
+  }
+
   private final MetaWriter metaWriter = new MetaWriter();
   private final MetaStructWriter metaStructWriter = new MetaStructWriter();
 
@@ -238,16 +376,32 @@ public final class TraceMapperV0_4 implements TraceMapper {
     for (int i = 0; i < trace.size(); i++) {
       final CoreSpan<?> span = trace.get(i);
       final Map<String, Object> metaStruct = span.getMetaStruct();
+      final AggregatedNames aggregatedNames = span.getAggregatedNames();
       writable.startMap(metaStruct.isEmpty() ? 12 : 13);
       /* 1  */
       writable.writeUTF8(SERVICE);
-      writable.writeString(span.getServiceName(), null);
+      final String serviceName = span.getServiceName();
+      if (null != aggregatedNames && holds(aggregatedNames.getService(), serviceName)) {
+        writable.writeUTF8(aggregatedNames.getService());
+      } else {
+        writeServiceName(writable, serviceName);
+      }
       /* 2  */
       writable.writeUTF8(NAME);
-      writable.writeObject(span.getOperationName(), null);
+      final CharSequence operationName = span.getOperationName();
+      if (null != aggregatedNames && holds(aggregatedNames.getOperationName(), operationName)) {
+        writable.writeUTF8(aggregatedNames.getOperationName());
+      } else {
+        writable.writeObject(operationName, null);
+      }
       /* 3  */
       writable.writeUTF8(RESOURCE);
-      writable.writeObject(span.getResourceName(), null);
+      final CharSequence resourceName = span.getResourceName();
+      if (null != aggregatedNames && holds(aggregatedNames.getResource(), resourceName)) {
+        writable.writeUTF8(aggregatedNames.getResource());
+      } else {
+        writable.writeObject(resourceName, null);
+      }
       /* 4  */
       writable.writeUTF8(TRACE_ID);
       writable.writeUnsignedLong(span.getTraceId().toLong());
@@ -14,6 +14,7 @@ import datadog.trace.core.CoreSpan;
 import datadog.trace.core.Metadata;
 import datadog.trace.core.MetadataConsumer;
 import datadog.trace.core.PendingTrace;
+import datadog.trace.core.TagMap;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.channels.WritableByteChannel;
@@ -176,10 +177,18 @@ public final class TraceMapperV0_5 implements TraceMapper {
     }
   }
 
-  private final class MetaWriter implements MetadataConsumer {
+  private final class MetaWriter implements MetadataConsumer, TagMap.Visitor {
+
+    // the tags are visited three times: to size the maps, then to write meta and metrics
+    private static final int COUNT_PASS = 0;
+    private static final int META_PASS = 1;
+    private static final int METRICS_PASS = 2;
 
     private Writable writable;
     private boolean writeSamplingPriority;
+    private int pass;
+    private int metaSize;
+    private int metricsSize;
 
     MetaWriter withWritable(final Writable writable) {
       this.writable = writable;
@@ -193,29 +202,21 @@ public final class TraceMapperV0_5 implements TraceMapper {
 
     @Override
     public void accept(Metadata metadata) {
-      int metaSize =
+      final Map<String, Object> tags = metadata.getTags();
+      metaSize =
           metadata.getBaggage().size()
-              + metadata.getTags().size()
+              + tags.size()
               + (null == metadata.getHttpStatusCode() ? 0 : 1)
               + (null == metadata.getOrigin() ? 0 : 1)
               + 1;
-      int metricsSize =
+      metricsSize =
           (writeSamplingPriority && metadata.hasSamplingPriority() ? 1 : 0)
               + (metadata.measured() ? 1 : 0)
               + (metadata.topLevel() ? 1 : 0)
               + (metadata.longRunningVersion() != 0 ? 1 : 0)
               + 1;
-      for (Map.Entry<String, Object> tag : metadata.getTags().entrySet()) {
-        Object value = tag.getValue();
-        if (value instanceof Number) {
-          ++metricsSize;
-          --metaSize;
-        } else if (value instanceof Map) {
-          // Compute size based on amount of elements in tree
-          --metaSize;
-          metaSize += getFlatMapSize((Map) value);
-        }
-      }
+      pass = COUNT_PASS;
+      TagMap.forEachTag(tags, this);
       writable.startMap(metaSize);
       // we don't need to deduplicate any overlap between tags and baggage here
       // since they will be accumulated into maps in the same order downstream,
@@ -234,17 +235,8 @@ public final class TraceMapperV0_5 implements TraceMapper {
         writeDictionaryEncoded(writable, ORIGIN_KEY);
         writeDictionaryEncoded(writable, metadata.getOrigin());
       }
-      for (Map.Entry<String, Object> entry : metadata.getTags().entrySet()) {
-        String key = entry.getKey();
-        Object value = entry.getValue();
-        if (value instanceof Map) {
-          // Write map as flat map
-          writeFlatMap(key, (Map) value);
-        } else if (!(value instanceof Number)) {
-          writeDictionaryEncoded(writable, key);
-          writeDictionaryEncoded(writable, value);
-        }
-      }
+      pass = META_PASS;
+      TagMap.forEachTag(tags, this);
       writable.startMap(metricsSize);
       if (writeSamplingPriority && metadata.hasSamplingPriority()) {
         writeDictionaryEncoded(writable, SAMPLING_PRIORITY_KEY);
@@ -269,14 +261,85 @@ public final class TraceMapperV0_5 implements TraceMapper {
       }
       writeDictionaryEncoded(writable, THREAD_ID);
       writable.writeLong(metadata.getThreadId());
-      for (Map.Entry<String, Object> entry : metadata.getTags().entrySet()) {
-        if (entry.getValue() instanceof Number) {
-          writeDictionaryEncoded(writable, entry.getKey());
-          writable.writeObject(entry.getValue(), null);
-        }
+      pass = METRICS_PASS;
+      TagMap.forEachTag(tags, this);
+    }
+
+    @Override
+    public void visit(String key, Object value) {
+      switch (pass) {
+        case COUNT_PASS:
+          if (value instanceof Number) {
+            ++metricsSize;
+            --metaSize;
+          } else if (value instanceof Map) {
+            // Compute size based on amount of elements in tree
+            --metaSize;
+            metaSize += getFlatMapSize((Map) value);
+          }
+          break;
+        case META_PASS:
+          if (value instanceof Map) {
+            // Write map as flat map
+            writeFlatMap(key, (Map) value);
+          } else if (!(value instanceof Number)) {
+            writeDictionaryEncoded(writable, key);
+            writeDictionaryEncoded(writable, value);
+          }
+          break;
+        default:
+          if (value instanceof Number) {
+            writeDictionaryEncoded(writable, key);
+            writable.writeObject(value, null);
+          }
+      }
+    }
+
+    @Override
+    public void visit(String key, int value) {
+      if (pass == COUNT_PASS) {
+        countMetric();
+      } else if (pass == METRICS_PASS) {
+        writeDictionaryEncoded(writable, key);
+        writable.writeInt(value);
       }
     }
 
+    @Override
+    public void visit(String key, long value) {
+      if (pass == COUNT_PASS) {
+        countMetric();
+      } else if (pass == METRICS_PASS) {
+        writeDictionaryEncoded(writable, key);
+        writable.writeLong(value);
+      }
+    }
+
+    @Override
+    public void visit(String key, float value) {
+      if (pass == COUNT_PASS) {
+        countMetric();
+      } else if (pass == METRICS_PASS) {
+        writeDictionaryEncoded(writable, key);
+        writable.writeFloat(value);
+      }
+    }
+
+    @Override
+    public void visit(String key, double value) {
+      if (pass == COUNT_PASS) {
+        countMetric();
+      } else if (pass == METRICS_PASS) {
+        writeDictionaryEncoded(writable, key);
+        writable.writeDouble(value);
+      }
+    }
+
+    private void countMetric() {
+      ++metricsSize;
+      --metaSize;
+    }
+
     /**
      * Calculate number of all values from map and all sub-maps Assuming map could be a binary tree
      *
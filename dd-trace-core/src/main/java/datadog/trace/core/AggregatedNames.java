@@ -0,0 +1,15 @@
+package datadog.trace.core;
+
+import datadog.trace.bootstrap.instrumentation.api.UTF8BytesString;
+
+/**
+ * The encoded names a span's metrics were aggregated under. Serializers may write these in place of
+ * the span's own names, as long as the span still holds the same values.
+ */
+public interface AggregatedNames {
+  UTF8BytesString getService();
+
+  UTF8BytesString getOperationName();
+
+  UTF8BytesString getResource();
+}
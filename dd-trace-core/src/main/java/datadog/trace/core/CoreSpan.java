@@ -66,6 +66,17 @@ public interface CoreSpan<T extends CoreSpan<T>> {
 
   boolean isForceKeep();
 
+  /**
+   * Remembers the names the span's metrics were aggregated under, so serializers can write the
+   * encoded strings instead of encoding them again.
+   */
+  default void setAggregatedNames(AggregatedNames aggregatedNames) {}
+
+  /** @return the names the span's metrics were aggregated under, or null if not aggregated */
+  default AggregatedNames getAggregatedNames() {
+    return null;
+  }
+
   CharSequence getType();
 
   void processTagsAndBaggage(MetadataConsumer consumer);
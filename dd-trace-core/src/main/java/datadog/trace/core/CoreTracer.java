@@ -33,6 +33,7 @@ import datadog.trace.api.IdGenerationStrategy;
 import datadog.trace.api.InstrumenterConfig;
 import datadog.trace.api.StatsDClient;
 import datadog.trace.api.TraceConfig;
+import datadog.trace.api.cache.DDCacheStats;
 import datadog.trace.api.config.GeneralConfig;
 import datadog.trace.api.datastreams.AgentDataStreamsMonitoring;
 import datadog.trace.api.datastreams.PathwayContext;
@@ -634,6 +635,8 @@ public class CoreTracer implements AgentTracer.TracerAPI {
             ? new TracerHealthMetrics(this.statsDClient)
             : HealthMetrics.NO_OP;
     healthMetrics.start();
+    // caches are created before the tracer, their stats are only switched on now
+    DDCacheStats.setEnabled(config.isCacheStatsEnabled());
     performanceMonitoring =
         config.isPerfMetricsEnabled()
             ? new MonitoringImpl(this.statsDClient, 10, SECONDS)
@@ -690,7 +693,12 @@ public class CoreTracer implements AgentTracer.TracerAPI {
                   this.timeSource, config, sharedCommunicationObjects, healthMetrics);
       traceCollectorFactory =
           new PendingTrace.Factory(
-              this, pendingTraceBuffer, this.timeSource, strictTraceWrites, healthMetrics);
+              this,
+              pendingTraceBuffer,
+              this.timeSource,
+              strictTraceWrites,
+              healthMetrics,
+              config.isPartialFlushStreamingEnabled());
     }
     pendingTraceBuffer.start();
 
@@ -1046,6 +1054,10 @@ public class CoreTracer implements AgentTracer.TracerAPI {
     }
   }
 
+  boolean hasTraceInterceptors() {
+    return !interceptors.isEmpty();
+  }
+
   private List<DDSpan> interceptCompleteTrace(List<DDSpan> trace) {
     if (!interceptors.isEmpty() && !trace.isEmpty()) {
       Collection<? extends MutableSpan> interceptedTrace = new ArrayList<>(trace);
@@ -1227,6 +1239,9 @@ public class CoreTracer implements AgentTracer.TracerAPI {
   public void addTracerReportToFlare(ZipOutputStream zip) throws IOException {
     TracerFlare.addText(zip, "tracer_health.txt", healthMetrics.summary());
     TracerFlare.addText(zip, "span_metrics.txt", SpanMetricRegistry.getInstance().summary());
+    if (DDCacheStats.isEnabled()) {
+      TracerFlare.addText(zip, "cache_stats.txt", DDCacheStats.summary());
+    }
   }
 
   private static StatsDClient createStatsDClient(final Config config) {
@@ -89,6 +89,9 @@ public class DDSpan implements AgentSpan, CoreSpan<DDSpan>, AttachableWrapper {
 
   private boolean forceKeep;
 
+  // set when the trace is published to the metrics aggregator, before it is handed to the writer
+  private AggregatedNames aggregatedNames;
+
   private volatile EndpointTracker endpointTracker;
 
   // Cached OT/OTel wrapper to avoid multiple allocations, e.g. when span is activated
@@ -138,6 +141,54 @@ public class DDSpan implements AgentSpan, CoreSpan<DDSpan>, AttachableWrapper {
     this.links = links == null ? new CopyOnWriteArrayList<>() : new CopyOnWriteArrayList<>(links);
   }
 
+  /** Restores a finished span from its encoded state, see {@link #encode}. */
+  private DDSpan(
+      @Nonnull DDSpanContext context,
+      final long startTimeNano,
+      final long durationNano,
+      final int longRunningVersion,
+      final boolean forceKeep) {
+    this.context = context;
+    this.metrics = SpanMetrics.NOOP;
+    this.startTimeNano = startTimeNano;
+    this.externalClock = false;
+    this.durationNano = durationNano;
+    this.longRunningVersion = longRunningVersion;
+    this.forceKeep = forceKeep;
+    this.links = new CopyOnWriteArrayList<>();
+  }
+
+  static DDSpan restore(
+      final EncodedSpans.Input in, final TraceCollector traceCollector, final DDTraceId traceId) {
+    DDSpanContext context = new DDSpanContext(in, traceCollector, traceId);
+    long startTimeNano = in.readLong();
+    long durationNano = in.readLong();
+    int longRunningVersion = (int) in.readSignedVarint();
+    boolean forceKeep = in.readBoolean();
+    return new DDSpan(context, startTimeNano, durationNano, longRunningVersion, forceKeep);
+  }
+
+  /**
+   * Writes the state of this finished span, so it can be restored once the trace is written.
+   *
+   * @return false if the span is not finished or holds state which can't be restored
+   */
+  boolean encode(final EncodedSpans.Output out) {
+    if (!isFinished()
+        || !links.isEmpty()
+        || wrapper != null
+        || endpointTracker != null
+        || requestBlockingAction != null
+        || !context.encode(out)) {
+      return false;
+    }
+    out.writeLong(startTimeNano);
+    out.writeLong(durationNano);
+    out.writeSignedVarint(longRunningVersion);
+    out.writeBoolean(forceKeep);
+    return true;
+  }
+
   public boolean isFinished() {
     return durationNano != 0;
   }
@@ -291,6 +342,16 @@ public class DDSpan implements AgentSpan, CoreSpan<DDSpan>, AttachableWrapper {
     return forceKeep;
   }
 
+  @Override
+  public void setAggregatedNames(AggregatedNames aggregatedNames) {
+    this.aggregatedNames = aggregatedNames;
+  }
+
+  @Override
+  public AggregatedNames getAggregatedNames() {
+    return aggregatedNames;
+  }
+
   /**
    * Check if the span is the root parent. It means that the traceId is the same as the spanId. In
    * the context of distributed tracing this will return true if an only if this is the application
@@ -830,6 +891,21 @@ public class DDSpan implements AgentSpan, CoreSpan<DDSpan>, AttachableWrapper {
     return context.isRequiresPostProcessing();
   }
 
+  /**
+   * Called once the span has been serialized, to hand the storage of its tags over to new spans.
+   * Spans which may still be looked at are left alone: the local root span (which is used once the
+   * trace is written), spans wrapped by the OpenTracing/OpenTelemetry shims, spans waiting for
+   * post-processing, and spans of tracers with trace interceptors that may keep references.
+   */
+  public void recycleTags() {
+    if (wrapper == null
+        && !context.isRequiresPostProcessing()
+        && this != context.getTraceCollector().getRootSpan()
+        && !context.getTracer().hasTraceInterceptors()) {
+      context.recycleTags();
+    }
+  }
+
   @Override
   public void setRequiresPostProcessing(boolean requiresPostProcessing) {
     context.setRequiresPostProcessing(requiresPostProcessing);
@@ -4,12 +4,14 @@ import static datadog.trace.api.DDTags.SPAN_LINKS;
 import static datadog.trace.api.cache.RadixTreeCache.HTTP_STATUSES;
 import static datadog.trace.bootstrap.instrumentation.api.ErrorPriorities.UNSET;
 
+import datadog.trace.api.DDSpanId;
 import datadog.trace.api.DDTags;
 import datadog.trace.api.DDTraceId;
 import datadog.trace.api.Functions;
 import datadog.trace.api.cache.DDCache;
 import datadog.trace.api.cache.DDCaches;
 import datadog.trace.api.config.TracerConfig;
+import datadog.trace.api.datastreams.NoopPathwayContext;
 import datadog.trace.api.datastreams.PathwayContext;
 import datadog.trace.api.gateway.BlockResponseFunction;
 import datadog.trace.api.gateway.RequestContext;
@@ -61,8 +63,9 @@ public class DDSpanContext
   public static final String SPAN_SAMPLING_RULE_RATE_TAG = "_dd.span_sampling.rule_rate";
   public static final String SPAN_SAMPLING_MAX_PER_SECOND_TAG = "_dd.span_sampling.max_per_second";
 
+  // applications with large thread pools have more thread names than fit, keep the busiest ones
   private static final DDCache<String, UTF8BytesString> THREAD_NAMES =
-      DDCaches.newFixedSizeCache(256);
+      DDCaches.newFixedSizeTinyLfuCache("thread_names", 256);
 
   private static final Map<String, String> EMPTY_BAGGAGE = Collections.emptyMap();
   private static final Map<String, Object> EMPTY_META_STRUCT = Collections.emptyMap();
@@ -88,13 +91,13 @@ public class DDSpanContext
   /**
    * Tags are associated to the current span, they will not propagate to the children span.
    *
-   * <p>The underlying assumption for using a normal Map with synchronized access instead of a
+   * <p>The underlying assumption for using a {@link TagMap} with synchronized access instead of a
    * ConcurrentHashMap is that even though the tags can be accessed and modified from multiple
    * threads, they will rarely, if ever, be read and modified concurrently by multiple threads but
    * rather read and accessed in a serial fashion on thread after thread. The synchronization can
    * then be wrapped around bulk operations to minimize the costly atomic operations.
    */
-  private final Map<String, Object> unsafeTags;
+  private final TagMap unsafeTags;
 
   /** The service name is required, otherwise the span are dropped by the agent */
   private volatile String serviceName;
@@ -146,6 +149,11 @@ public class DDSpanContext
   private volatile CharSequence lastParentId;
   private final boolean isRemote;
 
+  // encoded once for header injection, racy like the string caches of the trace ids
+  private String spanIdString;
+  private String spanIdHexString;
+  private String encodedTraceParent;
+
   /**
    * Metastruct keys are associated to the current span, they will not propagate to the children
    * span. They are an efficient way to send binary data to the agent without relying on bulky json
@@ -340,10 +348,8 @@ public class DDSpanContext
     assert pathwayContext != null;
     this.pathwayContext = pathwayContext;
 
-    // The +1 is the magic number from the tags below that we set at the end,
-    // and "* 4 / 3" is to make sure that we don't resize immediately
-    final int capacity = Math.max((tagsSize <= 0 ? 3 : (tagsSize + 1)) * 4 / 3, 8);
-    this.unsafeTags = new HashMap<>(capacity);
+    // The +1 is the magic number from the tags below that we set at the end
+    this.unsafeTags = TagMap.create(tagsSize <= 0 ? 3 : tagsSize + 1);
     // must set this before setting the service and resource names below
     this.profilingContextIntegration = profilingContextIntegration;
     // as fast as we can try to make this operation, we still might need to activate/deactivate
@@ -379,6 +385,120 @@ public class DDSpanContext
     this.isRemote = isRemote;
   }
 
+  /**
+   * Restores the context of a finished span encoded by {@link #encode}. None of the side effects of
+   * creating a context apply: the service name was already mapped, and the thread is the one which
+   * created the original context.
+   */
+  DDSpanContext(
+      final EncodedSpans.Input in, final TraceCollector traceCollector, final DDTraceId traceId) {
+    this.traceCollector = traceCollector;
+    this.traceId = traceId;
+    this.spanId = in.readLong();
+    this.parentId = in.readLong();
+    this.parentServiceName = in.readString();
+    this.serviceName = in.readString();
+    this.operationName = in.readChars();
+    this.resourceName = in.readChars();
+    this.resourceNamePriority = (byte) in.readByte();
+    this.spanType = in.readChars();
+    this.origin = in.readChars();
+    this.lastParentId = in.readChars();
+    this.threadId = in.readLong();
+    this.threadName = in.readUtf8String();
+    this.httpStatusCode = (short) in.readVarint();
+    this.samplingPriority = (int) in.readSignedVarint();
+    this.errorFlag = in.readBoolean();
+    this.errorFlagPriority = (byte) in.readByte();
+    this.measured = in.readBoolean();
+    this.topLevel = in.readBoolean();
+    this.disableSamplingMechanismValidation = in.readBoolean();
+    this.injectBaggageAsTags = in.readBoolean();
+    this.isRemote = in.readBoolean();
+    int baggageSize = in.readSize();
+    if (baggageSize == 0) {
+      this.baggageItems = EMPTY_BAGGAGE;
+    } else {
+      this.baggageItems = new ConcurrentHashMap<>(baggageSize);
+      for (int i = 0; i < baggageSize; i++) {
+        this.baggageItems.put(in.readString(), in.readString());
+      }
+    }
+    this.unsafeTags = TagMap.create(0);
+    in.readTags(this.unsafeTags);
+    String propagationTagsHeader = in.readString();
+
+    this.requestContextDataAppSec = null;
+    this.requestContextDataIast = null;
+    this.ciVisibilityContextData = null;
+    this.pathwayContext = NoopPathwayContext.INSTANCE;
+    this.profilingContextIntegration = ProfilingContextIntegration.NoOp.INSTANCE;
+    PropagationTags.Factory propagationTagsFactory =
+        traceCollector.getTracer().getPropagationTagsFactory();
+    this.propagationTags =
+        propagationTagsHeader != null
+            ? propagationTagsFactory.fromHeaderValue(
+                PropagationTags.HeaderType.DATADOG, propagationTagsHeader)
+            : propagationTagsFactory.empty();
+    this.propagationTags.updateTraceIdHighOrderBits(traceId.toHighOrderLong());
+  }
+
+  /**
+   * Writes the state of the context of a finished span, so it can be restored later on.
+   *
+   * @return false, without writing anything, if the context holds state which can't be restored
+   */
+  boolean encode(final EncodedSpans.Output out) {
+    if (requestContextDataAppSec != null
+        || requestContextDataIast != null
+        || ciVisibilityContextData != null
+        || blockResponseFunction != null
+        || requiresPostProcessing
+        || !metaStruct.isEmpty()) {
+      return false;
+    }
+    String propagationTagsHeader = propagationTags.headerValue(PropagationTags.HeaderType.DATADOG);
+    if (propagationTagsHeader == null && !propagationTags.createTagMap().isEmpty()) {
+      // the propagation tags are over the limit, only their error tag remains
+      return false;
+    }
+    synchronized (unsafeTags) {
+      if (!out.supportsTags(unsafeTags)) {
+        return false;
+      }
+      out.writeLong(spanId);
+      out.writeLong(parentId);
+      out.writeString(parentServiceName);
+      out.writeString(serviceName);
+      out.writeString(operationName);
+      out.writeString(resourceName);
+      out.writeByte(resourceNamePriority);
+      out.writeString(spanType);
+      out.writeString(origin);
+      out.writeString(lastParentId);
+      out.writeLong(threadId);
+      out.writeString(threadName);
+      out.writeVarint(httpStatusCode & 0xFFFF);
+      out.writeSignedVarint(samplingPriority);
+      out.writeBoolean(errorFlag);
+      out.writeByte(errorFlagPriority);
+      out.writeBoolean(measured);
+      out.writeBoolean(topLevel);
+      out.writeBoolean(disableSamplingMechanismValidation);
+      out.writeBoolean(injectBaggageAsTags);
+      out.writeBoolean(isRemote);
+      Map<String, String> baggage = new HashMap<>(baggageItems);
+      out.writeVarint(baggage.size());
+      for (Map.Entry<String, String> item : baggage.entrySet()) {
+        out.writeString(item.getKey());
+        out.writeString(item.getValue());
+      }
+      out.writeTags(unsafeTags);
+      out.writeString(propagationTagsHeader);
+    }
+    return true;
+  }
+
   @Override
   public DDTraceId getTraceId() {
     return traceId;
@@ -393,6 +513,33 @@ public class DDSpanContext
     return spanId;
   }
 
+  /** @return the span id as an unsigned decimal string, encoded once */
+  public String getSpanIdString() {
+    String s = spanIdString;
+    if (null == s) {
+      spanIdString = s = DDSpanId.toString(spanId);
+    }
+    return s;
+  }
+
+  /** @return the span id as a zero padded hex string, encoded once */
+  public String getSpanIdHexString() {
+    String s = spanIdHexString;
+    if (null == s) {
+      spanIdHexString = s = DDSpanId.toHexStringPadded(spanId);
+    }
+    return s;
+  }
+
+  /** @return the W3C traceparent header last encoded for this context, or null */
+  public String getEncodedTraceParent() {
+    return encodedTraceParent;
+  }
+
+  public void setEncodedTraceParent(String encodedTraceParent) {
+    this.encodedTraceParent = encodedTraceParent;
+  }
+
   @Override
   public long getRootSpanId() {
     return getRootSpanContextOrThis().spanId;
@@ -599,10 +746,10 @@ public class DDSpanContext
 
   public void setSpanSamplingPriority(double rate, int limit) {
     synchronized (unsafeTags) {
-      unsafeSetTag(SPAN_SAMPLING_MECHANISM_TAG, SamplingMechanism.SPAN_SAMPLING_RATE);
-      unsafeSetTag(SPAN_SAMPLING_RULE_RATE_TAG, rate);
+      unsafeTags.putInt(SPAN_SAMPLING_MECHANISM_TAG, SamplingMechanism.SPAN_SAMPLING_RATE);
+      unsafeTags.putDouble(SPAN_SAMPLING_RULE_RATE_TAG, rate);
       if (limit != Integer.MAX_VALUE) {
-        unsafeSetTag(SPAN_SAMPLING_MAX_PER_SECOND_TAG, limit);
+        unsafeTags.putInt(SPAN_SAMPLING_MAX_PER_SECOND_TAG, limit);
       }
     }
   }
@@ -726,6 +873,30 @@ public class DDSpanContext
     }
   }
 
+  public void setMetric(final CharSequence key, final int value) {
+    synchronized (unsafeTags) {
+      unsafeTags.putInt(key.toString(), value);
+    }
+  }
+
+  public void setMetric(final CharSequence key, final long value) {
+    synchronized (unsafeTags) {
+      unsafeTags.putLong(key.toString(), value);
+    }
+  }
+
+  public void setMetric(final CharSequence key, final float value) {
+    synchronized (unsafeTags) {
+      unsafeTags.putFloat(key.toString(), value);
+    }
+  }
+
+  public void setMetric(final CharSequence key, final double value) {
+    synchronized (unsafeTags) {
+      unsafeTags.putDouble(key.toString(), value);
+    }
+  }
+
   /**
    * Sets a tag to the span. Tags are not propagated to the children.
    *
@@ -750,6 +921,52 @@ public class DDSpanContext
     }
   }
 
+  /**
+   * Sets a numeric tag to the span without boxing it, unless the tag interceptor needs to see it.
+   *
+   * @see #setTag(String, Object)
+   */
+  public void setTag(final String tag, final int value) {
+    if (null == tag) {
+      return;
+    }
+    if (traceCollector.getTracer().getTagInterceptor().needsIntercept(tag)) {
+      setTag(tag, (Object) value);
+    } else {
+      synchronized (unsafeTags) {
+        unsafeTags.putInt(tag, value);
+      }
+    }
+  }
+
+  /** @see #setTag(String, int) */
+  public void setTag(final String tag, final long value) {
+    if (null == tag) {
+      return;
+    }
+    if (traceCollector.getTracer().getTagInterceptor().needsIntercept(tag)) {
+      setTag(tag, (Object) value);
+    } else {
+      synchronized (unsafeTags) {
+        unsafeTags.putLong(tag, value);
+      }
+    }
+  }
+
+  /** @see #setTag(String, int) */
+  public void setTag(final String tag, final double value) {
+    if (null == tag) {
+      return;
+    }
+    if (traceCollector.getTracer().getTagInterceptor().needsIntercept(tag)) {
+      setTag(tag, (Object) value);
+    } else {
+      synchronized (unsafeTags) {
+        unsafeTags.putDouble(tag, value);
+      }
+    }
+  }
+
   void setAllTags(final Map<String, ?> map) {
     if (map == null || map.isEmpty()) {
       return;
@@ -769,6 +986,13 @@ public class DDSpanContext
     unsafeTags.put(tag, value);
   }
 
+  /** Releases the storage of the tags once the span has been serialized, see {@link TagMap}. */
+  void recycleTags() {
+    synchronized (unsafeTags) {
+      unsafeTags.recycle();
+    }
+  }
+
   Object getTag(final String key) {
     switch (key) {
       case DDTags.THREAD_ID:
@@ -0,0 +1,451 @@
+package datadog.trace.core;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import datadog.trace.api.DDTraceId;
+import datadog.trace.bootstrap.instrumentation.api.UTF8BytesString;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.jctools.queues.MessagePassingQueue;
+import org.jctools.queues.MpmcArrayQueue;
+
+/**
+ * Finished spans of a {@link PendingTrace} encoded off-heap by a streaming partial flush, so they
+ * don't have to stay on the heap until the trace is written.
+ *
+ * <p>Spans are appended to segments of direct memory, which are restored in the same order when
+ * the trace is written, one segment at a time, and then handed back to a shared pool. Strings
+ * which are likely to repeat, like tag names and service names, are only encoded once per trace.
+ *
+ * <p>Spans holding state which can't be restored, like links or request context data, are left
+ * alone. This class is not thread-safe, {@link PendingTrace} guards access to it.
+ */
+final class EncodedSpans {
+  static final int SEGMENT_SIZE = 64 << 10;
+  // bounds the direct memory held by a single trace
+  static final int MAX_SEGMENTS = 512;
+
+  private static final int MAX_POOLED_SEGMENTS = 64;
+  private static final MessagePassingQueue<ByteBuffer> POOL =
+      new MpmcArrayQueue<>(MAX_POOLED_SEGMENTS);
+
+  private static final int MAX_DICTIONARY_SIZE = 1024;
+  private static final int MAX_DICTIONARY_STRING_LENGTH = 128;
+
+  // string headers, followed by the length and UTF-8 bytes of inline strings
+  private static final int NULL = 0;
+  private static final int STRING = 1;
+  private static final int UTF8_STRING = 2;
+  private static final int REMEMBERED_STRING = 3;
+  private static final int REMEMBERED_UTF8_STRING = 4;
+  private static final int DICTIONARY_OFFSET = 5;
+
+  // tag value types
+  private static final int CHARS = 0;
+  private static final int INT = 1;
+  private static final int LONG = 2;
+  private static final int FLOAT = 3;
+  private static final int DOUBLE = 4;
+  private static final int TRUE = 5;
+  private static final int FALSE = 6;
+
+  // each segment starts with the number of spans it holds
+  private final ArrayDeque<ByteBuffer> segments = new ArrayDeque<>();
+  private final Output output = new Output();
+  private Input input;
+  private int spanCount;
+
+  /**
+   * Encodes the finished span.
+   *
+   * @return false if the span can't be encoded, the span must then be written as is
+   */
+  boolean add(DDSpan span) {
+    output.position = 0;
+    if (!span.encode(output)) {
+      return false;
+    }
+    int length = output.position;
+    ByteBuffer segment = segments.peekLast();
+    if (null == segment || segment.remaining() < length) {
+      segment = acquire(length + 4);
+      segment.putInt(0);
+      segments.addLast(segment);
+    }
+    segment.put(output.buffer, 0, length);
+    segment.putInt(0, segment.getInt(0) + 1);
+    spanCount++;
+    return true;
+  }
+
+  /** @return the number of encoded spans which haven't been restored yet */
+  int size() {
+    return spanCount;
+  }
+
+  boolean isFull() {
+    return segments.size() >= MAX_SEGMENTS;
+  }
+
+  /**
+   * Restores the spans of the oldest segment, releasing it.
+   *
+   * @return the restored spans, or null once every span has been restored
+   */
+  List<DDSpan> restoreNext(TraceCollector traceCollector, DDTraceId traceId) {
+    ByteBuffer segment = segments.pollFirst();
+    if (null == segment) {
+      return null;
+    }
+    if (null == input) {
+      input = new Input(output.dictionarySize);
+    }
+    segment.flip();
+    int count = segment.getInt();
+    List<DDSpan> spans = new ArrayList<>(count);
+    input.segment = segment;
+    for (int i = 0; i < count; i++) {
+      spans.add(DDSpan.restore(input, traceCollector, traceId));
+    }
+    input.segment = null;
+    spanCount -= count;
+    release(segment);
+    return spans;
+  }
+
+  private static ByteBuffer acquire(int size) {
+    if (size <= SEGMENT_SIZE) {
+      ByteBuffer segment = POOL.relaxedPoll();
+      return null != segment ? segment : ByteBuffer.allocateDirect(SEGMENT_SIZE);
+    }
+    // spans larger than a segment get a segment of their own, which isn't pooled
+    return ByteBuffer.allocateDirect(size);
+  }
+
+  private static void release(ByteBuffer segment) {
+    if (segment.capacity() == SEGMENT_SIZE) {
+      segment.clear();
+      POOL.relaxedOffer(segment);
+    }
+  }
+
+  /** Encodes the state of a span into a heap buffer, before it's copied to a segment. */
+  static final class Output implements TagMap.Visitor {
+    private byte[] buffer = new byte[512];
+    private int position;
+    private final Map<String, Integer> strings = new HashMap<>();
+    private final Map<String, Integer> utf8Strings = new HashMap<>();
+    private int dictionarySize;
+    // set while checking the tags can be encoded, instead of encoding them
+    private boolean checking;
+    private boolean supported;
+
+    void writeByte(int value) {
+      ensureCapacity(1);
+      buffer[position++] = (byte) value;
+    }
+
+    void writeBoolean(boolean value) {
+      writeByte(value ? 1 : 0);
+    }
+
+    void writeVarint(long value) {
+      ensureCapacity(10);
+      while ((value & ~0x7FL) != 0) {
+        buffer[position++] = (byte) ((value & 0x7F) | 0x80);
+        value >>>= 7;
+      }
+      buffer[position++] = (byte) value;
+    }
+
+    void writeSignedVarint(long value) {
+      writeVarint((value << 1) ^ (value >> 63));
+    }
+
+    void writeLong(long value) {
+      ensureCapacity(8);
+      for (int shift = 56; shift >= 0; shift -= 8) {
+        buffer[position++] = (byte) (value >>> shift);
+      }
+    }
+
+    /**
+     * Writes a {@link String} or a {@link UTF8BytesString}, which is restored with the same type,
+     * other kinds of char sequences are restored as strings.
+     */
+    void writeString(CharSequence value) {
+      if (null == value) {
+        writeVarint(NULL);
+        return;
+      }
+      boolean utf8 = value instanceof UTF8BytesString;
+      String string = value.toString();
+      Map<String, Integer> dictionary = utf8 ? utf8Strings : strings;
+      Integer index = dictionary.get(string);
+      if (null != index) {
+        writeVarint(DICTIONARY_OFFSET + index);
+        return;
+      }
+      boolean remember =
+          string.length() <= MAX_DICTIONARY_STRING_LENGTH && dictionarySize < MAX_DICTIONARY_SIZE;
+      if (remember) {
+        dictionary.put(string, dictionarySize++);
+        writeVarint(utf8 ? REMEMBERED_UTF8_STRING : REMEMBERED_STRING);
+      } else {
+        writeVarint(utf8 ? UTF8_STRING : STRING);
+      }
+      if (utf8) {
+        byte[] bytes = ((UTF8BytesString) value).getUtf8Bytes();
+        writeVarint(bytes.length);
+        ensureCapacity(bytes.length);
+        System.arraycopy(bytes, 0, buffer, position, bytes.length);
+        position += bytes.length;
+      } else {
+        writeUtf8(string);
+      }
+    }
+
+    private void writeUtf8(String string) {
+      int length = string.length();
+      ensureCapacity(5 + length * 3);
+      int start = position;
+      position += 5;
+      for (int i = 0; i < length; i++) {
+        char c = string.charAt(i);
+        if (c < 0x80) {
+          buffer[position++] = (byte) c;
+        } else if (c < 0x800) {
+          buffer[position++] = (byte) (0xC0 | (c >> 6));
+          buffer[position++] = (byte) (0x80 | (c & 0x3F));
+        } else if (Character.isSurrogate(c)) {
+          if (Character.isHighSurrogate(c)
+              && i + 1 < length
+              && Character.isLowSurrogate(string.charAt(i + 1))) {
+            int codePoint = Character.toCodePoint(c, string.charAt(++i));
+            buffer[position++] = (byte) (0xF0 | (codePoint >> 18));
+            buffer[position++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+            buffer[position++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+            buffer[position++] = (byte) (0x80 | (codePoint & 0x3F));
+          } else {
+            // same replacement as the serializers
+            buffer[position++] = '?';
+          }
+        } else {
+          buffer[position++] = (byte) (0xE0 | (c >> 12));
+          buffer[position++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+          buffer[position++] = (byte) (0x80 | (c & 0x3F));
+        }
+      }
+      // the length is written as a varint padded to 5 bytes, so the bytes don't have to be moved
+      int byteLength = position - start - 5;
+      for (int i = 0; i < 4; i++) {
+        buffer[start + i] = (byte) (((byteLength >>> (7 * i)) & 0x7F) | 0x80);
+      }
+      buffer[start + 4] = (byte) (byteLength >>> 28);
+    }
+
+    /** @return true if every tag holds a value which can be restored */
+    boolean supportsTags(TagMap tags) {
+      checking = true;
+      supported = true;
+      try {
+        tags.forEachTag(this);
+      } finally {
+        checking = false;
+      }
+      return supported;
+    }
+
+    void writeTags(TagMap tags) {
+      writeVarint(tags.size());
+      tags.forEachTag(this);
+    }
+
+    @Override
+    public void visit(String key, Object value) {
+      if (checking) {
+        supported &=
+            value instanceof String
+                || value instanceof UTF8BytesString
+                || value instanceof Integer
+                || value instanceof Long
+                || value instanceof Float
+                || value instanceof Double
+                || value instanceof Boolean;
+      } else if (value instanceof Integer) {
+        visit(key, ((Integer) value).intValue());
+      } else if (value instanceof Long) {
+        visit(key, ((Long) value).longValue());
+      } else if (value instanceof Float) {
+        visit(key, ((Float) value).floatValue());
+      } else if (value instanceof Double) {
+        visit(key, ((Double) value).doubleValue());
+      } else if (value instanceof Boolean) {
+        writeString(key);
+        writeByte((Boolean) value ? TRUE : FALSE);
+      } else {
+        writeString(key);
+        writeByte(CHARS);
+        writeString((CharSequence) value);
+      }
+    }
+
+    @Override
+    public void visit(String key, int value) {
+      if (!checking) {
+        writeString(key);
+        writeByte(INT);
+        writeSignedVarint(value);
+      }
+    }
+
+    @Override
+    public void visit(String key, long value) {
+      if (!checking) {
+        writeString(key);
+        writeByte(LONG);
+        writeLong(value);
+      }
+    }
+
+    @Override
+    public void visit(String key, float value) {
+      if (!checking) {
+        writeString(key);
+        writeByte(FLOAT);
+        writeVarint(Float.floatToRawIntBits(value) & 0xFFFFFFFFL);
+      }
+    }
+
+    @Override
+    public void visit(String key, double value) {
+      if (!checking) {
+        writeString(key);
+        writeByte(DOUBLE);
+        writeLong(Double.doubleToRawLongBits(value));
+      }
+    }
+
+    private void ensureCapacity(int length) {
+      if (position + length > buffer.length) {
+        buffer = Arrays.copyOf(buffer, Math.max(buffer.length << 1, position + length));
+      }
+    }
+  }
+
+  /** Decodes the state of spans from a segment. */
+  static final class Input {
+    private ByteBuffer segment;
+    private byte[] bytes = new byte[256];
+    private final List<CharSequence> dictionary;
+
+    Input(int dictionarySize) {
+      this.dictionary = new ArrayList<>(dictionarySize);
+    }
+
+    int readByte() {
+      return segment.get() & 0xFF;
+    }
+
+    boolean readBoolean() {
+      return segment.get() != 0;
+    }
+
+    long readVarint() {
+      long value = 0;
+      int shift = 0;
+      byte b;
+      do {
+        b = segment.get();
+        value |= (long) (b & 0x7F) << shift;
+        shift += 7;
+      } while (b < 0);
+      return value;
+    }
+
+    long readSignedVarint() {
+      long value = readVarint();
+      return (value >>> 1) ^ -(value & 1);
+    }
+
+    long readLong() {
+      return segment.getLong();
+    }
+
+    String readString() {
+      CharSequence value = readChars();
+      return null == value ? null : value.toString();
+    }
+
+    UTF8BytesString readUtf8String() {
+      CharSequence value = readChars();
+      return null == value || value instanceof UTF8BytesString
+          ? (UTF8BytesString) value
+          : UTF8BytesString.create(value);
+    }
+
+    /** @return a {@link String} or a {@link UTF8BytesString} */
+    CharSequence readChars() {
+      int header = (int) readVarint();
+      if (header == NULL) {
+        return null;
+      }
+      if (header >= DICTIONARY_OFFSET) {
+        return dictionary.get(header - DICTIONARY_OFFSET);
+      }
+      int length = (int) readVarint();
+      if (bytes.length < length) {
+        bytes = new byte[Math.max(length, bytes.length << 1)];
+      }
+      segment.get(bytes, 0, length);
+      String string = new String(bytes, 0, length, UTF_8);
+      CharSequence value =
+          header == UTF8_STRING || header == REMEMBERED_UTF8_STRING
+              ? UTF8BytesString.create(string, Arrays.copyOf(bytes, length))
+              : string;
+      if (header == REMEMBERED_STRING || header == REMEMBERED_UTF8_STRING) {
+        dictionary.add(value);
+      }
+      return value;
+    }
+
+    void readTags(TagMap tags) {
+      int count = (int) readVarint();
+      for (int i = 0; i < count; i++) {
+        String key = readString();
+        switch (readByte()) {
+          case INT:
+            tags.putInt(key, (int) readSignedVarint());
+            break;
+          case LONG:
+            tags.putLong(key, readLong());
+            break;
+          case FLOAT:
+            tags.putFloat(key, Float.intBitsToFloat((int) readVarint()));
+            break;
+          case DOUBLE:
+            tags.putDouble(key, Double.longBitsToDouble(readLong()));
+            break;
+          case TRUE:
+            tags.put(key, Boolean.TRUE);
+            break;
+          case FALSE:
+            tags.put(key, Boolean.FALSE);
+            break;
+          default:
+            tags.put(key, readChars());
+            break;
+        }
+      }
+    }
+
+    int readSize() {
+      return (int) readVarint();
+    }
+  }
+}
@@ -8,6 +8,7 @@ import datadog.trace.core.CoreTracer.ConfigSnapshot;
 import datadog.trace.core.monitor.HealthMetrics;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Iterator;
 import java.util.List;
 import java.util.concurrent.ConcurrentLinkedDeque;
 import java.util.concurrent.TimeUnit;
@@ -27,6 +28,11 @@ import org.slf4j.LoggerFactory;
  *         <li>pending ref count == 0 && trace not already written
  *         <li>not root span && size exceeds partial flush
  *       </ul>
+ *   <li>Streaming partial flush, when enabled
+ *       <ul>
+ *         <li>not root span && size exceeds partial flush && root span still running: finished
+ *             child spans are encoded off-heap and written right after the root span
+ *       </ul>
  *   <li>Delayed Write
  *       <ul>
  *         <li>is root span && pending ref count > 0
@@ -50,6 +56,7 @@ public class PendingTrace extends TraceCollector implements PendingTraceBuffer.E
     private final TimeSource timeSource;
     private final boolean strictTraceWrites;
     private final HealthMetrics healthMetrics;
+    private final boolean partialFlushStreaming;
 
     Factory(
         CoreTracer tracer,
@@ -57,11 +64,22 @@ public class PendingTrace extends TraceCollector implements PendingTraceBuffer.E
         TimeSource timeSource,
         boolean strictTraceWrites,
         HealthMetrics healthMetrics) {
+      this(tracer, pendingTraceBuffer, timeSource, strictTraceWrites, healthMetrics, false);
+    }
+
+    Factory(
+        CoreTracer tracer,
+        PendingTraceBuffer pendingTraceBuffer,
+        TimeSource timeSource,
+        boolean strictTraceWrites,
+        HealthMetrics healthMetrics,
+        boolean partialFlushStreaming) {
       this.tracer = tracer;
       this.pendingTraceBuffer = pendingTraceBuffer;
       this.timeSource = timeSource;
       this.strictTraceWrites = strictTraceWrites;
       this.healthMetrics = healthMetrics;
+      this.partialFlushStreaming = partialFlushStreaming;
     }
 
     @Override
@@ -78,7 +96,8 @@ public class PendingTrace extends TraceCollector implements PendingTraceBuffer.E
           timeSource,
           traceConfig,
           strictTraceWrites,
-          healthMetrics);
+          healthMetrics,
+          partialFlushStreaming);
     }
   }
 
@@ -88,6 +107,7 @@ public class PendingTrace extends TraceCollector implements PendingTraceBuffer.E
   private final PendingTraceBuffer pendingTraceBuffer;
   private final boolean strictTraceWrites;
   private final HealthMetrics healthMetrics;
+  private final boolean partialFlushStreaming;
 
   /**
    * Contains finished spans. If the long-running trace feature is enabled it also contains running
@@ -135,6 +155,12 @@ public class PendingTrace extends TraceCollector implements PendingTraceBuffer.E
    */
   private volatile long lastReferenced = 0;
 
+  /**
+   * Finished child spans encoded off-heap by streaming partial flushes, restored once the root span
+   * is written. Guarded by this.
+   */
+  private volatile EncodedSpans encodedSpans;
+
   private PendingTrace(
       @Nonnull CoreTracer tracer,
       @Nonnull DDTraceId traceId,
@@ -143,11 +169,32 @@ public class PendingTrace extends TraceCollector implements PendingTraceBuffer.E
       ConfigSnapshot traceConfig,
       boolean strictTraceWrites,
       HealthMetrics healthMetrics) {
+    this(
+        tracer,
+        traceId,
+        pendingTraceBuffer,
+        timeSource,
+        traceConfig,
+        strictTraceWrites,
+        healthMetrics,
+        false);
+  }
+
+  private PendingTrace(
+      @Nonnull CoreTracer tracer,
+      @Nonnull DDTraceId traceId,
+      @Nonnull PendingTraceBuffer pendingTraceBuffer,
+      @Nonnull TimeSource timeSource,
+      ConfigSnapshot traceConfig,
+      boolean strictTraceWrites,
+      HealthMetrics healthMetrics,
+      boolean partialFlushStreaming) {
     super(tracer, traceConfig != null ? traceConfig : tracer.captureTraceConfig(), timeSource);
     this.traceId = traceId;
     this.pendingTraceBuffer = pendingTraceBuffer;
     this.strictTraceWrites = strictTraceWrites;
     this.healthMetrics = healthMetrics;
+    this.partialFlushStreaming = partialFlushStreaming;
     this.spans = new ConcurrentLinkedDeque<>();
   }
 
@@ -179,6 +226,12 @@ public class PendingTrace extends TraceCollector implements PendingTraceBuffer.E
     return nanos < age;
   }
 
+  @Override
+  public long nanosUntilUnreferencedFor(long nanos) {
+    long age = timeSource.getNanoTicks() - lastReferenced;
+    return nanos < age ? 0 : nanos - age + 1;
+  }
+
   @Override
   void registerSpan(final DDSpan span) {
     ROOT_SPAN.compareAndSet(this, null, span);
@@ -285,8 +338,10 @@ public class PendingTrace extends TraceCollector implements PendingTraceBuffer.E
       pendingTraceBuffer.enqueue(this);
       return PublishState.ROOT_BUFFERED;
     } else if (partialFlushMinSpans > 0 && size() >= partialFlushMinSpans) {
-      // Trace is getting too big, write anything completed.
-      partialFlush();
+      // Trace is getting too big, move completed spans off-heap or write them.
+      if (!partialFlushStreaming || !encodeFinishedSpans(partialFlushMinSpans)) {
+        partialFlush();
+      }
       return PublishState.PARTIAL_FLUSH;
     } else if (rootSpanWritten) {
       // Late arrival span ... delay write
@@ -305,6 +360,38 @@ public class PendingTrace extends TraceCollector implements PendingTraceBuffer.E
     }
   }
 
+  /**
+   * Encodes the finished child spans off-heap, keeping them out of the written chunks until the
+   * root span is written, so they are sampled along with the completed root span.
+   *
+   * @return false if not enough spans could be encoded, and a partial flush is still needed
+   */
+  private boolean encodeFinishedSpans(int partialFlushMinSpans) {
+    final DDSpan root = rootSpan;
+    if (root == null || root.isFinished()) {
+      // once the root span is finished, there is nothing left to wait for
+      return false;
+    }
+    int encoded = 0;
+    synchronized (this) {
+      if (rootSpanWritten) {
+        return false;
+      }
+      if (encodedSpans == null) {
+        encodedSpans = new EncodedSpans();
+      }
+      for (Iterator<DDSpan> it = spans.iterator(); it.hasNext() && !encodedSpans.isFull(); ) {
+        DDSpan span = it.next();
+        if (span != root && span.isFinished() && encodedSpans.add(span)) {
+          it.remove();
+          encoded++;
+        }
+      }
+    }
+    COMPLETED_SPAN_COUNT.addAndGet(this, -encoded);
+    return size() < partialFlushMinSpans;
+  }
+
   /** Important to note: may be called multiple times. */
   @Override
   public void write() {
@@ -312,11 +399,12 @@ public class PendingTrace extends TraceCollector implements PendingTraceBuffer.E
   }
 
   private int write(boolean isPartial) {
-    if (!spans.isEmpty()) {
+    if (!spans.isEmpty() || encodedSpans != null) {
       try (Recording recording = tracer.writeTimer()) {
         // Only one writer at a time
         final List<DDSpan> trace;
         int completedSpans = 0;
+        EncodedSpans restoring = null;
         synchronized (this) {
           if (!isPartial) {
             rootSpanWritten = true;
@@ -339,18 +427,38 @@ public class PendingTrace extends TraceCollector implements PendingTraceBuffer.E
           } else {
             trace = EMPTY;
           }
+          // encoded spans follow the root span, after its sampling decision has been made
+          if (encodedSpans != null && (!isPartial || trace.contains(rootSpan))) {
+            restoring = encodedSpans;
+            encodedSpans = null;
+          }
         }
         if (!trace.isEmpty()) {
           COMPLETED_SPAN_COUNT.addAndGet(this, -completedSpans);
           tracer.write(trace);
           healthMetrics.onCreateTrace();
-          return completedSpans;
         }
+        if (restoring != null) {
+          completedSpans += writeEncodedSpans(restoring);
+        }
+        return completedSpans;
       }
     }
     return 0;
   }
 
+  /** Writes the encoded spans one segment at a time, so only one segment is restored at once. */
+  private int writeEncodedSpans(EncodedSpans restoring) {
+    int written = 0;
+    List<DDSpan> chunk;
+    while ((chunk = restoring.restoreNext(this, traceId)) != null) {
+      written += chunk.size();
+      tracer.write(chunk);
+      healthMetrics.onCreateTrace();
+    }
+    return written;
+  }
+
   int enqueueSpansToWrite(List<DDSpan> trace, boolean writeRunningSpans) {
     int completedSpans = 0;
     boolean runningSpanSeen = false;
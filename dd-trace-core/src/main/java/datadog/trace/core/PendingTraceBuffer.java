@@ -17,6 +17,7 @@ import java.util.Comparator;
 import java.util.List;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 import java.util.function.Predicate;
 import java.util.zip.ZipOutputStream;
 import org.jctools.queues.MessagePassingQueue;
@@ -50,18 +51,30 @@ public abstract class PendingTraceBuffer implements AutoCloseable {
     boolean setEnqueued(boolean enqueued);
 
     boolean writeOnBufferFull();
+
+    /**
+     * @return how many nanoseconds until the element has been unreferenced for longer than {@code
+     *     nanos}, or 0 if it already has
+     */
+    default long nanosUntilUnreferencedFor(long nanos) {
+      return lastReferencedNanosAgo(nanos) ? 0 : nanos;
+    }
   }
 
   private static class DelayingPendingTraceBuffer extends PendingTraceBuffer {
     private static final long FORCE_SEND_DELAY_MS = TimeUnit.SECONDS.toMillis(5);
     private static final long SEND_DELAY_NS = TimeUnit.MILLISECONDS.toNanos(500);
-    private static final long SLEEP_TIME_MS = 100;
+    private static final long TICK_NS = TimeUnit.MILLISECONDS.toNanos(50);
+    private static final long REPORT_INTERVAL_NS = TimeUnit.SECONDS.toNanos(1);
+    // traces waiting in the wheel, most of them are still referenced by running spans
+    private static final int MAX_SCHEDULED_TRACES = 1 << 16;
     private static final CommandElement FLUSH_ELEMENT = new CommandElement();
     private static final CommandElement DUMP_ELEMENT = new CommandElement();
 
     private final MpscBlockingConsumerArrayQueue<Element> queue;
     private final Thread worker;
     private final TimeSource timeSource;
+    private final HealthMetrics healthMetrics;
 
     private volatile boolean closed = false;
     private final AtomicInteger flushCounter = new AtomicInteger(0);
@@ -134,17 +147,22 @@ public abstract class PendingTraceBuffer implements AutoCloseable {
       }
     }
 
-    private static final class WriteDrain implements MessagePassingQueue.Consumer<Element> {
+    private static final class WriteDrain
+        implements MessagePassingQueue.Consumer<Element>, Consumer<Element> {
       private static final WriteDrain WRITE_DRAIN = new WriteDrain();
 
       @Override
       public void accept(Element pendingTrace) {
+        // The element is no longer in the buffer
+        pendingTrace.setEnqueued(false);
         pendingTrace.write();
       }
     }
 
     private static final class DumpDrain
-        implements MessagePassingQueue.Consumer<Element>, MessagePassingQueue.Supplier<Element> {
+        implements MessagePassingQueue.Consumer<Element>,
+            MessagePassingQueue.Supplier<Element>,
+            Consumer<Element> {
       private static final DumpDrain DUMP_DRAIN = new DumpDrain();
       private static final int MAX_DUMPED_TRACES = 50;
 
@@ -210,20 +228,28 @@ public abstract class PendingTraceBuffer implements AutoCloseable {
       }
     }
 
-    private final class Worker implements Runnable {
+    /**
+     * Traces which aren't ready to be written are filed in a timing wheel by the time they will be,
+     * instead of going back to the queue. The wheel is only used by the worker thread, and the queue
+     * only hands traces over to it.
+     */
+    private final class Worker implements Runnable, Consumer<Element> {
+      private final TimingWheel<Element> wheel =
+          new TimingWheel<>(TICK_NS, timeSource.getNanoTicks());
+      private long lastReportNanos = timeSource.getNanoTicks();
+      private int scheduled = 0;
+      private int overflowed = 0;
 
       @Override
       public void run() {
         try {
           while (!closed && !Thread.currentThread().isInterrupted()) {
 
-            Element pendingTrace = null;
-            if (longRunningSpansEnabled()) {
+            Element pendingTrace;
+            if (!wheel.isEmpty()) {
+              pendingTrace = queue.poll(TICK_NS, TimeUnit.NANOSECONDS);
+            } else if (longRunningSpansEnabled()) {
               pendingTrace = queue.poll(1, TimeUnit.SECONDS);
-              runningTracesTracker.flushAndCompact(timeSource.getCurrentTimeMillis());
-              if (pendingTrace == null) {
-                continue;
-              }
             } else {
               pendingTrace = queue.take(); // block until available;
             }
@@ -231,48 +257,81 @@ public abstract class PendingTraceBuffer implements AutoCloseable {
             if (pendingTrace == FLUSH_ELEMENT) {
               // Since this is an MPSC queue, the drain needs to be called on the consumer thread
               queue.drain(WriteDrain.WRITE_DRAIN);
+              wheel.drain(WriteDrain.WRITE_DRAIN);
               flushCounter.incrementAndGet();
-              continue;
-            }
-
-            if (pendingTrace == DUMP_ELEMENT) {
-              queue.fill(
-                  DumpDrain.DUMP_DRAIN,
-                  queue.drain(DumpDrain.DUMP_DRAIN, DumpDrain.MAX_DUMPED_TRACES));
+            } else if (pendingTrace == DUMP_ELEMENT) {
+              int dumped = queue.drain(DumpDrain.DUMP_DRAIN, DumpDrain.MAX_DUMPED_TRACES);
+              queue.fill(DumpDrain.DUMP_DRAIN, dumped);
+              wheel.forEach(DumpDrain.DUMP_DRAIN, DumpDrain.MAX_DUMPED_TRACES - dumped);
               dumpCounter.incrementAndGet();
-              continue;
+            } else if (pendingTrace != null) {
+              accept(pendingTrace);
             }
 
-            // The element is no longer in the queue
-            pendingTrace.setEnqueued(false);
-
+            long nowNanos = timeSource.getNanoTicks();
+            wheel.advance(nowNanos, this);
             if (longRunningSpansEnabled()) {
-              if (runningTracesTracker.add(pendingTrace)) {
-                continue;
-              }
+              runningTracesTracker.flushAndCompact(timeSource.getCurrentTimeMillis());
             }
-
-            long oldestFinishedTime = pendingTrace.oldestFinishedTime();
-            long finishTimestampMillis = TimeUnit.NANOSECONDS.toMillis(oldestFinishedTime);
-            if (finishTimestampMillis <= timeSource.getCurrentTimeMillis() - FORCE_SEND_DELAY_MS) {
-              // Root span is getting old. Send the trace to avoid being discarded by agent.
-              pendingTrace.write();
-              continue;
-            }
-
-            if (pendingTrace.lastReferencedNanosAgo(SEND_DELAY_NS)) {
-              // Trace has been unmodified long enough, go ahead and write whatever is finished.
-              pendingTrace.write();
-            } else {
-              // Trace is too new. Requeue it and sleep to avoid a hot loop.
-              enqueue(pendingTrace);
-              Thread.sleep(SLEEP_TIME_MS);
+            if (nowNanos - lastReportNanos >= REPORT_INTERVAL_NS) {
+              healthMetrics.onPendingTraceBacklog(wheel.size(), scheduled, overflowed);
+              scheduled = 0;
+              overflowed = 0;
+              lastReportNanos = nowNanos;
             }
           }
         } catch (InterruptedException e) {
           Thread.currentThread().interrupt();
         }
       }
+
+      /** Writes the trace if it's ready, otherwise files it in the wheel until it will be. */
+      @Override
+      public void accept(Element pendingTrace) {
+        // The element is no longer in the queue or the wheel
+        pendingTrace.setEnqueued(false);
+
+        if (longRunningSpansEnabled()) {
+          if (runningTracesTracker.add(pendingTrace)) {
+            return;
+          }
+        }
+
+        long oldestFinishedTime = pendingTrace.oldestFinishedTime();
+        long finishTimestampMillis = TimeUnit.NANOSECONDS.toMillis(oldestFinishedTime);
+        long forceSendMillis =
+            finishTimestampMillis + FORCE_SEND_DELAY_MS - timeSource.getCurrentTimeMillis();
+        if (forceSendMillis <= 0) {
+          // Root span is getting old. Send the trace to avoid being discarded by agent.
+          pendingTrace.write();
+          return;
+        }
+
+        if (pendingTrace.lastReferencedNanosAgo(SEND_DELAY_NS)) {
+          // Trace has been unmodified long enough, go ahead and write whatever is finished.
+          pendingTrace.write();
+          return;
+        }
+
+        // Trace is too new. Keep it in the wheel until it has been unmodified long enough.
+        if (!pendingTrace.setEnqueued(true)) {
+          return; // already handed over to the queue again
+        }
+        if (wheel.size() >= MAX_SCHEDULED_TRACES) {
+          overflowed++;
+          pendingTrace.setEnqueued(false);
+          if (pendingTrace.writeOnBufferFull()) {
+            pendingTrace.write();
+          }
+          return;
+        }
+        long delayNanos =
+            Math.min(
+                pendingTrace.nanosUntilUnreferencedFor(SEND_DELAY_NS),
+                TimeUnit.MILLISECONDS.toNanos(forceSendMillis));
+        scheduled++;
+        wheel.schedule(pendingTrace, timeSource.getNanoTicks() + delayNanos);
+      }
     }
 
     public DelayingPendingTraceBuffer(
@@ -282,8 +341,9 @@ public abstract class PendingTraceBuffer implements AutoCloseable {
         SharedCommunicationObjects sharedCommunicationObjects,
         HealthMetrics healthMetrics) {
       this.queue = new MpscBlockingConsumerArrayQueue<>(bufferSize);
-      this.worker = newAgentThread(TRACE_MONITOR, new Worker());
       this.timeSource = timeSource;
+      this.worker = newAgentThread(TRACE_MONITOR, new Worker());
+      this.healthMetrics = null != healthMetrics ? healthMetrics : HealthMetrics.NO_OP;
       boolean runningSpansEnabled = config.isLongRunningTraceEnabled();
       this.runningTracesTracker =
           runningSpansEnabled
@@ -0,0 +1,593 @@
+package datadog.trace.core;
+
+import datadog.trace.api.Config;
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import org.jctools.queues.MessagePassingQueue;
+import org.jctools.queues.MpmcArrayQueue;
+
+/**
+ * Open-addressed map holding span tags.
+ *
+ * <p>Compared to a {@link java.util.HashMap} it doesn't allocate a node per entry, and numeric tags
+ * set through {@link #putInt}, {@link #putLong}, {@link #putFloat} or {@link #putDouble} are kept
+ * unboxed. Boxing only happens when such a tag is read back through the {@link Map} interface;
+ * serializers should use {@link #forEachTag(Map, Visitor)} instead.
+ *
+ * <p>Tag names are usually interned constants, so keys are compared by identity before falling
+ * back to {@link String#equals(Object)}. Removed entries leave a tombstone behind so that removing
+ * entries while iterating is safe.
+ *
+ * <p>When span recycling is enabled, the backing arrays of the tags of serialized spans are handed
+ * back through {@link #recycle()} and reused by new spans, see {@link #create(int)}.
+ *
+ * <p>This class is not thread-safe, {@link DDSpanContext} guards access to it.
+ */
+public final class TagMap extends AbstractMap<String, Object> {
+
+  /** Receives the tags of a {@link TagMap}, numeric tags are passed without boxing them. */
+  public interface Visitor {
+    void visit(String key, Object value);
+
+    void visit(String key, int value);
+
+    void visit(String key, long value);
+
+    void visit(String key, float value);
+
+    void visit(String key, double value);
+  }
+
+  private static final class Unboxed {
+    private final String name;
+
+    private Unboxed(String name) {
+      this.name = name;
+    }
+
+    @Override
+    public String toString() {
+      return name;
+    }
+  }
+
+  // stored in the value slot when the actual value lives in the primitive slot
+  private static final Object INT = new Unboxed("int");
+  private static final Object LONG = new Unboxed("long");
+  private static final Object FLOAT = new Unboxed("float");
+  private static final Object DOUBLE = new Unboxed("double");
+
+  // compared by identity, so never equal to a real key
+  @SuppressFBWarnings("DM_STRING_CTOR")
+  private static final String REMOVED = new String("removed");
+
+  private static final int MIN_CAPACITY = 8;
+
+  // shared by recycled maps, never written to: any insertion resizes first
+  private static final String[] RECYCLED_KEYS = new String[1];
+  private static final Object[] RECYCLED_VALUES = new Object[1];
+
+  // one pool per capacity class, starting at MIN_CAPACITY
+  private static final Pool[] POOLS =
+      Config.get().isTraceSpanRecyclingEnabled() ? Pool.create() : null;
+  private static final boolean DEBUG_RECYCLING = Config.get().isTraceSpanRecyclingDebug();
+
+  private String[] keys;
+  private Object[] values;
+  // only allocated once a numeric tag is stored
+  private long[] primitives;
+  private int size;
+  // live entries plus tombstones
+  private int used;
+  // only recorded when debugging span recycling
+  private Throwable recycledAt;
+
+  public TagMap() {
+    this(MIN_CAPACITY);
+  }
+
+  public TagMap(int expectedSize) {
+    int capacity = capacityFor(expectedSize);
+    this.keys = new String[capacity];
+    this.values = new Object[capacity];
+  }
+
+  private TagMap(String[] keys, Object[] values, long[] primitives) {
+    this.keys = keys;
+    this.values = values;
+    this.primitives = primitives;
+  }
+
+  /** Creates a map, reusing the arrays of a recycled map if span recycling is enabled. */
+  public static TagMap create(int expectedSize) {
+    int capacity = capacityFor(expectedSize);
+    Pool pool = poolFor(capacity);
+    if (pool != null) {
+      String[] keys = pool.keys.relaxedPoll();
+      Object[] values = pool.values.relaxedPoll();
+      if (keys != null || values != null) {
+        return new TagMap(
+            keys != null ? keys : new String[capacity],
+            values != null ? values : new Object[capacity],
+            pool.primitives.relaxedPoll());
+      }
+    }
+    return new TagMap(expectedSize);
+  }
+
+  /**
+   * Hands the backing arrays over to new maps, leaving this map empty. This must only be called
+   * once the owning span has been serialized and isn't expected to be looked at anymore. If it is
+   * written to afterwards, new arrays are allocated so a late write never leaks into another span.
+   * When debugging span recycling, any later access fails instead, pointing to where the map was
+   * recycled.
+   */
+  public void recycle() {
+    if (keys == RECYCLED_KEYS) {
+      return;
+    }
+    // maps may have grown since they were created, so they go back to the pool of their size
+    Pool pool = poolFor(keys.length);
+    if (pool != null) {
+      Arrays.fill(keys, null);
+      Arrays.fill(values, null);
+      pool.keys.relaxedOffer(keys);
+      pool.values.relaxedOffer(values);
+      if (primitives != null) {
+        pool.primitives.relaxedOffer(primitives);
+      }
+    }
+    keys = RECYCLED_KEYS;
+    values = RECYCLED_VALUES;
+    primitives = null;
+    size = 0;
+    used = 0;
+    if (DEBUG_RECYCLING) {
+      recycledAt = new Throwable("Tags recycled by " + Thread.currentThread().getName());
+    }
+  }
+
+  private void checkNotRecycled() {
+    if (DEBUG_RECYCLING && keys == RECYCLED_KEYS) {
+      throw new IllegalStateException("Tags used after their span was recycled", recycledAt);
+    }
+  }
+
+  @Override
+  public int size() {
+    checkNotRecycled();
+    return size;
+  }
+
+  @Override
+  public boolean isEmpty() {
+    checkNotRecycled();
+    return size == 0;
+  }
+
+  @Override
+  public boolean containsKey(Object key) {
+    checkNotRecycled();
+    return key instanceof String && indexOf((String) key) >= 0;
+  }
+
+  @Override
+  public Object get(Object key) {
+    checkNotRecycled();
+    if (!(key instanceof String)) {
+      return null;
+    }
+    int index = indexOf((String) key);
+    return index < 0 ? null : valueAt(index);
+  }
+
+  @Override
+  public Object put(String key, Object value) {
+    checkNotRecycled();
+    int index = insertionIndex(key);
+    Object previous = keys[index] == null ? null : valueAt(index);
+    store(index, key, value);
+    return previous;
+  }
+
+  public void putInt(String key, int value) {
+    checkNotRecycled();
+    storePrimitive(insertionIndex(key), key, INT, value);
+  }
+
+  public void putLong(String key, long value) {
+    checkNotRecycled();
+    storePrimitive(insertionIndex(key), key, LONG, value);
+  }
+
+  public void putFloat(String key, float value) {
+    checkNotRecycled();
+    storePrimitive(insertionIndex(key), key, FLOAT, Float.floatToRawIntBits(value));
+  }
+
+  public void putDouble(String key, double value) {
+    checkNotRecycled();
+    storePrimitive(insertionIndex(key), key, DOUBLE, Double.doubleToRawLongBits(value));
+  }
+
+  @Override
+  public void putAll(Map<? extends String, ?> map) {
+    if (map instanceof TagMap) {
+      TagMap other = (TagMap) map;
+      for (int i = 0; i < other.keys.length; i++) {
+        String key = other.keys[i];
+        if (key != null && key != REMOVED) {
+          Object value = other.values[i];
+          if (value instanceof Unboxed) {
+            storePrimitive(insertionIndex(key), key, value, other.primitives[i]);
+          } else {
+            store(insertionIndex(key), key, value);
+          }
+        }
+      }
+    } else {
+      for (Map.Entry<? extends String, ?> entry : map.entrySet()) {
+        put(entry.getKey(), entry.getValue());
+      }
+    }
+  }
+
+  @Override
+  public Object remove(Object key) {
+    checkNotRecycled();
+    if (!(key instanceof String)) {
+      return null;
+    }
+    int index = indexOf((String) key);
+    if (index < 0) {
+      return null;
+    }
+    Object previous = valueAt(index);
+    removeAt(index);
+    return previous;
+  }
+
+  @Override
+  public void clear() {
+    Arrays.fill(keys, null);
+    Arrays.fill(values, null);
+    size = 0;
+    used = 0;
+  }
+
+  /**
+   * Passes each tag to the visitor, numeric tags which were stored unboxed are passed as
+   * primitives. Values which were stored boxed are passed as objects.
+   */
+  public void forEachTag(Visitor visitor) {
+    checkNotRecycled();
+    String[] keys = this.keys;
+    for (int i = 0; i < keys.length; i++) {
+      String key = keys[i];
+      if (key != null && key != REMOVED) {
+        Object value = values[i];
+        if (value == INT) {
+          visitor.visit(key, (int) primitives[i]);
+        } else if (value == LONG) {
+          visitor.visit(key, primitives[i]);
+        } else if (value == FLOAT) {
+          visitor.visit(key, Float.intBitsToFloat((int) primitives[i]));
+        } else if (value == DOUBLE) {
+          visitor.visit(key, Double.longBitsToDouble(primitives[i]));
+        } else {
+          visitor.visit(key, value);
+        }
+      }
+    }
+  }
+
+  /**
+   * Passes each tag of the map to the visitor, without boxing if the map is a {@link TagMap}. Tags
+   * post-processors may replace the span's tags with another kind of map, in which case the boxed
+   * numbers are unwrapped again so visitors see the same types either way.
+   */
+  public static void forEachTag(Map<String, Object> tags, Visitor visitor) {
+    if (tags instanceof TagMap) {
+      ((TagMap) tags).forEachTag(visitor);
+      return;
+    }
+    for (Map.Entry<String, Object> entry : tags.entrySet()) {
+      String key = entry.getKey();
+      Object value = entry.getValue();
+      if (value instanceof Integer) {
+        visitor.visit(key, ((Integer) value).intValue());
+      } else if (value instanceof Long) {
+        visitor.visit(key, ((Long) value).longValue());
+      } else if (value instanceof Float) {
+        visitor.visit(key, ((Float) value).floatValue());
+      } else if (value instanceof Double) {
+        visitor.visit(key, ((Double) value).doubleValue());
+      } else {
+        visitor.visit(key, value);
+      }
+    }
+  }
+
+  @Override
+  public Set<Map.Entry<String, Object>> entrySet() {
+    checkNotRecycled();
+    return new EntrySet();
+  }
+
+  private Object valueAt(int index) {
+    Object value = values[index];
+    if (value == INT) {
+      return (int) primitives[index];
+    } else if (value == LONG) {
+      return primitives[index];
+    } else if (value == FLOAT) {
+      return Float.intBitsToFloat((int) primitives[index]);
+    } else if (value == DOUBLE) {
+      return Double.longBitsToDouble(primitives[index]);
+    }
+    return value;
+  }
+
+  private void store(int index, String key, Object value) {
+    if (keys[index] == null) {
+      ++size;
+      ++used;
+      keys[index] = key;
+    }
+    values[index] = value;
+  }
+
+  private void storePrimitive(int index, String key, Object type, long bits) {
+    if (primitives == null) {
+      primitives = new long[keys.length];
+    }
+    store(index, key, type);
+    primitives[index] = bits;
+  }
+
+  private void removeAt(int index) {
+    keys[index] = REMOVED;
+    values[index] = null;
+    --size;
+  }
+
+  private int indexOf(String key) {
+    String[] keys = this.keys;
+    int mask = keys.length - 1;
+    int index = hash(key) & mask;
+    while (true) {
+      String candidate = keys[index];
+      if (candidate == null) {
+        return -1;
+      }
+      if (candidate == key || (candidate != REMOVED && candidate.equals(key))) {
+        return index;
+      }
+      index = (index + 1) & mask;
+    }
+  }
+
+  /**
+   * Returns the index holding the key, or a free index where it can be inserted. Free indexes are
+   * either empty, in which case the caller counts a new entry, or hold the tombstone of a removed
+   * entry, which gets reused.
+   */
+  private int insertionIndex(String key) {
+    if (used + 1 > (keys.length >>> 1) + (keys.length >>> 2)) {
+      resize();
+    }
+    String[] keys = this.keys;
+    int mask = keys.length - 1;
+    int index = hash(key) & mask;
+    int tombstone = -1;
+    while (true) {
+      String candidate = keys[index];
+      if (candidate == null) {
+        return tombstone >= 0 ? reuse(tombstone) : index;
+      }
+      if (candidate == REMOVED) {
+        if (tombstone < 0) {
+          tombstone = index;
+        }
+      } else if (candidate == key || candidate.equals(key)) {
+        return index;
+      }
+      index = (index + 1) & mask;
+    }
+  }
+
+  private int reuse(int tombstone) {
+    // the slot is counted as used already, store() will only count it once it's empty
+    keys[tombstone] = null;
+    --used;
+    return tombstone;
+  }
+
+  private void resize() {
+    // only grow if tombstones don't account for the load
+    int capacity = size + 1 > keys.length >>> 1 ? keys.length << 1 : keys.length;
+    String[] oldKeys = keys;
+    Object[] oldValues = values;
+    long[] oldPrimitives = primitives;
+    keys = new String[capacity];
+    values = new Object[capacity];
+    primitives = oldPrimitives == null ? null : new long[capacity];
+    int mask = capacity - 1;
+    for (int i = 0; i < oldKeys.length; i++) {
+      String key = oldKeys[i];
+      if (key != null && key != REMOVED) {
+        int index = hash(key) & mask;
+        while (keys[index] != null) {
+          index = (index + 1) & mask;
+        }
+        keys[index] = key;
+        values[index] = oldValues[i];
+        if (oldPrimitives != null) {
+          primitives[index] = oldPrimitives[i];
+        }
+      }
+    }
+    used = size;
+  }
+
+  private static int hash(String key) {
+    int h = key.hashCode();
+    return h ^ (h >>> 16);
+  }
+
+  private static int capacityFor(int expectedSize) {
+    return tableSizeFor(Math.max(MIN_CAPACITY, expectedSize + (expectedSize >>> 1)));
+  }
+
+  private static int tableSizeFor(int size) {
+    return Integer.highestOneBit(size - 1) << 1;
+  }
+
+  private static Pool poolFor(int capacity) {
+    if (POOLS == null) {
+      return null;
+    }
+    // capacities are powers of two, no smaller than MIN_CAPACITY
+    int index =
+        Integer.numberOfTrailingZeros(capacity) - Integer.numberOfTrailingZeros(MIN_CAPACITY);
+    return index < POOLS.length ? POOLS[index] : null;
+  }
+
+  /**
+   * Bounded pool of the arrays of recycled maps of one capacity. Only the smaller capacities, which
+   * hold the tags of most spans, are pooled.
+   */
+  private static final class Pool {
+    // pooled capacities are MIN_CAPACITY, twice that, and so on
+    static final int CAPACITY_CLASSES = 3;
+    static final int MAX_POOLED = 2048;
+
+    static Pool[] create() {
+      Pool[] pools = new Pool[CAPACITY_CLASSES];
+      for (int i = 0; i < pools.length; i++) {
+        pools[i] = new Pool(MAX_POOLED);
+      }
+      return pools;
+    }
+
+    final MessagePassingQueue<String[]> keys;
+    final MessagePassingQueue<Object[]> values;
+    final MessagePassingQueue<long[]> primitives;
+
+    Pool(int maxPooled) {
+      // recycled by the serializer threads, reused by application threads
+      this.keys = new MpmcArrayQueue<>(maxPooled);
+      this.values = new MpmcArrayQueue<>(maxPooled);
+      this.primitives = new MpmcArrayQueue<>(maxPooled);
+    }
+  }
+
+  private final class EntrySet extends AbstractSet<Map.Entry<String, Object>> {
+    @Override
+    public Iterator<Map.Entry<String, Object>> iterator() {
+      return new EntryIterator();
+    }
+
+    @Override
+    public int size() {
+      return size;
+    }
+
+    @Override
+    public void clear() {
+      TagMap.this.clear();
+    }
+  }
+
+  private final class EntryIterator implements Iterator<Map.Entry<String, Object>> {
+    // a resize while iterating would move entries around, so iterate over the current table
+    private final String[] keys = TagMap.this.keys;
+    private int next = advance(0);
+    private int current = -1;
+
+    private int advance(int from) {
+      for (int i = from; i < keys.length; i++) {
+        String key = keys[i];
+        if (key != null && key != REMOVED) {
+          return i;
+        }
+      }
+      return keys.length;
+    }
+
+    @Override
+    public boolean hasNext() {
+      return next < keys.length;
+    }
+
+    @Override
+    public Map.Entry<String, Object> next() {
+      if (next >= keys.length) {
+        throw new NoSuchElementException();
+      }
+      current = next;
+      next = advance(next + 1);
+      return new Entry(keys[current]);
+    }
+
+    @Override
+    public void remove() {
+      if (current < 0) {
+        throw new IllegalStateException();
+      }
+      TagMap.this.remove(keys[current]);
+      current = -1;
+    }
+  }
+
+  private final class Entry implements Map.Entry<String, Object> {
+    private final String key;
+
+    private Entry(String key) {
+      this.key = key;
+    }
+
+    @Override
+    public String getKey() {
+      return key;
+    }
+
+    @Override
+    public Object getValue() {
+      return get(key);
+    }
+
+    @Override
+    public Object setValue(Object value) {
+      return put(key, value);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (!(o instanceof Map.Entry)) {
+        return false;
+      }
+      Map.Entry<?, ?> that = (Map.Entry<?, ?>) o;
+      Object value = getValue();
+      return key.equals(that.getKey())
+          && (value == null ? that.getValue() == null : value.equals(that.getValue()));
+    }
+
+    @Override
+    public int hashCode() {
+      Object value = getValue();
+      return key.hashCode() ^ (value == null ? 0 : value.hashCode());
+    }
+
+    @Override
+    public String toString() {
+      return key + "=" + getValue();
+    }
+  }
+}
@@ -0,0 +1,196 @@
+package datadog.trace.core;
+
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+/**
+ * Hierarchical timing wheel filing items into slots by their deadline, with constant time
+ * insertion and expiry. Each level has 64 slots, a slot of a level spanning a whole turn of the
+ * level below. Items are filed in the lowest level able to hold their deadline and cascade down as
+ * time advances, until they expire from the first level.
+ *
+ * <p>Deadlines are in nanoseconds from the same time source used to advance the wheel, and are
+ * rounded up to the next tick. Not thread-safe: the wheel must only be used by a single thread.
+ */
+final class TimingWheel<T> {
+  private static final int SLOT_BITS = 6;
+  private static final int SLOTS = 1 << SLOT_BITS;
+  private static final int SLOT_MASK = SLOTS - 1;
+  private static final int LEVELS = 3;
+
+  private final long tickNanos;
+  private final long originNanos;
+  private final Slot[][] levels;
+  // holds the content of the slot being cascaded or expired, so items filed meanwhile don't land
+  // in the slot being read
+  private final Slot spare = new Slot();
+  private long currentTick;
+  private int size;
+
+  TimingWheel(long tickNanos, long nowNanos) {
+    this.tickNanos = tickNanos;
+    this.originNanos = nowNanos;
+    this.levels = new Slot[LEVELS][SLOTS];
+    for (Slot[] level : levels) {
+      for (int i = 0; i < SLOTS; i++) {
+        level[i] = new Slot();
+      }
+    }
+  }
+
+  int size() {
+    return size;
+  }
+
+  boolean isEmpty() {
+    return size == 0;
+  }
+
+  /** Files the item to expire once the wheel is advanced past the deadline. */
+  void schedule(T item, long deadlineNanos) {
+    long tick = deadlineNanos - originNanos;
+    // round up, so items never expire before their deadline
+    tick = tick <= 0 ? 0 : (tick + tickNanos - 1) / tickNanos;
+    file(item, Math.max(tick, currentTick + 1));
+    size++;
+  }
+
+  /**
+   * Moves the wheel forward to the given time, passing expired items to the consumer, which may
+   * schedule them again.
+   *
+   * @return the number of expired items
+   */
+  int advance(long nowNanos, Consumer<? super T> expired) {
+    long targetTick = (nowNanos - originNanos) / tickNanos;
+    if (size == 0) {
+      // nothing to cascade or expire on the way
+      currentTick = Math.max(currentTick, targetTick);
+      return 0;
+    }
+    int count = 0;
+    while (currentTick < targetTick && size > 0) {
+      long tick = ++currentTick;
+      // cascade from the highest level first, so items reach the first level before it expires
+      for (int level = LEVELS - 1; level > 0; level--) {
+        if ((tick & ((1L << (SLOT_BITS * level)) - 1)) == 0) {
+          cascade(levels[level][(int) (tick >>> (SLOT_BITS * level)) & SLOT_MASK]);
+        }
+      }
+      count += expire(levels[0][(int) tick & SLOT_MASK], expired);
+    }
+    currentTick = Math.max(currentTick, targetTick);
+    return count;
+  }
+
+  /** Removes every item from the wheel, passing them to the consumer. */
+  void drain(Consumer<? super T> consumer) {
+    for (Slot[] level : levels) {
+      for (Slot slot : level) {
+        expire(slot, consumer);
+      }
+    }
+  }
+
+  /** Passes at most {@code limit} items to the consumer, leaving them in the wheel. */
+  @SuppressWarnings("unchecked")
+  int forEach(Consumer<? super T> consumer, int limit) {
+    int count = 0;
+    for (Slot[] level : levels) {
+      for (Slot slot : level) {
+        for (int i = 0; i < slot.size && count < limit; i++, count++) {
+          consumer.accept((T) slot.items[i]);
+        }
+      }
+    }
+    return count;
+  }
+
+  private void file(Object item, long tick) {
+    int level = 0;
+    // the lowest level where the deadline falls within the current slot of the level above
+    while (level < LEVELS - 1
+        && (tick >>> (SLOT_BITS * (level + 1))) != (currentTick >>> (SLOT_BITS * (level + 1)))) {
+      level++;
+    }
+    // the top level wraps around, holding the deadlines within a turn from the current slot
+    long slot = tick >>> (SLOT_BITS * level);
+    if (level == LEVELS - 1) {
+      long currentSlot = currentTick >>> (SLOT_BITS * level);
+      if (slot - currentSlot >= SLOTS) {
+        // beyond the wheel, park it in the last slot to cascade before the deadline
+        slot = currentSlot + SLOTS - 1;
+      }
+    }
+    levels[level][(int) slot & SLOT_MASK].add(item, tick);
+  }
+
+  private void cascade(Slot slot) {
+    if (slot.size == 0) {
+      return;
+    }
+    Slot cascading = swap(slot);
+    for (int i = 0; i < cascading.size; i++) {
+      file(cascading.items[i], cascading.ticks[i]);
+    }
+    cascading.clear();
+  }
+
+  @SuppressWarnings("unchecked")
+  private int expire(Slot slot, Consumer<? super T> consumer) {
+    int count = slot.size;
+    if (count == 0) {
+      return 0;
+    }
+    Slot expiring = swap(slot);
+    size -= count;
+    for (int i = 0; i < count; i++) {
+      consumer.accept((T) expiring.items[i]);
+    }
+    expiring.clear();
+    return count;
+  }
+
+  /** Empties the slot, returning a slot with its previous content. */
+  private Slot swap(Slot slot) {
+    return spare.takeFrom(slot);
+  }
+
+  private static final class Slot {
+    private static final Object[] NO_ITEMS = {};
+    private static final long[] NO_TICKS = {};
+
+    Object[] items = NO_ITEMS;
+    long[] ticks = NO_TICKS;
+    int size;
+
+    void add(Object item, long tick) {
+      if (size == items.length) {
+        int capacity = Math.max(4, size << 1);
+        items = Arrays.copyOf(items, capacity);
+        ticks = Arrays.copyOf(ticks, capacity);
+      }
+      items[size] = item;
+      ticks[size] = tick;
+      size++;
+    }
+
+    /** Moves the content of the other slot into this empty slot. */
+    Slot takeFrom(Slot other) {
+      Object[] items = this.items;
+      long[] ticks = this.ticks;
+      this.items = other.items;
+      this.ticks = other.ticks;
+      this.size = other.size;
+      other.items = items;
+      other.ticks = ticks;
+      other.size = 0;
+      return this;
+    }
+
+    void clear() {
+      Arrays.fill(items, 0, size, null);
+      size = 0;
+    }
+  }
+}
@@ -61,6 +61,8 @@ public class DefaultDataStreamsMonitoring implements DataStreamsMonitoring, Even
   private static final StatsPoint POISON_PILL =
       new StatsPoint(Collections.emptyList(), 0, 0, 0, 0, 0, 0, 0, null);
 
+  static final int MAX_GROUPS_PER_STRIPE = 1024;
+
   private final Map<Long, Map<String, StatsBucket>> timeToBucket = new HashMap<>();
   private final MpscArrayQueue<InboxItem> inbox = new MpscArrayQueue<>(1024);
   private final DatastreamsPayloadWriter payloadWriter;
@@ -69,6 +71,7 @@ public class DefaultDataStreamsMonitoring implements DataStreamsMonitoring, Even
   private final long hashOfKnownTags;
   private final Supplier<TraceConfig> traceConfigSupplier;
   private final long bucketDurationNanos;
+  private final StripedStatsBuckets stripes;
   private final Thread thread;
   private final DataStreamsPropagator propagator;
   private AgentTaskScheduler.Scheduled<DefaultDataStreamsMonitoring> cancellation;
@@ -112,7 +115,8 @@ public class DefaultDataStreamsMonitoring implements DataStreamsMonitoring, Even
         config.getWellKnownTags(),
         new MsgPackDatastreamsPayloadWriter(
             sink, config.getWellKnownTags(), DDTraceCoreInfo.VERSION, config.getPrimaryTag()),
-        Config.get().getDataStreamsBucketDurationNanoseconds());
+        Config.get().getDataStreamsBucketDurationNanoseconds(),
+        config.getDataStreamsStripes());
   }
 
   public DefaultDataStreamsMonitoring(
@@ -123,12 +127,40 @@ public class DefaultDataStreamsMonitoring implements DataStreamsMonitoring, Even
       WellKnownTags wellKnownTags,
       DatastreamsPayloadWriter payloadWriter,
       long bucketDurationNanos) {
+    this(
+        sink,
+        features,
+        timeSource,
+        traceConfigSupplier,
+        wellKnownTags,
+        payloadWriter,
+        bucketDurationNanos,
+        0);
+  }
+
+  /**
+   * @param stripes the number of tables stats points are aggregated into on the application
+   *     threads, or 0 to send every point to the data streams thread
+   */
+  public DefaultDataStreamsMonitoring(
+      Sink sink,
+      DDAgentFeaturesDiscovery features,
+      TimeSource timeSource,
+      Supplier<TraceConfig> traceConfigSupplier,
+      WellKnownTags wellKnownTags,
+      DatastreamsPayloadWriter payloadWriter,
+      long bucketDurationNanos,
+      int stripes) {
     this.features = features;
     this.timeSource = timeSource;
     this.traceConfigSupplier = traceConfigSupplier;
     this.hashOfKnownTags = DefaultPathwayContext.getBaseHash(wellKnownTags);
     this.payloadWriter = payloadWriter;
     this.bucketDurationNanos = bucketDurationNanos;
+    this.stripes =
+        stripes > 0
+            ? new StripedStatsBuckets(stripes, MAX_GROUPS_PER_STRIPE, bucketDurationNanos)
+            : null;
 
     thread = newAgentThread(DATA_STREAMS_MONITORING, new InboxProcessor());
     sink.register(this);
@@ -155,7 +187,10 @@ public class DefaultDataStreamsMonitoring implements DataStreamsMonitoring, Even
   @Override
   public void add(StatsPoint statsPoint) {
     if (thread.isAlive()) {
-      inbox.offer(statsPoint);
+      // points are discarded by the data streams thread while they can't be reported
+      if (null == stripes || !supportsDataStreams || !stripes.add(statsPoint)) {
+        inbox.offer(statsPoint);
+      }
     }
   }
 
@@ -392,6 +427,9 @@ public class DefaultDataStreamsMonitoring implements DataStreamsMonitoring, Even
 
   private void flush(long timestampNanos) {
     long currentBucket = currentBucket(timestampNanos);
+    if (null != stripes) {
+      stripes.drainBefore(currentBucket, timeToBucket);
+    }
 
     // stats are grouped by time buckets and service names
     Map<String, List<StatsBucket>> includedBuckets = new HashMap<>();
@@ -426,6 +464,9 @@ public class DefaultDataStreamsMonitoring implements DataStreamsMonitoring, Even
   public void clear() {
     timeToBucket.clear();
     schemaSamplers.clear();
+    if (null != stripes) {
+      stripes.clear();
+    }
   }
 
   void report() {
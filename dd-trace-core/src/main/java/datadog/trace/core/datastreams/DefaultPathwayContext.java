@@ -1,12 +1,7 @@
 package datadog.trace.core.datastreams;
 
-import static java.nio.charset.StandardCharsets.ISO_8859_1;
-import static java.nio.charset.StandardCharsets.UTF_8;
 import static java.util.concurrent.TimeUnit.MILLISECONDS;
 
-import com.datadoghq.sketch.ddsketch.encoding.ByteArrayInput;
-import com.datadoghq.sketch.ddsketch.encoding.GrowingByteArrayOutput;
-import com.datadoghq.sketch.ddsketch.encoding.VarEncodingHelper;
 import datadog.context.propagation.CarrierVisitor;
 import datadog.trace.api.Config;
 import datadog.trace.api.WellKnownTags;
@@ -18,11 +13,12 @@ import datadog.trace.util.FNV64Hash;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Base64;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.Lock;
@@ -38,8 +34,6 @@ public class DefaultPathwayContext implements PathwayContext {
   private final long hashOfKnownTags;
   private final TimeSource timeSource;
   private final String serviceNameOverride;
-  private final GrowingByteArrayOutput outputBuffer =
-      GrowingByteArrayOutput.withInitialCapacity(20);
 
   // pathwayStartNanos is nanoseconds since epoch
   // Nano ticks is necessary because time differences should use a monotonically increasing clock
@@ -71,6 +65,10 @@ public class DefaultPathwayContext implements PathwayContext {
               TagsProcessor.DATASET_NAMESPACE_TAG,
               TagsProcessor.MANUAL_TAG));
 
+  // nodes of recent checkpoints, shared by all contexts, as loops see the same edge tags again
+  private static final int NODE_CACHE_SIZE = 256;
+  private static final EdgeNode[] nodeCache = new EdgeNode[NODE_CACHE_SIZE];
+
   public DefaultPathwayContext(
       TimeSource timeSource, long hashOfKnownTags, String serviceNameOverride) {
     this.timeSource = timeSource;
@@ -111,13 +109,7 @@ public class DefaultPathwayContext implements PathwayContext {
     long nanoTicks = timeSource.getNanoTicks();
     lock.lock();
     try {
-      // So far, each tag key has only one tag value, so we're initializing the capacity to match
-      // the number of tag keys for now. We should revisit this later if it's no longer the case.
-      LinkedHashMap<String, String> sortedTags = context.sortedTags();
-      List<String> allTags = new ArrayList<>(sortedTags.size());
-      PathwayHashBuilder pathwayHashBuilder =
-          new PathwayHashBuilder(hashOfKnownTags, serviceNameOverride);
-      DataSetHashBuilder aggregationHashBuilder = new DataSetHashBuilder();
+      EdgeNode node = edgeNode(context.sortedTags(), hashOfKnownTags, serviceNameOverride);
 
       if (!started) {
         long defaultTimestamp = context.defaultTimestamp();
@@ -138,43 +130,29 @@ public class DefaultPathwayContext implements PathwayContext {
         log.debug("Started {}", this);
       }
 
-      for (Map.Entry<String, String> entry : sortedTags.entrySet()) {
-        String tag = TagsProcessor.createTag(entry.getKey(), entry.getValue());
-        if (tag == null) {
-          continue;
-        }
-        if (hashableTagKeys.contains(entry.getKey())) {
-          pathwayHashBuilder.addTag(tag);
-        }
-        if (extraAggregationTagKeys.contains(entry.getKey())) {
-          aggregationHashBuilder.addValue(tag);
-        }
-        allTags.add(tag);
-      }
-
-      long nodeHash = generateNodeHash(pathwayHashBuilder);
       // loop protection - a node should not be chosen as parent
       // for a sequential node with the same direction, as this
       // will cause a `cardinality explosion` for hash / parentHash tag values
-      if (sortedTags.containsKey(TagsProcessor.DIRECTION_TAG)) {
-        String direction = sortedTags.get(TagsProcessor.DIRECTION_TAG);
-        if (direction.equals(previousDirection)) {
+      if (node.hasDirection) {
+        if (node.direction.equals(previousDirection)) {
           hash = closestOppositeDirectionHash;
         } else {
-          previousDirection = direction;
+          previousDirection = node.direction;
           closestOppositeDirectionHash = hash;
         }
       }
 
-      long newHash = generatePathwayHash(nodeHash, hash);
-      long aggregationHash = aggregationHashBuilder.addValue(String.valueOf(newHash));
+      long newHash = generatePathwayHash(node.nodeHash, hash);
+      // same as adding the pathway hash to the data set hash builder of the node
+      long aggregationHash =
+          FNV64Hash.generateDecimalHash(node.aggregationHash, newHash, FNV64Hash.Version.v1);
 
       long pathwayLatencyNano = nanoTicks - pathwayStartNanoTicks;
       long edgeLatencyNano = nanoTicks - edgeStartNanoTicks;
 
       StatsPoint point =
           new StatsPoint(
-              allTags,
+              node.tags,
               newHash,
               hash,
               aggregationHash,
@@ -187,7 +165,7 @@ public class DefaultPathwayContext implements PathwayContext {
       hash = newHash;
 
       pointConsumer.accept(point);
-      log.debug("Checkpoint set {}, hash source: {}", this, pathwayHashBuilder);
+      log.debug("Checkpoint set {}, edge tags: {}", this, node.tags);
     } finally {
       lock.unlock();
     }
@@ -211,19 +189,18 @@ public class DefaultPathwayContext implements PathwayContext {
         throw new IllegalStateException("Context must be started to encode");
       }
 
-      outputBuffer.clear();
-      outputBuffer.writeLongLE(hash);
+      PathwayBase64.Writer output = new PathwayBase64.Writer();
+      output.writeLongLE(hash);
 
       long pathwayStartMillis = TimeUnit.NANOSECONDS.toMillis(pathwayStartNanos);
-      VarEncodingHelper.encodeSignedVarLong(outputBuffer, pathwayStartMillis);
+      output.writeSignedVarLong(pathwayStartMillis);
 
       long edgeStartMillis =
           pathwayStartMillis
               + TimeUnit.NANOSECONDS.toMillis(edgeStartNanoTicks - pathwayStartNanoTicks);
 
-      VarEncodingHelper.encodeSignedVarLong(outputBuffer, edgeStartMillis);
-      byte[] base64 = Base64.getEncoder().encode(outputBuffer.trimmedCopy());
-      return new String(base64, ISO_8859_1);
+      output.writeSignedVarLong(edgeStartMillis);
+      return output.toString();
     } finally {
       lock.unlock();
     }
@@ -297,13 +274,11 @@ public class DefaultPathwayContext implements PathwayContext {
   private static DefaultPathwayContext decode(
       TimeSource timeSource, long hashOfKnownTags, String serviceNameOverride, String base64)
       throws IOException {
-    byte[] base64Bytes = base64.getBytes(UTF_8);
-    byte[] bytes = Base64.getDecoder().decode(base64Bytes);
-    ByteArrayInput input = ByteArrayInput.wrap(bytes);
+    PathwayBase64.Reader input = new PathwayBase64.Reader(base64);
 
     long hash = input.readLongLE();
 
-    long pathwayStartMillis = VarEncodingHelper.decodeSignedVarLong(input);
+    long pathwayStartMillis = input.readSignedVarLong();
     long pathwayStartNanos = TimeUnit.MILLISECONDS.toNanos(pathwayStartMillis);
 
     // Convert the start time to the current JVM's nanoclock
@@ -312,7 +287,7 @@ public class DefaultPathwayContext implements PathwayContext {
     long nowNanoTicks = timeSource.getNanoTicks();
     long pathwayStartNanoTicks = nowNanoTicks - nanosSinceStart;
 
-    long edgeStartMillis = VarEncodingHelper.decodeSignedVarLong(input);
+    long edgeStartMillis = input.readSignedVarLong();
     long edgeStartNanoTicks =
         pathwayStartNanoTicks + TimeUnit.MILLISECONDS.toNanos(edgeStartMillis - pathwayStartMillis);
 
@@ -366,14 +341,105 @@ public class DefaultPathwayContext implements PathwayContext {
     return FNV64Hash.generateHash(builder.toString(), FNV64Hash.Version.v1);
   }
 
-  private long generateNodeHash(PathwayHashBuilder pathwayHashBuilder) {
-    return pathwayHashBuilder.getHash();
+  private static long generatePathwayHash(long nodeHash, long parentHash) {
+    return FNV64Hash.generateHashLE(nodeHash, parentHash, FNV64Hash.Version.v1);
   }
 
-  private long generatePathwayHash(long nodeHash, long parentHash) {
-    outputBuffer.clear();
-    outputBuffer.writeLongLE(nodeHash);
-    outputBuffer.writeLongLE(parentHash);
-    return FNV64Hash.generateHash(outputBuffer.backingArray(), 0, 16, FNV64Hash.Version.v1);
+  private static EdgeNode edgeNode(
+      LinkedHashMap<String, String> sortedTags, long hashOfKnownTags, String serviceNameOverride) {
+    int hash = EdgeNode.hash(sortedTags, hashOfKnownTags, serviceNameOverride);
+    int index = hash & (NODE_CACHE_SIZE - 1);
+    EdgeNode node = nodeCache[index];
+    if (null == node || !node.matches(hash, sortedTags, hashOfKnownTags, serviceNameOverride)) {
+      node = new EdgeNode(hash, sortedTags, hashOfKnownTags, serviceNameOverride);
+      // racy, but nodes are immutable
+      nodeCache[index] = node;
+    }
+    return node;
+  }
+
+  /** The edge tags of a checkpoint, with the hashes they contribute to the pathway. */
+  private static final class EdgeNode {
+    final int hash;
+    final long hashOfKnownTags;
+    final String serviceNameOverride;
+    // the keys and values of the sorted tags, in order
+    final String[] keysAndValues;
+    final List<String> tags;
+    final long nodeHash;
+    // the state of the data set hash builder once the extra aggregation tags have been added
+    final long aggregationHash;
+    final boolean hasDirection;
+    final String direction;
+
+    EdgeNode(
+        int hash,
+        LinkedHashMap<String, String> sortedTags,
+        long hashOfKnownTags,
+        String serviceNameOverride) {
+      this.hash = hash;
+      this.hashOfKnownTags = hashOfKnownTags;
+      this.serviceNameOverride = serviceNameOverride;
+      this.keysAndValues = new String[sortedTags.size() * 2];
+      // So far, each tag key has only one tag value, so we're initializing the capacity to match
+      // the number of tag keys for now. We should revisit this later if it's no longer the case.
+      List<String> allTags = new ArrayList<>(sortedTags.size());
+      PathwayHashBuilder pathwayHashBuilder =
+          new PathwayHashBuilder(hashOfKnownTags, serviceNameOverride);
+      DataSetHashBuilder aggregationHashBuilder = new DataSetHashBuilder();
+      long aggregationHash = 0;
+      int i = 0;
+      for (Map.Entry<String, String> entry : sortedTags.entrySet()) {
+        keysAndValues[i++] = entry.getKey();
+        keysAndValues[i++] = entry.getValue();
+        String tag = TagsProcessor.createTag(entry.getKey(), entry.getValue());
+        if (tag == null) {
+          continue;
+        }
+        if (hashableTagKeys.contains(entry.getKey())) {
+          pathwayHashBuilder.addTag(tag);
+        }
+        if (extraAggregationTagKeys.contains(entry.getKey())) {
+          aggregationHash = aggregationHashBuilder.addValue(tag);
+        }
+        allTags.add(tag);
+      }
+      this.tags = Collections.unmodifiableList(allTags);
+      this.nodeHash = pathwayHashBuilder.getHash();
+      this.aggregationHash = aggregationHash;
+      this.hasDirection = sortedTags.containsKey(TagsProcessor.DIRECTION_TAG);
+      this.direction = sortedTags.get(TagsProcessor.DIRECTION_TAG);
+    }
+
+    static int hash(
+        LinkedHashMap<String, String> sortedTags, long hashOfKnownTags, String serviceNameOverride) {
+      int hash = Long.hashCode(hashOfKnownTags) * 31 + Objects.hashCode(serviceNameOverride);
+      for (Map.Entry<String, String> entry : sortedTags.entrySet()) {
+        hash = hash * 31 + Objects.hashCode(entry.getKey());
+        hash = hash * 31 + Objects.hashCode(entry.getValue());
+      }
+      return hash ^ (hash >>> 16);
+    }
+
+    boolean matches(
+        int hash,
+        LinkedHashMap<String, String> sortedTags,
+        long hashOfKnownTags,
+        String serviceNameOverride) {
+      if (this.hash != hash
+          || this.hashOfKnownTags != hashOfKnownTags
+          || !Objects.equals(this.serviceNameOverride, serviceNameOverride)
+          || keysAndValues.length != sortedTags.size() * 2) {
+        return false;
+      }
+      int i = 0;
+      for (Map.Entry<String, String> entry : sortedTags.entrySet()) {
+        if (!Objects.equals(keysAndValues[i++], entry.getKey())
+            || !Objects.equals(keysAndValues[i++], entry.getValue())) {
+          return false;
+        }
+      }
+      return true;
+    }
   }
 }
@@ -0,0 +1,136 @@
+package datadog.trace.core.datastreams;
+
+import static java.nio.charset.StandardCharsets.ISO_8859_1;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Base64 encoding of pathway contexts, converting a byte at a time, without the intermediate
+ * arrays of {@link java.util.Base64}.
+ *
+ * <p>A pathway context is the pathway hash as a little-endian long, followed by the pathway and
+ * edge start times in milliseconds as zigzag variable-length longs, in the format of the DDSketch
+ * {@code VarEncodingHelper}. Encoding is padded, decoding accepts values with and without padding.
+ */
+final class PathwayBase64 {
+  private static final byte[] ALPHABET =
+      "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/".getBytes(ISO_8859_1);
+  private static final byte[] DIGITS = new byte[128];
+
+  static {
+    Arrays.fill(DIGITS, (byte) -1);
+    for (int i = 0; i < ALPHABET.length; i++) {
+      DIGITS[ALPHABET[i]] = (byte) i;
+    }
+  }
+
+  // the hash and two variable-length longs of at most 9 bytes each
+  private static final int MAX_ENCODED_LENGTH = (8 + 9 + 9 + 2) / 3 * 4;
+
+  private PathwayBase64() {}
+
+  static final class Writer {
+    private final byte[] output = new byte[MAX_ENCODED_LENGTH];
+    private int length;
+    private int bits;
+    private int pending;
+
+    void writeLongLE(long value) {
+      for (int i = 0; i < 8; i++) {
+        write((int) (value >>> (i * 8)));
+      }
+    }
+
+    void writeSignedVarLong(long value) {
+      long unsigned = (value >> 63) ^ (value << 1);
+      // at most 9 bytes, the last one holding 8 bits instead of 7
+      int continuations = Math.min((63 - Long.numberOfLeadingZeros(unsigned)) / 7, 8);
+      for (int i = 0; i < continuations; i++) {
+        write((int) (unsigned | 0x80));
+        unsigned >>>= 7;
+      }
+      write((int) unsigned);
+    }
+
+    private void write(int b) {
+      bits = (bits << 8) | (b & 0xFF);
+      if (++pending == 3) {
+        output[length++] = ALPHABET[(bits >>> 18) & 0x3F];
+        output[length++] = ALPHABET[(bits >>> 12) & 0x3F];
+        output[length++] = ALPHABET[(bits >>> 6) & 0x3F];
+        output[length++] = ALPHABET[bits & 0x3F];
+        bits = 0;
+        pending = 0;
+      }
+    }
+
+    @Override
+    public String toString() {
+      int end = length;
+      byte[] output = this.output;
+      if (pending == 1) {
+        output[end++] = ALPHABET[(bits >>> 2) & 0x3F];
+        output[end++] = ALPHABET[(bits << 4) & 0x3F];
+        output[end++] = '=';
+        output[end++] = '=';
+      } else if (pending == 2) {
+        output[end++] = ALPHABET[(bits >>> 10) & 0x3F];
+        output[end++] = ALPHABET[(bits >>> 4) & 0x3F];
+        output[end++] = ALPHABET[(bits << 2) & 0x3F];
+        output[end++] = '=';
+      }
+      return new String(output, 0, end, ISO_8859_1);
+    }
+  }
+
+  static final class Reader {
+    private final CharSequence input;
+    private int position;
+    private int bits;
+    private int available;
+
+    Reader(CharSequence input) {
+      this.input = input;
+    }
+
+    long readLongLE() throws IOException {
+      long value = 0;
+      for (int i = 0; i < 8; i++) {
+        value |= (long) read() << (i * 8);
+      }
+      return value;
+    }
+
+    long readSignedVarLong() throws IOException {
+      long unsigned = 0;
+      for (int shift = 0; ; shift += 7) {
+        int next = read();
+        if (next < 0x80 || shift == 56) {
+          unsigned |= (long) next << shift;
+          break;
+        }
+        unsigned |= (long) (next & 0x7F) << shift;
+      }
+      return (unsigned >>> 1) ^ -(unsigned & 1);
+    }
+
+    private int read() throws IOException {
+      while (available < 8) {
+        if (position >= input.length()) {
+          throw new IOException("Truncated pathway context");
+        }
+        char c = input.charAt(position++);
+        int digit = c < DIGITS.length ? DIGITS[c] : -1;
+        if (digit < 0) {
+          throw new IOException("Invalid character in pathway context");
+        }
+        // only the low bits which haven't been read yet matter
+        bits = (bits << 6) | digit;
+        available += 6;
+      }
+      available -= 8;
+      return (bits >>> available) & 0xFF;
+    }
+  }
+}
@@ -39,6 +39,14 @@ public class StatsBucket {
         statsPoint.getPayloadSizeBytes());
   }
 
+  /** Adds a group aggregated elsewhere, merging it with the group of the same pathway. */
+  void addGroup(long aggregationHash, StatsGroup group) {
+    StatsGroup statsGroup = hashToGroup.putIfAbsent(aggregationHash, group);
+    if (statsGroup != null) {
+      statsGroup.mergeWith(group);
+    }
+  }
+
   public void addBacklog(Backlog backlog) {
     backlogs.compute(
         backlog.getSortedTags(),
@@ -0,0 +1,179 @@
+package datadog.trace.core.datastreams;
+
+import datadog.trace.api.datastreams.StatsPoint;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Aggregates stats points on the application threads, so the data streams thread only has to
+ * collect the completed time buckets when reporting instead of receiving every point through its
+ * inbox.
+ *
+ * <p>Threads are spread over the stripes by id, so a stripe's lock is mostly taken by the same
+ * thread and only contended by the data streams thread while it collects buckets. Each stripe is a
+ * pre-allocated open-addressed table of {@link StatsGroup}, keyed by the aggregation hash of the
+ * pathway, the start of the time bucket and the service name override. Recording into a group
+ * already known to the stripe does not allocate.
+ */
+final class StripedStatsBuckets {
+  private final long bucketDurationNanos;
+  private final Stripe[] stripes;
+  private final int mask;
+
+  StripedStatsBuckets(int stripes, int maxGroupsPerStripe, long bucketDurationNanos) {
+    int count = Integer.highestOneBit(Math.max(1, stripes) * 2 - 1);
+    this.stripes = new Stripe[count];
+    for (int i = 0; i < count; ++i) {
+      this.stripes[i] = new Stripe(maxGroupsPerStripe);
+    }
+    this.mask = count - 1;
+    this.bucketDurationNanos = bucketDurationNanos;
+  }
+
+  /**
+   * Records the latencies and payload size of the point in the group of its pathway.
+   *
+   * @return false if the stripe is full, the point must then be published some other way
+   */
+  boolean add(StatsPoint point) {
+    long timestampNanos = point.getTimestampNanos();
+    long bucketStart = timestampNanos - (timestampNanos % bucketDurationNanos);
+    Stripe stripe = stripes[(int) Thread.currentThread().getId() & mask];
+    synchronized (stripe) {
+      return stripe.add(point, bucketStart);
+    }
+  }
+
+  /**
+   * Moves the groups of the buckets which started before the given time into the stats buckets,
+   * grouped by bucket start and service name override. Must only be called by the data streams
+   * thread.
+   */
+  void drainBefore(long bucketStart, Map<Long, Map<String, StatsBucket>> timeToBucket) {
+    for (Stripe stripe : stripes) {
+      synchronized (stripe) {
+        stripe.drainBefore(bucketStart, timeToBucket, bucketDurationNanos);
+      }
+    }
+  }
+
+  void clear() {
+    for (Stripe stripe : stripes) {
+      synchronized (stripe) {
+        stripe.live.clear();
+      }
+    }
+  }
+
+  /** Pair of tables, the spare one taking over while the buckets of the live one are drained. */
+  private static final class Stripe {
+    private final int maxSize;
+    Table live;
+    Table spare;
+
+    Stripe(int maxSize) {
+      this.maxSize = maxSize;
+      // keep the load factor under 0.75 when full, so the tables never have to grow
+      int capacity = Integer.highestOneBit(Math.max(4, maxSize * 4 / 3) * 2 - 1);
+      this.live = new Table(capacity);
+      this.spare = new Table(capacity);
+    }
+
+    boolean add(StatsPoint point, long bucketStart) {
+      long hash = point.getAggregationHash();
+      String service = point.getServiceNameOverride();
+      Table table = live;
+      int index = table.indexOf(hash, bucketStart, service);
+      StatsGroup group = table.groups[index];
+      if (null == group) {
+        if (table.size >= maxSize) {
+          return false;
+        }
+        group = new StatsGroup(point.getEdgeTags(), point.getHash(), point.getParentHash());
+        table.insert(index, hash, bucketStart, service, group);
+      }
+      group.add(
+          point.getPathwayLatencyNano(), point.getEdgeLatencyNano(), point.getPayloadSizeBytes());
+      return true;
+    }
+
+    void drainBefore(
+        long bucketStart,
+        Map<Long, Map<String, StatsBucket>> timeToBucket,
+        long bucketDurationNanos) {
+      Table drained = live;
+      if (drained.size == 0) {
+        return;
+      }
+      live = spare;
+      spare = drained;
+      for (int i = 0; i < drained.groups.length; ++i) {
+        StatsGroup group = drained.groups[i];
+        if (null == group) {
+          continue;
+        }
+        long start = drained.bucketStarts[i];
+        String service = drained.services[i];
+        if (start < bucketStart) {
+          timeToBucket
+              .computeIfAbsent(start, s -> new HashMap<>(1))
+              .computeIfAbsent(service, s -> new StatsBucket(start, bucketDurationNanos))
+              .addGroup(drained.hashes[i], group);
+        } else {
+          long hash = drained.hashes[i];
+          live.insert(live.indexOf(hash, start, service), hash, start, service, group);
+        }
+      }
+      drained.clear();
+    }
+  }
+
+  private static final class Table {
+    final long[] hashes;
+    final long[] bucketStarts;
+    final String[] services;
+    final StatsGroup[] groups;
+    int size;
+
+    Table(int capacity) {
+      this.hashes = new long[capacity];
+      this.bucketStarts = new long[capacity];
+      this.services = new String[capacity];
+      this.groups = new StatsGroup[capacity];
+    }
+
+    /** Returns the index of the matching group, or the empty index where it would be inserted. */
+    int indexOf(long hash, long bucketStart, String service) {
+      int mask = groups.length - 1;
+      int index = spread(hash, bucketStart) & mask;
+      while (null != groups[index]
+          && (hashes[index] != hash
+              || bucketStarts[index] != bucketStart
+              || !Objects.equals(services[index], service))) {
+        index = (index + 1) & mask;
+      }
+      return index;
+    }
+
+    void insert(int index, long hash, long bucketStart, String service, StatsGroup group) {
+      hashes[index] = hash;
+      bucketStarts[index] = bucketStart;
+      services[index] = service;
+      groups[index] = group;
+      ++size;
+    }
+
+    void clear() {
+      Arrays.fill(services, null);
+      Arrays.fill(groups, null);
+      size = 0;
+    }
+
+    private static int spread(long hash, long bucketStart) {
+      long h = (hash ^ bucketStart) * 0x9E3779B97F4A7C15L;
+      return (int) (h ^ (h >>> 32));
+    }
+  }
+}
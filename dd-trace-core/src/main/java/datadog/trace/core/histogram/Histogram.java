@@ -47,6 +47,11 @@ public class Histogram implements AgentHistogram {
     return sketch.getMaxValue();
   }
 
+  /** Adds the values of the other histogram to this one. */
+  public void mergeWith(Histogram other) {
+    sketch.mergeWith(other.sketch);
+  }
+
   @Override
   public void clear() {
     sketch.clear();
@@ -73,6 +73,19 @@ public abstract class HealthMetrics implements AutoCloseable {
 
   public void onLongRunningUpdate(final int dropped, final int write, final int expired) {}
 
+  /**
+   * @param backlog number of partial traces waiting to be written
+   * @param scheduled number of times traces were set aside until they can be written
+   * @param overflowed number of traces which couldn't be set aside because of the backlog
+   */
+  public void onPendingTraceBacklog(final int backlog, final int scheduled, final int overflowed) {}
+
+  public void onSpill(final int traceCount, final int sizeInBytes) {}
+
+  public void onSpillReplay(final int traceCount) {}
+
+  public void onSpillDrop(final int traceCount) {}
+
   /** @return Human-readable summary of the current health metrics. */
   public String summary() {
     return "";
@@ -10,12 +10,15 @@ import static datadog.trace.bootstrap.instrumentation.api.Tags.SPAN_KIND_CLIENT;
 import static java.util.concurrent.TimeUnit.SECONDS;
 
 import datadog.trace.api.StatsDClient;
+import datadog.trace.api.cache.DDCacheStats;
 import datadog.trace.api.cache.RadixTreeCache;
 import datadog.trace.bootstrap.instrumentation.api.ScopeSource;
 import datadog.trace.common.writer.RemoteApi;
 import datadog.trace.core.DDSpan;
 import datadog.trace.util.AgentTaskScheduler;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.IntFunction;
@@ -133,6 +136,21 @@ public class TracerHealthMetrics extends HealthMetrics implements AutoCloseable
   private final FixedSizeStripedLongCounter longRunningTracesExpired =
       CountersFactory.createFixedSizeStripedCounter(8);
 
+  private final FixedSizeStripedLongCounter scheduledPendingTraces =
+      CountersFactory.createFixedSizeStripedCounter(8);
+  private final FixedSizeStripedLongCounter overflowedPendingTraces =
+      CountersFactory.createFixedSizeStripedCounter(8);
+  private volatile int pendingTraceBacklog;
+
+  private final FixedSizeStripedLongCounter spilledTraces =
+      CountersFactory.createFixedSizeStripedCounter(8);
+  private final FixedSizeStripedLongCounter spilledBytes =
+      CountersFactory.createFixedSizeStripedCounter(8);
+  private final FixedSizeStripedLongCounter replayedTraces =
+      CountersFactory.createFixedSizeStripedCounter(8);
+  private final FixedSizeStripedLongCounter spillDroppedTraces =
+      CountersFactory.createFixedSizeStripedCounter(8);
+
   private final StatsDClient statsd;
   private final long interval;
   private final TimeUnit units;
@@ -338,6 +356,29 @@ public class TracerHealthMetrics extends HealthMetrics implements AutoCloseable
     longRunningTracesExpired.inc(expired);
   }
 
+  @Override
+  public void onPendingTraceBacklog(final int backlog, final int scheduled, final int overflowed) {
+    pendingTraceBacklog = backlog;
+    scheduledPendingTraces.inc(scheduled);
+    overflowedPendingTraces.inc(overflowed);
+  }
+
+  @Override
+  public void onSpill(final int traceCount, final int sizeInBytes) {
+    spilledTraces.inc(traceCount);
+    spilledBytes.inc(sizeInBytes);
+  }
+
+  @Override
+  public void onSpillReplay(final int traceCount) {
+    replayedTraces.inc(traceCount);
+  }
+
+  @Override
+  public void onSpillDrop(final int traceCount) {
+    spillDroppedTraces.inc(traceCount);
+  }
+
   private void onSendAttempt(
       final int traceCount, final int sizeInBytes, final RemoteApi.Response response) {
     apiRequests.inc();
@@ -378,8 +419,11 @@ public class TracerHealthMetrics extends HealthMetrics implements AutoCloseable
     private static final String[] UNSET_TAG = new String[] {"priority:unset"};
     private static final String[] SINGLE_SPAN_SAMPLER = new String[] {"sampler:single-span"};
 
-    private final long[] previousCounts = new long[43];
+    private final long[] previousCounts = new long[49];
     private int countIndex;
+    private int previousPendingTraceBacklog;
+    // hits, misses, evictions and compute time last reported for each named cache
+    private final Map<String, long[]> previousCacheStats = new HashMap<>();
 
     @Override
     public void run(TracerHealthMetrics target) {
@@ -489,6 +533,23 @@ public class TracerHealthMetrics extends HealthMetrics implements AutoCloseable
         reportIfChanged(
             target.statsd, "long-running.expired", target.longRunningTracesExpired, NO_TAGS);
 
+        reportIfChanged(
+            target.statsd, "pending.scheduled.traces", target.scheduledPendingTraces, NO_TAGS);
+        reportIfChanged(
+            target.statsd, "pending.overflowed.traces", target.overflowedPendingTraces, NO_TAGS);
+        int backlog = target.pendingTraceBacklog;
+        if (backlog != previousPendingTraceBacklog) {
+          target.statsd.gauge("pending.backlog.traces", backlog, NO_TAGS);
+          previousPendingTraceBacklog = backlog;
+        }
+
+        reportIfChanged(target.statsd, "spill.traces", target.spilledTraces, NO_TAGS);
+        reportIfChanged(target.statsd, "spill.bytes", target.spilledBytes, NO_TAGS);
+        reportIfChanged(target.statsd, "spill.replayed.traces", target.replayedTraces, NO_TAGS);
+        reportIfChanged(target.statsd, "spill.dropped.traces", target.spillDroppedTraces, NO_TAGS);
+
+        DDCacheStats.forEach((name, stats) -> reportCacheStats(target.statsd, name, stats));
+
       } catch (ArrayIndexOutOfBoundsException e) {
         log.warn(
             "previousCounts array needs resizing to at least {}, was {}",
@@ -497,6 +558,33 @@ public class TracerHealthMetrics extends HealthMetrics implements AutoCloseable
       }
     }
 
+    private void reportCacheStats(StatsDClient statsDClient, String name, DDCacheStats stats) {
+      long[] previous = previousCacheStats.get(name);
+      if (null == previous) {
+        previous = new long[4];
+        previousCacheStats.put(name, previous);
+      }
+      String[] tags = new String[] {"cache:" + name};
+      previous[0] = reportIfChanged(statsDClient, "cache.hits", stats.hits(), previous[0], tags);
+      previous[1] =
+          reportIfChanged(statsDClient, "cache.misses", stats.misses(), previous[1], tags);
+      previous[2] =
+          reportIfChanged(statsDClient, "cache.evictions", stats.evictions(), previous[2], tags);
+      previous[3] =
+          reportIfChanged(
+              statsDClient, "cache.compute.nanos", stats.computeNanos(), previous[3], tags);
+    }
+
+    private static long reportIfChanged(
+        StatsDClient statsDClient, String aspect, long count, long previousCount, String[] tags) {
+      long delta = count - previousCount;
+      if (delta > 0) {
+        statsDClient.count(aspect, delta, tags);
+        return count;
+      }
+      return previousCount;
+    }
+
     private void reportIfChanged(
         StatsDClient statsDClient,
         String aspect,
@@ -607,6 +695,22 @@ public class TracerHealthMetrics extends HealthMetrics implements AutoCloseable
         + "\nlongRunningTracesDropped="
         + longRunningTracesDropped.get()
         + "\nlongRunningTracesExpired="
-        + longRunningTracesExpired.get();
+        + longRunningTracesExpired.get()
+        + "\n"
+        + "\npendingTraceBacklog="
+        + pendingTraceBacklog
+        + "\nscheduledPendingTraces="
+        + scheduledPendingTraces.get()
+        + "\noverflowedPendingTraces="
+        + overflowedPendingTraces.get()
+        + "\n"
+        + "\nspilledTraces="
+        + spilledTraces.get()
+        + "\nspilledBytes="
+        + spilledBytes.get()
+        + "\nreplayedTraces="
+        + replayedTraces.get()
+        + "\nspillDroppedTraces="
+        + spillDroppedTraces.get();
   }
 }
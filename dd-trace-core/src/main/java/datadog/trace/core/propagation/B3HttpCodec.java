@@ -30,7 +30,7 @@ class B3HttpCodec {
   private static final String B3_SPAN_ID = "b3.spanid";
   static final String TRACE_ID_KEY = "X-B3-TraceId";
   static final String SPAN_ID_KEY = "X-B3-SpanId";
-  private static final String SAMPLING_PRIORITY_KEY = "X-B3-Sampled";
+  static final String SAMPLING_PRIORITY_KEY = "X-B3-Sampled";
   // See https://github.com/openzipkin/b3-propagation#single-header for b3 header documentation
   private static final String B3_KEY = "b3";
   private static final String SAMPLING_PRIORITY_ACCEPT = String.valueOf(1);
@@ -229,35 +229,23 @@ class B3HttpCodec {
         log.debug("Header: {}", key);
       }
       try {
-        char first = Character.toLowerCase(key.charAt(0));
-        switch (first) {
-          case 'x':
-            if (TRACE_ID_KEY.equalsIgnoreCase(key)) {
-              setTraceId(firstHeaderValue(value));
-              return true;
-            } else if (SPAN_ID_KEY.equalsIgnoreCase(key)) {
-              setSpanId(firstHeaderValue(value));
-              return true;
-            } else if (SAMPLING_PRIORITY_KEY.equalsIgnoreCase(key)) {
-              samplingPriority = convertSamplingPriority(firstHeaderValue(value));
-              return true;
-            } else if (handledXForwarding(key, value)) {
-              return true;
-            }
-            break;
-          case 'f':
-            if (handledForwarding(key, value)) {
-              return true;
-            }
-            break;
-          case 'u':
-            if (handledUserAgent(key, value)) {
+        int header = KnownHeaders.classify(key);
+        switch (header) {
+          case KnownHeaders.B3_TRACE_ID:
+            setTraceId(firstHeaderValue(value));
+            return true;
+          case KnownHeaders.B3_SPAN_ID:
+            setSpanId(firstHeaderValue(value));
+            return true;
+          case KnownHeaders.B3_SAMPLED:
+            samplingPriority = convertSamplingPriority(firstHeaderValue(value), 0);
+            return true;
+          default:
+            if (handledKnownHeader(header, key, value)) {
               return true;
             }
-            break;
-          default:
         }
-        if (handledIpHeaders(key, value)) {
+        if (handledCustomIpHeader(key, value)) {
           return true;
         }
         handleTags(key, value);
@@ -291,27 +279,10 @@ class B3HttpCodec {
         }
         if (B3_KEY.equals(key)) {
           return extractB3(firstHeaderValue(value));
-        } else {
-          char first = Character.toLowerCase(key.charAt(0));
-          switch (first) {
-            case 'x':
-              if (handledXForwarding(key, value)) {
-                return true;
-              }
-              break;
-            case 'f':
-              if (handledForwarding(key, value)) {
-                return true;
-              }
-              break;
-            case 'u':
-              if (handledUserAgent(key, value)) {
-                return true;
-              }
-              break;
-          }
+        } else if (handledKnownHeader(KnownHeaders.classify(key), key, value)) {
+          return true;
         }
-        if (handledIpHeaders(key, value)) {
+        if (handledCustomIpHeader(key, value)) {
           return true;
         }
         handleTags(key, value);
@@ -325,7 +296,7 @@ class B3HttpCodec {
 
     private boolean extractB3(final String firstValue) {
       if (firstValue.length() == 1) {
-        samplingPriority = convertSamplingPriority(firstValue);
+        samplingPriority = convertSamplingPriority(firstValue, 0);
       } else {
         final int firstIndex = firstValue.indexOf("-");
         final int secondIndex = firstValue.indexOf("-", firstIndex + 1);
@@ -341,16 +312,16 @@ class B3HttpCodec {
         } else {
           final String b3SpanId = firstValue.substring(firstIndex + 1, secondIndex);
           setSpanId(b3SpanId);
-          final String b3SamplingId = firstValue.substring(secondIndex + 1);
-          samplingPriority = convertSamplingPriority(b3SamplingId);
+          samplingPriority = convertSamplingPriority(firstValue, secondIndex + 1);
         }
       }
       return true;
     }
   }
 
-  private static int convertSamplingPriority(final String samplingPriority) {
-    return "1".equals(samplingPriority)
+  /** Converts the sampling flag at the end of the value, starting at the given index. */
+  private static int convertSamplingPriority(final String value, final int start) {
+    return value.length() == start + 1 && value.charAt(start) == '1'
         ? PrioritySampling.SAMPLER_KEEP
         : PrioritySampling.SAMPLER_DROP;
   }
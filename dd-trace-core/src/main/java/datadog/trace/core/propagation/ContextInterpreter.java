@@ -182,6 +182,78 @@ public abstract class ContextInterpreter implements AgentPropagation.KeyClassifi
     return false;
   }
 
+  /**
+   * Handles the forwarding, user agent and client ip headers classified by {@link KnownHeaders},
+   * like the other handled* methods would but without comparing the name with each of them.
+   */
+  protected final boolean handledKnownHeader(int header, String key, String value) {
+    if (value == null) {
+      return false;
+    }
+    if (header == KnownHeaders.USER_AGENT) {
+      getHeaders().userAgent = value;
+      return true;
+    }
+    if (KnownHeaders.isClientIp(header) && handledCustomIpHeader(key, value)) {
+      return true;
+    }
+    if (!collectIpHeaders) {
+      return false;
+    }
+    switch (header) {
+      case KnownHeaders.FORWARDED:
+        getHeaders().forwarded = value;
+        return true;
+      case KnownHeaders.FORWARDED_FOR:
+        getHeaders().forwardedFor = value;
+        return true;
+      case KnownHeaders.X_FORWARDED_PROTO:
+        getHeaders().xForwardedProto = value;
+        return true;
+      case KnownHeaders.X_FORWARDED_HOST:
+        getHeaders().xForwardedHost = value;
+        return true;
+      case KnownHeaders.X_FORWARDED_FOR:
+        getHeaders().xForwardedFor = value;
+        return true;
+      case KnownHeaders.X_FORWARDED_PORT:
+        getHeaders().xForwardedPort = value;
+        return true;
+      case KnownHeaders.X_CLUSTER_CLIENT_IP:
+        getHeaders().xClusterClientIp = value;
+        return true;
+      case KnownHeaders.X_REAL_IP:
+        getHeaders().xRealIp = value;
+        return true;
+      case KnownHeaders.X_CLIENT_IP:
+        getHeaders().xClientIp = value;
+        return true;
+      case KnownHeaders.TRUE_CLIENT_IP:
+        getHeaders().trueClientIp = value;
+        return true;
+      case KnownHeaders.FASTLY_CLIENT_IP:
+        getHeaders().fastlyClientIp = value;
+        return true;
+      case KnownHeaders.CF_CONNECTING_IP:
+        getHeaders().cfConnectingIp = value;
+        return true;
+      case KnownHeaders.CF_CONNECTING_IP_V6:
+        getHeaders().cfConnectingIpv6 = value;
+        return true;
+      default:
+        return false;
+    }
+  }
+
+  /** Handles the client ip header configured by the user, whatever its name. */
+  protected final boolean handledCustomIpHeader(String key, String value) {
+    if (null != value && customIpHeaderName != null && customIpHeaderName.equalsIgnoreCase(key)) {
+      getHeaders().customIpHeader = value;
+      return true;
+    }
+    return false;
+  }
+
   protected final boolean handleTags(String key, String value) {
     if (headerTags.isEmpty() || value == null) {
       return false;
@@ -3,7 +3,6 @@ package datadog.trace.core.propagation;
 import static datadog.trace.api.TracePropagationStyle.DATADOG;
 import static datadog.trace.core.propagation.HttpCodec.firstHeaderValue;
 import static datadog.trace.core.propagation.XRayHttpCodec.XRayContextInterpreter.handleXRayTraceHeader;
-import static datadog.trace.core.propagation.XRayHttpCodec.X_AMZN_TRACE_ID;
 import static java.util.concurrent.TimeUnit.MILLISECONDS;
 import static java.util.concurrent.TimeUnit.NANOSECONDS;
 
@@ -14,6 +13,7 @@ import datadog.trace.api.DDTags;
 import datadog.trace.api.DDTraceId;
 import datadog.trace.api.TraceConfig;
 import datadog.trace.api.TracePropagationStyle;
+import datadog.trace.api.sampling.PrioritySampling;
 import datadog.trace.bootstrap.instrumentation.api.AgentPropagation;
 import datadog.trace.bootstrap.instrumentation.api.TagContext;
 import datadog.trace.core.DDSpanContext;
@@ -44,6 +44,17 @@ class DatadogHttpCodec {
     return new Injector(invertedBaggageMapping);
   }
 
+  // the header values of the sampling priorities from USER_DROP to USER_KEEP
+  private static final String[] SAMPLING_PRIORITY_VALUES = {"-1", "0", "1", "2"};
+
+  private static String samplingPriorityValue(DDSpanContext context) {
+    int samplingPriority = context.getSamplingPriority();
+    int index = samplingPriority - PrioritySampling.USER_DROP;
+    return index >= 0 && index < SAMPLING_PRIORITY_VALUES.length
+        ? SAMPLING_PRIORITY_VALUES[index]
+        : String.valueOf(samplingPriority);
+  }
+
   private static class Injector implements HttpCodec.Injector {
 
     private final Map<String, String> invertedBaggageMapping;
@@ -58,9 +69,9 @@ class DatadogHttpCodec {
         final DDSpanContext context, final C carrier, final AgentPropagation.Setter<C> setter) {
 
       setter.set(carrier, TRACE_ID_KEY, context.getTraceId().toString());
-      setter.set(carrier, SPAN_ID_KEY, DDSpanId.toString(context.getSpanId()));
+      setter.set(carrier, SPAN_ID_KEY, context.getSpanIdString());
       if (context.lockSamplingPriority()) {
-        setter.set(carrier, SAMPLING_PRIORITY_KEY, String.valueOf(context.getSamplingPriority()));
+        setter.set(carrier, SAMPLING_PRIORITY_KEY, samplingPriorityValue(context));
       }
       final CharSequence origin = context.getOrigin();
       if (origin != null) {
@@ -124,45 +135,42 @@ class DatadogHttpCodec {
       }
       String lowerCaseKey = null;
       int classification = IGNORE;
-      char first = Character.toLowerCase(key.charAt(0));
-      switch (first) {
-        case 'x':
-          if (TRACE_ID_KEY.equalsIgnoreCase(key)) {
-            classification = TRACE_ID;
-          } else if (SPAN_ID_KEY.equalsIgnoreCase(key)) {
-            classification = SPAN_ID;
-          } else if (SAMPLING_PRIORITY_KEY.equalsIgnoreCase(key)) {
-            classification = SAMPLING_PRIORITY;
-          } else if (ORIGIN_KEY.equalsIgnoreCase(key)) {
-            classification = ORIGIN;
-          } else if (isAwsPropagationEnabled && X_AMZN_TRACE_ID.equalsIgnoreCase(key)) {
-            handleXRayTraceHeader(this, value);
-            return true;
-          } else if (handledXForwarding(key, value)) {
-            return true;
-          } else if (DATADOG_TAGS_KEY.equalsIgnoreCase(key)) {
-            classification = DD_TAGS;
-          }
+      int header = KnownHeaders.classify(key);
+      switch (header) {
+        case KnownHeaders.DATADOG_TRACE_ID:
+          classification = TRACE_ID;
           break;
-        case 'f':
-          if (handledForwarding(key, value)) {
-            return true;
-          }
+        case KnownHeaders.DATADOG_PARENT_ID:
+          classification = SPAN_ID;
+          break;
+        case KnownHeaders.DATADOG_SAMPLING_PRIORITY:
+          classification = SAMPLING_PRIORITY;
+          break;
+        case KnownHeaders.DATADOG_ORIGIN:
+          classification = ORIGIN;
+          break;
+        case KnownHeaders.DATADOG_TAGS:
+          classification = DD_TAGS;
           break;
-        case 'u':
-          if (handledUserAgent(key, value)) {
+        case KnownHeaders.END_TO_END_START:
+          classification = E2E_START;
+          break;
+        case KnownHeaders.AMZN_TRACE_ID:
+          if (isAwsPropagationEnabled) {
+            handleXRayTraceHeader(this, value);
             return true;
           }
           break;
-        case 'o':
-          lowerCaseKey = toLowerCase(key);
-          if (E2E_START_KEY.equals(lowerCaseKey)) {
-            classification = E2E_START;
-          } else if (lowerCaseKey.startsWith(OT_BAGGAGE_PREFIX)) {
+        case KnownHeaders.UNKNOWN:
+          if (key.regionMatches(true, 0, OT_BAGGAGE_PREFIX, 0, OT_BAGGAGE_PREFIX.length())) {
+            lowerCaseKey = toLowerCase(key);
             classification = OT_BAGGAGE;
           }
           break;
         default:
+          if (handledKnownHeader(header, key, value)) {
+            return true;
+          }
       }
 
       if (classification != IGNORE) {
@@ -205,7 +213,7 @@ class DatadogHttpCodec {
           return false;
         }
       } else {
-        if (handledIpHeaders(key, value)) {
+        if (handledCustomIpHeader(key, value)) {
           return true;
         }
         if (handleTags(key, value)) {
@@ -0,0 +1,142 @@
+package datadog.trace.core.propagation;
+
+import static datadog.trace.core.propagation.HttpCodec.CF_CONNECTING_IP_KEY;
+import static datadog.trace.core.propagation.HttpCodec.CF_CONNECTING_IP_V6_KEY;
+import static datadog.trace.core.propagation.HttpCodec.FASTLY_CLIENT_IP_KEY;
+import static datadog.trace.core.propagation.HttpCodec.FORWARDED_FOR_KEY;
+import static datadog.trace.core.propagation.HttpCodec.FORWARDED_KEY;
+import static datadog.trace.core.propagation.HttpCodec.TRUE_CLIENT_IP_KEY;
+import static datadog.trace.core.propagation.HttpCodec.USER_AGENT_KEY;
+import static datadog.trace.core.propagation.HttpCodec.X_CLIENT_IP_KEY;
+import static datadog.trace.core.propagation.HttpCodec.X_CLUSTER_CLIENT_IP_KEY;
+import static datadog.trace.core.propagation.HttpCodec.X_FORWARDED_FOR_KEY;
+import static datadog.trace.core.propagation.HttpCodec.X_FORWARDED_HOST_KEY;
+import static datadog.trace.core.propagation.HttpCodec.X_FORWARDED_PORT_KEY;
+import static datadog.trace.core.propagation.HttpCodec.X_FORWARDED_PROTO_KEY;
+import static datadog.trace.core.propagation.HttpCodec.X_REAL_IP_KEY;
+
+import datadog.trace.api.DDTags;
+
+/**
+ * Classifies the header names the extractors are interested in, ignoring case, with a single pass
+ * over the name and without allocating. The names are kept in a precomputed open-addressed table
+ * keyed by a case-folded hash, so a header is classified with one probe in the common case instead
+ * of comparing it with each candidate name.
+ */
+final class KnownHeaders {
+
+  static final int UNKNOWN = -1;
+
+  // forwarding and client ip headers, handled by ContextInterpreter
+  static final int FORWARDED = 0;
+  static final int FORWARDED_FOR = 1;
+  static final int X_FORWARDED_PROTO = 2;
+  static final int X_FORWARDED_HOST = 3;
+  static final int X_FORWARDED_FOR = 4;
+  static final int X_FORWARDED_PORT = 5;
+  static final int USER_AGENT = 6;
+  static final int X_CLUSTER_CLIENT_IP = 7;
+  static final int X_REAL_IP = 8;
+  static final int X_CLIENT_IP = 9;
+  static final int TRUE_CLIENT_IP = 10;
+  static final int FASTLY_CLIENT_IP = 11;
+  static final int CF_CONNECTING_IP = 12;
+  static final int CF_CONNECTING_IP_V6 = 13;
+
+  // propagation headers, handled by the codecs
+  static final int DATADOG_TRACE_ID = 14;
+  static final int DATADOG_PARENT_ID = 15;
+  static final int DATADOG_SAMPLING_PRIORITY = 16;
+  static final int DATADOG_ORIGIN = 17;
+  static final int DATADOG_TAGS = 18;
+  static final int END_TO_END_START = 19;
+  static final int TRACE_PARENT = 20;
+  static final int TRACE_STATE = 21;
+  static final int B3_TRACE_ID = 22;
+  static final int B3_SPAN_ID = 23;
+  static final int B3_SAMPLED = 24;
+  static final int AMZN_TRACE_ID = 25;
+
+  private static final String[] NAMES = {
+    FORWARDED_KEY,
+    FORWARDED_FOR_KEY,
+    X_FORWARDED_PROTO_KEY,
+    X_FORWARDED_HOST_KEY,
+    X_FORWARDED_FOR_KEY,
+    X_FORWARDED_PORT_KEY,
+    USER_AGENT_KEY,
+    X_CLUSTER_CLIENT_IP_KEY,
+    X_REAL_IP_KEY,
+    X_CLIENT_IP_KEY,
+    TRUE_CLIENT_IP_KEY,
+    FASTLY_CLIENT_IP_KEY,
+    CF_CONNECTING_IP_KEY,
+    CF_CONNECTING_IP_V6_KEY,
+    DatadogHttpCodec.TRACE_ID_KEY,
+    DatadogHttpCodec.SPAN_ID_KEY,
+    DatadogHttpCodec.SAMPLING_PRIORITY_KEY,
+    DatadogHttpCodec.ORIGIN_KEY,
+    DatadogHttpCodec.DATADOG_TAGS_KEY,
+    DatadogHttpCodec.OT_BAGGAGE_PREFIX + DDTags.TRACE_START_TIME,
+    W3CHttpCodec.TRACE_PARENT_KEY,
+    W3CHttpCodec.TRACE_STATE_KEY,
+    B3HttpCodec.TRACE_ID_KEY,
+    B3HttpCodec.SPAN_ID_KEY,
+    B3HttpCodec.SAMPLING_PRIORITY_KEY,
+    XRayHttpCodec.X_AMZN_TRACE_ID
+  };
+
+  // 4 times the number of names keeps the probe sequences short
+  private static final int MASK = 127;
+
+  // the classification + 1 of each slot, 0 when empty
+  private static final byte[] TABLE = new byte[MASK + 1];
+
+  static {
+    for (int i = 0; i < NAMES.length; i++) {
+      int index = hash(NAMES[i]) & MASK;
+      while (TABLE[index] != 0) {
+        index = (index + 1) & MASK;
+      }
+      TABLE[index] = (byte) (i + 1);
+    }
+  }
+
+  private KnownHeaders() {}
+
+  /** @return the classification of the header name, or {@link #UNKNOWN} */
+  static int classify(String key) {
+    int length = key.length();
+    int index = hash(key) & MASK;
+    int slot;
+    while ((slot = TABLE[index]) != 0) {
+      String name = NAMES[slot - 1];
+      if (name.length() == length && name.regionMatches(true, 0, key, 0, length)) {
+        return slot - 1;
+      }
+      index = (index + 1) & MASK;
+    }
+    return UNKNOWN;
+  }
+
+  /** @return whether the header is one of the client ip headers */
+  static boolean isClientIp(int header) {
+    return header >= X_CLUSTER_CLIENT_IP && header <= CF_CONNECTING_IP_V6;
+  }
+
+  private static int hash(String s) {
+    int h = s.length();
+    for (int i = 0; i < s.length(); i++) {
+      h = 31 * h + fold(s.charAt(i));
+    }
+    return h ^ (h >>> 16);
+  }
+
+  /** Folds the case of the character the same way {@link String#regionMatches} ignores it. */
+  private static char fold(char c) {
+    if (c < 128) {
+      return c >= 'A' && c <= 'Z' ? (char) (c + ('a' - 'A')) : c;
+    }
+    return Character.toLowerCase(Character.toUpperCase(c));
+  }
+}
@@ -52,6 +52,31 @@ class W3CHttpCodec {
     return new Injector(invertedBaggageMapping);
   }
 
+  /**
+   * Returns the traceparent header of the context. It is encoded once per context and only encoded
+   * again when the sampling decision, the last part of the header, has changed.
+   */
+  static String traceParent(DDSpanContext context) {
+    char sampled = context.getSamplingPriority() > 0 ? '1' : '0';
+    String traceParent = context.getEncodedTraceParent();
+    if (null == traceParent || traceParent.charAt(TRACE_PARENT_LENGTH - 1) != sampled) {
+      // the parts have a fixed size, copy them in place rather than growing a builder
+      char[] chars = new char[TRACE_PARENT_LENGTH];
+      chars[0] = '0';
+      chars[1] = '0';
+      chars[TRACE_PARENT_TID_START - 1] = '-';
+      context.getTraceId().toHexString().getChars(0, 32, chars, TRACE_PARENT_TID_START);
+      chars[TRACE_PARENT_SID_START - 1] = '-';
+      context.getSpanIdHexString().getChars(0, 16, chars, TRACE_PARENT_SID_START);
+      chars[TRACE_PARENT_FLAGS_START - 1] = '-';
+      chars[TRACE_PARENT_FLAGS_START] = '0';
+      chars[TRACE_PARENT_FLAGS_START + 1] = sampled;
+      traceParent = new String(chars);
+      context.setEncodedTraceParent(traceParent);
+    }
+    return traceParent;
+  }
+
   private static class Injector implements HttpCodec.Injector {
 
     private final Map<String, String> invertedBaggageMapping;
@@ -71,13 +96,7 @@ class W3CHttpCodec {
 
     private <C> void injectTraceParent(
         DDSpanContext context, C carrier, AgentPropagation.Setter<C> setter) {
-      StringBuilder sb = new StringBuilder(TRACE_PARENT_LENGTH);
-      sb.append("00-");
-      sb.append(context.getTraceId().toHexString());
-      sb.append('-');
-      sb.append(DDSpanId.toHexStringPadded(context.getSpanId()));
-      sb.append(context.getSamplingPriority() > 0 ? "-01" : "-00");
-      setter.set(carrier, TRACE_PARENT_KEY, sb.toString());
+      setter.set(carrier, TRACE_PARENT_KEY, traceParent(context));
     }
 
     private <C> void injectTraceState(
@@ -90,7 +109,7 @@ class W3CHttpCodec {
             propagationTags.updateLastParentId(lastParentId);
           }
         } else {
-          propagationTags.updateLastParentId(DDSpanId.toHexStringPadded(context.getSpanId()));
+          propagationTags.updateLastParentId(context.getSpanIdHexString());
         }
       }
 
@@ -158,39 +177,27 @@ class W3CHttpCodec {
       }
       String lowerCaseKey = null;
       int classification = IGNORE;
-      char first = Character.toLowerCase(key.charAt(0));
-      switch (first) {
-        case 'f':
-          if (handledForwarding(key, value)) {
-            return true;
-          }
+      int header = KnownHeaders.classify(key);
+      switch (header) {
+        case KnownHeaders.TRACE_PARENT:
+          classification = TRACE_PARENT;
           break;
-        case 'o':
-          lowerCaseKey = toLowerCase(key);
-          if (E2E_START_KEY.equals(lowerCaseKey)) {
-            classification = E2E_START;
-          } else if (lowerCaseKey.startsWith(OT_BAGGAGE_PREFIX)) {
-            classification = OT_BAGGAGE;
-          }
+        case KnownHeaders.TRACE_STATE:
+          classification = TRACE_STATE;
           break;
-        case 't':
-          if (TRACE_PARENT_KEY.equalsIgnoreCase(key)) {
-            classification = TRACE_PARENT;
-          } else if (TRACE_STATE_KEY.equalsIgnoreCase(key)) {
-            classification = TRACE_STATE;
-          }
+        case KnownHeaders.END_TO_END_START:
+          classification = E2E_START;
           break;
-        case 'u':
-          if (handledUserAgent(key, value)) {
-            return true;
+        case KnownHeaders.UNKNOWN:
+          if (key.regionMatches(true, 0, OT_BAGGAGE_PREFIX, 0, OT_BAGGAGE_PREFIX.length())) {
+            lowerCaseKey = toLowerCase(key);
+            classification = OT_BAGGAGE;
           }
           break;
-        case 'x':
-          if (handledXForwarding(key, value)) {
+        default:
+          if (handledKnownHeader(header, key, value)) {
             return true;
           }
-          break;
-        default:
       }
 
       if (classification != IGNORE) {
@@ -222,7 +229,7 @@ class W3CHttpCodec {
           return false;
         }
       } else {
-        if (handledIpHeaders(key, value)) {
+        if (handledCustomIpHeader(key, value)) {
           return true;
         }
         if (handleTags(key, value)) {
@@ -64,6 +64,7 @@ class ContinuableScope implements AgentScope, AttachableWrapper {
     if (!alive) {
       scopeState.close();
       cleanup(scopeStack);
+      scopeManager.releaseIfEmpty(scopeStack);
     }
   }
 
@@ -21,6 +21,9 @@ import datadog.trace.bootstrap.instrumentation.api.ScopeStateAware;
 import datadog.trace.core.monitor.HealthMetrics;
 import datadog.trace.relocate.api.RatelimitedLogger;
 import datadog.trace.util.AgentTaskScheduler;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
@@ -42,6 +45,8 @@ public final class ContinuableScopeManager implements ScopeStateAware {
   static final RatelimitedLogger ratelimitedLog = new RatelimitedLogger(log, 1, MINUTES);
   static final long iterationKeepAlive =
       SECONDS.toMillis(Config.get().getScopeIterationKeepAlive());
+  static final boolean releaseVirtualThreadStacks =
+      Config.get().isScopeVirtualThreadsOptimized() && null != VirtualThreads.IS_VIRTUAL;
   volatile ConcurrentMap<ScopeStack, ContinuableScope> rootIterationScopes;
   final List<ScopeListener> scopeListeners;
   final List<ExtendedScopeListener> extendedScopeListeners;
@@ -77,7 +82,7 @@ public final class ContinuableScopeManager implements ScopeStateAware {
     this.scopeListeners = new CopyOnWriteArrayList<>();
     this.extendedScopeListeners = new CopyOnWriteArrayList<>();
     this.healthMetrics = healthMetrics;
-    this.tlsScopeStack = new ScopeStackThreadLocal(profilingContextIntegration);
+    this.tlsScopeStack = new ScopeStackThreadLocal();
     this.profilingContextIntegration = profilingContextIntegration;
   }
 
@@ -177,6 +182,7 @@ public final class ContinuableScopeManager implements ScopeStateAware {
       }
       top.close();
       scopeStack.cleanup();
+      releaseIfEmpty(scopeStack);
       if (finishSpan) {
         top.span.finishWithEndToEnd();
         healthMetrics.onFinishContinuation();
@@ -215,11 +221,14 @@ public final class ContinuableScopeManager implements ScopeStateAware {
   }
 
   public AgentScope active() {
-    return scopeStack().active();
+    // avoid allocating a stack for threads which never activated a scope
+    final ScopeStack scopeStack = tlsScopeStack.get();
+    return scopeStack == null ? null : scopeStack.active();
   }
 
   public AgentSpan activeSpan() {
-    final ContinuableScope active = scopeStack().active();
+    final ScopeStack scopeStack = tlsScopeStack.get();
+    final ContinuableScope active = scopeStack == null ? null : scopeStack.active();
     return active == null ? null : active.span;
   }
 
@@ -259,7 +268,30 @@ public final class ContinuableScopeManager implements ScopeStateAware {
   }
 
   ScopeStack scopeStack() {
-    return this.tlsScopeStack.get();
+    ScopeStack scopeStack = tlsScopeStack.get();
+    if (scopeStack == null) {
+      scopeStack = new ScopeStack(profilingContextIntegration);
+      tlsScopeStack.set(scopeStack);
+    }
+    return scopeStack;
+  }
+
+  /**
+   * Drops the stack of the current virtual thread once it's empty. Virtual threads are cheap and
+   * numerous, so rather than each of them holding on to an empty stack and thread-local entry while
+   * parked, a new stack is allocated when they activate a scope again. Platform threads keep their
+   * stack, they are long-lived and would otherwise allocate a stack for every root activation.
+   * Stacks captured by a {@link ScopeState} are kept, the state expects to find its scopes when it's
+   * activated again.
+   */
+  void releaseIfEmpty(final ScopeStack scopeStack) {
+    if (releaseVirtualThreadStacks
+        && scopeStack.top == null
+        && !scopeStack.captured
+        && VirtualThreads.isVirtual(Thread.currentThread())
+        && tlsScopeStack.get() == scopeStack) {
+      tlsScopeStack.remove();
+    }
   }
 
   @Override
@@ -269,30 +301,53 @@ public final class ContinuableScopeManager implements ScopeStateAware {
 
   private class ContinuableScopeState implements ScopeState {
 
-    private ScopeStack localScopeStack = tlsScopeStack.initialValue();
+    // allocated on first activation, states are often only used to save the active stack
+    private ScopeStack localScopeStack;
+    private boolean fetched;
 
     @Override
     public void activate() {
+      if (localScopeStack == null) {
+        // a state fetched from a thread without a stack reuses the stack of the current thread
+        localScopeStack = fetched ? scopeStack() : new ScopeStack(profilingContextIntegration);
+        localScopeStack.captured = true;
+      }
       tlsScopeStack.set(localScopeStack);
     }
 
     @Override
     public void fetchFromActive() {
       localScopeStack = tlsScopeStack.get();
+      fetched = true;
+      if (localScopeStack != null) {
+        localScopeStack.captured = true;
+      }
     }
   }
 
-  static final class ScopeStackThreadLocal extends ThreadLocal<ScopeStack> {
+  /** Holds the stack of the current thread, or null when the thread has no active scope. */
+  static final class ScopeStackThreadLocal extends ThreadLocal<ScopeStack> {}
 
-    private final ProfilingContextIntegration profilingContextIntegration;
+  /** Detects virtual threads without requiring Java 21 to compile. */
+  static final class VirtualThreads {
+    // bound to Thread.isVirtual(), null before Java 21
+    static final MethodHandle IS_VIRTUAL = isVirtualHandle();
 
-    ScopeStackThreadLocal(ProfilingContextIntegration profilingContextIntegration) {
-      this.profilingContextIntegration = profilingContextIntegration;
+    static boolean isVirtual(final Thread thread) {
+      try {
+        return IS_VIRTUAL != null && (boolean) IS_VIRTUAL.invokeExact(thread);
+      } catch (Throwable ignored) {
+        return false;
+      }
     }
 
-    @Override
-    protected ScopeStack initialValue() {
-      return new ScopeStack(profilingContextIntegration);
+    private static MethodHandle isVirtualHandle() {
+      try {
+        return MethodHandles.publicLookup()
+            .findVirtual(Thread.class, "isVirtual", MethodType.methodType(boolean.class));
+      } catch (Throwable ignored) {
+        return null;
+      }
     }
   }
 
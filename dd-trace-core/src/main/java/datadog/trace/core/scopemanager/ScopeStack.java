@@ -10,14 +10,21 @@ import java.util.ArrayDeque;
  */
 final class ScopeStack {
 
+  private static final int INITIAL_CAPACITY = 4;
+
   private final ProfilingContextIntegration profilingContextIntegration;
-  private final ArrayDeque<ContinuableScope> stack = new ArrayDeque<>(); // previous scopes
+  // previous scopes, only allocated once scopes are nested to keep stacks of (virtual) threads
+  // which only ever activate one scope at a time small
+  private ArrayDeque<ContinuableScope> stack;
 
   ContinuableScope top; // current scope
 
   // set by background task when a root iteration scope remains unclosed for too long
   volatile ContinuableScope overdueRootScope;
 
+  // set once a ScopeState refers to this stack, it must then stay attached to the thread
+  boolean captured;
+
   ScopeStack(ProfilingContextIntegration profilingContextIntegration) {
     this.profilingContextIntegration = profilingContextIntegration;
   }
@@ -35,7 +42,7 @@ final class ScopeStack {
       // no longer alive -- trigger listener & null out
       curScope.onProperClose();
       changedTop = true;
-      curScope = stack.poll();
+      curScope = stack != null ? stack.poll() : null;
     }
     if (curScope != null && curScope == overdueRootScope) {
       // we know this scope is the last on the stack and is overdue
@@ -58,6 +65,9 @@ final class ScopeStack {
   void push(final ContinuableScope scope) {
     scope.beforeActivated();
     if (top != null) {
+      if (stack == null) {
+        stack = new ArrayDeque<>(INITIAL_CAPACITY);
+      }
       stack.push(top);
     } else {
       onBecomeNonEmpty();
@@ -84,6 +94,9 @@ final class ScopeStack {
     // remaining references so the scope gets removed in the subsequent cleanup() call
     top.clearReferences();
     top.span.finishWithEndToEnd();
+    if (stack == null) {
+      return false; // we didn't find the expected scope
+    }
     // now do the same for any previous iteration scopes ahead of the expected scope
     for (ContinuableScope scope : stack) {
       if (scope.source() != ScopeSource.ITERATION.id()) {
@@ -98,12 +111,14 @@ final class ScopeStack {
 
   /** Returns the current depth, including the top scope */
   int depth() {
-    return top != null ? 1 + stack.size() : 0;
+    return top != null ? 1 + (stack != null ? stack.size() : 0) : 0;
   }
 
   // DQH - regrettably needed for pre-existing tests
   void clear() {
-    stack.clear();
+    if (stack != null) {
+      stack.clear();
+    }
     top = null;
   }
 
@@ -82,6 +82,39 @@ public class TagInterceptor {
     this.jeeSplitByDeployment = jeeSplitByDeployment;
   }
 
+  /**
+   * Tells whether {@link #interceptTag} may intercept the tag, so that callers with an unboxed
+   * value only need to box it when it's actually going to be looked at. This must be kept in line
+   * with the cases handled by {@link #interceptTag}.
+   */
+  public boolean needsIntercept(String tag) {
+    switch (tag) {
+      case DDTags.RESOURCE_NAME:
+      case Tags.DB_STATEMENT:
+      case DDTags.SERVICE_NAME:
+      case "service":
+      case Tags.PEER_SERVICE:
+      case DDTags.MANUAL_KEEP:
+      case DDTags.MANUAL_DROP:
+      case Tags.ASM_KEEP:
+      case Tags.SAMPLING_PRIORITY:
+      case Tags.PROPAGATED_TRACE_SOURCE:
+      case Tags.PROPAGATED_DEBUG:
+      case InstrumentationTags.SERVLET_CONTEXT:
+      case SPAN_TYPE:
+      case ANALYTICS_SAMPLE_RATE:
+      case Tags.ERROR:
+      case HTTP_STATUS:
+      case HTTP_METHOD:
+      case HTTP_URL:
+      case ORIGIN_KEY:
+      case MEASURED:
+        return true;
+      default:
+        return splitServiceTags.contains(tag);
+    }
+  }
+
   public boolean interceptTag(DDSpanContext span, String tag, Object value) {
     switch (tag) {
       case DDTags.RESOURCE_NAME:
@@ -21,6 +21,13 @@ public final class Matchers {
     }
   }
 
+  /** @return the value an exact matcher compares with ignoring case, otherwise null */
+  public static String exactValue(Matcher matcher) {
+    return matcher instanceof InsensitiveEqualsMatcher
+        ? ((InsensitiveEqualsMatcher) matcher).exact
+        : null;
+  }
+
   public static boolean matches(Matcher matcher, String str) {
     return (matcher == null) || matcher.matches(str);
   }
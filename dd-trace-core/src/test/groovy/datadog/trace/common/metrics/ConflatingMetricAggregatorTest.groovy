@@ -402,6 +402,101 @@ class ConflatingMetricAggregatorTest extends DDSpecification {
     aggregator.close()
   }
 
+  def "published spans remember their metric key"() {
+    setup:
+    Sink sink = Stub(Sink)
+    DDAgentFeaturesDiscovery features = Mock(DDAgentFeaturesDiscovery)
+    features.supportsMetrics() >> true
+    ConflatingMetricsAggregator aggregator = new ConflatingMetricsAggregator(empty,
+      features, sink, Stub(MetricWriter), 10, queueSize, reportingInterval, SECONDS, stripes)
+    def first = new SimpleSpan("service", "operation", "resource", "type", true, false, false, 0, 100, HTTP_OK)
+    def second = new SimpleSpan("service", "operation", UTF8BytesString.create("resource"), "type", true, false, false, 0, 100, HTTP_OK)
+    def other = new SimpleSpan("service", "operation", "other", "type", true, false, false, 0, 100, HTTP_OK)
+    def unmeasured = new SimpleSpan("service", "operation", "resource", "type", false, false, false, 0, 100, HTTP_OK)
+
+    when:
+    aggregator.publish([first, second, other, unmeasured])
+
+    then:
+    first.metricKey == new MetricKey("resource", "service", "operation", "type", HTTP_OK, false)
+    second.metricKey.is(first.metricKey)
+    other.metricKey.resource.toString() == "other"
+    unmeasured.metricKey == null
+
+    cleanup:
+    aggregator.close()
+
+    where:
+    stripes << [0, 4]
+  }
+
+  def "striped pre-aggregation conflates spans published from several threads"() {
+    setup:
+    MetricWriter writer = Mock(MetricWriter)
+    Sink sink = Stub(Sink)
+    DDAgentFeaturesDiscovery features = Mock(DDAgentFeaturesDiscovery)
+    features.supportsMetrics() >> true
+    ConflatingMetricsAggregator aggregator = new ConflatingMetricsAggregator(empty,
+      features, sink, writer, 10, queueSize, reportingInterval, SECONDS, 4)
+    long duration = 100
+    List<CoreSpan> trace = [
+      new SimpleSpan("service", "operation", "resource", "type", true, false, false, 0, duration, HTTP_OK),
+      new SimpleSpan("service", "operation", "resource", "type", true, false, true, 0, duration * 2, HTTP_OK)
+    ]
+    aggregator.start()
+
+    when:
+    def threads = (0..<4).collect {
+      Thread.start {
+        for (int i = 0; i < 25; ++i) {
+          aggregator.publish(trace)
+        }
+      }
+    }
+    threads*.join()
+    CountDownLatch latch = new CountDownLatch(1)
+    aggregator.report()
+    latch.await(2, SECONDS)
+
+    then: "the stripes are merged into a single aggregate"
+    1 * writer.startBucket(1, _, SECONDS.toNanos(reportingInterval))
+    1 * writer.add(new MetricKey("resource", "service", "operation", "type", HTTP_OK, false), _) >> { MetricKey key, AggregateMetric value ->
+      assert value.getHitCount() == 200
+      assert value.getErrorCount() == 100
+      assert value.getDuration() == 100 * duration * 3
+    }
+    1 * writer.finishBucket() >> { latch.countDown() }
+
+    cleanup:
+    aggregator.close()
+  }
+
+  def "striped pre-aggregation force keeps the first of each key it sees"() {
+    setup:
+    MetricWriter writer = Mock(MetricWriter)
+    Sink sink = Stub(Sink)
+    DDAgentFeaturesDiscovery features = Mock(DDAgentFeaturesDiscovery)
+    features.supportsMetrics() >> true
+    ConflatingMetricsAggregator aggregator = new ConflatingMetricsAggregator(empty,
+      features, sink, writer, 10, queueSize, reportingInterval, SECONDS, 4)
+    aggregator.start()
+
+    when:
+    def first = aggregator.publish([
+      new SimpleSpan("service", "operation", "resource", "type", false, true, false, 0, 100, HTTP_OK)
+    ])
+    def repeat = aggregator.publish([
+      new SimpleSpan("service", "operation", UTF8BytesString.create("resource"), "type", false, true, false, 0, 100, HTTP_OK)
+    ])
+
+    then:
+    first
+    !repeat
+
+    cleanup:
+    aggregator.close()
+  }
+
   def "should be resilient to serialization errors"() {
     setup:
     int maxAggregates = 10
@@ -2,6 +2,7 @@ package datadog.trace.common.metrics
 
 import datadog.trace.api.DDSpanId
 import datadog.trace.api.DDTraceId
+import datadog.trace.core.AggregatedNames
 import datadog.trace.core.CoreSpan
 import datadog.trace.core.MetadataConsumer
 
@@ -19,6 +20,8 @@ class SimpleSpan implements CoreSpan<SimpleSpan> {
   private final long duration
   private final long startTime
 
+  private AggregatedNames aggregatedNames
+
   SimpleSpan(String serviceName,
   String operationName,
   CharSequence resourceName,
@@ -191,6 +194,16 @@ class SimpleSpan implements CoreSpan<SimpleSpan> {
     return false
   }
 
+  @Override
+  void setAggregatedNames(AggregatedNames aggregatedNames) {
+    this.aggregatedNames = aggregatedNames
+  }
+
+  @Override
+  AggregatedNames getAggregatedNames() {
+    return aggregatedNames
+  }
+
   @Override
   CharSequence getType() {
     return type
@@ -0,0 +1,109 @@
+package datadog.trace.common.sampling
+
+import datadog.trace.common.writer.ListWriter
+import datadog.trace.core.DDSpan
+import datadog.trace.core.test.DDCoreSpecification
+
+import static datadog.trace.api.sampling.SamplingMechanism.LOCAL_USER_RULE
+
+class SamplingRuleIndexTest extends DDCoreSpecification {
+
+  def "index returns the first matching rule like a linear scan"() {
+    setup:
+    def tracer = tracerBuilder().writer(new ListWriter()).build()
+    List<RateSamplingRule> rules = [
+      traceRule("other", null, null),
+      traceRule(null, "Servlet.Request", "GET /health"),
+      traceRule("web-*", null, null),
+      traceRule("WEB-APP", "servlet.request", null),
+      traceRule("web-app", null, null),
+      traceRule(null, "servlet.request", null),
+      new RateSamplingRule.AlwaysMatchesSamplingRule(new DeterministicSampler.TraceSampler(1), LOCAL_USER_RULE)
+    ]
+    def index = new SamplingRuleIndex<>(rules)
+
+    when:
+    DDSpan span = tracer.buildSpan(operation)
+      .withServiceName(service)
+      .withResourceName(resource)
+      .ignoreActiveSpan().start()
+
+    then:
+    index.firstMatch(span) == rules.find { it.matches(span) }
+    rules.indexOf(index.firstMatch(span)) == expected
+
+    cleanup:
+    tracer.close()
+
+    where:
+    service   | operation         | resource      | expected
+    "other"   | "servlet.request" | "GET /"       | 0
+    "web-app" | "servlet.request" | "GET /health" | 1
+    "web-app" | "servlet.request" | "GET /"       | 2
+    "Web-App" | "servlet.request" | "GET /"       | 2
+    "app"     | "SERVLET.REQUEST" | "GET /"       | 5
+    "app"     | "grpc.server"     | "GET /"       | 6
+  }
+
+  def "span rules are indexed by service or operation"() {
+    setup:
+    def tracer = tracerBuilder().writer(new ListWriter()).build()
+    List<RateSamplingRule.SpanSamplingRule> rules = [
+      spanRule("service", "operation"),
+      spanRule("*", "operation"),
+      spanRule("service", "*"),
+      spanRule("s?rvice", "*"),
+      spanRule("*", "*")
+    ]
+    def index = new SamplingRuleIndex<>(rules)
+
+    when:
+    DDSpan span = tracer.buildSpan(operation)
+      .withServiceName(service)
+      .ignoreActiveSpan().start()
+
+    then:
+    rules.indexOf(index.firstMatch(span)) == expected
+
+    cleanup:
+    tracer.close()
+
+    where:
+    service   | operation   | expected
+    "service" | "operation" | 0
+    "other"   | "operation" | 1
+    "service" | "other"     | 2
+    "sxrvice" | "other"     | 3
+    "other"   | "other"     | 4
+  }
+
+  def "folding follows equalsIgnoreCase"() {
+    expect:
+    SamplingRuleIndex.fold(a) == SamplingRuleIndex.fold(b)
+    a.equalsIgnoreCase(b)
+
+    where:
+    a             | b
+    "service"     | "SERVICE"
+    "Service-1"   | "sERVICE-1"
+    "\u212Aelvin" | "kelvin"
+    "\u0131d"     | "ID"
+  }
+
+  def "folding returns names which are already folded"() {
+    given:
+    def name = "already-folded"
+
+    expect:
+    SamplingRuleIndex.fold(name).is(name)
+  }
+
+  static RateSamplingRule traceRule(String service, String operation, String resource) {
+    return new RateSamplingRule.TraceSamplingRule(service, operation, resource, [:],
+      new DeterministicSampler.TraceSampler(1), LOCAL_USER_RULE)
+  }
+
+  static RateSamplingRule.SpanSamplingRule spanRule(String service, String operation) {
+    return new RateSamplingRule.SpanSamplingRule(service, operation, new DeterministicSampler.SpanSampler(1), null)
+  }
+}
@@ -30,6 +30,7 @@ import java.util.concurrent.RejectedExecutionException
 import java.util.concurrent.TimeUnit
 import java.util.concurrent.atomic.AtomicLong
 import java.util.concurrent.atomic.AtomicReference
+import java.util.zip.GZIPInputStream
 
 import static datadog.trace.agent.test.server.http.TestHttpServer.httpServer
 
@@ -324,6 +325,27 @@ class DDAgentApiTest extends DDCoreSpecification {
     // spotless:on
   }
 
+  def "traces are gzipped when compression is enabled"() {
+    setup:
+    def agent = httpServer {
+      handlers {
+        put("v0.4/traces") {
+          response.status(200).send()
+        }
+      }
+    }
+    def client = createAgentApi(agent.address.toString(), true)[1]
+    def payload = prepareTraces("v0.4/traces", [[], []])
+
+    expect:
+    client.sendSerializedTraces(payload).success()
+    agent.lastRequest.getHeader("Content-Encoding") == "gzip"
+    new GZIPInputStream(new ByteArrayInputStream(agent.lastRequest.body)).bytes.length == 3
+
+    cleanup:
+    agent.close()
+  }
+
   def "Embedded HTTP client rejects async requests"() {
     setup:
     def agent = newAgent("v0.5/traces")
@@ -442,10 +464,10 @@ class DDAgentApiTest extends DDCoreSpecification {
     }
   }
 
-  def createAgentApi(String url) {
+  def createAgentApi(String url, boolean compressionEnabled = false) {
     HttpUrl agentUrl = HttpUrl.get(url)
     OkHttpClient client = OkHttpUtils.buildHttpClient(agentUrl, 1000)
     DDAgentFeaturesDiscovery discovery = new DDAgentFeaturesDiscovery(client, monitoring, agentUrl, true, true)
-    return [discovery, new DDAgentApi(client, agentUrl, discovery, monitoring, false)]
+    return [discovery, new DDAgentApi(client, agentUrl, discovery, monitoring, false, compressionEnabled)]
   }
 }
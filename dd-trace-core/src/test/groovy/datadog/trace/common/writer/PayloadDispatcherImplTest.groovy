@@ -17,6 +17,7 @@ import datadog.trace.core.monitor.MonitoringImpl
 import datadog.trace.core.propagation.PropagationTags
 import datadog.trace.test.util.DDSpecification
 import spock.lang.Shared
+import spock.lang.TempDir
 import spock.lang.Timeout
 
 import java.nio.ByteBuffer
@@ -28,6 +29,9 @@ class PayloadDispatcherImplTest extends DDSpecification {
   @Shared
   MonitoringImpl monitoring = new MonitoringImpl(StatsDClient.NO_OP, 1, TimeUnit.SECONDS)
 
+  @TempDir
+  File spillDir
+
   @Timeout(10)
   def "flush automatically when data limit is breached"() {
     setup:
@@ -54,6 +58,95 @@ class PayloadDispatcherImplTest extends DDSpecification {
     traceEndpoint << ["v0.5/traces", "v0.4/traces"]
   }
 
+  def "heartbeats hold small batches back until they are big or old enough"() {
+    setup:
+    HealthMetrics healthMetrics = Stub(HealthMetrics)
+    DDAgentFeaturesDiscovery discovery = Stub(DDAgentFeaturesDiscovery)
+    discovery.getTraceEndpoint() >> "v0.4/traces"
+    DDAgentApi api = Mock(DDAgentApi)
+    PayloadDispatcherImpl dispatcher = new PayloadDispatcherImpl(new DDAgentMapperDiscovery(discovery), api, healthMetrics, monitoring, false, 1 << 20, 200)
+    List<DDSpan> trace = [realSpan()]
+
+    when: "the batch is small and recent"
+    dispatcher.addTrace(trace)
+    dispatcher.onHeartbeat()
+
+    then:
+    0 * api.sendSerializedTraces(_)
+
+    when: "the batch has waited for longer than the maximum delay"
+    Thread.sleep(250)
+    dispatcher.onHeartbeat()
+
+    then:
+    1 * api.sendSerializedTraces({ it.traceCount() == 1 }) >> RemoteApi.Response.success(200)
+  }
+
+  def "payloads which could not be sent are replayed once the agent responds again"() {
+    setup:
+    HealthMetrics healthMetrics = Mock(HealthMetrics)
+    DDAgentFeaturesDiscovery discovery = Stub(DDAgentFeaturesDiscovery)
+    discovery.getTraceEndpoint() >> "v0.4/traces"
+    DDAgentApi api = Mock(DDAgentApi)
+    SpillBuffer spillBuffer = SpillBuffer.open(new File(spillDir, "traces.spill"), 1 << 20, 60_000, healthMetrics)
+    PayloadDispatcherImpl dispatcher = new PayloadDispatcherImpl(new DDAgentMapperDiscovery(discovery), api, healthMetrics, monitoring, false, 0, 0, spillBuffer)
+    List<DDSpan> trace = [realSpan()]
+
+    when: "the agent is unreachable"
+    dispatcher.addTrace(trace)
+    dispatcher.flush()
+
+    then:
+    1 * api.sendSerializedTraces({ it.traceCount() == 1 }) >> RemoteApi.Response.failed(new IOException("unreachable"))
+    1 * healthMetrics.onSpill(1, { it > 0 })
+    !spillBuffer.isEmpty()
+
+    when: "the agent responds again"
+    dispatcher.addTrace(trace)
+    dispatcher.addTrace(trace)
+    dispatcher.flush()
+
+    then:
+    1 * api.sendSerializedTraces({ it.traceCount() == 2 }) >> RemoteApi.Response.success(200)
+    then:
+    1 * api.sendSerializedTraces({ it.traceCount() == 1 }) >> RemoteApi.Response.success(200)
+    1 * healthMetrics.onSpillReplay(1)
+    spillBuffer.isEmpty()
+
+    cleanup:
+    spillBuffer.close()
+  }
+
+  def "spilled payloads which fail to replay are dropped"() {
+    setup:
+    HealthMetrics healthMetrics = Mock(HealthMetrics)
+    DDAgentFeaturesDiscovery discovery = Stub(DDAgentFeaturesDiscovery)
+    discovery.getTraceEndpoint() >> "v0.4/traces"
+    DDAgentApi api = Mock(DDAgentApi)
+    SpillBuffer spillBuffer = SpillBuffer.open(new File(spillDir, "traces.spill"), 1 << 20, 60_000, healthMetrics)
+    PayloadDispatcherImpl dispatcher = new PayloadDispatcherImpl(new DDAgentMapperDiscovery(discovery), api, healthMetrics, monitoring, false, 0, 0, spillBuffer)
+    List<DDSpan> trace = [realSpan()]
+    api.sendSerializedTraces({ it.traceCount() == 1 }) >> RemoteApi.Response.failed(new IOException("unreachable"))
+    dispatcher.addTrace(trace)
+    dispatcher.flush()
+
+    when: "replaying throws"
+    dispatcher.addTrace(trace)
+    dispatcher.addTrace(trace)
+    dispatcher.flush()
+
+    then:
+    noExceptionThrown()
+    1 * api.sendSerializedTraces({ it.traceCount() == 2 }) >> RemoteApi.Response.success(200)
+    then:
+    1 * api.sendSerializedTraces({ it.traceCount() == 1 }) >> { throw new IllegalStateException("boom") }
+    1 * healthMetrics.onSpillDrop(1)
+    spillBuffer.isEmpty()
+
+    cleanup:
+    spillBuffer.close()
+  }
+
   def "should flush buffer on demand"() {
     setup:
     HealthMetrics healthMetrics = Mock(HealthMetrics)
@@ -1,5 +1,6 @@
 package datadog.trace.common.writer
 
+import datadog.trace.api.DDTraceId
 import datadog.trace.api.sampling.PrioritySampling
 import datadog.trace.common.sampling.SingleSpanSampler
 import datadog.trace.core.DDSpan
@@ -143,6 +144,40 @@ class SpanSamplingWorkerTest extends DDSpecification {
     worker.close()
   }
 
+  def "sampled spans are routed to the shard owning their trace id"() {
+    setup:
+    Queue<Object>[] primaryQueues = (0..2).collect { new LinkedBlockingDeque<>(10) } as Queue<Object>[]
+    Queue<Object>[] secondaryQueues = (0..2).collect { new LinkedBlockingDeque<>(10) } as Queue<Object>[]
+    SingleSpanSampler singleSpanSampler = Mock(SingleSpanSampler)
+    HealthMetrics healthMetrics = Mock(HealthMetrics)
+    CountDownLatch latch = new CountDownLatch(6)
+    SpanSamplingWorker worker = new DefaultSpanSamplingWorker(10, primaryQueues, secondaryQueues, singleSpanSampler, healthMetrics, { false }) {
+        @Override
+        protected void afterOnEvent() {
+          latch.countDown()
+        }
+      }
+    worker.start()
+    singleSpanSampler.setSamplingPriority(_) >> true
+
+    when:
+    for (long i = 1; i <= 6; ++i) {
+      DDSpan span = Stub(DDSpan)
+      span.getTraceId() >> DDTraceId.from(i)
+      assert worker.getSpanSamplingQueue().offer([span])
+    }
+
+    then:
+    latch.await(10, TimeUnit.SECONDS)
+    primaryQueues*.size() == (0..2).collect { shard ->
+      (1..6).count { TraceProcessingWorker.shardFor(it, 3) == shard }
+    }
+    secondaryQueues.every { it.isEmpty() }
+
+    cleanup:
+    worker.close()
+  }
+
   def "update dropped traces metric when no tracer's spans have been sampled"() {
     setup:
     Queue<Object> primaryQueue = new LinkedBlockingDeque<>(10)
@@ -0,0 +1,216 @@
+package datadog.trace.common.writer
+
+import datadog.trace.common.writer.ddagent.TraceMapperV0_4
+import datadog.trace.core.monitor.HealthMetrics
+import datadog.trace.test.util.DDSpecification
+import spock.lang.TempDir
+
+import java.nio.ByteBuffer
+import java.nio.channels.Channels
+
+class SpillBufferTest extends DDSpecification {
+
+  @TempDir
+  File spillDir
+
+  def "spilled payloads are replayed in order with their headers"() {
+    setup:
+    HealthMetrics healthMetrics = Mock(HealthMetrics)
+    SpillBuffer spillBuffer = SpillBuffer.open(new File(spillDir, "traces.spill"), 4096, 60_000, healthMetrics)
+
+    when:
+    spillBuffer.spill("v0.4", payload(1, 10))
+    spillBuffer.spill("v0.4", payload(2, 20))
+
+    then:
+    1 * healthMetrics.onSpill(1, 11)
+    1 * healthMetrics.onSpill(2, 21)
+
+    when:
+    Payload first = spillBuffer.peek("v0.4")
+    spillBuffer.remove()
+    Payload second = spillBuffer.peek("v0.4")
+    spillBuffer.remove()
+
+    then:
+    first.traceCount() == 1
+    bytes(first) == bytes(payload(1, 10))
+    second.traceCount() == 2
+    bytes(second) == bytes(payload(2, 20))
+    spillBuffer.isEmpty()
+    spillBuffer.peek("v0.4") == null
+
+    cleanup:
+    spillBuffer.close()
+  }
+
+  def "payloads dropped while being replayed are not removed twice"() {
+    setup:
+    HealthMetrics healthMetrics = Mock(HealthMetrics)
+    // room for two records of 17 + 4 + 101 bytes after the file header
+    SpillBuffer spillBuffer = SpillBuffer.open(new File(spillDir, "traces.spill"), 16 + 300, 60_000, healthMetrics)
+    spillBuffer.spill("v0.4", payload(1, 100))
+    spillBuffer.spill("v0.4", payload(2, 100))
+
+    when: "another shard spills while the oldest payload is replayed"
+    boolean claimed = spillBuffer.startReplay()
+    Payload replaying = spillBuffer.peek("v0.4")
+    spillBuffer.spill("v0.4", payload(3, 100))
+    spillBuffer.remove(replaying)
+
+    then:
+    claimed
+    !spillBuffer.startReplay()
+    replaying.traceCount() == 1
+    spillBuffer.peek("v0.4").traceCount() == 2
+
+    when:
+    spillBuffer.endReplay()
+
+    then:
+    spillBuffer.startReplay()
+
+    cleanup:
+    spillBuffer.close()
+  }
+
+  def "oldest payloads are dropped when the buffer is full"() {
+    setup:
+    HealthMetrics healthMetrics = Mock(HealthMetrics)
+    // each record takes 17 + 4 + 101 bytes, there is room for two after the file header
+    SpillBuffer spillBuffer = SpillBuffer.open(new File(spillDir, "traces.spill"), 16 + 300, 60_000, healthMetrics)
+
+    when:
+    for (int i = 1; i <= 5; ++i) {
+      spillBuffer.spill("v0.4", payload(i, 100))
+    }
+
+    then:
+    1 * healthMetrics.onSpillDrop(1)
+    1 * healthMetrics.onSpillDrop(2)
+    1 * healthMetrics.onSpillDrop(3)
+
+    when:
+    Payload first = spillBuffer.peek("v0.4")
+    spillBuffer.remove()
+    Payload second = spillBuffer.peek("v0.4")
+    spillBuffer.remove()
+
+    then:
+    first.traceCount() == 4
+    second.traceCount() == 5
+    spillBuffer.isEmpty()
+
+    when: "the payload could never fit"
+    boolean spilled = spillBuffer.spill("v0.4", payload(6, 1000))
+
+    then:
+    !spilled
+    1 * healthMetrics.onSpillDrop(6)
+
+    cleanup:
+    spillBuffer.close()
+  }
+
+  def "payloads for another endpoint or too old are dropped instead of replayed"() {
+    setup:
+    HealthMetrics healthMetrics = Mock(HealthMetrics)
+    SpillBuffer spillBuffer = SpillBuffer.open(new File(spillDir, "traces.spill"), 4096, maxAgeMillis, healthMetrics)
+    spillBuffer.spill("v0.5", payload(1, 10))
+
+    when:
+    Thread.sleep(5)
+    Payload replayed = spillBuffer.peek("v0.4")
+
+    then:
+    replayed == null
+    1 * healthMetrics.onSpillDrop(1)
+    spillBuffer.isEmpty()
+
+    cleanup:
+    spillBuffer.close()
+
+    where:
+    maxAgeMillis << [60_000, 0]
+  }
+
+  def "spilled payloads survive reopening the file"() {
+    setup:
+    File file = new File(spillDir, "traces.spill")
+    SpillBuffer spillBuffer = SpillBuffer.open(file, 4096, 60_000, HealthMetrics.NO_OP)
+    spillBuffer.spill("v0.4", payload(3, 30))
+    spillBuffer.close()
+
+    when:
+    spillBuffer = SpillBuffer.open(file, 4096, 60_000, HealthMetrics.NO_OP)
+    Payload replayed = spillBuffer.peek("v0.4")
+
+    then:
+    replayed.traceCount() == 3
+    bytes(replayed) == bytes(payload(3, 30))
+
+    cleanup:
+    spillBuffer.close()
+  }
+
+  def "a corrupted record drops the rest of the file"() {
+    setup:
+    File file = new File(spillDir, "traces.spill")
+    SpillBuffer spillBuffer = SpillBuffer.open(file, 4096, 60_000, HealthMetrics.NO_OP)
+    spillBuffer.spill("v0.4", payload(1, 10))
+    spillBuffer.spill("v0.4", payload(2, 20))
+    spillBuffer.close()
+    // the first record follows the 16 bytes of the file header
+    RandomAccessFile raf = new RandomAccessFile(file, "rw")
+    raf.seek(16)
+    raf.writeInt(length)
+    raf.close()
+
+    when:
+    spillBuffer = SpillBuffer.open(file, 4096, 60_000, HealthMetrics.NO_OP)
+
+    then:
+    spillBuffer.peek("v0.4") == null
+    spillBuffer.isEmpty()
+
+    when:
+    spillBuffer.spill("v0.4", payload(3, 30))
+
+    then:
+    spillBuffer.peek("v0.4").traceCount() == 3
+
+    cleanup:
+    spillBuffer.close()
+
+    where:
+    length << [0, 16, -1, 4096, Integer.MAX_VALUE]
+  }
+
+  def "nothing is spilled once closed"() {
+    setup:
+    HealthMetrics healthMetrics = Mock(HealthMetrics)
+    SpillBuffer spillBuffer = SpillBuffer.open(new File(spillDir, "traces.spill"), 4096, 60_000, healthMetrics)
+    spillBuffer.spill("v0.4", payload(1, 10))
+    spillBuffer.close()
+
+    when:
+    boolean spilled = spillBuffer.spill("v0.4", payload(2, 10))
+
+    then:
+    !spilled
+    1 * healthMetrics.onSpillDrop(2)
+    spillBuffer.peek("v0.4") == null
+  }
+
+  static Payload payload(int traceCount, int size) {
+    byte[] body = new byte[size]
+    Arrays.fill(body, (byte) traceCount)
+    return new TraceMapperV0_4().newPayload().withBody(traceCount, ByteBuffer.wrap(body))
+  }
+
+  static byte[] bytes(Payload payload) {
+    ByteArrayOutputStream out = new ByteArrayOutputStream()
+    payload.writeTo(Channels.newChannel(out))
+    return out.toByteArray()
+  }
+}
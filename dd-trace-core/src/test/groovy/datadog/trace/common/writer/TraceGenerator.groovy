@@ -6,6 +6,7 @@ import datadog.trace.api.DDTraceId
 import datadog.trace.api.IdGenerationStrategy
 import datadog.trace.api.sampling.PrioritySampling
 import datadog.trace.bootstrap.instrumentation.api.UTF8BytesString
+import datadog.trace.core.AggregatedNames
 import datadog.trace.core.CoreSpan
 import datadog.trace.core.Metadata
 import datadog.trace.core.MetadataConsumer
@@ -145,6 +146,7 @@ class TraceGenerator {
     private short httpStatusCode
     private final int samplingPriority
     private final Map<String, Object> metaStruct = [:]
+    private AggregatedNames aggregatedNames
 
     PojoSpan(
     String serviceName,
@@ -307,6 +309,16 @@ class TraceGenerator {
       return false
     }
 
+    @Override
+    void setAggregatedNames(AggregatedNames aggregatedNames) {
+      this.aggregatedNames = aggregatedNames
+    }
+
+    @Override
+    AggregatedNames getAggregatedNames() {
+      return aggregatedNames
+    }
+
     @Override
     short getHttpStatusCode() {
       return httpStatusCode
@@ -1,5 +1,6 @@
 package datadog.trace.common.writer
 
+import datadog.trace.api.DDTraceId
 import datadog.trace.common.sampling.SingleSpanSampler
 import datadog.trace.common.writer.ddagent.PrioritizationStrategy.PublishResult
 import datadog.trace.core.CoreSpan
@@ -31,6 +32,9 @@ class TraceProcessingWorkerTest extends DDSpecification {
     dispatcher.flush() >> {
       flushCounter.incrementAndGet()
     }
+    dispatcher.onHeartbeat() >> {
+      flushCounter.incrementAndGet()
+    }
     return dispatcher
   }
 
@@ -115,6 +119,50 @@ class TraceProcessingWorkerTest extends DDSpecification {
     worker.close()
   }
 
+  def "a sharded worker routes traces by trace id and flushes every shard"() {
+    setup:
+    AtomicInteger flushCount = new AtomicInteger()
+    List<AtomicInteger> traceCounts = [new AtomicInteger(), new AtomicInteger(), new AtomicInteger()]
+    PayloadDispatcher[] shards = traceCounts.collect { counter ->
+      PayloadDispatcherImpl dispatcher = Mock(PayloadDispatcherImpl)
+      dispatcher.addTrace(_) >> {
+        counter.incrementAndGet()
+      }
+      dispatcher.flush() >> {
+        flushCount.incrementAndGet()
+      }
+      return dispatcher
+    } as PayloadDispatcher[]
+    TraceProcessingWorker worker = new TraceProcessingWorker(10, Stub(HealthMetrics),
+      new ShardedPayloadDispatcher(shards),
+      {
+        false
+      },
+      FAST_LANE,
+      100, TimeUnit.SECONDS, null, null) // prevent heartbeats from helping the flush happen
+    worker.start()
+
+    when: "traces with different trace ids are published"
+    for (long i = 1; i <= 30; ++i) {
+      DDSpan span = Stub(DDSpan)
+      span.getTraceId() >> DDTraceId.from(i)
+      assert worker.publish(span, SAMPLER_KEEP, [span]) == ENQUEUED_FOR_SERIALIZATION
+    }
+    boolean flushed = worker.flush(10, TimeUnit.SECONDS)
+
+    then: "each trace is serialized by the shard owning its trace id and all shards are flushed"
+    flushed
+    flushCount.get() == 3
+    worker.getCapacity() == 30
+    traceCounts*.get().sum() == 30
+    traceCounts*.get() == (0..2).collect { shard ->
+      (1..30).count { TraceProcessingWorker.shardFor(it, 3) == shard }
+    }
+
+    cleanup:
+    worker.close()
+  }
+
   def "should report failure if serialization fails"() {
     setup:
     Throwable theError = new IllegalStateException("thrown by test")
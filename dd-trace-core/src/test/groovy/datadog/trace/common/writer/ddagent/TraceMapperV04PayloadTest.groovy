@@ -7,6 +7,8 @@ import datadog.trace.api.DD64bTraceId
 import datadog.trace.api.DDTags
 import datadog.trace.api.DDTraceId
 import datadog.trace.bootstrap.instrumentation.api.Tags
+import datadog.trace.bootstrap.instrumentation.api.UTF8BytesString
+import datadog.trace.common.metrics.MetricKey
 import datadog.trace.common.writer.Payload
 import datadog.trace.common.writer.TraceGenerator
 import datadog.trace.core.DDSpanContext
@@ -119,6 +121,45 @@ class TraceMapperV04PayloadTest extends DDSpecification {
     DD64bTraceId.from(-10) | -11L   | -12L
   }
 
+  def "spans are written with the strings of their metric key while they hold the same values"() {
+    setup:
+    def span = new TraceGenerator.PojoSpan(
+    "service",
+    "operation",
+    resource,
+    DDTraceId.ONE,
+    1L,
+    0L,
+    123L,
+    456L,
+    0,
+    [:],
+    [:],
+    "type",
+    true,
+    0,
+    0,
+    null)
+    span.setAggregatedNames(new MetricKey(aggregatedResource, "service", "operation", "type", 0, false))
+    def traces = [[span]]
+    TraceMapperV0_4 traceMapper = new TraceMapperV0_4()
+    PayloadVerifier verifier = new PayloadVerifier(traces, traceMapper)
+    MsgPackWriter packer = new MsgPackWriter(new FlushingBuffer(20 << 10, verifier))
+
+    when:
+    packer.format([span], traceMapper)
+    packer.flush()
+
+    then:
+    verifier.verifyTracesConsumed()
+
+    where:
+    resource                             | aggregatedResource
+    "GET /users/?"                       | resource
+    UTF8BytesString.create("GET /users") | resource
+    "GET /users/?"                       | "GET /"
+  }
+
   void 'test metaStruct support'() {
     given:
     def span = new TraceGenerator.PojoSpan(
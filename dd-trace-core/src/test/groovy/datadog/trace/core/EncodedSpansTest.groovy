@@ -0,0 +1,161 @@
+package datadog.trace.core
+
+import datadog.trace.bootstrap.instrumentation.api.UTF8BytesString
+import datadog.trace.common.writer.ListWriter
+import datadog.trace.core.test.DDCoreSpecification
+
+import static datadog.trace.api.config.TracerConfig.PARTIAL_FLUSH_MIN_SPANS
+import static datadog.trace.api.config.TracerConfig.PARTIAL_FLUSH_STREAMING_ENABLED
+
+class EncodedSpansTest extends DDCoreSpecification {
+
+  def writer = new ListWriter()
+
+  def "finished spans are restored with their state"() {
+    setup:
+    def tracer = tracerBuilder().writer(writer).build()
+    def root = tracer.buildSpan("root").start()
+    def traceCollector = root.context().traceCollector
+    def span = tracer.buildSpan("child")
+      .asChildOf(root)
+      .withServiceName("service")
+      .withResourceName("resource")
+      .withSpanType("web")
+      .start()
+    span.setTag("string", "value")
+    span.setTag("utf8", UTF8BytesString.create("bytes"))
+    span.setTag("int", 1)
+    span.setTag("long", 2L)
+    span.setTag("float", 3.5f)
+    span.setTag("double", 4.25d)
+    span.setTag("bool", true)
+    span.setTag("unicode", "été 🌞")
+    span.setError(true)
+    span.setHttpStatusCode(404)
+    span.setBaggageItem("key", "baggage")
+    span.finish()
+    def encodedSpans = new EncodedSpans()
+
+    when:
+    def encoded = encodedSpans.add(span)
+
+    then:
+    encoded
+    encodedSpans.size() == 1
+
+    when:
+    def restored = encodedSpans.restoreNext(traceCollector, span.traceId)
+
+    then:
+    restored.size() == 1
+    encodedSpans.size() == 0
+    encodedSpans.restoreNext(traceCollector, span.traceId) == null
+
+    and:
+    def copy = restored[0]
+    !copy.is(span)
+    copy.context().traceCollector.is(traceCollector)
+    copy.traceId == span.traceId
+    copy.spanId == span.spanId
+    copy.parentId == span.parentId
+    copy.startTime == span.startTime
+    copy.durationNano == span.durationNano
+    copy.serviceName == "service"
+    copy.operationName.toString() == "child"
+    copy.resourceName.toString() == "resource"
+    copy.spanType.toString() == "web"
+    copy.error
+    copy.httpStatusCode == 404
+    copy.getBaggageItem("key") == "baggage"
+    copy.tags == span.tags
+    copy.getTag("utf8") instanceof UTF8BytesString
+    copy.getTag("float") instanceof Float
+    copy.localRootSpan.is(root)
+
+    cleanup:
+    tracer.close()
+  }
+
+  def "spans which can't be restored are not encoded"() {
+    setup:
+    def tracer = tracerBuilder().writer(writer).build()
+    def span = tracer.buildSpan("span").start()
+    def encodedSpans = new EncodedSpans()
+
+    expect: "running span"
+    !encodedSpans.add(span)
+
+    when:
+    span.setTag("unsupported", new Object())
+    span.finish()
+
+    then:
+    !encodedSpans.add(span)
+    encodedSpans.size() == 0
+
+    cleanup:
+    tracer.close()
+  }
+
+  def "strings are remembered across spans"() {
+    setup:
+    def tracer = tracerBuilder().writer(writer).build()
+    def root = tracer.buildSpan("root").start()
+    def traceCollector = root.context().traceCollector
+    def spans = (1..100).collect {
+      def span = tracer.buildSpan("child").asChildOf(root).withTag("index", "value-" + (it % 10)).start()
+      span.finish()
+      span
+    }
+    def encodedSpans = new EncodedSpans()
+
+    when:
+    spans.each { assert encodedSpans.add(it) }
+    def restored = encodedSpans.restoreNext(traceCollector, root.traceId)
+
+    then:
+    restored*.spanId == spans*.spanId
+    restored.collect { it.getTag("index") } == spans.collect { it.getTag("index") }
+
+    cleanup:
+    tracer.close()
+  }
+
+  def "streaming partial flush writes encoded spans after the root span"() {
+    setup:
+    injectSysConfig(PARTIAL_FLUSH_MIN_SPANS, "2")
+    injectSysConfig(PARTIAL_FLUSH_STREAMING_ENABLED, "true")
+    def tracer = tracerBuilder().writer(writer).build()
+    def root = tracer.buildSpan("root").start()
+    PendingTrace traceCollector = root.context().traceCollector
+    def child1 = tracer.buildSpan("child1").asChildOf(root).start()
+    def child2 = tracer.buildSpan("child2").asChildOf(root).start()
+    def child3 = tracer.buildSpan("child3").asChildOf(root).start()
+
+    when:
+    child1.finish()
+    child2.finish()
+
+    then: "finished children are moved off-heap instead of being written"
+    traceCollector.spans.isEmpty()
+    traceCollector.size() == 0
+    traceCollector.encodedSpans.size() == 2
+    writer.traceCount.get() == 0
+
+    when:
+    child3.finish()
+    root.setSamplingPriority(2)
+    root.finish()
+    writer.waitForTraces(2)
+
+    then:
+    writer.size() == 2
+    writer[0] == [root, child3]
+    writer[1]*.spanId == [child2.spanId, child1.spanId]
+    writer[1].every { it.samplingPriority == 2 }
+    traceCollector.encodedSpans == null
+
+    cleanup:
+    tracer.close()
+  }
+}
@@ -402,6 +402,69 @@ class PendingTraceBufferTest extends DDSpecification {
     counter.get() == 3
   }
 
+  def "traces waiting to be written are not limited by the queue capacity"() {
+    setup:
+    buffer.start()
+    def counter = new AtomicInteger(0)
+    def count = 3 * buffer.queue.capacity()
+    def enqueued = new AtomicInteger(0)
+    def elements = (1..count).collect {
+      new PendingTraceBuffer.Element() {
+          @Override
+          long oldestFinishedTime() {
+            return TimeUnit.MILLISECONDS.toNanos(System.currentTimeMillis())
+          }
+
+          @Override
+          boolean lastReferencedNanosAgo(long nanos) {
+            return false
+          }
+
+          @Override
+          void write() {
+            counter.incrementAndGet()
+          }
+
+          @Override
+          DDSpan getRootSpan() {
+            return null
+          }
+
+          @Override
+          boolean setEnqueued(boolean value) {
+            enqueued.addAndGet(value ? 1 : -1)
+            return true
+          }
+
+          @Override
+          boolean writeOnBufferFull() {
+            return true
+          }
+        }
+    }
+
+    when:
+    for (def element : elements) {
+      while (buffer.queue.size() == buffer.queue.capacity()) {
+        Thread.yield()
+      }
+      buffer.enqueue(element)
+    }
+    new PollingConditions(timeout: 3, initialDelay: 0, delay: 0.1, factor: 1).eventually {
+      assert buffer.queue.size() == 0
+    }
+
+    then:
+    counter.get() == 0
+
+    when:
+    buffer.flush()
+
+    then:
+    counter.get() == count
+    enqueued.get() == 0
+  }
+
   def "the same pending trace is not enqueued multiple times"() {
     setup:
     // Don't start the buffer thread
@@ -0,0 +1,47 @@
+package datadog.trace.core
+
+import static datadog.trace.api.config.TracerConfig.TRACE_SPAN_RECYCLING_ENABLED
+
+import datadog.trace.common.writer.ListWriter
+import datadog.trace.core.test.DDCoreSpecification
+
+class TagMapRecyclingForkedTest extends DDCoreSpecification {
+
+  ListWriter writer
+  CoreTracer tracer
+
+  def setup() {
+    // must be set before TagMap is initialized, hence the fork
+    injectSysConfig(TRACE_SPAN_RECYCLING_ENABLED, "true")
+
+    writer = new ListWriter()
+    tracer = tracerBuilder().writer(writer).build()
+  }
+
+  def cleanup() {
+    tracer.close()
+  }
+
+  def "spans built by the tracer reuse recycled tags"() {
+    setup:
+    def root = tracer.buildSpan("root").start()
+    def recycled = tracer.buildSpan("recycled").asChildOf(root.context()).start()
+    def recycledKeys = tagKeys(recycled)
+    recycled.finish()
+
+    when:
+    recycled.recycleTags()
+    def reusing = tracer.buildSpan("reusing").asChildOf(root.context()).start()
+
+    then:
+    tagKeys(reusing).is(recycledKeys)
+
+    cleanup:
+    reusing.finish()
+    root.finish()
+  }
+
+  static String[] tagKeys(DDSpan span) {
+    span.context().@unsafeTags.@keys
+  }
+}
@@ -0,0 +1,181 @@
+package datadog.trace.core
+
+import datadog.trace.test.util.DDSpecification
+
+class TagMapTest extends DDSpecification {
+
+  def "behaves like a map"() {
+    setup:
+    def tags = new TagMap()
+    def expected = [:]
+
+    when:
+    for (int i = 0; i < 100; i++) {
+      tags.put("key" + i, "value" + i)
+      expected.put("key" + i, "value" + i)
+    }
+    for (int i = 0; i < 100; i += 3) {
+      tags.remove("key" + i)
+      expected.remove("key" + i)
+    }
+    for (int i = 0; i < 100; i += 6) {
+      tags.put("key" + i, i)
+      expected.put("key" + i, i)
+    }
+
+    then:
+    tags.size() == expected.size()
+    tags == expected
+    new HashMap<>(tags) == expected
+    !tags.containsKey("key3")
+    tags.get("key3") == null
+    tags.get("key6") == 6
+  }
+
+  def "numeric tags keep their type"() {
+    setup:
+    def tags = new TagMap()
+
+    when:
+    tags.putInt("int", 1)
+    tags.putLong("long", 2L)
+    tags.putFloat("float", 3.5f)
+    tags.putDouble("double", 4.25d)
+
+    then:
+    tags.get("int") instanceof Integer
+    tags.get("int") == 1
+    tags.get("long") instanceof Long
+    tags.get("long") == 2L
+    tags.get("float") instanceof Float
+    tags.get("float") == 3.5f
+    tags.get("double") instanceof Double
+    tags.get("double") == 4.25d
+  }
+
+  def "replacing a numeric tag with an object and back"() {
+    setup:
+    def tags = new TagMap()
+
+    when:
+    tags.putLong("key", 1L)
+    def previous = tags.put("key", "value")
+
+    then:
+    previous == 1L
+    tags.get("key") == "value"
+
+    when:
+    tags.putDouble("key", 0.5d)
+
+    then:
+    tags.size() == 1
+    tags.get("key") == 0.5d
+  }
+
+  def "visitor sees unboxed values"() {
+    setup:
+    def tags = new TagMap()
+    tags.putInt("int", 1)
+    tags.putLong("long", 2L)
+    tags.putFloat("float", 3.5f)
+    tags.putDouble("double", 4.25d)
+    tags.put("string", "value")
+    def visited = [:]
+    def visitor = new TagMap.Visitor() {
+        void visit(String key, Object value) {
+          visited.put(key, "object:" + value)
+        }
+
+        void visit(String key, int value) {
+          visited.put(key, "int:" + value)
+        }
+
+        void visit(String key, long value) {
+          visited.put(key, "long:" + value)
+        }
+
+        void visit(String key, float value) {
+          visited.put(key, "float:" + value)
+        }
+
+        void visit(String key, double value) {
+          visited.put(key, "double:" + value)
+        }
+      }
+
+    when:
+    TagMap.forEachTag(boxed ? new HashMap<>(tags) : tags, visitor)
+
+    then:
+    visited == [
+      "int"   : "int:1",
+      "long"  : "long:2",
+      "float" : "float:3.5",
+      "double": "double:4.25",
+      "string": "object:value"
+    ]
+
+    where:
+    // other maps are unwrapped so visitors see the same thing
+    boxed << [false, true]
+  }
+
+  def "entries can be removed while iterating"() {
+    setup:
+    def tags = new TagMap()
+    for (int i = 0; i < 20; i++) {
+      tags.putInt("key" + i, i)
+    }
+
+    when:
+    def iterator = tags.entrySet().iterator()
+    while (iterator.hasNext()) {
+      if (((Integer) iterator.next().getValue()) % 2 == 0) {
+        iterator.remove()
+      }
+    }
+
+    then:
+    tags.size() == 10
+    tags.keySet() == (0..<20).findAll { it % 2 == 1 }.collect { "key" + it } as Set
+  }
+
+  def "tombstones are reused and cleaned up"() {
+    setup:
+    def tags = new TagMap(4)
+
+    when:
+    for (int i = 0; i < 1000; i++) {
+      tags.putLong("key" + i, i)
+      tags.remove("key" + i)
+    }
+    tags.put("last", "value")
+
+    then:
+    tags.size() == 1
+    tags == ["last": "value"]
+  }
+
+  def "recycled tags are empty and can still be written"() {
+    setup:
+    def tags = TagMap.create(10)
+    tags.putLong("long", 1L)
+    tags.put("string", "value")
+
+    when:
+    tags.recycle()
+
+    then:
+    tags.isEmpty()
+    tags.get("string") == null
+
+    when:
+    // a late write allocates new storage instead of touching recycled arrays
+    tags.putInt("late", 1)
+    tags.put("string", "other")
+
+    then:
+    tags == ["late": 1, "string": "other"]
+  }
+}
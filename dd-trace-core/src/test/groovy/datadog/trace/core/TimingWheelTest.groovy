@@ -0,0 +1,107 @@
+package datadog.trace.core
+
+import datadog.trace.test.util.DDSpecification
+
+class TimingWheelTest extends DDSpecification {
+  static final long TICK = 50
+
+  def "items expire once the wheel passes their deadline"() {
+    setup:
+    def wheel = new TimingWheel<String>(TICK, 1000)
+    def expired = []
+
+    when:
+    wheel.schedule("item", 1000 + deadline)
+
+    then:
+    wheel.size() == 1
+
+    when:
+    wheel.advance(1000 + deadline - 1, { expired << it })
+
+    then:
+    expired.empty
+    wheel.size() == 1
+
+    when:
+    wheel.advance(1000 + (deadline + TICK - 1).intdiv(TICK) * TICK, { expired << it })
+
+    then:
+    expired == ["item"]
+    wheel.empty
+
+    where:
+    // first level, cascading from the second, and from the third level
+    deadline << [120, 64 * TICK + 10, 64 * 64 * TICK + 10, 64 * 64 * 64 * TICK * 3 + 10]
+  }
+
+  def "items with a deadline in the past expire on the next tick"() {
+    setup:
+    def wheel = new TimingWheel<String>(TICK, 0)
+    def expired = []
+    wheel.advance(10 * TICK, { expired << it })
+
+    when:
+    wheel.schedule("late", 0)
+    wheel.advance(10 * TICK, { expired << it })
+
+    then:
+    expired.empty
+
+    when:
+    wheel.advance(11 * TICK, { expired << it })
+
+    then:
+    expired == ["late"]
+  }
+
+  def "expired items can be scheduled again"() {
+    setup:
+    def wheel = new TimingWheel<String>(TICK, 0)
+    def expired = []
+    wheel.schedule("item", TICK)
+
+    when:
+    wheel.advance(TICK, {
+      expired << it
+      if (expired.size() < 3) {
+        wheel.schedule(it, (expired.size() + 1) * TICK)
+      }
+    })
+
+    then:
+    expired == ["item"]
+    wheel.size() == 1
+
+    when:
+    wheel.advance(10 * TICK, { expired << it })
+
+    then:
+    expired == ["item", "item"]
+    wheel.empty
+  }
+
+  def "drain removes every item"() {
+    setup:
+    def wheel = new TimingWheel<Integer>(TICK, 0)
+    for (int i = 0; i < 10_000; i++) {
+      wheel.schedule(i, i * 1000L * TICK)
+    }
+    def seen = []
+    def drained = []
+
+    when:
+    wheel.forEach({ seen << it }, 50)
+
+    then:
+    seen.size() == 50
+    wheel.size() == 10_000
+
+    when:
+    wheel.drain({ drained << it })
+
+    then:
+    drained.sort() == (0..<10_000).toList()
+    wheel.empty
+  }
+}
@@ -489,6 +489,68 @@ class DefaultDataStreamsMonitoringTest extends DDCoreSpecification {
     dataStreams.close()
   }
 
+  def "Points aggregated on application threads are reported"() {
+    given:
+    def conditions = new PollingConditions(timeout: 1)
+    def features = Stub(DDAgentFeaturesDiscovery) {
+      supportsDataStreams() >> true
+    }
+    def timeSource = new ControllableTimeSource()
+    def sink = Mock(Sink)
+    def payloadWriter = new CapturingPayloadWriter()
+
+    def traceConfig = Mock(TraceConfig) {
+      isDataStreamsEnabled() >> true
+    }
+
+    when:
+    def dataStreams = new DefaultDataStreamsMonitoring(sink, features, timeSource, { traceConfig }, wellKnownTags, payloadWriter, DEFAULT_BUCKET_DURATION_NANOS, 4)
+    dataStreams.start()
+
+    then:
+    conditions.eventually {
+      assert dataStreams.supportsDataStreams
+    }
+
+    when:
+    def threads = (1..4).collect {
+      Thread.start {
+        100.times {
+          dataStreams.add(new StatsPoint(["type:testType", "group:testGroup", "topic:testTopic"], 1, 2, 3, timeSource.currentTimeNanos, SECONDS.toNanos(1), 0, 0, null))
+        }
+      }
+    }
+    threads*.join()
+
+    then:
+    dataStreams.inbox.isEmpty()
+
+    when:
+    timeSource.advance(DEFAULT_BUCKET_DURATION_NANOS)
+    dataStreams.report()
+
+    then:
+    conditions.eventually {
+      assert dataStreams.inbox.isEmpty()
+      assert dataStreams.thread.state != Thread.State.RUNNABLE
+      assert payloadWriter.buckets.size() == 1
+    }
+
+    with(payloadWriter.buckets.get(0)) {
+      groups.size() == 1
+
+      with(groups.iterator().next()) {
+        hash == 1
+        parentHash == 2
+        pathwayLatency.count == 400
+      }
+    }
+
+    cleanup:
+    payloadWriter.close()
+    dataStreams.close()
+  }
+
   def "feature upgrade"() {
     given:
     def conditions = new PollingConditions(timeout: 1)
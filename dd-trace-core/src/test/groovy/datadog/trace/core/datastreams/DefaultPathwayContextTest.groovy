@@ -147,6 +147,34 @@ class DefaultPathwayContextTest extends DDCoreSpecification {
     }
   }
 
+  def "Checkpoints with the same edge tags share their node"() {
+    given:
+    def timeSource = new ControllableTimeSource()
+    def first = new DefaultPathwayContext(timeSource, baseHash, null)
+    def second = new DefaultPathwayContext(timeSource, baseHash, null)
+    def overridden = new DefaultPathwayContext(timeSource, baseHash, "other-service")
+
+    when:
+    [first, second, overridden].each {
+      it.setCheckpoint(fromTags(new LinkedHashMap<>(["direction": "in", "topic": "topic", "type": "kafka"])), pointConsumer)
+    }
+
+    then:
+    pointConsumer.points.size() == 3
+    pointConsumer.points[0].hash == pointConsumer.points[1].hash
+    pointConsumer.points[0].aggregationHash == pointConsumer.points[1].aggregationHash
+    pointConsumer.points[0].edgeTags.is(pointConsumer.points[1].edgeTags)
+    pointConsumer.points[2].hash != pointConsumer.points[0].hash
+    pointConsumer.points[2].edgeTags == pointConsumer.points[0].edgeTags
+
+    when:
+    first.setCheckpoint(fromTags(new LinkedHashMap<>(["direction": "out", "topic": "topic", "type": "kafka"])), pointConsumer)
+
+    then:
+    pointConsumer.points[3].edgeTags == ["direction:out", "topic:topic", "type:kafka"]
+    pointConsumer.points[3].parentHash == pointConsumer.points[0].hash
+  }
+
   def "Exception thrown when trying to encode unstarted context"() {
     given:
     def timeSource = new ControllableTimeSource()
@@ -0,0 +1,92 @@
+package datadog.trace.core.datastreams
+
+import com.datadoghq.sketch.ddsketch.encoding.GrowingByteArrayOutput
+import com.datadoghq.sketch.ddsketch.encoding.VarEncodingHelper
+import datadog.trace.test.util.DDSpecification
+
+import static java.nio.charset.StandardCharsets.ISO_8859_1
+
+class PathwayBase64Test extends DDSpecification {
+
+  def "encodes like Base64 over the DDSketch encoding"() {
+    setup:
+    def expected = GrowingByteArrayOutput.withInitialCapacity(20)
+    expected.writeLongLE(hash)
+    VarEncodingHelper.encodeSignedVarLong(expected, pathwayStart)
+    VarEncodingHelper.encodeSignedVarLong(expected, edgeStart)
+    def output = new PathwayBase64.Writer()
+
+    when:
+    output.writeLongLE(hash)
+    output.writeSignedVarLong(pathwayStart)
+    output.writeSignedVarLong(edgeStart)
+
+    then:
+    output.toString() == new String(Base64.encoder.encode(expected.trimmedCopy()), ISO_8859_1)
+
+    where:
+    hash           | pathwayStart    | edgeStart
+    0L             | 0L              | 0L
+    1L             | 1L              | -1L
+    -1L            | 1700000000000L  | 1700000000123L
+    Long.MIN_VALUE | Long.MAX_VALUE  | Long.MIN_VALUE
+    123456789L     | 1L << 55        | -(1L << 56)
+  }
+
+  def "decodes values encoded by the DDSketch encoding"() {
+    setup:
+    def bytes = GrowingByteArrayOutput.withInitialCapacity(20)
+    bytes.writeLongLE(hash)
+    VarEncodingHelper.encodeSignedVarLong(bytes, pathwayStart)
+    VarEncodingHelper.encodeSignedVarLong(bytes, edgeStart)
+    def base64 = new String(Base64.encoder.encode(bytes.trimmedCopy()), ISO_8859_1)
+
+    when:
+    def padded = new PathwayBase64.Reader(base64)
+    def unpadded = new PathwayBase64.Reader(base64.replace("=", ""))
+
+    then:
+    padded.readLongLE() == hash
+    padded.readSignedVarLong() == pathwayStart
+    padded.readSignedVarLong() == edgeStart
+    unpadded.readLongLE() == hash
+    unpadded.readSignedVarLong() == pathwayStart
+    unpadded.readSignedVarLong() == edgeStart
+
+    where:
+    hash           | pathwayStart    | edgeStart
+    0L             | 0L              | 0L
+    -1L            | 1700000000000L  | 1700000000123L
+    Long.MIN_VALUE | Long.MAX_VALUE  | Long.MIN_VALUE
+  }
+
+  def "invalid values are rejected"() {
+    when:
+    def input = new PathwayBase64.Reader(value)
+    input.readLongLE()
+    input.readSignedVarLong()
+    input.readSignedVarLong()
+
+    then:
+    thrown(IOException)
+
+    where:
+    value << ["", "AAAA", "AAAAAAAAAAA*AAAAAAAAAAAA", "é"]
+  }
+
+  def "writer output is readable"() {
+    setup:
+    def output = new PathwayBase64.Writer()
+    output.writeLongLE(42L)
+    output.writeSignedVarLong(1700000000000L)
+    output.writeSignedVarLong(1700000000500L)
+
+    when:
+    def input = new PathwayBase64.Reader(output.toString())
+
+    then:
+    input.readLongLE() == 42L
+    input.readSignedVarLong() == 1700000000000L
+    input.readSignedVarLong() == 1700000000500L
+  }
+}
@@ -0,0 +1,79 @@
+package datadog.trace.core.datastreams
+
+import datadog.trace.api.datastreams.StatsPoint
+import datadog.trace.test.util.DDSpecification
+
+class StripedStatsBucketsTest extends DDSpecification {
+  static final long BUCKET_DURATION = 10
+
+  static StatsPoint point(long aggregationHash, long timestamp, String service = null) {
+    return new StatsPoint(["topic:" + aggregationHash], aggregationHash, 0, aggregationHash, timestamp, 1_000_000_000, 0, 0, service)
+  }
+
+  def "only buckets which started before the given time are drained"() {
+    setup:
+    def stripes = new StripedStatsBuckets(1, 16, BUCKET_DURATION)
+    def timeToBucket = [:]
+    stripes.add(point(1, 1))
+    stripes.add(point(1, 5))
+    stripes.add(point(1, 12))
+    stripes.add(point(2, 3, "other"))
+
+    when:
+    stripes.drainBefore(10, timeToBucket)
+
+    then:
+    timeToBucket.keySet() == [0L] as Set
+    timeToBucket[0L].keySet() == [null, "other"] as Set
+    timeToBucket[0L][null].groups*.pathwayLatency*.count == [2d]
+    timeToBucket[0L]["other"].groups*.hash == [2L]
+
+    when:
+    timeToBucket.clear()
+    stripes.drainBefore(20, timeToBucket)
+
+    then:
+    timeToBucket.keySet() == [10L] as Set
+    timeToBucket[10L][null].groups*.pathwayLatency*.count == [1d]
+
+    when:
+    timeToBucket.clear()
+    stripes.drainBefore(30, timeToBucket)
+
+    then:
+    timeToBucket.isEmpty()
+  }
+
+  def "groups of the same pathway are merged across drains"() {
+    setup:
+    def stripes = new StripedStatsBuckets(1, 16, BUCKET_DURATION)
+    def timeToBucket = [:]
+
+    when:
+    stripes.add(point(1, 1))
+    stripes.drainBefore(10, timeToBucket)
+    stripes.add(point(1, 2))
+    stripes.drainBefore(10, timeToBucket)
+
+    then:
+    timeToBucket[0L][null].groups.size() == 1
+    timeToBucket[0L][null].groups*.pathwayLatency*.count == [2d]
+  }
+
+  def "new groups are refused once the stripe is full"() {
+    setup:
+    def stripes = new StripedStatsBuckets(1, 4, BUCKET_DURATION)
+
+    expect:
+    (1..4).every { stripes.add(point(it, 1)) }
+    !stripes.add(point(5, 1))
+    // known groups can still be recorded into
+    stripes.add(point(1, 2))
+
+    when:
+    stripes.drainBefore(10, [:])
+
+    then:
+    stripes.add(point(5, 1))
+  }
+}
@@ -411,6 +411,41 @@ class HealthMetricsTest extends Specification {
     healthMetrics.close()
   }
 
+  def "test onPendingTraceBacklog"() {
+    setup:
+    def latch = new CountDownLatch(3)
+    def healthMetrics = new TracerHealthMetrics(new Latched(statsD, latch), 100, TimeUnit.MILLISECONDS)
+    healthMetrics.start()
+    when:
+    healthMetrics.onPendingTraceBacklog(42, 7, 2)
+    latch.await(10, TimeUnit.SECONDS)
+    then:
+    1 * statsD.count("pending.scheduled.traces", 7, _)
+    1 * statsD.count("pending.overflowed.traces", 2, _)
+    1 * statsD.gauge("pending.backlog.traces", 42, _)
+    cleanup:
+    healthMetrics.close()
+  }
+
+  def "test spill metrics"() {
+    setup:
+    def latch = new CountDownLatch(4)
+    def healthMetrics = new TracerHealthMetrics(new Latched(statsD, latch), 100, TimeUnit.MILLISECONDS)
+    healthMetrics.start()
+    when:
+    healthMetrics.onSpill(5, 1024)
+    healthMetrics.onSpillReplay(3)
+    healthMetrics.onSpillDrop(2)
+    latch.await(10, TimeUnit.SECONDS)
+    then:
+    1 * statsD.count("spill.traces", 5, _)
+    1 * statsD.count("spill.bytes", 1024, _)
+    1 * statsD.count("spill.replayed.traces", 3, _)
+    1 * statsD.count("spill.dropped.traces", 2, _)
+    cleanup:
+    healthMetrics.close()
+  }
+
   private static class Latched implements StatsDClient {
     final StatsDClient delegate
     final CountDownLatch latch
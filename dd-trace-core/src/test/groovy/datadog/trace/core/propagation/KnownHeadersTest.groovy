@@ -0,0 +1,37 @@
+package datadog.trace.core.propagation
+
+import datadog.trace.test.util.DDSpecification
+
+class KnownHeadersTest extends DDSpecification {
+
+  def "classify #key"() {
+    expect:
+    KnownHeaders.classify(key) == header
+
+    where:
+    key                           | header
+    "x-datadog-trace-id"          | KnownHeaders.DATADOG_TRACE_ID
+    "X-Datadog-Trace-Id"          | KnownHeaders.DATADOG_TRACE_ID
+    "X-DATADOG-PARENT-ID"         | KnownHeaders.DATADOG_PARENT_ID
+    "traceparent"                 | KnownHeaders.TRACE_PARENT
+    "TraceState"                  | KnownHeaders.TRACE_STATE
+    "ot-baggage-t0"               | KnownHeaders.END_TO_END_START
+    "x-b3-traceid"                | KnownHeaders.B3_TRACE_ID
+    "X-B3-Sampled"                | KnownHeaders.B3_SAMPLED
+    "x-amzn-trace-id"             | KnownHeaders.AMZN_TRACE_ID
+    "User-Agent"                  | KnownHeaders.USER_AGENT
+    "x-forwarded-for"             | KnownHeaders.X_FORWARDED_FOR
+    "CF-Connecting-IPv6"          | KnownHeaders.CF_CONNECTING_IP_V6
+    "ſome-header"            | KnownHeaders.UNKNOWN
+    "x-datadog-trace-id-extra"    | KnownHeaders.UNKNOWN
+    "x-datadog-trace-i"           | KnownHeaders.UNKNOWN
+    "ot-baggage-key"              | KnownHeaders.UNKNOWN
+    "tracepаrent"            | KnownHeaders.UNKNOWN
+  }
+
+  def "classification matches equalsIgnoreCase for non-ASCII case folding"() {
+    expect: "the long s upper cases to S like equalsIgnoreCase expects"
+    "tracestate".equalsIgnoreCase("traceſtate")
+    KnownHeaders.classify("traceſtate") == KnownHeaders.TRACE_STATE
+  }
+}
@@ -166,6 +166,50 @@ class W3CHttpInjectorTest extends DDCoreSpecification {
     tracer.close()
   }
 
+  def "traceparent is encoded once until the sampling decision changes"() {
+    setup:
+    def writer = new ListWriter()
+    def tracer = tracerBuilder().writer(writer).build()
+    final DDSpanContext mockedContext =
+      new DDSpanContext(
+      DDTraceId.from("1"),
+      DDSpanId.from("2"),
+      DDSpanId.ZERO,
+      null,
+      "fakeService",
+      "fakeOperation",
+      "fakeResource",
+      UNSET,
+      null,
+      [:],
+      false,
+      "fakeType",
+      0,
+      tracer.traceCollectorFactory.create(DDTraceId.ONE),
+      null,
+      null,
+      NoopPathwayContext.INSTANCE,
+      false,
+      PropagationTags.factory().empty())
+    final Map<String, String> first = [:]
+    final Map<String, String> second = [:]
+    final Map<String, String> third = [:]
+
+    when:
+    injector.inject(mockedContext, first, MapSetter.INSTANCE)
+    injector.inject(mockedContext, second, MapSetter.INSTANCE)
+    mockedContext.setSamplingPriority(USER_KEEP, MANUAL)
+    injector.inject(mockedContext, third, MapSetter.INSTANCE)
+
+    then:
+    first[TRACE_PARENT_KEY] == buildTraceParent('1', '2', UNSET)
+    second[TRACE_PARENT_KEY].is(first[TRACE_PARENT_KEY])
+    third[TRACE_PARENT_KEY] == buildTraceParent('1', '2', USER_KEEP)
+
+    cleanup:
+    tracer.close()
+  }
+
   static String buildTraceParent(String traceId, String spanId, int samplingPriority) {
     return "00-${DDTraceId.from(traceId).toHexString()}-${DDSpanId.toHexStringPadded(DDSpanId.from(spanId))}-${samplingPriority > 0 ? '01': '00'}"
   }
@@ -0,0 +1,133 @@
+package datadog.trace.core.scopemanager
+
+import datadog.trace.api.Platform
+import datadog.trace.common.writer.ListWriter
+import datadog.trace.core.CoreTracer
+import datadog.trace.core.test.DDCoreSpecification
+import spock.lang.IgnoreIf
+
+class ScopeManagerVirtualThreadTest extends DDCoreSpecification {
+
+  CoreTracer tracer
+  ContinuableScopeManager scopeManager
+
+  def setup() {
+    tracer = tracerBuilder().writer(new ListWriter()).build()
+    scopeManager = tracer.scopeManager
+  }
+
+  def cleanup() {
+    tracer.close()
+  }
+
+  def "reading the active span does not allocate a stack"() {
+    when:
+    def stack = runInThread(false) {
+      assert scopeManager.activeSpan() == null
+      assert scopeManager.active() == null
+      scopeManager.tlsScopeStack.get()
+    }
+
+    then:
+    stack == null
+  }
+
+  def "nested scopes are restored when closed"() {
+    when:
+    def depths = runInThread(virtual) {
+      def parent = tracer.activateSpan(tracer.buildSpan("test", "parent").start())
+      def child = tracer.activateSpan(tracer.buildSpan("test", "child").start())
+      def nested = scopeManager.scopeStack().depth()
+      child.close()
+      assert scopeManager.active() == parent
+      parent.close()
+      [nested, scopeManager.scopeStack().depth()]
+    }
+
+    then:
+    depths == [2, 0]
+
+    where:
+    virtual << (Platform.isJavaVersionAtLeast(21) ? [false, true] : [false])
+  }
+
+  def "only virtual threads release their stack once the last scope closes"() {
+    when:
+    def stacks = runInThread(virtual) {
+      def parent = tracer.activateSpan(tracer.buildSpan("test", "parent").start())
+      def active = scopeManager.tlsScopeStack.get()
+      def child = tracer.activateSpan(tracer.buildSpan("test", "child").start())
+      child.close()
+      def nested = scopeManager.tlsScopeStack.get()
+      parent.close()
+      [active, nested, scopeManager.tlsScopeStack.get()]
+    }
+
+    then:
+    stacks[0] != null
+    stacks[1].is(stacks[0])
+    (stacks[2] == null) == virtual
+
+    where:
+    virtual << (Platform.isJavaVersionAtLeast(21) ? [false, true] : [false])
+  }
+
+  @IgnoreIf(reason = "Virtual threads require Java 21", value = {
+    !Platform.isJavaVersionAtLeast(21)
+  })
+  def "stacks captured by a scope state are kept"() {
+    when:
+    def stillActive = runInThread(true) {
+      def state = scopeManager.newScopeState()
+      state.activate()
+      def scope = tracer.activateSpan(tracer.buildSpan("test", "test").start())
+      def stack = scopeManager.tlsScopeStack.get()
+      scope.close()
+      scopeManager.tlsScopeStack.get() == stack
+    }
+
+    then:
+    stillActive
+  }
+
+  def "activating a state fetched without a stack reuses the thread's stack"() {
+    when:
+    def stacks = runInThread(false) {
+      def state = scopeManager.newScopeState()
+      state.fetchFromActive()
+      def scope = tracer.activateSpan(tracer.buildSpan("test", "test").start())
+      def current = scopeManager.tlsScopeStack.get()
+      state.activate()
+      def restored = scopeManager.tlsScopeStack.get()
+      scope.close()
+      [current, restored]
+    }
+
+    then:
+    stacks[1].is(stacks[0])
+  }
+
+  def runInThread(boolean virtual, Closure<?> closure) {
+    def result = null
+    Throwable error = null
+    Runnable task = {
+      try {
+        result = closure.call()
+      } catch (Throwable e) {
+        error = e
+      }
+    }
+    Thread thread
+    if (virtual) {
+      thread = Thread.startVirtualThread(task)
+    } else {
+      thread = new Thread(task)
+      thread.start()
+    }
+    thread.join()
+    if (error != null) {
+      throw error
+    }
+    return result
+  }
+}
@@ -0,0 +1,119 @@
+package datadog.trace.api.cache;
+
+import static java.util.concurrent.TimeUnit.MICROSECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.function.Function;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Throughput and hit ratio of the caches when there are many more keys than the cache can hold,
+ * requested with a Zipfian distribution, like SQL statements or thread names in a large service.
+ * The hit ratio is reported as a secondary result by {@link CacheCounters}.
+ */
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 5, timeUnit = SECONDS)
+@Measurement(iterations = 3, time = 5, timeUnit = SECONDS)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(MICROSECONDS)
+@Threads(4)
+@Fork(value = 1)
+public class CacheBenchmark {
+
+  @Param({"fixedSize", "tinyLfu", "weighted"})
+  String implementation;
+
+  @Param({"256"})
+  int capacity;
+
+  @Param({"100000"})
+  int keySpace;
+
+  @Param({"0.8", "0.99"})
+  double skew;
+
+  private DDCache<String, Object> cache;
+  private String[] keys;
+  private double[] cumulativeWeights;
+
+  @Setup(Level.Trial)
+  public void setup() {
+    switch (implementation) {
+      case "fixedSize":
+        cache = DDCaches.newFixedSizeCache(capacity);
+        break;
+      case "tinyLfu":
+        cache = DDCaches.newFixedSizeTinyLfuCache(capacity);
+        break;
+      case "weighted":
+        cache = DDCaches.newFixedSizeWeightedCache(capacity, value -> 1, capacity);
+        break;
+      default:
+        throw new IllegalArgumentException("Unknown cache implementation " + implementation);
+    }
+    keys = new String[keySpace];
+    cumulativeWeights = new double[keySpace];
+    double total = 0;
+    for (int i = 0; i < keySpace; i++) {
+      keys[i] = "SELECT * FROM table_" + i + " WHERE id = ?";
+      total += 1 / Math.pow(i + 1, skew);
+      cumulativeWeights[i] = total;
+    }
+  }
+
+  @State(Scope.Thread)
+  public static class Workload implements Function<String, Object> {
+    private static final int REQUESTS = 1 << 16;
+
+    String[] requests;
+    int next;
+    boolean missed;
+
+    @Setup(Level.Trial)
+    public void setup(CacheBenchmark benchmark) {
+      double[] weights = benchmark.cumulativeWeights;
+      double total = weights[weights.length - 1];
+      SplittableRandom random = new SplittableRandom();
+      requests = new String[REQUESTS];
+      for (int i = 0; i < REQUESTS; i++) {
+        int index = Arrays.binarySearch(weights, random.nextDouble() * total);
+        requests[i] = benchmark.keys[index < 0 ? -index - 1 : index];
+      }
+    }
+
+    String nextKey() {
+      return requests[next++ & (REQUESTS - 1)];
+    }
+
+    @Override
+    public Object apply(String key) {
+      missed = true;
+      return key;
+    }
+  }
+
+  @Benchmark
+  public Object computeIfAbsent(Workload workload, CacheCounters counters) {
+    Object value = cache.computeIfAbsent(workload.nextKey(), workload);
+    ++counters.lookups;
+    if (workload.missed) {
+      workload.missed = false;
+      ++counters.misses;
+    }
+    return value;
+  }
+}
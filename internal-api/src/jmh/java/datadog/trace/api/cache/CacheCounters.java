@@ -0,0 +1,33 @@
+package datadog.trace.api.cache;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+@State(Scope.Thread)
+@AuxCounters(AuxCounters.Type.EVENTS)
+public class CacheCounters {
+
+  long lookups;
+  long misses;
+
+  public long lookups() {
+    return lookups;
+  }
+
+  public long misses() {
+    return misses;
+  }
+
+  public double hitRatio() {
+    return lookups == 0 ? 0 : 1 - (double) misses / lookups;
+  }
+
+  @Setup(Level.Iteration)
+  public void reset() {
+    lookups = 0;
+    misses = 0;
+  }
+}
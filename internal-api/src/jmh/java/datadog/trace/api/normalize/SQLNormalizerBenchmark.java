@@ -0,0 +1,104 @@
+package datadog.trace.api.normalize;
+
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+import datadog.trace.bootstrap.instrumentation.api.UTF8BytesString;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Normalizes statements like the ones generated by ORMs. The IN list grows with each invocation,
+ * like statements fetching a varying number of entities, so each statement is different from the
+ * previous one. Run with {@code -prof gc} to see the allocation per statement.
+ */
+@State(Scope.Thread)
+@Warmup(iterations = 3, time = 10, timeUnit = SECONDS)
+@Measurement(iterations = 3, time = 10, timeUnit = SECONDS)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(NANOSECONDS)
+@Fork(value = 1)
+public class SQLNormalizerBenchmark {
+
+  private static final int MAX_IN_LIST_SIZE = 64;
+
+  @Param({"hibernate-select", "hibernate-in-list", "jooq-insert", "spring-data-update"})
+  String query;
+
+  private String[] statements;
+  private int next;
+
+  @Setup
+  public void setUp() {
+    statements = new String[MAX_IN_LIST_SIZE];
+    for (int i = 0; i < statements.length; i++) {
+      statements[i] = statement(query, i + 1);
+    }
+  }
+
+  @Benchmark
+  public UTF8BytesString normalize() {
+    return SQLNormalizer.normalize(nextStatement());
+  }
+
+  @Benchmark
+  public UTF8BytesString normalizeCollapsingInLists() {
+    return SQLNormalizer.normalize(nextStatement(), true);
+  }
+
+  private String nextStatement() {
+    String statement = statements[next];
+    next = (next + 1) % statements.length;
+    return statement;
+  }
+
+  private static String statement(String query, int size) {
+    switch (query) {
+      case "hibernate-select":
+        return "select owner0_.id as id1_0_0_, owner0_.first_name as first_na2_0_0_, "
+            + "owner0_.last_name as last_nam3_0_0_, owner0_.address as address4_0_0_, "
+            + "owner0_.city as city5_0_0_, owner0_.telephone as telephon6_0_0_ "
+            + "from owners owner0_ where owner0_.id="
+            + size
+            + " and owner0_.last_name like 'Dav%'";
+      case "hibernate-in-list":
+        return "select pet0_.id as id1_1_, pet0_.name as name2_1_, pet0_.birth_date as birth_da3_1_, "
+            + "pet0_.owner_id as owner_id4_1_, pet0_.type_id as type_id5_1_ from pets pet0_ "
+            + "where pet0_.owner_id in ("
+            + placeholders(size)
+            + ") order by pet0_.name asc";
+      case "jooq-insert":
+        return "insert into \"public\".\"visits\" (\"pet_id\", \"visit_date\", \"description\") "
+            + "values ("
+            + size
+            + ", cast('2024-01-02' as date), 'rabies shot') returning \"public\".\"visits\".\"id\"";
+      case "spring-data-update":
+        return "update orders set status='SHIPPED', updated_at=CURRENT_TIMESTAMP, version=version+1 "
+            + "where id in ("
+            + placeholders(size)
+            + ") and status in ('PAID', 'PACKED')";
+      default:
+        throw new IllegalArgumentException(query);
+    }
+  }
+
+  private static String placeholders(int size) {
+    StringBuilder sb = new StringBuilder();
+    for (int i = 0; i < size; i++) {
+      if (i > 0) {
+        sb.append(", ");
+      }
+      sb.append('?');
+    }
+    return sb.toString();
+  }
+}
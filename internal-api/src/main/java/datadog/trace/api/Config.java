@@ -178,8 +178,10 @@ public class Config {
   private final boolean jeeSplitByDeployment;
   private final int scopeDepthLimit;
   private final boolean scopeStrictMode;
+  private final boolean scopeVirtualThreadsOptimized;
   private final int scopeIterationKeepAlive;
   private final int partialFlushMinSpans;
+  private final boolean partialFlushStreamingEnabled;
   private final int traceKeepLatencyThreshold;
   private final boolean traceKeepLatencyThresholdEnabled;
   private final boolean traceStrictWritesEnabled;
@@ -218,11 +220,13 @@ public class Config {
   private final String healthMetricsStatsdHost;
   private final Integer healthMetricsStatsdPort;
   private final boolean perfMetricsEnabled;
+  private final boolean cacheStatsEnabled;
 
   private final boolean tracerMetricsEnabled;
   private final boolean tracerMetricsBufferingEnabled;
   private final int tracerMetricsMaxAggregates;
   private final int tracerMetricsMaxPending;
+  private final int tracerMetricsStripes;
 
   private final boolean reportHostName;
 
@@ -496,6 +500,7 @@ public class Config {
 
   private final boolean dataStreamsEnabled;
   private final float dataStreamsBucketDurationSeconds;
+  private final int dataStreamsStripes;
 
   private final Set<String> iastWeakHashAlgorithms;
 
@@ -538,6 +543,16 @@ public class Config {
   private final boolean axisPromoteResourceName;
   private final float traceFlushIntervalSeconds;
   private final long tracePostProcessingTimeout;
+  private final int traceSerializationShards;
+  private final boolean traceSerializationDirectBuffers;
+  private final boolean traceAgentCompressionEnabled;
+  private final int traceBatchingTargetBytes;
+  private final long traceBatchingMaxDelayMs;
+  private final boolean traceSpanRecyclingEnabled;
+  private final boolean traceSpanRecyclingDebug;
+  private final String traceSpillDirectory;
+  private final int traceSpillMaxBytes;
+  private final long traceSpillMaxAgeMs;
 
   private final boolean telemetryDebugRequestsEnabled;
 
@@ -897,11 +912,19 @@ public class Config {
     scopeIterationKeepAlive =
         configProvider.getInteger(SCOPE_ITERATION_KEEP_ALIVE, DEFAULT_SCOPE_ITERATION_KEEP_ALIVE);
 
+    scopeVirtualThreadsOptimized =
+        configProvider.getBoolean(
+            SCOPE_VIRTUAL_THREADS_OPTIMIZED, DEFAULT_SCOPE_VIRTUAL_THREADS_OPTIMIZED);
+
     boolean partialFlushEnabled = configProvider.getBoolean(PARTIAL_FLUSH_ENABLED, true);
     partialFlushMinSpans =
         !partialFlushEnabled
             ? 0
             : configProvider.getInteger(PARTIAL_FLUSH_MIN_SPANS, DEFAULT_PARTIAL_FLUSH_MIN_SPANS);
+    partialFlushStreamingEnabled =
+        partialFlushEnabled
+            && configProvider.getBoolean(
+                PARTIAL_FLUSH_STREAMING_ENABLED, DEFAULT_PARTIAL_FLUSH_STREAMING_ENABLED);
 
     traceKeepLatencyThreshold =
         configProvider.getInteger(
@@ -1060,12 +1083,17 @@ public class Config {
     perfMetricsEnabled =
         runtimeMetricsEnabled
             && configProvider.getBoolean(PERF_METRICS_ENABLED, DEFAULT_PERF_METRICS_ENABLED);
+    cacheStatsEnabled =
+        configProvider.getBoolean(CACHE_STATS_ENABLED, DEFAULT_CACHE_STATS_ENABLED);
 
     tracerMetricsEnabled = configProvider.getBoolean(TRACER_METRICS_ENABLED, false);
     tracerMetricsBufferingEnabled =
         configProvider.getBoolean(TRACER_METRICS_BUFFERING_ENABLED, false);
     tracerMetricsMaxAggregates = configProvider.getInteger(TRACER_METRICS_MAX_AGGREGATES, 2048);
     tracerMetricsMaxPending = configProvider.getInteger(TRACER_METRICS_MAX_PENDING, 2048);
+    tracerMetricsStripes =
+        Math.max(
+            0, configProvider.getInteger(TRACER_METRICS_STRIPES, DEFAULT_TRACER_METRICS_STRIPES));
 
     reportHostName =
         configProvider.getBoolean(TRACE_REPORT_HOSTNAME, DEFAULT_TRACE_REPORT_HOSTNAME);
@@ -1764,6 +1792,8 @@ public class Config {
     dataStreamsBucketDurationSeconds =
         configProvider.getFloat(
             DATA_STREAMS_BUCKET_DURATION_SECONDS, DEFAULT_DATA_STREAMS_BUCKET_DURATION);
+    dataStreamsStripes =
+        Math.max(0, configProvider.getInteger(DATA_STREAMS_STRIPES, DEFAULT_DATA_STREAMS_STRIPES));
 
     azureAppServices = configProvider.getBoolean(AZURE_APP_SERVICES, false);
     traceAgentPath = configProvider.getString(TRACE_AGENT_PATH);
@@ -1843,6 +1873,35 @@ public class Config {
         configProvider.getLong(
             TRACE_POST_PROCESSING_TIMEOUT, DEFAULT_TRACE_POST_PROCESSING_TIMEOUT);
 
+    this.traceSerializationShards =
+        Math.max(
+            1,
+            configProvider.getInteger(
+                TRACE_SERIALIZATION_SHARDS, DEFAULT_TRACE_SERIALIZATION_SHARDS));
+    this.traceSerializationDirectBuffers =
+        configProvider.getBoolean(
+            TRACE_SERIALIZATION_DIRECT_BUFFERS, DEFAULT_TRACE_SERIALIZATION_DIRECT_BUFFERS);
+    this.traceAgentCompressionEnabled =
+        configProvider.getBoolean(
+            TRACE_AGENT_COMPRESSION_ENABLED, DEFAULT_TRACE_AGENT_COMPRESSION_ENABLED);
+    this.traceBatchingTargetBytes =
+        configProvider.getInteger(TRACE_BATCHING_TARGET_BYTES, DEFAULT_TRACE_BATCHING_TARGET_BYTES);
+    this.traceBatchingMaxDelayMs =
+        configProvider.getLong(TRACE_BATCHING_MAX_DELAY_MS, DEFAULT_TRACE_BATCHING_MAX_DELAY_MS);
+
+    this.traceSpanRecyclingEnabled =
+        configProvider.getBoolean(
+            TRACE_SPAN_RECYCLING_ENABLED, DEFAULT_TRACE_SPAN_RECYCLING_ENABLED);
+
+    this.traceSpanRecyclingDebug =
+        configProvider.getBoolean(TRACE_SPAN_RECYCLING_DEBUG, DEFAULT_TRACE_SPAN_RECYCLING_DEBUG);
+
+    this.traceSpillDirectory = configProvider.getString(TRACE_SPILL_DIRECTORY);
+    this.traceSpillMaxBytes =
+        configProvider.getInteger(TRACE_SPILL_MAX_BYTES, DEFAULT_TRACE_SPILL_MAX_BYTES);
+    this.traceSpillMaxAgeMs =
+        configProvider.getLong(TRACE_SPILL_MAX_AGE_MS, DEFAULT_TRACE_SPILL_MAX_AGE_MS);
+
     if (isLlmObsEnabled()) {
       log.debug("Attempting to enable LLM Observability");
       if (llmObsMlApp == null || llmObsMlApp.isEmpty()) {
@@ -2014,6 +2073,46 @@ public class Config {
     return tracePostProcessingTimeout;
   }
 
+  public int getTraceSerializationShards() {
+    return traceSerializationShards;
+  }
+
+  public boolean isTraceSerializationDirectBuffers() {
+    return traceSerializationDirectBuffers;
+  }
+
+  public boolean isTraceAgentCompressionEnabled() {
+    return traceAgentCompressionEnabled;
+  }
+
+  public int getTraceBatchingTargetBytes() {
+    return traceBatchingTargetBytes;
+  }
+
+  public long getTraceBatchingMaxDelayMs() {
+    return traceBatchingMaxDelayMs;
+  }
+
+  public boolean isTraceSpanRecyclingEnabled() {
+    return traceSpanRecyclingEnabled;
+  }
+
+  public boolean isTraceSpanRecyclingDebug() {
+    return traceSpanRecyclingDebug;
+  }
+
+  public String getTraceSpillDirectory() {
+    return traceSpillDirectory;
+  }
+
+  public int getTraceSpillMaxBytes() {
+    return traceSpillMaxBytes;
+  }
+
+  public long getTraceSpillMaxAgeMs() {
+    return traceSpillMaxAgeMs;
+  }
+
   public boolean isIntegrationSynapseLegacyOperationName() {
     return integrationSynapseLegacyOperationName;
   }
@@ -2206,10 +2305,18 @@ public class Config {
     return scopeIterationKeepAlive;
   }
 
+  public boolean isScopeVirtualThreadsOptimized() {
+    return scopeVirtualThreadsOptimized;
+  }
+
   public int getPartialFlushMinSpans() {
     return partialFlushMinSpans;
   }
 
+  public boolean isPartialFlushStreamingEnabled() {
+    return partialFlushStreamingEnabled;
+  }
+
   public int getTraceKeepLatencyThreshold() {
     return traceKeepLatencyThreshold;
   }
@@ -2340,6 +2447,10 @@ public class Config {
     return perfMetricsEnabled;
   }
 
+  public boolean isCacheStatsEnabled() {
+    return cacheStatsEnabled;
+  }
+
   public boolean isTracerMetricsEnabled() {
     // When ASM Standalone Billing is enabled metrics should be disabled
     return tracerMetricsEnabled && isApmTracingEnabled();
@@ -2357,6 +2468,10 @@ public class Config {
     return tracerMetricsMaxPending;
   }
 
+  public int getTracerMetricsStripes() {
+    return tracerMetricsStripes;
+  }
+
   public boolean isLogsInjectionEnabled() {
     return logsInjectionEnabled;
   }
@@ -3370,6 +3485,10 @@ public class Config {
     return TimeUnit.MILLISECONDS.toNanos(milliseconds);
   }
 
+  public int getDataStreamsStripes() {
+    return dataStreamsStripes;
+  }
+
   public String getTraceAgentPath() {
     return traceAgentPath;
   }
@@ -4387,10 +4506,14 @@ public class Config {
         + scopeDepthLimit
         + ", scopeStrictMode="
         + scopeStrictMode
+        + ", scopeVirtualThreadsOptimized="
+        + scopeVirtualThreadsOptimized
         + ", scopeIterationKeepAlive="
         + scopeIterationKeepAlive
         + ", partialFlushMinSpans="
         + partialFlushMinSpans
+        + ", partialFlushStreamingEnabled="
+        + partialFlushStreamingEnabled
         + ", traceKeepLatencyThresholdEnabled="
         + traceKeepLatencyThresholdEnabled
         + ", traceKeepLatencyThreshold="
@@ -4440,6 +4563,8 @@ public class Config {
         + healthMetricsStatsdPort
         + ", perfMetricsEnabled="
         + perfMetricsEnabled
+        + ", cacheStatsEnabled="
+        + cacheStatsEnabled
         + ", tracerMetricsEnabled="
         + tracerMetricsEnabled
         + ", tracerMetricsBufferingEnabled="
@@ -4448,6 +4573,8 @@ public class Config {
         + tracerMetricsMaxAggregates
         + ", tracerMetricsMaxPending="
         + tracerMetricsMaxPending
+        + ", tracerMetricsStripes="
+        + tracerMetricsStripes
         + ", reportHostName="
         + reportHostName
         + ", traceAnalyticsEnabled="
@@ -4669,6 +4796,26 @@ public class Config {
         + elasticsearchBodyAndParamsEnabled
         + ", traceFlushInterval="
         + traceFlushIntervalSeconds
+        + ", traceSerializationShards="
+        + traceSerializationShards
+        + ", traceSerializationDirectBuffers="
+        + traceSerializationDirectBuffers
+        + ", traceAgentCompressionEnabled="
+        + traceAgentCompressionEnabled
+        + ", traceBatchingTargetBytes="
+        + traceBatchingTargetBytes
+        + ", traceBatchingMaxDelayMs="
+        + traceBatchingMaxDelayMs
+        + ", traceSpanRecyclingEnabled="
+        + traceSpanRecyclingEnabled
+        + ", traceSpanRecyclingDebug="
+        + traceSpanRecyclingDebug
+        + ", traceSpillDirectory="
+        + traceSpillDirectory
+        + ", traceSpillMaxBytes="
+        + traceSpillMaxBytes
+        + ", traceSpillMaxAgeMs="
+        + traceSpillMaxAgeMs
         + ", injectBaggageAsTagsEnabled="
         + injectBaggageAsTagsEnabled
         + ", logsInjectionEnabled="
@@ -4701,6 +4848,8 @@ public class Config {
         + dataJobsEnabled
         + ", dataJobsCommandPattern="
         + dataJobsCommandPattern
+        + ", dataStreamsStripes="
+        + dataStreamsStripes
         + ", apmTracingEnabled="
         + apmTracingEnabled
         + ", cloudRequestPayloadTagging="
@@ -7,6 +7,10 @@ import static datadog.trace.api.ConfigDefaults.DEFAULT_IAST_ENABLED;
 import static datadog.trace.api.ConfigDefaults.DEFAULT_INTEGRATIONS_ENABLED;
 import static datadog.trace.api.ConfigDefaults.DEFAULT_LLM_OBS_ENABLED;
 import static datadog.trace.api.ConfigDefaults.DEFAULT_MEASURE_METHODS;
+import static datadog.trace.api.ConfigDefaults.DEFAULT_RESOLVER_BYTECODE_CACHE_SIZE;
+import static datadog.trace.api.ConfigDefaults.DEFAULT_RESOLVER_CACHE_MAX_GROWTH;
+import static datadog.trace.api.ConfigDefaults.DEFAULT_RESOLVER_HIERARCHY_INDEX_ENABLED;
+import static datadog.trace.api.ConfigDefaults.DEFAULT_RESOLVER_PREPARSE_THREADS;
 import static datadog.trace.api.ConfigDefaults.DEFAULT_RESOLVER_RESET_INTERVAL;
 import static datadog.trace.api.ConfigDefaults.DEFAULT_RUNTIME_CONTEXT_FIELD_INJECTION;
 import static datadog.trace.api.ConfigDefaults.DEFAULT_SERIALVERSIONUID_FIELD_INJECTION;
@@ -42,9 +46,13 @@ import static datadog.trace.api.config.TraceInstrumentationConfig.JAX_RS_ADDITIO
 import static datadog.trace.api.config.TraceInstrumentationConfig.JDBC_CONNECTION_CLASS_NAME;
 import static datadog.trace.api.config.TraceInstrumentationConfig.JDBC_PREPARED_STATEMENT_CLASS_NAME;
 import static datadog.trace.api.config.TraceInstrumentationConfig.MEASURE_METHODS;
+import static datadog.trace.api.config.TraceInstrumentationConfig.RESOLVER_BYTECODE_CACHE_SIZE;
 import static datadog.trace.api.config.TraceInstrumentationConfig.RESOLVER_CACHE_CONFIG;
 import static datadog.trace.api.config.TraceInstrumentationConfig.RESOLVER_CACHE_DIR;
+import static datadog.trace.api.config.TraceInstrumentationConfig.RESOLVER_CACHE_MAX_GROWTH;
+import static datadog.trace.api.config.TraceInstrumentationConfig.RESOLVER_HIERARCHY_INDEX_ENABLED;
 import static datadog.trace.api.config.TraceInstrumentationConfig.RESOLVER_NAMES_ARE_UNIQUE;
+import static datadog.trace.api.config.TraceInstrumentationConfig.RESOLVER_PREPARSE_THREADS;
 import static datadog.trace.api.config.TraceInstrumentationConfig.RESOLVER_RESET_INTERVAL;
 import static datadog.trace.api.config.TraceInstrumentationConfig.RESOLVER_SIMPLE_METHOD_GRAPH;
 import static datadog.trace.api.config.TraceInstrumentationConfig.RESOLVER_USE_LOADCLASS;
@@ -141,6 +149,10 @@ public class InstrumenterConfig {
 
   private final ResolverCacheConfig resolverCacheConfig;
   private final String resolverCacheDir;
+  private final int resolverCacheMaxGrowth;
+  private final int resolverBytecodeCacheSize;
+  private final int resolverPreparseThreads;
+  private final boolean resolverHierarchyIndexEnabled;
   private final boolean resolverNamesAreUnique;
   private final boolean resolverSimpleMethodGraph;
   private final boolean resolverUseLoadClass;
@@ -244,6 +256,22 @@ public class InstrumenterConfig {
         configProvider.getEnum(
             RESOLVER_CACHE_CONFIG, ResolverCacheConfig.class, ResolverCacheConfig.MEMOS);
     resolverCacheDir = configProvider.getString(RESOLVER_CACHE_DIR);
+    resolverCacheMaxGrowth =
+        Math.max(
+            1,
+            configProvider.getInteger(
+                RESOLVER_CACHE_MAX_GROWTH, DEFAULT_RESOLVER_CACHE_MAX_GROWTH));
+    resolverBytecodeCacheSize =
+        configProvider.getInteger(
+            RESOLVER_BYTECODE_CACHE_SIZE, DEFAULT_RESOLVER_BYTECODE_CACHE_SIZE);
+    resolverPreparseThreads =
+        Platform.isNativeImageBuilder()
+            ? 0
+            : configProvider.getInteger(
+                RESOLVER_PREPARSE_THREADS, DEFAULT_RESOLVER_PREPARSE_THREADS);
+    resolverHierarchyIndexEnabled =
+        configProvider.getBoolean(
+            RESOLVER_HIERARCHY_INDEX_ENABLED, DEFAULT_RESOLVER_HIERARCHY_INDEX_ENABLED);
     resolverNamesAreUnique = configProvider.getBoolean(RESOLVER_NAMES_ARE_UNIQUE, false);
     resolverSimpleMethodGraph =
         // use simpler approach everywhere except GraalVM, where it affects reachability analysis
@@ -464,6 +492,26 @@ public class InstrumenterConfig {
     return resolverCacheDir;
   }
 
+  /** How many times larger than their preset size the shared type pools may grow; 1 to disable. */
+  public int getResolverCacheMaxGrowth() {
+    return resolverCacheMaxGrowth;
+  }
+
+  /** Maximum size in megabytes of the transformed bytecode kept under the resolver cache dir. */
+  public int getResolverBytecodeCacheSize() {
+    return resolverBytecodeCacheSize;
+  }
+
+  /** Number of background threads that pre-parse type outlines from the class-path at startup. */
+  public int getResolverPreparseThreads() {
+    return resolverPreparseThreads;
+  }
+
+  /** Whether to skip matching library types already known to have no matches at build time. */
+  public boolean isResolverHierarchyIndexEnabled() {
+    return resolverHierarchyIndexEnabled;
+  }
+
   public String getInstrumentationConfigId() {
     return instrumentationConfigId;
   }
@@ -605,6 +653,14 @@ public class InstrumenterConfig {
         + resolverCacheConfig
         + ", resolverCacheDir="
         + resolverCacheDir
+        + ", resolverCacheMaxGrowth="
+        + resolverCacheMaxGrowth
+        + ", resolverBytecodeCacheSize="
+        + resolverBytecodeCacheSize
+        + ", resolverPreparseThreads="
+        + resolverPreparseThreads
+        + ", resolverHierarchyIndexEnabled="
+        + resolverHierarchyIndexEnabled
         + ", resolverNamesAreUnique="
         + resolverNamesAreUnique
         + ", resolverSimpleMethodGraph="
@@ -8,9 +8,15 @@ import java.util.function.Function;
 final class CHMCache<K, V> implements DDCache<K, V> {
 
   private final ConcurrentHashMap<K, V> chm;
+  private final DDCacheStats stats;
 
   public CHMCache(final int initialCapacity) {
+    this(initialCapacity, null);
+  }
+
+  CHMCache(final int initialCapacity, final DDCacheStats stats) {
     this.chm = new ConcurrentHashMap<>(initialCapacity);
+    this.stats = stats;
   }
 
   @Override
@@ -20,11 +26,13 @@ final class CHMCache<K, V> implements DDCache<K, V> {
     }
     V value = chm.get(key);
     if (null == value) {
-      value = producer.apply(key);
+      value = DDCacheStats.compute(stats, key, producer);
       V winner = chm.putIfAbsent(key, value);
       if (null != winner) {
         value = winner;
       }
+    } else if (null != stats) {
+      stats.recordHit();
     }
     return value;
   }
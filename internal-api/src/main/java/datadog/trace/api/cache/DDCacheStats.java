@@ -0,0 +1,127 @@
+package datadog.trace.api.cache;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * Hits, misses and evictions of a named cache, and the time spent computing missing values. Only
+ * collected once the tracer has enabled them, when {@code dd.trace.cache.stats.enabled} is set.
+ * Until then named caches only pay a check of the flag.
+ *
+ * <p>Many named caches are created by static initializers on the bootstrap path, so registering a
+ * cache must not read the configuration.
+ *
+ * <p>Caches created with the same name share their stats. The counters are striped so threads
+ * looking up the same cache don't contend on them.
+ */
+public final class DDCacheStats {
+
+  private static final Map<String, DDCacheStats> REGISTRY = new ConcurrentHashMap<>();
+
+  private static volatile boolean enabled;
+
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+  private final LongAdder evictions = new LongAdder();
+  private final LongAdder computeNanos = new LongAdder();
+
+  private DDCacheStats() {}
+
+  /** Returns the stats of the named cache, or null if the cache has no name. */
+  static DDCacheStats register(String name) {
+    if (null == name) {
+      return null;
+    }
+    return REGISTRY.computeIfAbsent(name, n -> new DDCacheStats());
+  }
+
+  /** Starts or stops recording the stats of named caches, called by the tracer once configured. */
+  public static void setEnabled(boolean enabled) {
+    DDCacheStats.enabled = enabled;
+  }
+
+  public static boolean isEnabled() {
+    return enabled;
+  }
+
+  /** Visits the stats of every named cache. */
+  public static void forEach(BiConsumer<String, DDCacheStats> consumer) {
+    REGISTRY.forEach(consumer);
+  }
+
+  /** Returns one line per named cache which was looked up, sorted by name. */
+  public static String summary() {
+    StringBuilder summary = new StringBuilder();
+    for (Map.Entry<String, DDCacheStats> entry : new TreeMap<>(REGISTRY).entrySet()) {
+      DDCacheStats stats = entry.getValue();
+      long hits = stats.hits();
+      long lookups = hits + stats.misses();
+      if (0 == lookups) {
+        continue;
+      }
+      summary
+          .append(entry.getKey())
+          .append(": hits=")
+          .append(hits)
+          .append(", misses=")
+          .append(stats.misses())
+          .append(", evictions=")
+          .append(stats.evictions())
+          .append(", hitRatio=")
+          .append(String.format("%.3f", (double) hits / lookups))
+          .append(", computeMillis=")
+          .append(stats.computeNanos() / 1_000_000)
+          .append('\n');
+    }
+    return summary.toString();
+  }
+
+  /** Computes the value of a missing key, timing it when there are stats. */
+  static <K, V> V compute(DDCacheStats stats, K key, Function<K, ? extends V> producer) {
+    if (null == stats || !enabled) {
+      return producer.apply(key);
+    }
+    long start = System.nanoTime();
+    V value = producer.apply(key);
+    stats.recordMiss(System.nanoTime() - start);
+    return value;
+  }
+
+  void recordHit() {
+    if (enabled) {
+      hits.increment();
+    }
+  }
+
+  void recordMiss(long computeNanos) {
+    misses.increment();
+    this.computeNanos.add(computeNanos);
+  }
+
+  void recordEviction() {
+    if (enabled) {
+      evictions.increment();
+    }
+  }
+
+  public long hits() {
+    return hits.sum();
+  }
+
+  public long misses() {
+    return misses.sum();
+  }
+
+  public long evictions() {
+    return evictions.sum();
+  }
+
+  /** Total time spent computing the values of missing keys. */
+  public long computeNanos() {
+    return computeNanos.sum();
+  }
+}
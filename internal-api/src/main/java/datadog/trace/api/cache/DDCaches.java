@@ -21,6 +21,17 @@ public final class DDCaches {
     return new FixedSizeCache.ObjectHash<>(capacity);
   }
 
+  /**
+   * Creates a fixed-size cache whose hits, misses and evictions are recorded under the given name
+   * when {@code dd.trace.cache.stats.enabled} is set.
+   *
+   * @see #newFixedSizeCache(int)
+   * @see DDCacheStats
+   */
+  public static <K, V> DDCache<K, V> newFixedSizeCache(final String name, final int capacity) {
+    return new FixedSizeCache.ObjectHash<>(capacity, DDCacheStats.register(name));
+  }
+
   /**
    * Specialized fixed-size cache that uses {@link System#identityHashCode} for key hashing and
    * equality.
@@ -50,6 +61,28 @@ public final class DDCaches {
     return new FixedSizeWeakKeyCache<>(capacity);
   }
 
+  /**
+   * Specialized fixed-size cache which only lets a new key evict an element when the key is
+   * requested more frequently. Prefer it over {@link #newFixedSizeCache(int)} when there are more
+   * keys than the cache can hold, but most requests are for a few of them.
+   *
+   * @see #newFixedSizeCache(int)
+   */
+  public static <K, V> DDCache<K, V> newFixedSizeTinyLfuCache(final int capacity) {
+    return new FixedSizeTinyLfuCache<>(capacity, null);
+  }
+
+  /**
+   * Creates a TinyLFU cache whose stats are recorded under the given name.
+   *
+   * @see #newFixedSizeTinyLfuCache(int)
+   * @see DDCacheStats
+   */
+  public static <K, V> DDCache<K, V> newFixedSizeTinyLfuCache(
+      final String name, final int capacity) {
+    return new FixedSizeTinyLfuCache<>(capacity, DDCacheStats.register(name));
+  }
+
   /**
    * Specialized fixed-size cache which also tracks the overall weight of cached elements.
    *
@@ -61,7 +94,18 @@ public final class DDCaches {
    */
   public static <K, V> DDCache<K, V> newFixedSizeWeightedCache(
       final int capacity, final ToIntFunction<V> weigher, final int maxWeight) {
-    return new FixedSizeWeightedCache<>(capacity, weigher, maxWeight);
+    return new FixedSizeWeightedCache<>(capacity, weigher, maxWeight, null);
+  }
+
+  /**
+   * Creates a weighted cache whose stats are recorded under the given name.
+   *
+   * @see #newFixedSizeWeightedCache(int, ToIntFunction, int)
+   * @see DDCacheStats
+   */
+  public static <K, V> DDCache<K, V> newFixedSizeWeightedCache(
+      final String name, final int capacity, final ToIntFunction<V> weigher, final int maxWeight) {
+    return new FixedSizeWeightedCache<>(capacity, weigher, maxWeight, DDCacheStats.register(name));
   }
 
   /**
@@ -79,6 +123,17 @@ public final class DDCaches {
     return new CHMCache<>(initialCapacity);
   }
 
+  /**
+   * Creates an unbounded cache whose hits and misses are recorded under the given name.
+   *
+   * @see #newUnboundedCache(int)
+   * @see DDCacheStats
+   */
+  public static <K, V> DDCache<K, V> newUnboundedCache(
+      final String name, final int initialCapacity) {
+    return new CHMCache<>(initialCapacity, DDCacheStats.register(name));
+  }
+
   public static <K, V> DDPartialKeyCache<K, V> newFixedSizePartialKeyCache(final int capacity) {
     return new FixedSizePartialKeyCache<>(capacity);
   }
@@ -30,6 +30,7 @@ abstract class FixedSizeCache<K, V> implements DDCache<K, V> {
   // or write the same information at that position, or other information in the
   // case of a collision.
   private final Pair<K, V>[] elements;
+  private final DDCacheStats stats;
 
   /**
    * Creates a <code>FixedSizeCache</code> that can hold up to <code>capacity</code> elements, if
@@ -37,11 +38,20 @@ abstract class FixedSizeCache<K, V> implements DDCache<K, V> {
    *
    * @param capacity the maximum number of elements that the cache can hold
    */
-  @SuppressWarnings("unchecked")
   FixedSizeCache(int capacity) {
+    this(capacity, null);
+  }
+
+  /**
+   * @param capacity the maximum number of elements that the cache can hold
+   * @param stats where to record lookups, or null
+   */
+  @SuppressWarnings("unchecked")
+  FixedSizeCache(int capacity, DDCacheStats stats) {
     int size = calculateSize(capacity);
     this.elements = new Pair[size];
     this.mask = size - 1;
+    this.stats = stats;
   }
 
   static int calculateSize(int capacity) {
@@ -87,10 +97,16 @@ abstract class FixedSizeCache<K, V> implements DDCache<K, V> {
       } else if (equals(key, current)) {
         // we found a cached key, so use that value
         value = current.getRight();
+        if (null != stats) {
+          stats.recordHit();
+        }
         break;
       } else if (i == 3) {
         // all 3 slots have been taken, so overwrite the first one
         value = produceAndStoreValue(key, producer, firstPos);
+        if (null != stats) {
+          stats.recordEviction();
+        }
         break;
       }
       // slot was occupied by someone else, so try another slot
@@ -118,7 +134,7 @@ abstract class FixedSizeCache<K, V> implements DDCache<K, V> {
   abstract boolean equals(K key, Pair<K, V> current);
 
   private V produceAndStoreValue(K key, Function<K, ? extends V> producer, int pos) {
-    V value = producer.apply(key);
+    V value = DDCacheStats.compute(stats, key, producer);
     elements[pos] = Pair.of(key, value);
     return value;
   }
@@ -134,6 +150,10 @@ abstract class FixedSizeCache<K, V> implements DDCache<K, V> {
       super(capacity);
     }
 
+    ObjectHash(int capacity, DDCacheStats stats) {
+      super(capacity, stats);
+    }
+
     int hash(K key) {
       return key.hashCode();
     }
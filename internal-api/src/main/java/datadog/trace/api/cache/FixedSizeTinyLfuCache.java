@@ -0,0 +1,133 @@
+package datadog.trace.api.cache;
+
+import static datadog.trace.api.cache.FixedSizeCache.calculateSize;
+import static datadog.trace.api.cache.FixedSizeCache.rehash;
+
+import datadog.trace.api.Pair;
+import java.util.Arrays;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * This is a fixed size cache that only has one operation <code>computeIfAbsent</code>, that is used
+ * to retrieve, or store and compute the cached value.
+ *
+ * <p>If there is a hash collision, the cache uses double hashing two more times to try to find a
+ * match or an unused slot, like {@link FixedSizeCache}. Unlike {@link FixedSizeCache}, when all
+ * three slots are taken the new element only replaces the least frequently used of them if it has
+ * been requested more often, according to a {@link FrequencySketch} of recent requests (TinyLFU
+ * admission). This keeps popular elements cached when many rarely used keys are looked up, instead
+ * of letting each of them evict whichever element shares its slots.
+ *
+ * <p>The cache is thread safe, and assumes that the <code>Producer</code> passed into <code>
+ * computeIfAbsent</code> is idempotent, or otherwise you might not get back the value you expect
+ * from a cache lookup.
+ *
+ * @param <K> key type
+ * @param <V> value type
+ */
+final class FixedSizeTinyLfuCache<K, V> implements DDCache<K, V> {
+
+  private final int mask;
+  // This is a cache, so there is no need for volatile, atomics or synchronized.
+  // All race conditions here are benign since you always read or write a full
+  // Element that can not be modified, and eventually other threads will see it
+  // or write the same information at that position, or other information in the
+  // case of a collision.
+  private final Pair<K, V>[] elements;
+  private final FrequencySketch sketch;
+  private final DDCacheStats stats;
+
+  /**
+   * Creates a <code>FixedSizeTinyLfuCache</code> that can hold up to <code>capacity</code>
+   * elements, if the key hash function has perfect spread.
+   *
+   * @param capacity the maximum number of elements that the cache can hold
+   * @param stats where to record lookups, or null
+   */
+  @SuppressWarnings("unchecked")
+  FixedSizeTinyLfuCache(int capacity, DDCacheStats stats) {
+    int size = calculateSize(capacity);
+    this.elements = new Pair[size];
+    this.mask = size - 1;
+    this.sketch = new FrequencySketch(size);
+    this.stats = stats;
+  }
+
+  /**
+   * Look up or create and store a value in the cache.
+   *
+   * <p>If there is a hash collision, the method uses double hashing two more times to try to find a
+   * match or an unused slot. If there is no match or empty slot, the least frequently used of the
+   * three slots is overwritten if the key is used more frequently, otherwise the value is returned
+   * without being stored.
+   *
+   * @param key the key to look up
+   * @param producer how to create a cached value base on the key if the lookup fails
+   * @return the cached or created and stored value
+   */
+  @Override
+  public V computeIfAbsent(K key, Function<K, ? extends V> producer) {
+    if (key == null) {
+      return null;
+    }
+
+    int hash = key.hashCode();
+    sketch.increment(hash);
+
+    int h = hash;
+    int victimPos = -1;
+    int victimFrequency = Integer.MAX_VALUE;
+    // try to find a slot or a match 3 times
+    for (int i = 1; i <= 3; i++) {
+      int pos = h & mask;
+      Pair<K, V> current = elements[pos];
+      if (current == null) {
+        // we found an empty slot, so store the value there
+        return produceAndStoreValue(key, producer, pos);
+      } else if (key.equals(current.getLeft())) {
+        // we found a cached key, so use that value
+        if (null != stats) {
+          stats.recordHit();
+        }
+        return current.getRight();
+      }
+      int frequency = sketch.frequency(current.getLeft().hashCode());
+      if (frequency < victimFrequency) {
+        victimFrequency = frequency;
+        victimPos = pos;
+      }
+      // slot was occupied by someone else, so try another slot
+      h = rehash(h);
+    }
+    // all 3 slots have been taken, only evict the least used one for a more popular key
+    if (sketch.frequency(hash) > victimFrequency) {
+      if (null != stats) {
+        stats.recordEviction();
+      }
+      return produceAndStoreValue(key, producer, victimPos);
+    }
+    return DDCacheStats.compute(stats, key, producer);
+  }
+
+  @Override
+  public void clear() {
+    Arrays.fill(elements, null);
+    sketch.clear();
+  }
+
+  @Override
+  public void visit(BiConsumer<K, V> consumer) {
+    for (Pair<K, V> e : elements) {
+      if (null != e) {
+        consumer.accept(e.getLeft(), e.getRight());
+      }
+    }
+  }
+
+  private V produceAndStoreValue(K key, Function<K, ? extends V> producer, int pos) {
+    V value = DDCacheStats.compute(stats, key, producer);
+    elements[pos] = Pair.of(key, value);
+    return value;
+  }
+}
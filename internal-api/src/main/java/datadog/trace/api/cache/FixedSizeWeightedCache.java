@@ -38,6 +38,7 @@ final class FixedSizeWeightedCache<K, V> implements DDCache<K, V> {
   private final ToIntFunction<V> weigher;
   private final int totalWeightLimit;
   private final int totalWeightTarget;
+  private final DDCacheStats stats;
 
   // only used as a hint, so it doesn't need to be 100% accurate
   private volatile int totalWeightEstimate;
@@ -55,15 +56,18 @@ final class FixedSizeWeightedCache<K, V> implements DDCache<K, V> {
    * @param capacity the maximum number of elements that the cache can hold
    * @param weigher the function used to weigh elements before they are cached
    * @param totalWeightLimit the maximum combined weight of cached elements
+   * @param stats where to record lookups, or null
    */
   @SuppressWarnings("unchecked")
-  FixedSizeWeightedCache(int capacity, ToIntFunction<V> weigher, int totalWeightLimit) {
+  FixedSizeWeightedCache(
+      int capacity, ToIntFunction<V> weigher, int totalWeightLimit, DDCacheStats stats) {
     int size = calculateSize(capacity);
     this.elements = new Weighed[size];
     this.mask = size - 1;
     this.weigher = weigher;
     this.totalWeightLimit = totalWeightLimit;
     this.totalWeightTarget = (int) (0.5 + totalWeightLimit * 0.9); // target 90% of limit
+    this.stats = stats;
   }
 
   /**
@@ -106,10 +110,16 @@ final class FixedSizeWeightedCache<K, V> implements DDCache<K, V> {
       } else if (key.equals(current.key)) {
         // we found a cached key, so use that value
         value = current.value;
+        if (null != stats) {
+          stats.recordHit();
+        }
         break;
       }
       if (i == 3) {
         // we've searched all 3 slots, overwrite the first/evicted slot
+        if (null != stats && old != EVICTED) {
+          stats.recordEviction();
+        }
         value = produceAndStoreValue(key, producer, oldPos, old.weight);
         break;
       }
@@ -137,7 +147,7 @@ final class FixedSizeWeightedCache<K, V> implements DDCache<K, V> {
   }
 
   private V produceAndStoreValue(K key, Function<K, ? extends V> producer, int pos, int oldWeight) {
-    V value = producer.apply(key);
+    V value = DDCacheStats.compute(stats, key, producer);
     int weight = weigher.applyAsInt(value);
     if (weight > totalWeightLimit) {
       return value; // too big to cache
@@ -172,6 +182,9 @@ final class FixedSizeWeightedCache<K, V> implements DDCache<K, V> {
         if (totalWeight > totalWeightTarget) {
           totalWeight -= element.weight;
           elements[i] = EVICTED;
+          if (null != stats) {
+            stats.recordEviction();
+          }
         }
       }
     }
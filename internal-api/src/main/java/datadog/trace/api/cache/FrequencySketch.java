@@ -0,0 +1,121 @@
+package datadog.trace.api.cache;
+
+import static datadog.trace.api.cache.FixedSizeCache.calculateSize;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+
+/**
+ * Approximate access counts of cache keys, used to decide whether a new key is worth evicting an
+ * existing one.
+ *
+ * <p>This is a count-min sketch of 4-bit counters, 16 of them packed in each long. Each key has a
+ * counter in four different longs, and its frequency is the smallest of them. Counters are halved
+ * once the number of increments reaches ten times the capacity of the cache, so keys which were
+ * popular a while ago don't hold their place forever.
+ *
+ * <p>Like the caches themselves, the counters use no synchronization. Increments lost to races
+ * only make the counts less accurate, which the sketch already is by design. The number of
+ * increments is counted atomically, so only one thread halves the counters each time.
+ */
+final class FrequencySketch {
+
+  private static final long[] SEEDS = {
+    0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L
+  };
+  private static final long RESET_MASK = 0x7777777777777777L;
+  private static final long ONE_MASK = 0x1111111111111111L;
+
+  private final long[] table;
+  private final int mask;
+  private final int sampleSize;
+  private volatile int additions;
+  private volatile int resetting;
+
+  private static final AtomicIntegerFieldUpdater<FrequencySketch> ADDITIONS_UPDATER =
+      AtomicIntegerFieldUpdater.newUpdater(FrequencySketch.class, "additions");
+  private static final AtomicIntegerFieldUpdater<FrequencySketch> RESETTING_UPDATER =
+      AtomicIntegerFieldUpdater.newUpdater(FrequencySketch.class, "resetting");
+
+  FrequencySketch(int capacity) {
+    int size = calculateSize(capacity);
+    this.table = new long[size];
+    this.mask = size - 1;
+    this.sampleSize = capacity > Integer.MAX_VALUE / 10 ? Integer.MAX_VALUE : capacity * 10;
+  }
+
+  /** Returns the estimated number of times the hash was recorded, at most 15. */
+  int frequency(int hash) {
+    int item = spread(hash);
+    int start = (item & 3) << 2;
+    int frequency = 15;
+    for (int i = 0; i < 4; i++) {
+      int offset = (start + i) << 2;
+      int count = (int) ((table[indexOf(item, i)] >>> offset) & 0xfL);
+      frequency = Math.min(frequency, count);
+    }
+    return frequency;
+  }
+
+  /** Records an access to the key with the given hash. */
+  void increment(int hash) {
+    int item = spread(hash);
+    int start = (item & 3) << 2;
+    boolean added = false;
+    for (int i = 0; i < 4; i++) {
+      added |= incrementAt(indexOf(item, i), (start + i) << 2);
+    }
+    if (added
+        && ADDITIONS_UPDATER.incrementAndGet(this) >= sampleSize
+        && RESETTING_UPDATER.compareAndSet(this, 0, 1)) {
+      try {
+        reset();
+      } finally {
+        resetting = 0;
+      }
+    }
+  }
+
+  void clear() {
+    Arrays.fill(table, 0L);
+    additions = 0;
+  }
+
+  private boolean incrementAt(int index, int offset) {
+    long counter = 0xfL << offset;
+    long value = table[index];
+    if ((value & counter) != counter) {
+      table[index] = value + (1L << offset);
+      return true;
+    }
+    return false;
+  }
+
+  /** Halves every counter, forgetting half of the history. */
+  private void reset() {
+    int odd = 0;
+    for (int i = 0; i < table.length; i++) {
+      odd += Long.bitCount(table[i] & ONE_MASK);
+      table[i] = (table[i] >>> 1) & RESET_MASK;
+    }
+    // increments made while halving are counted, but never take the count below zero
+    int current;
+    int halved;
+    do {
+      current = additions;
+      halved = Math.max(0, current - (odd >>> 2)) >>> 1;
+    } while (!ADDITIONS_UPDATER.compareAndSet(this, current, halved));
+  }
+
+  private int indexOf(int item, int i) {
+    long hash = (item + SEEDS[i]) * SEEDS[i];
+    hash += hash >>> 32;
+    return ((int) hash) & mask;
+  }
+
+  private static int spread(int hash) {
+    hash = ((hash >>> 16) ^ hash) * 0x45d9f3b;
+    hash = ((hash >>> 16) ^ hash) * 0x45d9f3b;
+    return (hash >>> 16) ^ hash;
+  }
+}
@@ -8,6 +8,7 @@ public final class QualifiedClassNameCache extends ClassValue<QualifiedClassName
   private final Function<Class<?>, CharSequence> formatter;
   private final Functions.Join joiner;
   private final int leafSize;
+  private final String name;
 
   public QualifiedClassNameCache(
       Function<Class<?>, CharSequence> formatter, Functions.Join joiner) {
@@ -16,6 +17,21 @@ public final class QualifiedClassNameCache extends ClassValue<QualifiedClassName
 
   public QualifiedClassNameCache(
       Function<Class<?>, CharSequence> formatter, Functions.Join joiner, int leafSize) {
+    this(null, formatter, joiner, leafSize);
+  }
+
+  /** The per-class caches of a named cache share the stats recorded under that name. */
+  public QualifiedClassNameCache(
+      String name, Function<Class<?>, CharSequence> formatter, Functions.Join joiner) {
+    this(name, formatter, joiner, 16);
+  }
+
+  public QualifiedClassNameCache(
+      String name,
+      Function<Class<?>, CharSequence> formatter,
+      Functions.Join joiner,
+      int leafSize) {
+    this.name = name;
     this.formatter = formatter;
     this.joiner = joiner;
     this.leafSize = leafSize;
@@ -23,7 +39,7 @@ public final class QualifiedClassNameCache extends ClassValue<QualifiedClassName
 
   @Override
   protected Leaf computeValue(Class<?> type) {
-    return new Leaf(formatter.apply(type), joiner, leafSize);
+    return new Leaf(formatter.apply(type), joiner, name, leafSize);
   }
 
   static final class Leaf {
@@ -33,11 +49,11 @@ public final class QualifiedClassNameCache extends ClassValue<QualifiedClassName
     private final DDCache<CharSequence, CharSequence> cache;
     private final Function<CharSequence, CharSequence> joiner;
 
-    private Leaf(CharSequence name, Functions.Join joiner, int leafSize) {
+    private Leaf(CharSequence name, Functions.Join joiner, String cacheName, int leafSize) {
       this.name = name;
       // the class provides a natural bound on the number of elements
       // (e.g. the number of methods)
-      this.cache = DDCaches.newUnboundedCache(leafSize);
+      this.cache = DDCaches.newUnboundedCache(cacheName, leafSize);
       this.joiner = joiner.curry(name);
     }
 
@@ -3,8 +3,6 @@ package datadog.trace.api.normalize;
 import datadog.trace.api.cache.DDCache;
 import datadog.trace.api.cache.DDCaches;
 import datadog.trace.bootstrap.instrumentation.api.URIUtils;
-import java.util.ArrayList;
-import java.util.List;
 import java.util.Map;
 import java.util.function.Function;
 import org.slf4j.Logger;
@@ -16,44 +14,40 @@ final class AntPatternHttpPathNormalizer extends HttpPathNormalizer {
   /** Used to preserve original value as is when it's mapped to this value. */
   private static final String KEEP_AS_IS = "*";
 
-  private final Map<String, String> resourceNameMatchers;
-  private final AntPathMatcher matcher = new AntPathMatcher();
+  private final AntPatternTrie patterns = new AntPatternTrie();
 
-  private final DDCache<String, String> cache = DDCaches.newFixedSizeCache(512);
+  // keep the most requested routes when there are more distinct paths than fit
+  private final DDCache<String, String> cache =
+      DDCaches.newFixedSizeTinyLfuCache("http_path_patterns", 512);
   private final Function<String, String> cacheLoader =
       new Function<String, String>() {
         @Override
         public String apply(String path) {
-          for (Map.Entry<String, String> resourceNameMatcher : resourceNameMatchers.entrySet()) {
-            if (matcher.match(resourceNameMatcher.getKey(), path)) {
-              if (KEEP_AS_IS.equals(resourceNameMatcher.getValue())) {
-                return path;
-              }
-              return resourceNameMatcher.getValue();
-            }
+          String resourceName = patterns.match(path);
+          if (KEEP_AS_IS.equals(resourceName)) {
+            return path;
           }
-          return null;
+          return resourceName;
         }
       };
 
   AntPatternHttpPathNormalizer(Map<String, String> httpResourceNameMatchers) {
-    resourceNameMatchers = httpResourceNameMatchers;
-
-    // Clean up invalid patterns
-    List<String> invalidPatterns = new ArrayList<>(httpResourceNameMatchers.keySet().size());
-    for (String pattern : resourceNameMatchers.keySet()) {
-      if (!matcher.isPattern(pattern)) {
-        invalidPatterns.add(pattern);
+    AntPathMatcher matcher = new AntPathMatcher();
+    for (Map.Entry<String, String> resourceNameMatcher : httpResourceNameMatchers.entrySet()) {
+      String pattern = resourceNameMatcher.getKey();
+      if (matcher.isPattern(pattern)) {
+        patterns.add(pattern, resourceNameMatcher.getValue());
+      } else {
+        log.warn("Invalid pattern {} removed from matchers", pattern);
       }
     }
-    for (String invalid : invalidPatterns) {
-      log.warn("Invalid pattern {} removed from matchers", invalid);
-      resourceNameMatchers.remove(invalid);
-    }
   }
 
   @Override
   public String normalize(String path, boolean encoded) {
+    if (patterns.isEmpty()) {
+      return null;
+    }
     if (encoded) {
       path = URIUtils.decode(path);
     }
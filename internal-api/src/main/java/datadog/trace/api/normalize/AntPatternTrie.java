@@ -0,0 +1,236 @@
+package datadog.trace.api.normalize;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Ant-style path patterns compiled into a trie of path segments, so a path is matched against all
+ * patterns in a single walk instead of one pattern at a time.
+ *
+ * <p>Literal segments are compared in place against the path, without splitting it into segment
+ * strings. Segments containing '*' or '?' are wildcard edges, and '**' edges match zero or more
+ * segments. Matching follows the same rules as {@link AntPathMatcher#match(String, String)}, and
+ * when several patterns match a path the one added first wins.
+ */
+final class AntPatternTrie {
+
+  private final Node absolute = new Node();
+  private final Node relative = new Node();
+  private final List<String> values = new ArrayList<>();
+
+  /** Adds a pattern, which has a lower priority than the patterns added before. */
+  void add(String pattern, String value) {
+    int priority = values.size();
+    values.add(value);
+    Node node = pattern.startsWith("/") ? absolute : relative;
+    node.reachedBy(priority);
+    boolean anyDirs = false;
+    int length = pattern.length();
+    for (int start = 0; start < length; ) {
+      int end = pattern.indexOf('/', start);
+      if (end == -1) {
+        end = length;
+      }
+      if (end > start) {
+        String segment = pattern.substring(start, end);
+        if ("**".equals(segment)) {
+          anyDirs = true;
+          if (null == node.anyDirs) {
+            node.anyDirs = new Node();
+          }
+          node = node.anyDirs;
+        } else {
+          node = node.edge(segment);
+        }
+        node.reachedBy(priority);
+      }
+      start = end + 1;
+    }
+    node.endings.add(new Ending(priority, pattern.endsWith("/"), anyDirs));
+  }
+
+  boolean isEmpty() {
+    return values.isEmpty();
+  }
+
+  /** Returns the value of the first pattern matching the path, or null if none match. */
+  String match(String path) {
+    if (null == path || values.isEmpty()) {
+      return null;
+    }
+    Segments segments = new Segments(path);
+    Node root = path.startsWith("/") ? absolute : relative;
+    int priority = match(root, segments, 0, Integer.MAX_VALUE);
+    return priority < Integer.MAX_VALUE ? values.get(priority) : null;
+  }
+
+  /** Returns the priority of the best pattern matching the remaining segments, or {@code best}. */
+  private static int match(Node node, Segments segments, int index, int best) {
+    if (node.minPriority >= best) {
+      return best; // nothing under this node can beat what we already found
+    }
+    if (index == segments.count) {
+      for (Ending ending : node.endings) {
+        // like AntPathMatcher, trailing slashes only need to agree when there is no '**'
+        if (ending.priority < best
+            && (ending.anyDirs || ending.trailingSlash == segments.trailingSlash)) {
+          best = ending.priority;
+        }
+      }
+      if (segments.trailingSlash) {
+        // AntPathMatcher lets "/foo/*" match "/foo/"
+        for (Edge edge : node.edges) {
+          if ("*".equals(edge.segment)) {
+            for (Ending ending : edge.node.endings) {
+              if (!ending.anyDirs && ending.priority < best) {
+                best = ending.priority;
+              }
+            }
+          }
+        }
+      }
+    } else {
+      for (Edge edge : node.edges) {
+        if (edge.matches(segments, index)) {
+          best = match(edge.node, segments, index + 1, best);
+        }
+      }
+    }
+    if (null != node.anyDirs) {
+      for (int next = index; next <= segments.count; next++) {
+        best = match(node.anyDirs, segments, next, best);
+      }
+    }
+    return best;
+  }
+
+  private static final class Node {
+    final List<Edge> edges = new ArrayList<>(2);
+    final List<Ending> endings = new ArrayList<>(1);
+    Node anyDirs;
+    int minPriority = Integer.MAX_VALUE;
+
+    void reachedBy(int priority) {
+      minPriority = Math.min(minPriority, priority);
+    }
+
+    Node edge(String segment) {
+      for (Edge edge : edges) {
+        if (edge.segment.equals(segment)) {
+          return edge.node;
+        }
+      }
+      Edge edge = new Edge(segment);
+      edges.add(edge);
+      return edge.node;
+    }
+  }
+
+  private static final class Edge {
+    final String segment;
+    final int hash;
+    final boolean wildcard;
+    final Node node = new Node();
+
+    Edge(String segment) {
+      this.segment = segment;
+      this.hash = segment.hashCode();
+      this.wildcard = segment.indexOf('*') != -1 || segment.indexOf('?') != -1;
+    }
+
+    boolean matches(Segments segments, int index) {
+      int start = segments.starts[index];
+      int end = segments.ends[index];
+      if (wildcard) {
+        return wildcardMatches(segment, segments.path, start, end);
+      }
+      return hash == segments.hashes[index]
+          && segment.length() == end - start
+          && segments.path.regionMatches(start, segment, 0, end - start);
+    }
+  }
+
+  private static final class Ending {
+    final int priority;
+    final boolean trailingSlash;
+    final boolean anyDirs;
+
+    Ending(int priority, boolean trailingSlash, boolean anyDirs) {
+      this.priority = priority;
+      this.trailingSlash = trailingSlash;
+      this.anyDirs = anyDirs;
+    }
+  }
+
+  /** Bounds and hash codes of the non-empty segments of a path. */
+  private static final class Segments {
+    final String path;
+    final boolean trailingSlash;
+    final int count;
+    final int[] starts;
+    final int[] ends;
+    final int[] hashes;
+
+    Segments(String path) {
+      this.path = path;
+      this.trailingSlash = path.endsWith("/");
+      int length = path.length();
+      int maxCount = 1;
+      for (int i = 0; i < length; i++) {
+        if (path.charAt(i) == '/') {
+          maxCount++;
+        }
+      }
+      this.starts = new int[maxCount];
+      this.ends = new int[maxCount];
+      this.hashes = new int[maxCount];
+      int count = 0;
+      int hash = 0;
+      int start = 0;
+      for (int i = 0; i <= length; i++) {
+        char c = i < length ? path.charAt(i) : '/';
+        if (c == '/') {
+          if (i > start) {
+            starts[count] = start;
+            ends[count] = i;
+            hashes[count] = hash;
+            count++;
+          }
+          hash = 0;
+          start = i + 1;
+        } else {
+          hash = 31 * hash + c;
+        }
+      }
+      this.count = count;
+    }
+  }
+
+  /** Matches a segment where '*' is zero or more characters and '?' is exactly one. */
+  static boolean wildcardMatches(String pattern, String path, int start, int end) {
+    int p = 0;
+    int s = start;
+    int star = -1;
+    int backtrack = start;
+    while (s < end) {
+      char c = p < pattern.length() ? pattern.charAt(p) : 0;
+      if (c == '*') {
+        star = p++;
+        backtrack = s;
+      } else if (p < pattern.length() && (c == '?' || c == path.charAt(s))) {
+        p++;
+        s++;
+      } else if (star >= 0) {
+        // let the last '*' swallow one more character and try again
+        p = star + 1;
+        s = ++backtrack;
+      } else {
+        return false;
+      }
+    }
+    while (p < pattern.length() && pattern.charAt(p) == '*') {
+      p++;
+    }
+    return p == pattern.length();
+  }
+}
@@ -42,7 +42,7 @@ public class HttpResourceNames {
       };
 
   private static final DDCache<Pair<CharSequence, CharSequence>, CharSequence> JOINER_CACHE =
-      DDCaches.newFixedSizeCache(128);
+      DDCaches.newFixedSizeCache("http_resource_names", 128);
 
   private static final SimpleHttpPathNormalizer simpleHttpPathNormalizer =
       new SimpleHttpPathNormalizer();
@@ -1,7 +1,5 @@
 package datadog.trace.api.normalize;
 
-import static java.nio.charset.StandardCharsets.UTF_8;
-
 import datadog.trace.bootstrap.instrumentation.api.UTF8BytesString;
 import java.util.Arrays;
 import java.util.BitSet;
@@ -15,6 +13,10 @@ import org.slf4j.LoggerFactory;
  * will not remove literals in MySQL which are indistinguishable from object names. This is not an
  * obfuscator, and the strings produced by this class must be passed through obfuscation in the
  * trace agent.
+ *
+ * <p>The statement is encoded and normalized in a single pass into a reusable per-thread buffer.
+ * Normalized statements are shared through a small cache keyed by a hash of their bytes, so
+ * statements which only differ by their literals end up with the same instance.
  */
 public final class SQLNormalizer {
 
@@ -40,50 +42,118 @@ public final class SQLNormalizer {
     }
   }
 
+  // larger buffers are not kept around after normalizing the statement
+  private static final int MAX_RETAINED_BUFFER_SIZE = 16 << 10;
+  private static final ThreadLocal<byte[]> BUFFER = new ThreadLocal<>();
+
+  private static final int SHAPE_CACHE_SIZE = 512; // must be a power of two
+  private static final int MAX_SHAPE_LENGTH = 4 << 10;
+  private static final UTF8BytesString[] SHAPES = new UTF8BytesString[SHAPE_CACHE_SIZE];
+
   public static UTF8BytesString normalizeCharSequence(CharSequence sql) {
     return normalize(sql.toString());
   }
 
   public static UTF8BytesString normalize(String sql) {
-    byte[] utf8 = sql.getBytes(UTF_8);
+    return normalize(sql, false);
+  }
+
+  /**
+   * @param collapseInLists whether to replace lists of placeholders following {@code IN} with a
+   *     single placeholder, so statements generated for lists of different sizes are the same
+   */
+  public static UTF8BytesString normalize(String sql, boolean collapseInLists) {
     try {
-      BitSet splitters = findSplitterPositions(utf8);
-      int outputLength = utf8.length;
-      int end = outputLength;
-      int start = end > 0 ? splitters.previousSetBit(end - 1) : -1;
-      boolean modified = false;
-      // strip out anything ending with a quote (covers string and hex literals)
-      // or anything starting with a number, a quote, a decimal point, or a sign
-      while (end > 0 && start > 0) {
-        int sequenceStart = start + 1;
-        int sequenceEnd = end - 1;
-        if (sequenceEnd == sequenceStart) {
-          // single digit numbers can can be fixed in place
-          if (Character.isDigit(utf8[sequenceStart])) {
-            utf8[sequenceStart] = '?';
-            modified = true;
-          }
-        } else if (sequenceStart < sequenceEnd) {
-          if (isQuoted(utf8, sequenceStart, sequenceEnd)
-              || isNumericLiteralPrefix(utf8, sequenceStart)
-              || isHexLiteralPrefix(utf8, sequenceStart, sequenceEnd)) {
-            int length = sequenceEnd - sequenceStart;
-            System.arraycopy(utf8, end, utf8, sequenceStart + 1, outputLength - end);
-            utf8[sequenceStart] = '?';
-            outputLength -= length;
-            modified = true;
-          }
-        }
-        end = start;
-        start = splitters.previousSetBit(start - 1);
-      }
-      if (modified) {
-        return UTF8BytesString.create(Arrays.copyOf(utf8, outputLength));
-      }
+      byte[] buffer = buffer(sql.length());
+      int result = normalize(sql, buffer, collapseInLists);
+      // a negative result is the complement of the length of a modified statement
+      return share(sql, buffer, result < 0 ? ~result : result, result < 0);
     } catch (Throwable paranoid) {
       log.debug("Error normalizing sql {}", sql, paranoid);
     }
-    return UTF8BytesString.create(sql, utf8);
+    return UTF8BytesString.create(sql);
+  }
+
+  /**
+   * Encodes the statement to UTF-8 while stripping out anything ending with a quote (covers string
+   * and hex literals) or anything starting with a number, a quote, a decimal point, or a sign.
+   *
+   * @return the length of the output, or its complement if the statement was modified
+   */
+  private static int normalize(String sql, byte[] out, boolean collapseInLists) {
+    int length = 0;
+    int tokenStart = 0;
+    // the sequence before the first splitter is kept as is
+    boolean replaceable = false;
+    boolean quoted = false;
+    boolean escaped = false;
+    boolean modified = false;
+    for (int i = 0; i < sql.length(); ++i) {
+      char c = sql.charAt(i);
+      boolean splitter = false;
+      if (c == '\'' && !escaped) {
+        quoted = !quoted;
+      } else {
+        escaped = (c == '\\') & !escaped;
+        splitter = !quoted && c < 0x80 && isSplitter((byte) c);
+      }
+      if (splitter) {
+        if (replaceable && isLiteral(out, tokenStart, length)) {
+          out[tokenStart] = '?';
+          length = tokenStart + 1;
+          modified = true;
+        }
+        out[length++] = (byte) c;
+        if (c == ')' && collapseInLists) {
+          int collapsed = collapseInList(out, length);
+          modified |= collapsed != length;
+          length = collapsed;
+        }
+        tokenStart = length;
+        replaceable = i > 0;
+      } else if (c < 0x80) {
+        out[length++] = (byte) c;
+      } else if (c < 0x800) {
+        out[length++] = (byte) (0xC0 | (c >> 6));
+        out[length++] = (byte) (0x80 | (c & 0x3F));
+      } else if (Character.isSurrogate(c)) {
+        if (Character.isHighSurrogate(c)
+            && i + 1 < sql.length()
+            && Character.isLowSurrogate(sql.charAt(i + 1))) {
+          int codePoint = Character.toCodePoint(c, sql.charAt(++i));
+          out[length++] = (byte) (0xF0 | (codePoint >> 18));
+          out[length++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+          out[length++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+          out[length++] = (byte) (0x80 | (codePoint & 0x3F));
+        } else {
+          // same replacement as String.getBytes for malformed input, the statement is then decoded
+          // from the output so its string and bytes can't differ when it's shared
+          out[length++] = '?';
+          modified = true;
+        }
+      } else {
+        out[length++] = (byte) (0xE0 | (c >> 12));
+        out[length++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+        out[length++] = (byte) (0x80 | (c & 0x3F));
+      }
+    }
+    if (replaceable && isLiteral(out, tokenStart, length)) {
+      out[tokenStart] = '?';
+      length = tokenStart + 1;
+      modified = true;
+    }
+    return modified ? ~length : length;
+  }
+
+  private static boolean isLiteral(byte[] utf8, int start, int end) {
+    if (end - start == 1) {
+      // single digit numbers
+      return Character.isDigit(utf8[start]);
+    }
+    return end - start > 1
+        && (isQuoted(utf8, start, end - 1)
+            || isNumericLiteralPrefix(utf8, start)
+            || isHexLiteralPrefix(utf8, start, end - 1));
   }
 
   private static boolean isQuoted(byte[] utf8, int start, int end) {
@@ -104,19 +174,93 @@ public final class SQLNormalizer {
     return SPLITTERS.get(symbol & 0xFF);
   }
 
-  private static BitSet findSplitterPositions(byte[] utf8) {
-    BitSet positions = new BitSet(utf8.length);
-    boolean quoted = false;
-    boolean escaped = false;
-    for (int i = 0; i < utf8.length; ++i) {
-      byte b = utf8[i];
-      if (b == '\'' && !escaped) {
-        quoted = !quoted;
-      } else {
-        escaped = (b == '\\') & !escaped;
-        positions.set(i, !quoted & isSplitter(b));
+  private static boolean isWhitespace(byte symbol) {
+    return symbol >= 0 && Character.isWhitespace((char) symbol);
+  }
+
+  /**
+   * Replaces {@code IN (?, ?, ?)} at the end of the output, which has just been closed, with {@code
+   * IN (?)}.
+   *
+   * @return the new length of the output
+   */
+  private static int collapseInList(byte[] utf8, int length) {
+    int open = length - 2;
+    int placeholders = 0;
+    while (open >= 0 && utf8[open] != '(') {
+      byte symbol = utf8[open];
+      if (symbol == '?') {
+        ++placeholders;
+      } else if (symbol != ',' && !isWhitespace(symbol)) {
+        return length;
+      }
+      --open;
+    }
+    if (open < 0 || placeholders == 0 || length - open == 3) {
+      return length; // not a list of placeholders, or already collapsed
+    }
+    int keyword = open - 1;
+    while (keyword >= 0 && isWhitespace(utf8[keyword])) {
+      --keyword;
+    }
+    if (keyword < 1
+        || (utf8[keyword] | ' ') != 'n'
+        || (utf8[keyword - 1] | ' ') != 'i'
+        || (keyword > 1 && !isSplitter(utf8[keyword - 2]))) {
+      return length;
+    }
+    utf8[open + 1] = '?';
+    utf8[open + 2] = ')';
+    return open + 3;
+  }
+
+  private static byte[] buffer(int length) {
+    // each char is encoded with at most 3 bytes, surrogate pairs take 4 bytes for 2 chars
+    int size = length * 3;
+    if (size > MAX_RETAINED_BUFFER_SIZE) {
+      return new byte[size];
+    }
+    byte[] buffer = BUFFER.get();
+    if (null == buffer || buffer.length < size) {
+      buffer = new byte[Math.max(size, 256)];
+      BUFFER.set(buffer);
+    }
+    return buffer;
+  }
+
+  /** Returns the cached instance if the same statement was normalized before. */
+  private static UTF8BytesString share(String sql, byte[] buffer, int length, boolean modified) {
+    if (length > MAX_SHAPE_LENGTH) {
+      return create(sql, buffer, length, modified);
+    }
+    int hash = 1;
+    for (int i = 0; i < length; ++i) {
+      hash = 31 * hash + buffer[i];
+    }
+    int index = (hash ^ (hash >>> 16)) & (SHAPE_CACHE_SIZE - 1);
+    UTF8BytesString shape = SHAPES[index];
+    if (null != shape && sameBytes(shape.getUtf8Bytes(), buffer, length)) {
+      return shape;
+    }
+    shape = create(sql, buffer, length, modified);
+    SHAPES[index] = shape;
+    return shape;
+  }
+
+  private static UTF8BytesString create(String sql, byte[] buffer, int length, boolean modified) {
+    byte[] utf8 = Arrays.copyOf(buffer, length);
+    return modified ? UTF8BytesString.create(utf8) : UTF8BytesString.create(sql, utf8);
+  }
+
+  private static boolean sameBytes(byte[] utf8, byte[] buffer, int length) {
+    if (utf8.length != length) {
+      return false;
+    }
+    for (int i = 0; i < length; ++i) {
+      if (utf8[i] != buffer[i]) {
+        return false;
       }
     }
-    return positions;
+    return true;
   }
 }
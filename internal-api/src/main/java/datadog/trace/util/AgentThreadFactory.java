@@ -58,6 +58,9 @@ public final class AgentThreadFactory implements ThreadFactory {
 
     RETRANSFORMER("dd-retransformer"),
 
+    RESOLVER_PREPARSER("dd-resolver-preparser"),
+    HIERARCHY_INDEX("dd-hierarchy-index"),
+
     LOGS_INTAKE("dd-logs-intake");
 
     public final String threadName;
@@ -43,6 +43,58 @@ public class FNV64Hash {
     }
   }
 
+  /**
+   * Same as hashing the 16 bytes of the two values in little-endian order, without going through a
+   * byte array.
+   */
+  public static long generateHashLE(long first, long second, Version version) {
+    return continueHashLE(continueHashLE(FNV_INIT, first, version), second, version);
+  }
+
+  /**
+   * Same as {@code generateHash(Long.toString(first) + Long.toString(second), version)}, without
+   * allocating.
+   */
+  public static long generateDecimalHash(long first, long second, Version version) {
+    return continueDecimalHash(continueDecimalHash(FNV_INIT, first, version), second, version);
+  }
+
+  private static long continueHashLE(long currentHash, long value, Version version) {
+    long hash = currentHash;
+    for (int i = 0; i < 8; i++) {
+      hash = hashByte(hash, (int) (value >>> (i * 8)), version);
+    }
+    return hash;
+  }
+
+  private static long continueDecimalHash(long currentHash, long value, Version version) {
+    long hash = currentHash;
+    // digits are taken from the negated value, which also covers Long.MIN_VALUE
+    long remaining = value;
+    if (remaining < 0) {
+      hash = hashByte(hash, '-', version);
+    } else {
+      remaining = -remaining;
+    }
+    long divisor = 1;
+    while (remaining / divisor <= -10) {
+      divisor *= 10;
+    }
+    for (; divisor > 0; divisor /= 10) {
+      hash = hashByte(hash, '0' - (int) (remaining / divisor), version);
+      remaining %= divisor;
+    }
+    return hash;
+  }
+
+  private static long hashByte(long hash, int data, Version version) {
+    if (version == Version.v1) {
+      return (hash * FNV_PRIME) ^ (0xffL & data);
+    } else {
+      return (hash ^ (0xffL & data)) * FNV_PRIME;
+    }
+  }
+
   private static long generateFNV1Hash(long currentHash, byte[] data, int start, int length) {
     long hash = currentHash;
 
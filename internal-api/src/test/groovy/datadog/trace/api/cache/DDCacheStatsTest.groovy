@@ -0,0 +1,86 @@
+package datadog.trace.api.cache
+
+import datadog.trace.test.util.DDSpecification
+
+import java.util.function.Function
+
+class DDCacheStatsTest extends DDSpecification {
+
+  def cleanup() {
+    DDCacheStats.setEnabled(false)
+  }
+
+  def "named caches record nothing until stats are enabled"() {
+    setup:
+    def cache = DDCaches.newFixedSizeCache("test-disabled", 16)
+
+    when:
+    cache.computeIfAbsent("key", Function.identity())
+    cache.computeIfAbsent("key", Function.identity())
+
+    then:
+    DDCacheStats.register("test-disabled").hits() == 0
+    DDCacheStats.register("test-disabled").misses() == 0
+    !DDCacheStats.summary().contains("test-disabled")
+
+    when: "the tracer enables stats after the cache was created"
+    DDCacheStats.setEnabled(true)
+    cache.computeIfAbsent("key", Function.identity())
+
+    then:
+    DDCacheStats.register("test-disabled").hits() == 1
+  }
+
+  def "records hits and misses of #cacheType caches"() {
+    setup:
+    DDCacheStats.setEnabled(true)
+    def name = "test-" + cacheType
+    DDCache<String, String> cache = factory(name)
+
+    when:
+    ["a", "b", "a", "a", "c"].each { cache.computeIfAbsent(it, Function.identity()) }
+    def stats = DDCacheStats.register(name)
+
+    then:
+    stats.hits() == 2
+    stats.misses() == 3
+    stats.evictions() == 0
+    stats.computeNanos() >= 0
+    DDCacheStats.summary().contains(name + ": hits=2, misses=3, evictions=0")
+
+    where:
+    cacheType   | factory
+    "fixedSize" | { String name -> DDCaches.newFixedSizeCache(name, 16) }
+    "tinyLfu"   | { String name -> DDCaches.newFixedSizeTinyLfuCache(name, 16) }
+    "weighted"  | { String name -> DDCaches.newFixedSizeWeightedCache(name, 16, { 1 }, 16) }
+    "unbounded" | { String name -> DDCaches.newUnboundedCache(name, 16) }
+  }
+
+  def "records evictions"() {
+    setup:
+    DDCacheStats.setEnabled(true)
+    def cache = DDCaches.newFixedSizeCache("test-evictions", 1)
+
+    when:
+    (0..<100).each { cache.computeIfAbsent("key-" + it, Function.identity()) }
+    def stats = DDCacheStats.register("test-evictions")
+
+    then:
+    stats.misses() == 100
+    stats.evictions() > 0
+  }
+
+  def "caches with the same name share their stats"() {
+    setup:
+    DDCacheStats.setEnabled(true)
+    def first = DDCaches.newFixedSizeCache("test-shared", 16)
+    def second = DDCaches.newFixedSizeCache("test-shared", 16)
+
+    when:
+    first.computeIfAbsent("key", Function.identity())
+    second.computeIfAbsent("key", Function.identity())
+
+    then:
+    DDCacheStats.register("test-shared").misses() == 2
+  }
+}
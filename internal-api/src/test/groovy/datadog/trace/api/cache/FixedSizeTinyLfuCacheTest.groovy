@@ -0,0 +1,116 @@
+package datadog.trace.api.cache
+
+import datadog.trace.test.util.DDSpecification
+
+import java.util.concurrent.atomic.AtomicInteger
+import java.util.function.Function
+
+class FixedSizeTinyLfuCacheTest extends DDSpecification {
+  def "invalid capacities are rejected"() {
+    when:
+    DDCaches.newFixedSizeTinyLfuCache(capacity)
+
+    then:
+    thrown(IllegalArgumentException)
+
+    where:
+    capacity << [Integer.MIN_VALUE, -1, 0]
+  }
+
+  def "null keys are not cached"() {
+    setup:
+    def cache = DDCaches.newFixedSizeTinyLfuCache(15)
+
+    expect:
+    cache.computeIfAbsent(null, { "value" }) == null
+  }
+
+  def "cache stores and retrieves values"() {
+    setup:
+    def cache = DDCaches.newFixedSizeTinyLfuCache(15)
+    def creationCount = new AtomicInteger(0)
+    Function<String, String> producer = { creationCount.incrementAndGet(); it + "-value" }
+
+    when:
+    def first = cache.computeIfAbsent("key", producer)
+    def second = cache.computeIfAbsent("key", producer)
+
+    then:
+    first == "key-value"
+    second.is(first)
+    creationCount.get() == 1
+
+    when:
+    cache.clear()
+
+    then:
+    cache.computeIfAbsent("key", producer) == "key-value"
+    creationCount.get() == 2
+  }
+
+  def "frequently used keys are not evicted by keys used once"() {
+    setup:
+    def cache = DDCaches.newFixedSizeTinyLfuCache(16)
+    def hot = (0..<8).collect { "hot-" + it }
+    def creationCount = new AtomicInteger(0)
+    Function<String, String> producer = { creationCount.incrementAndGet(); it }
+
+    when:
+    (0..<1000).each {
+      cache.computeIfAbsent(hot[it % hot.size()], Function.identity())
+      cache.computeIfAbsent("cold-" + it, Function.identity())
+    }
+    hot.each { cache.computeIfAbsent(it, producer) }
+
+    then:
+    creationCount.get() == 0
+  }
+
+  def "keys used more often than the cached ones are admitted"() {
+    setup:
+    def cache = DDCaches.newFixedSizeTinyLfuCache(1)
+    def creationCount = new AtomicInteger(0)
+    Function<String, String> producer = { creationCount.incrementAndGet(); it }
+    cache.computeIfAbsent("old", producer)
+    cache.computeIfAbsent("new", producer)
+    cache.computeIfAbsent("new", producer)
+    cache.computeIfAbsent("new", producer)
+    creationCount.set(0)
+
+    when:
+    cache.computeIfAbsent("new", producer)
+
+    then:
+    creationCount.get() == 0
+  }
+
+  def "concurrent increments keep the sketch's count within its sample size"() {
+    setup:
+    def sketch = new FrequencySketch(16)
+    def threads = (1..4).collect { t ->
+      Thread.start {
+        10_000.times { sketch.increment(t * 10_000 + it) }
+      }
+    }
+
+    when:
+    threads*.join()
+
+    then:
+    sketch.additions >= 0
+    sketch.additions < 160
+  }
+
+  def "visits the cached elements"() {
+    setup:
+    def cache = DDCaches.newFixedSizeTinyLfuCache(16)
+    ["a", "b", "c"].each { cache.computeIfAbsent(it, { it.toUpperCase() }) }
+    def visited = [:]
+
+    when:
+    cache.visit({ k, v -> visited.put(k, v) })
+
+    then:
+    visited == [a: "A", b: "B", c: "C"]
+  }
+}
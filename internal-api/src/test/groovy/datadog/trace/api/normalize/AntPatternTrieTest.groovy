@@ -0,0 +1,78 @@
+package datadog.trace.api.normalize
+
+import datadog.trace.test.util.DDSpecification
+
+class AntPatternTrieTest extends DDSpecification {
+
+  def "matches like AntPathMatcher"() {
+    given:
+    def trie = new AntPatternTrie()
+    trie.add(pattern, "matched")
+
+    expect:
+    trie.match(path) == (new AntPathMatcher().match(pattern, path) ? "matched" : null)
+
+    where:
+    //spotless:off
+    pattern             | path
+    "/users/*"          | "/users/42"
+    "/users/*"          | "/users/"
+    "/users/*"          | "/users"
+    "/users/*"          | "/users/42/orders"
+    "/users/?"          | "/users/4"
+    "/users/?"          | "/users/42"
+    "/users/*/orders"   | "/users/42/orders"
+    "/users/*/orders"   | "/users/42/orders/"
+    "/users/*/orders/"  | "/users/42/orders/"
+    "/users/**"         | "/users"
+    "/users/**"         | "/users/42/orders/7"
+    "/**/orders"        | "/orders"
+    "/**/orders"        | "/users/42/orders"
+    "/**/orders"        | "/users/42/orders/"
+    "/a/**/b/**/c"      | "/a/x/b/y/z/c"
+    "/a/**/b/**/c"      | "/a/b/c"
+    "/a/**/b/**/c"      | "/a/x/c"
+    "/img/*.png"        | "/img/logo.png"
+    "/img/*.png"        | "/img/logo.jpg"
+    "/img/l*o*.png"     | "/img/logo.png"
+    "/users/*"          | "users/42"
+    "users/*"           | "users/42"
+    "/users//*"         | "/users/42"
+    //spotless:on
+  }
+
+  def "the first pattern added wins"() {
+    given:
+    def trie = new AntPatternTrie()
+    trie.add("/users/**", "any")
+    trie.add("/users/*", "one")
+    trie.add("/users/me", "me")
+
+    expect:
+    trie.match("/users/me") == "any"
+    trie.match("/users/42") == "any"
+    trie.match("/orders") == null
+  }
+
+  def "literal segments take no precedence over earlier wildcards"() {
+    given:
+    def trie = new AntPatternTrie()
+    trie.add("/*/orders", "wildcard")
+    trie.add("/users/orders", "literal")
+    trie.add("/users/**", "users")
+
+    expect:
+    trie.match("/users/orders") == "wildcard"
+    trie.match("/users/invoices") == "users"
+  }
+
+  def "empty trie matches nothing"() {
+    given:
+    def trie = new AntPatternTrie()
+
+    expect:
+    trie.isEmpty()
+    trie.match("/users") == null
+    trie.match(null) == null
+  }
+}
@@ -135,4 +135,43 @@ INSERT INTO country (country_name, country_name_eng, country_code) VALUES (?, ?,
       "SELECT count(*) AS totcount FROM (SELECT \"c1\", \"c2\",\"c3\",\"c4\",\"c5\",\"c6\",\"c7\",\"c8\", \"c9\", \"c10\",\"c11\",\"c12\",\"c13\",\"c14\", \"c15\",\"c16\",\"c17\",\"c18\", \"c19\",\"c20\",\"c21\",\"c22\",\"c23\", \"c24\",\"c25\",\"c26\", \"c27\" FROM (SELECT bar.y AS \"c2\", foo.x AS \"c3\", foo.z AS \"c4\", DECODE(foo.a, NULL,NULL, foo.a ||?|| foo.b) AS \"c5\" , foo.c AS \"c6\", bar.d AS \"c1\", bar.e AS \"c7\", bar.f AS \"c8\", bar.g AS \"c9\", TO_DATE(TO_CHAR(TO_DATE(bar.h,?),?),?) AS \"c10\", TO_DATE(TO_CHAR(TO_DATE(bar.i,?),?),?) AS \"c11\", CASE WHEN DECODE(bar.j, NULL, TRUNC(SYSDATE) - TRUNC(TO_DATE(bar.h,?))) > ? THEN ? WHEN DECODE(bar.j, NULL, TRUNC(SYSDATE) - TRUNC(TO_DATE(bar.h,?))) > ? THEN ? WHEN DECODE(bar.j, NULL, TRUNC(SYSDATE) - TRUNC(TO_DATE(bar.h,?))) > ? THEN ? WHEN DECODE(bar.j, NULL, TRUNC(SYSDATE) - TRUNC(TO_DATE(bar.h,?))) > ? THEN ? WHEN DECODE(bar.j, NULL, TRUNC(SYSDATE) - TRUNC(TO_DATE(bar.h,?))) > ? THEN ? WHEN DECODE(bar.j, NULL, TRUNC(SYSDATE) - TRUNC(TO_DATE(bar.h,?))) > ? THEN ? ELSE NULL END AS \"c12\", DECODE(bar.j, NULL, TRUNC(SYSDATE) - TRUNC(TO_DATE(bar.h,?)),NULL) as \"c13\", bar.k AS \"c14\", bar.l ||?||bar.m AS \"c15\", DECODE(bar.n, NULL, NULL,bar.n ||?||bar.o) AS \"c16\", bar.p AS \"c17\", bar.q AS \"c18\", bar.r AS \"c19\", bar.s AS \"c20\", qux.a AS \"c21\", TO_CHAR(TO_DATE(qux.b,?),?) AS \"c22\", DECODE(qux.l,NULL,NULL, qux.l ||?||qux.m) AS \"c23\", bar.a AS \"c24\", TO_CHAR(TO_DATE(bar.j,?),?) AS \"c25\", DECODE(bar.c , ?,?,?, ?, bar.c ) AS \"c26\", bar.y AS y, bar.d, bar.d AS \"c27\" FROM blort.bar , ( SELECT * FROM (SELECT a,a,l,m,b,c, RANK() OVER (PARTITION BY c ORDER BY b DESC) RNK FROM blort.d WHERE y IN (:protocols)) WHERE RNK = ?) qux, blort.foo WHERE bar.c = qux.c(+) AND bar.x = foo.x AND bar.y IN (:protocols) and bar.x IN (:sites)) )"
     // spotless:on
   }
+
+  def "collapse IN lists #sql"() {
+    when:
+    UTF8BytesString normalized = SQLNormalizer.normalize(sql, true)
+    then:
+    normalized as String == expected
+    where:
+    sql                                                            | expected
+    "SELECT * FROM TABLE WHERE userId IN (?, ?, ?)"                | "SELECT * FROM TABLE WHERE userId IN (?)"
+    "SELECT * FROM TABLE WHERE userId in ('a', 'b', 'c')"          | "SELECT * FROM TABLE WHERE userId in (?)"
+    "SELECT * FROM TABLE WHERE userId IN(1,2) AND x IN ( ? , ? )"  | "SELECT * FROM TABLE WHERE userId IN(?) AND x IN (?)"
+    "SELECT * FROM TABLE WHERE userId IN (?)"                      | "SELECT * FROM TABLE WHERE userId IN (?)"
+    "SELECT * FROM TABLE WHERE userId IN (:ids)"                   | "SELECT * FROM TABLE WHERE userId IN (:ids)"
+    "SELECT * FROM TABLE WHERE userId IN ('a', foo)"               | "SELECT * FROM TABLE WHERE userId IN (?, foo)"
+    "SELECT MIN(?, ?) FROM TABLE"                                  | "SELECT MIN(?, ?) FROM TABLE"
+    "SELECT * FROM TABLE JOIN (?, ?)"                              | "SELECT * FROM TABLE JOIN (?, ?)"
+    "SELECT * FROM TABLE WHERE userId = '(?, ?)' IN (1, 2)"        | "SELECT * FROM TABLE WHERE userId = ? IN (?)"
+  }
+
+  def "statements with the same normalized form share one instance"() {
+    when:
+    UTF8BytesString first = SQLNormalizer.normalize("SELECT * FROM TABLE WHERE userId IN (1, 2) AND name = 'a'", true)
+    UTF8BytesString second = SQLNormalizer.normalize("SELECT * FROM TABLE WHERE userId IN (3, 4, 5) AND name = 'b'", true)
+    then:
+    first.is(second)
+    first as String == "SELECT * FROM TABLE WHERE userId IN (?) AND name = ?"
+  }
+
+  def "unpaired surrogates are replaced"() {
+    when:
+    UTF8BytesString normalized = SQLNormalizer.normalize(sql)
+    then:
+    normalized as String == expected
+    normalized.getUtf8Bytes() == sql.getBytes("UTF-8")
+    where:
+    sql                              | expected
+    "SELECT \uD83D\uDE00 FROM TABLE" | "SELECT \uD83D\uDE00 FROM TABLE"
+    "SELECT \uD83D FROM TABLE"       | "SELECT ? FROM TABLE"
+  }
 }
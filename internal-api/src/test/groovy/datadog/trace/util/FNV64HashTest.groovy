@@ -2,6 +2,9 @@ package datadog.trace.util
 
 import datadog.trace.test.util.DDSpecification
 
+import java.nio.ByteBuffer
+import java.nio.ByteOrder
+
 // Test cases from http://www.isthe.com/chongo/src/fnv/test_fnv.c
 class FNV64HashTest extends DDSpecification {
 
@@ -201,4 +204,31 @@ class FNV64HashTest extends DDSpecification {
     [0x07] * 500 as byte[]                                          | "0289a488a8df69d9" | "c23e9fccd6f70591"
     [0x7f] * 500 as byte[]                                          | "e6be57375ad89b99" | "39e9f18f2f85e221"
   }
+
+  def "pairs of longs hash like their little-endian bytes"() {
+    setup:
+    def bytes = ByteBuffer.allocate(16).order(ByteOrder.LITTLE_ENDIAN).putLong(first).putLong(second).array()
+
+    expect:
+    FNV64Hash.generateHashLE(first, second, version) == FNV64Hash.generateHash(bytes, version)
+
+    where:
+    [first, second, version] << [
+      [0L, 1L, -1L, 1234567890123L, Long.MIN_VALUE, Long.MAX_VALUE],
+      [0L, -42L, 987654321L, Long.MIN_VALUE],
+      FNV64Hash.Version.values()
+    ].combinations()
+  }
+
+  def "pairs of longs hash like their decimal strings"() {
+    expect:
+    FNV64Hash.generateDecimalHash(first, second, version) == FNV64Hash.generateHash(Long.toString(first) + Long.toString(second), version)
+
+    where:
+    [first, second, version] << [
+      [0L, 9L, 10L, -1L, -10L, 1234567890123L, Long.MIN_VALUE, Long.MAX_VALUE],
+      [0L, 100L, -99L, -8070450532247928832L, Long.MIN_VALUE],
+      FNV64Hash.Version.values()
+    ].combinations()
+  }
 }